@@ -0,0 +1,36 @@
+package flooring.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+/**
+ * Runs benchmarks like org.openjdk.jmh.Main, but always with the gc profiler,
+ * so every result reports allocation rate next to time or throughput
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(commandLine);
+        boolean gcProfiler = false;
+        for (ProfilerConfig profiler : commandLine.getProfilers()) {
+            if (profiler.getKlass().equals(GCProfiler.class.getName()) || profiler.getKlass().equals("gc")) {
+                gcProfiler = true;
+            }
+        }
+        if (!gcProfiler) {
+            options.addProfiler(GCProfiler.class);
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,67 @@
+package flooring.benchmarks;
+
+import flooring.dao.FlooringMasteryOrderDao;
+import flooring.dao.FlooringMasteryOrderDaoBinaryImpl;
+import flooring.dao.FlooringMasteryOrderDaoFileImpl;
+import flooring.dao.FlooringMasteryPersistenceException;
+import flooring.model.Order;
+import flooring.tools.DayFileConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads one day file of 1k and 100k orders with getOrdersForDate in the text
+ * and in the binary columnar format. Sizes of both day files are printed on setup
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DayFileFormatBenchmark {
+
+    @Param({"1000", "100000"})
+    private int orders;
+
+    @Param({"text", "binary"})
+    private String format;
+
+    private FlooringMasteryOrderDao orderDao;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String fileName = "Order_" + OrderFixtures.FIRST_DATE.format(DateTimeFormatter.ofPattern("MMddyyyy"));
+        Path directory = OrderFixtures.scratch("format-" + orders);
+        Files.copy(OrderFixtures.singleDay(orders).resolve(fileName + ".txt"), directory.resolve(fileName + ".txt"));
+        new DayFileConverter(directory.toString()).convert(true, false);
+        System.out.printf("%n%d orders: text day file %d bytes, binary day file %d bytes%n", orders,
+                Files.size(directory.resolve(fileName + ".txt")), Files.size(directory.resolve(fileName + ".bin")));
+        String backupFile = directory.resolve("DataExport.txt").toString();
+        String numberFile = directory.resolve("OrderNumber.txt").toString();
+        orderDao = format.equals("binary")
+                ? new FlooringMasteryOrderDaoBinaryImpl(directory.toString(), backupFile, numberFile)
+                : new FlooringMasteryOrderDaoFileImpl(directory.toString(), backupFile, numberFile);
+    }
+
+    @Benchmark
+    public Map<Integer, Order> getOrdersForDate() throws FlooringMasteryPersistenceException {
+        return orderDao.getOrdersForDate(OrderFixtures.FIRST_DATE);
+    }
+}
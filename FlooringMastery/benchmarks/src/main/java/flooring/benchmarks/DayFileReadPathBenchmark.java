@@ -0,0 +1,88 @@
+package flooring.benchmarks;
+
+import flooring.dao.FlooringMasteryOrderDaoFileImpl;
+import flooring.dao.FlooringMasteryRecordCodec;
+import flooring.model.Order;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.nio.file.Path;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads one day file of 1k, 100k and 1M orders with getOrdersForDate through
+ * the mapped read path parsed on one thread and in parallel parts, and the
+ * streamed read path, compared with the Scanner over BufferedReader and
+ * FileReader they replaced. searchCustomerName reads only one field of the
+ * loaded orders, as searches and reports do
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DayFileReadPathBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int orders;
+
+    @Param({"mapped", "parallel", "streamed", "scanner"})
+    private String path;
+
+    private final FlooringMasteryRecordCodec codec = new FlooringMasteryRecordCodec();
+    private FlooringMasteryOrderDaoFileImpl orderDao;
+    private String fileName;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Path directory = OrderFixtures.singleDay(orders);
+        orderDao = new FlooringMasteryOrderDaoFileImpl(directory.toString(),
+                directory.resolve("DataExport.txt").toString(), directory.resolve("OrderNumber.txt").toString());
+        orderDao.setMapThreshold(path.equals("streamed") ? 0 : Long.MAX_VALUE);
+        orderDao.setParallelThreshold(path.equals("parallel") ? 0 : Long.MAX_VALUE);
+        fileName = directory.resolve("Order_"
+                + OrderFixtures.FIRST_DATE.format(DateTimeFormatter.ofPattern("MMddyyyy")) + ".txt").toString();
+    }
+
+    @Benchmark
+    public Map<Integer, Order> getOrdersForDate() throws Exception {
+        if (!path.equals("scanner")) {
+            return orderDao.getOrdersForDate(OrderFixtures.FIRST_DATE);
+        }
+        Map<Integer, Order> orderMap = new HashMap<>();
+        try (Scanner in = new Scanner(new BufferedReader(new FileReader(fileName)))) {
+            // read the header
+            in.nextLine();
+            while (in.hasNextLine()) {
+                Order order = codec.decodeOrder(in.nextLine());
+                order.setDate(OrderFixtures.FIRST_DATE);
+                orderMap.put(order.getOrderNumber(), order);
+            }
+        }
+        return orderMap;
+    }
+
+    @Benchmark
+    public long searchCustomerName() throws Exception {
+        return getOrdersForDate().values().stream()
+                .filter(order -> order.getCustomerName().startsWith("A"))
+                .count();
+    }
+}
@@ -0,0 +1,51 @@
+package flooring.benchmarks;
+
+import flooring.dao.FlooringMasteryOrderDao;
+import flooring.dao.FlooringMasteryOrderDaoFileImpl;
+import flooring.dao.FlooringMasteryPersistenceException;
+import flooring.model.Order;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads one day file of 1k, 100k and 1M orders with getOrdersForDate
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class OrderDaoReadBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int orders;
+
+    private FlooringMasteryOrderDao orderDao;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Path directory = OrderFixtures.singleDay(orders);
+        orderDao = new FlooringMasteryOrderDaoFileImpl(directory.toString(),
+                directory.resolve("DataExport.txt").toString(), directory.resolve("OrderNumber.txt").toString());
+    }
+
+    @Benchmark
+    public Map<Integer, Order> getOrdersForDate() throws FlooringMasteryPersistenceException {
+        return orderDao.getOrdersForDate(OrderFixtures.FIRST_DATE);
+    }
+}
@@ -0,0 +1,53 @@
+package flooring.benchmarks;
+
+import flooring.dao.FlooringMasteryOrderDao;
+import flooring.dao.FlooringMasteryOrderDaoFileImpl;
+import flooring.dao.FlooringMasteryPersistenceException;
+import flooring.model.ExportReport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * exportOrders over a synthetic tree of one and five years of day files
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OrderExportBenchmark {
+
+    private static final int ORDERS_PER_DAY = 40;
+
+    @Param({"1", "5"})
+    private int years;
+
+    private FlooringMasteryOrderDao orderDao;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Path directory = OrderFixtures.tree("export-" + years, years * 365, ORDERS_PER_DAY);
+        Path scratch = OrderFixtures.scratch("export-" + years);
+        orderDao = new FlooringMasteryOrderDaoFileImpl(directory.toString(),
+                scratch.resolve("DataExport.txt").toString(), scratch.resolve("OrderNumber.txt").toString());
+    }
+
+    @Benchmark
+    public ExportReport exportOrders() throws FlooringMasteryPersistenceException {
+        return orderDao.exportOrders();
+    }
+}
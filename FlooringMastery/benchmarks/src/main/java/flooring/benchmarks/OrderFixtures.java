@@ -0,0 +1,178 @@
+package flooring.benchmarks;
+
+import flooring.dao.FlooringMasteryRecordCodec;
+import flooring.model.Order;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Generates deterministic order fixtures in the day file format under target/fixtures.
+ * Fixtures are reused between runs if they are complete
+ */
+final class OrderFixtures {
+
+    static final String HEADER = "OrderNumber::CustomerName::State::TaxRate::ProductType::" +
+            "Area::CostPerSquareFoot::LaborCostPerSquareFoot::MaterialCost::LaborCost::Tax::Total";
+    static final LocalDate FIRST_DATE = LocalDate.of(2015, 1, 1);
+
+    private static final Path FIXTURES = Paths.get("target", "fixtures");
+    // written last, fixture without it was interrupted and is generated again
+    private static final String COMPLETE = ".complete";
+    private static final DateTimeFormatter FILE_FORMATTER = DateTimeFormatter.ofPattern("MMddyyyy");
+
+    private static final String[][] STATES = {
+            {"Texas", "6.25"}, {"California", "7.25"}, {"New York", "4.00"}, {"Washington", "6.50"},
+            {"Kentucky", "6.00"}, {"Louisiana", "4.45"}, {"Ohio", "5.75"}, {"Minnesota", "6.88"}
+    };
+    private static final String[][] PRODUCTS = {
+            {"Carpet", "2.25", "2.10"}, {"Laminate", "1.75", "2.10"}, {"Tile", "3.50", "4.15"}, {"Wood", "5.15", "4.75"}
+    };
+    private static final String[] NAMES = {
+            "Doctor Who", "Acme, Inc.", "Ada Lovelace", "Grace Hopper", "Alan Turing", "Tile Masters Co."
+    };
+
+    private OrderFixtures() {
+    }
+
+    /**
+     * Creates random order
+     * @param random Random to use
+     * @param date LocalDate of the order
+     * @param orderNumber number of the order
+     * @return Order object
+     */
+    static Order randomOrder(Random random, LocalDate date, int orderNumber) {
+        String[] state = STATES[random.nextInt(STATES.length)];
+        String[] product = PRODUCTS[random.nextInt(PRODUCTS.length)];
+        Order order = new Order(date, NAMES[random.nextInt(NAMES.length)] + " " + orderNumber, state[0],
+                new BigDecimal(state[1]), product[0], BigDecimal.valueOf(10_000 + random.nextInt(1_000_000), 2),
+                new BigDecimal(product[1]), new BigDecimal(product[2]));
+        order.setOrderNumber(orderNumber);
+        return order;
+    }
+
+    /**
+     * Gets directory with day files of one date
+     * @param orders number of orders in the day file
+     * @return directory with the day file of FIRST_DATE
+     */
+    static Path singleDay(int orders) {
+        return tree("day-" + orders, 1, orders);
+    }
+
+    /**
+     * Gets directory with day files of consecutive dates starting from FIRST_DATE
+     * @param name name of the fixture
+     * @param days number of day files
+     * @param ordersPerDay number of orders in every day file
+     * @return directory with day files
+     */
+    static Path tree(String name, int days, int ordersPerDay) {
+        Path directory = FIXTURES.resolve(name);
+        if (Files.exists(directory.resolve(COMPLETE))) {
+            return directory;
+        }
+        try {
+            delete(directory);
+            Files.createDirectories(directory);
+            FlooringMasteryRecordCodec codec = new FlooringMasteryRecordCodec();
+            Random random = new Random(name.hashCode());
+            int orderNumber = 1;
+            for (int day = 0; day < days; day++) {
+                LocalDate date = FIRST_DATE.plusDays(day);
+                try (BufferedWriter out = Files.newBufferedWriter(
+                        directory.resolve("Order_" + date.format(FILE_FORMATTER) + ".txt"), StandardCharsets.UTF_8)) {
+                    out.write(HEADER);
+                    out.newLine();
+                    for (int i = 0; i < ordersPerDay; i++) {
+                        out.write(codec.encodeOrder(randomOrder(random, date, orderNumber++)));
+                        out.newLine();
+                    }
+                }
+            }
+            Files.createFile(directory.resolve(COMPLETE));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot generate fixture " + name, e);
+        }
+        return directory;
+    }
+
+    /**
+     * Gets working directory of the application with Data/Taxes.txt and Data/Products.txt
+     * built from the fixture states and products
+     * @param name name of the fixture
+     * @return directory to start the application in
+     */
+    static Path catalogs(String name) {
+        Path directory = FIXTURES.resolve(name);
+        if (Files.exists(directory.resolve(COMPLETE))) {
+            return directory;
+        }
+        try {
+            delete(directory);
+            Files.createDirectories(directory.resolve("Data"));
+            List<String> taxes = new ArrayList<>();
+            taxes.add("State::StateName::TaxRate");
+            for (String[] state : STATES) {
+                taxes.add(state[0].substring(0, 2).toUpperCase() + "::" + state[0] + "::" + state[1]);
+            }
+            List<String> products = new ArrayList<>();
+            products.add("ProductType::CostPerSquareFoot::LaborCostPerSquareFoot");
+            for (String[] product : PRODUCTS) {
+                products.add(String.join("::", product));
+            }
+            Files.write(directory.resolve("Data/Taxes.txt"), taxes, StandardCharsets.UTF_8);
+            Files.write(directory.resolve("Data/Products.txt"), products, StandardCharsets.UTF_8);
+            Files.createFile(directory.resolve(COMPLETE));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot generate fixture " + name, e);
+        }
+        return directory;
+    }
+
+    /**
+     * Creates empty directory for files written by a benchmark
+     * @param name name of the directory
+     * @return empty directory
+     */
+    static Path scratch(String name) {
+        Path directory = FIXTURES.resolve("scratch").resolve(name);
+        try {
+            delete(directory);
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create directory " + directory, e);
+        }
+        return directory;
+    }
+
+    /**
+     * Deletes directory with all its content
+     * @param directory directory to delete
+     * @throws IOException when deleting fails
+     */
+    static void delete(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package flooring.benchmarks;
+
+import flooring.model.Order;
+import flooring.model.PricingEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order.getTotal() priced by PricingEngine, compared with the BigDecimal chain it replaced,
+ * and batch pricing of 1000 orders
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderPricingBenchmark {
+
+    private static final BigDecimal HUNDRED = new BigDecimal("100");
+
+    private Order order;
+    private BigDecimal area;
+    private List<Order> orders;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(4);
+        order = OrderFixtures.randomOrder(random, OrderFixtures.FIRST_DATE, 1);
+        area = order.getArea();
+        orders = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            orders.add(OrderFixtures.randomOrder(random, OrderFixtures.FIRST_DATE, i + 2));
+        }
+    }
+
+    @Benchmark
+    public BigDecimal getTotal() {
+        // setting area drops the cached price, so the order is priced again
+        order.setArea(area);
+        return order.getTotal();
+    }
+
+    @Benchmark
+    public BigDecimal getTotalCached() {
+        return order.getTotal();
+    }
+
+    @Benchmark
+    public BigDecimal getTotalBigDecimal() {
+        // getTotal() before PricingEngine: getTax() calculates both costs again
+        BigDecimal costWithoutTax = laborCost().add(materialCost());
+        return costWithoutTax.add(tax());
+    }
+
+    private BigDecimal materialCost() {
+        return order.getCostPerSquareFoot().multiply(area).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private BigDecimal laborCost() {
+        return order.getLaborCostPerSquareFoot().multiply(area).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private BigDecimal tax() {
+        BigDecimal costWithoutTax = laborCost().add(materialCost());
+        return costWithoutTax.multiply(order.getTaxRate()).divide(HUNDRED, 2, RoundingMode.HALF_UP);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long priceAll() {
+        return PricingEngine.priceAll(orders).getSumOfTotalCents();
+    }
+}
@@ -0,0 +1,59 @@
+package flooring.benchmarks;
+
+import flooring.dao.FlooringMasteryOrderDao;
+import flooring.dao.FlooringMasteryOrderDaoFileImpl;
+import flooring.dao.FlooringMasteryPersistenceException;
+import flooring.model.Order;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency distribution of uploadModifiedOrders rewriting a whole day file
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderRewriteBenchmark {
+
+    @Param({"100", "10000"})
+    private int orders;
+
+    private FlooringMasteryOrderDao orderDao;
+    private List<Order> dayOrders;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Path directory = OrderFixtures.scratch("rewrite-" + orders);
+        orderDao = new FlooringMasteryOrderDaoFileImpl(directory.resolve("Orders").toString(),
+                directory.resolve("DataExport.txt").toString(), directory.resolve("OrderNumber.txt").toString());
+        Random random = new Random(2);
+        dayOrders = new ArrayList<>();
+        for (int i = 1; i <= orders; i++) {
+            dayOrders.add(OrderFixtures.randomOrder(random, OrderFixtures.FIRST_DATE, i));
+        }
+    }
+
+    @Benchmark
+    public void uploadModifiedOrders() throws FlooringMasteryPersistenceException {
+        orderDao.uploadModifiedOrders(dayOrders, OrderFixtures.FIRST_DATE);
+    }
+}
@@ -0,0 +1,68 @@
+package flooring.benchmarks;
+
+import flooring.dao.FlooringMasteryOrderDaoFileImpl;
+import flooring.dao.FlooringMasteryPersistenceException;
+import flooring.model.Order;
+import flooring.model.OrderFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Searches 30 day files of 10k orders by State and ProductType, which match
+ * one order of 32, and by an Area range with scanOrders, compared with
+ * filtering all orders of getOrdersBetween
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class OrderScanBenchmark {
+
+    private static final int DAYS = 30;
+
+    @Param({"state", "area"})
+    private String criteria;
+
+    @Param({"scan", "filter"})
+    private String path;
+
+    private FlooringMasteryOrderDaoFileImpl orderDao;
+    private OrderFilter filter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Path directory = OrderFixtures.tree("scan", DAYS, 10_000);
+        orderDao = new FlooringMasteryOrderDaoFileImpl(directory.toString(),
+                directory.resolve("DataExport.txt").toString(), directory.resolve("OrderNumber.txt").toString());
+        filter = criteria.equals("state")
+                ? new OrderFilter(null, "Ohio", "Tile", null, null, null, null)
+                : new OrderFilter(null, null, null, new BigDecimal("100"), new BigDecimal("200"), null, null);
+    }
+
+    @Benchmark
+    public long searchOrders() throws FlooringMasteryPersistenceException {
+        try (Stream<Order> orders = path.equals("scan")
+                ? orderDao.scanOrders(OrderFixtures.FIRST_DATE, OrderFixtures.FIRST_DATE.plusDays(DAYS - 1), filter)
+                : orderDao.getOrdersBetween(OrderFixtures.FIRST_DATE, OrderFixtures.FIRST_DATE.plusDays(DAYS - 1))
+                .filter(filter)) {
+            return orders.count();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package flooring.benchmarks;
+
+import flooring.dao.FlooringMasteryOrderDaoFileImpl;
+import flooring.dao.FlooringMasteryPersistenceException;
+import flooring.model.Order;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of uploadOrder writing to day files directly and through the journal.
+ * Orders are spread over a month of dates
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderUploadBenchmark {
+
+    private static final int DATES = 30;
+    private static final int PREPARED_ORDERS = 1024;
+
+    @Param({"direct", "journal"})
+    private String mode;
+
+    private FlooringMasteryOrderDaoFileImpl orderDao;
+    private Order[] orders;
+    private final AtomicInteger orderNumber = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws FlooringMasteryPersistenceException {
+        Path directory = OrderFixtures.scratch("upload-" + mode);
+        String backup = directory.resolve("DataExport.txt").toString();
+        String number = directory.resolve("OrderNumber.txt").toString();
+        if (mode.equals("journal")) {
+            orderDao = new FlooringMasteryOrderDaoFileImpl(directory.resolve("Orders").toString(), backup, number,
+                    directory.resolve("OrderJournal.txt").toString());
+        } else {
+            orderDao = new FlooringMasteryOrderDaoFileImpl(directory.resolve("Orders").toString(), backup, number);
+        }
+        Random random = new Random(1);
+        orders = new Order[PREPARED_ORDERS];
+        for (int i = 0; i < orders.length; i++) {
+            orders[i] = OrderFixtures.randomOrder(random, OrderFixtures.FIRST_DATE.plusDays(i % DATES), i + 1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws FlooringMasteryPersistenceException {
+        orderDao.destroy();
+    }
+
+    @Benchmark
+    public void uploadOrder() throws FlooringMasteryPersistenceException {
+        int number = orderNumber.incrementAndGet();
+        Order order = new Order(orders[number % PREPARED_ORDERS]);
+        order.setOrderNumber(number);
+        orderDao.uploadOrder(order);
+    }
+}
@@ -0,0 +1,87 @@
+package flooring.benchmarks;
+
+import flooring.dao.FlooringMasteryRecordCodec;
+import flooring.model.Order;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * marshallData/unmarshallData of the order DAO, which go through FlooringMasteryRecordCodec,
+ * compared with the String concatenation and String.split they replaced
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordCodecBenchmark {
+
+    private static final String DELIMITER = "::";
+
+    private final FlooringMasteryRecordCodec codec = new FlooringMasteryRecordCodec();
+    private Order order;
+    private String record;
+    private byte[] recordBytes;
+
+    @Setup
+    public void setUp() {
+        order = OrderFixtures.randomOrder(new Random(3), OrderFixtures.FIRST_DATE, 123456);
+        record = codec.encodeOrder(order);
+        recordBytes = record.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String marshallData() {
+        return codec.encodeOrder(order);
+    }
+
+    @Benchmark
+    public String marshallDataConcat() {
+        return order.getOrderNumber() + DELIMITER + order.getCustomerName() +
+                DELIMITER + order.getState() + DELIMITER + order.getTaxRate() +
+                DELIMITER + order.getProductType() + DELIMITER + order.getArea() +
+                DELIMITER + order.getCostPerSquareFoot() + DELIMITER +
+                order.getLaborCostPerSquareFoot() + DELIMITER + order.getMaterialCost() +
+                DELIMITER + order.getLaborCost() + DELIMITER + order.getTax() +
+                DELIMITER + order.getTotal();
+    }
+
+    @Benchmark
+    public Order unmarshallData() {
+        return codec.decodeOrder(recordBytes, 0, recordBytes.length);
+    }
+
+    @Benchmark
+    public Order unmarshallDataFromString() {
+        return codec.decodeOrder(record);
+    }
+
+    @Benchmark
+    public Order unmarshallDataSplit() {
+        String[] orderArray = record.split(DELIMITER);
+        Order order = new Order();
+        order.setOrderNumber(Integer.parseInt(orderArray[0]));
+        order.setCustomerName(orderArray[1]);
+        order.setState(orderArray[2]);
+        order.setTaxRate(new BigDecimal(orderArray[3]));
+        order.setProductType(orderArray[4]);
+        order.setArea(new BigDecimal(orderArray[5]));
+        order.setCostPerSquareFoot(new BigDecimal(orderArray[6]));
+        order.setLaborCostPerSquareFoot(new BigDecimal(orderArray[7]));
+        return order;
+    }
+}
@@ -0,0 +1,25 @@
+package flooring.benchmarks;
+
+import flooring.controller.FlooringMasteryController;
+import flooring.dao.FlooringMasteryPersistenceException;
+import flooring.service.FlooringMasteryServiceLayer;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Startup path of the application before explicit bean registration: the context
+ * scans the application packages and taxes and products are loaded before the menu.
+ * Baseline of StartupBenchmark
+ */
+public class ScanningApp {
+
+    public static void main(String[] args) throws FlooringMasteryPersistenceException {
+        AnnotationConfigApplicationContext applicationContext = new AnnotationConfigApplicationContext();
+        // the same classes as scan("flooring") of the application jar, without this module
+        applicationContext.scan("flooring.controller", "flooring.dao", "flooring.metrics", "flooring.service",
+                "flooring.ui");
+        applicationContext.refresh();
+        applicationContext.getBean(FlooringMasteryServiceLayer.class).loadData();
+        applicationContext.getBean("controller", FlooringMasteryController.class).run();
+        applicationContext.close();
+    }
+}
@@ -0,0 +1,133 @@
+package flooring.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from launching a new JVM with the application to its first menu prompt.
+ * "scan" starts the application the old way (ScanningApp), "registered" starts flooring.App.
+ * To measure an AppCDS archive built by the appcds profile, run flooring.App from its jar:
+ * -p launcher=registered -p classpath=../target/FlooringMastery-1.0-SNAPSHOT.jar
+ * -p jvmArgs=-XX:SharedArchiveFile=$PWD/../target/app-cds.jsa
+ * JVM options are passed as they are, so file names in them must be absolute,
+ * the application does not run in the current directory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 15)
+@Fork(1)
+public class StartupBenchmark {
+
+    private static final String MENU_PROMPT = "Please enter the number of your choice";
+    private static final String QUIT = "7";
+
+    @Param({"scan", "registered"})
+    private String launcher;
+
+    // classpath of the application, empty for the classpath of this JVM
+    @Param("")
+    private String classpath;
+
+    // extra JVM options separated by spaces
+    @Param("")
+    private String jvmArgs;
+
+    private List<String> command;
+    private Path workingDirectory;
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        workingDirectory = OrderFixtures.catalogs("startup");
+        command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (!jvmArgs.isEmpty()) {
+            command.addAll(Arrays.asList(jvmArgs.trim().split("\\s+")));
+        }
+        command.add("-cp");
+        // the application runs in workingDirectory, so relative entries must be resolved here;
+        // normalized paths also match the class path an AppCDS archive was dumped with
+        StringBuilder absolute = new StringBuilder();
+        String[] entries = (classpath.isEmpty() ? System.getProperty("java.class.path") : classpath)
+                .split(File.pathSeparator);
+        for (String entry : entries) {
+            if (absolute.length() > 0) {
+                absolute.append(File.pathSeparator);
+            }
+            absolute.append(Paths.get(entry).toAbsolutePath().normalize());
+        }
+        command.add(absolute.toString());
+        command.add("scan".equals(launcher) ? ScanningApp.class.getName() : "flooring.App");
+    }
+
+    @Benchmark
+    public void timeToFirstMenu() throws IOException {
+        process = new ProcessBuilder(command)
+                .directory(workingDirectory.toFile())
+                .redirectErrorStream(true)
+                .start();
+        BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8));
+        StringBuilder output = new StringBuilder();
+        String line;
+        while ((line = out.readLine()) != null) {
+            if (line.equals(MENU_PROMPT)) {
+                return;
+            }
+            output.append(line).append(System.lineSeparator());
+        }
+        throw new IllegalStateException("Application exited before the menu, exit code " + exitCode()
+                + System.lineSeparator() + output);
+    }
+
+    @TearDown(Level.Invocation)
+    public void quit() throws IOException, InterruptedException {
+        if (process == null) {
+            return;
+        }
+        try (OutputStream in = process.getOutputStream()) {
+            in.write((QUIT + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // process already exited
+        }
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+        process = null;
+    }
+
+    private int exitCode() {
+        try {
+            return process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+}
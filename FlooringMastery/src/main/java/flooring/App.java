@@ -1,15 +1,114 @@
 package flooring;
 
+import flooring.controller.FlooringMasteryBatchController;
 import flooring.controller.FlooringMasteryController;
+import flooring.dao.FlooringMasteryPersistenceException;
+import flooring.dao.FlooringMasteryOrderDaoBinaryImpl;
+import flooring.dao.FlooringMasteryOrderDaoCacheConfig;
+import flooring.dao.FlooringMasteryOrderDaoFileImpl;
+import flooring.dao.FlooringMasteryProductDaoFileImpl;
+import flooring.dao.FlooringMasteryTaxDaoFileImpl;
+import flooring.metrics.MetricsBeanPostProcessor;
+import flooring.service.FlooringMasterServiceLayerImpl;
+import flooring.ui.FlooringMasteryView;
+import flooring.ui.UserIOConsoleImpl;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 
+import java.nio.file.Paths;
+
 public class App {
+    /**
+     * Runs the interactive menu, the commands of a batch file if started with --batch=FILE
+     * the import of a CSV file with orders if started with --import=FILE, the export of orders
+     * changed since the previous export if started with --export, or of all orders with --export=full,
+     * or the restore of day files from the export if started with --restore
+     * (see FlooringMasteryBatchController). Exits with status 1 if any command failed,
+     * any row was rejected or export or restore failed
+     * @param args command line options
+     */
     public static void main(String[] args) {
+        String batchFile = null;
+        String importFile = null;
+        boolean restore = false;
+        boolean export = false;
+        boolean fullExport = false;
+        for (String arg : args) {
+            if (arg.startsWith("--batch=")) {
+                batchFile = arg.substring("--batch=".length());
+            } else if (arg.startsWith("--import=")) {
+                importFile = arg.substring("--import=".length());
+            } else if (arg.equals("--restore")) {
+                restore = true;
+            } else if (arg.equals("--export") || arg.equals("--export=full")) {
+                export = true;
+                fullExport = arg.equals("--export=full");
+            } else {
+                System.err.println("Unknown option " + arg
+                        + ", known options: --batch=FILE, --import=FILE, --export[=full], --restore");
+                System.exit(2);
+            }
+        }
+        if ((batchFile != null ? 1 : 0) + (importFile != null ? 1 : 0) + (restore ? 1 : 0) + (export ? 1 : 0) > 1) {
+            System.err.println("Options --batch, --import, --export and --restore cannot be used together");
+            System.exit(2);
+        }
         AnnotationConfigApplicationContext applicationContext = new AnnotationConfigApplicationContext();
-        applicationContext.scan("flooring");
+        registerBeans(applicationContext);
         applicationContext.refresh();
-        FlooringMasteryController controller = applicationContext.getBean(
-                "controller", FlooringMasteryController.class);
-        controller.run();
+        if (batchFile == null && importFile == null && !restore && !export) {
+            FlooringMasteryController controller = applicationContext.getBean(
+                    "controller", FlooringMasteryController.class);
+            controller.run();
+            // close context to let beans flush pending data
+            applicationContext.close();
+            return;
+        }
+        FlooringMasteryBatchController batchController = applicationContext.getBean(
+                "batchController", FlooringMasteryBatchController.class);
+        boolean failed;
+        try {
+            if (restore) {
+                batchController.runRestore();
+                failed = false;
+            } else if (export) {
+                batchController.runExport(fullExport);
+                failed = false;
+            } else {
+                failed = batchFile != null
+                        ? batchController.run(Paths.get(batchFile)).getFailed() > 0
+                        : batchController.runImport(Paths.get(importFile)).getRejectedCount() > 0;
+            }
+        } catch (FlooringMasteryPersistenceException e) {
+            System.err.println(e.getMessage());
+            failed = true;
+        }
+        applicationContext.close();
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Registers application beans one by one instead of scanning the classpath,
+     * which saves reading every class of the package on startup. Beans keep
+     * the names they would get from scanning. New @Component classes
+     * must be added here
+     * @param applicationContext context which is not refreshed yet
+     */
+    public static void registerBeans(AnnotationConfigApplicationContext applicationContext) {
+        applicationContext.register(
+                MetricsBeanPostProcessor.class,
+                UserIOConsoleImpl.class,
+                FlooringMasteryView.class,
+                FlooringMasteryTaxDaoFileImpl.class,
+                FlooringMasteryProductDaoFileImpl.class,
+                // one of them, depending on "binary" profile
+                FlooringMasteryOrderDaoFileImpl.class,
+                FlooringMasteryOrderDaoBinaryImpl.class,
+                // skipped unless "cache" profile is active
+                FlooringMasteryOrderDaoCacheConfig.class,
+                FlooringMasterServiceLayerImpl.class,
+                FlooringMasteryController.class,
+                FlooringMasteryBatchController.class);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,350 @@
+package flooring.controller;
+
+import flooring.dao.FlooringMasteryPersistenceException;
+import flooring.model.BatchReport;
+import flooring.model.ExportReport;
+import flooring.model.ImportReport;
+import flooring.model.Order;
+import flooring.model.Product;
+import flooring.model.RestoreReport;
+import flooring.model.Tax;
+import flooring.service.FlooringMasteryCsv;
+import flooring.service.FlooringMasteryServiceLayer;
+import flooring.service.InvalidInputException;
+import flooring.service.ItemNotFoundException;
+import flooring.ui.FlooringMasteryView;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs commands of a batch file, an import, an export or a restore against the service layer without prompts.
+ * Each line is one command with comma separated fields, fields containing commas
+ * are put in double quotes. Blank lines and lines starting with # are skipped:
+ * <pre>
+ * add,MM-dd-yyyy,customerName,state,productType,area
+ * edit,MM-dd-yyyy,orderNumber,customerName,state,productType,area
+ * delete,MM-dd-yyyy,orderNumber
+ * display,MM-dd-yyyy
+ * </pre>
+ * Empty fields of edit keep previous values. Commands are read in chunks of CHUNK_SIZE,
+ * commands of a chunk are applied date by date in file order, and every changed
+ * day file is written once per chunk. Commands of a date are applied while other
+ * changes of that date wait, so concurrent sessions don't lose each other's updates
+ */
+@Component("batchController")
+public class FlooringMasteryBatchController {
+
+    private final FlooringMasteryServiceLayer service;
+    private final FlooringMasteryView view;
+
+    private final int CHUNK_SIZE = 10000;
+
+    @Autowired
+    public FlooringMasteryBatchController(FlooringMasteryServiceLayer service, FlooringMasteryView view) {
+        this.service = service;
+        this.view = view;
+    }
+
+    /**
+     * Runs all commands of the batch file and displays the summary.
+     * Invalid commands are reported and skipped, other commands are still applied
+     * @param file batch file
+     * @return BatchReport of the batch
+     * @throws FlooringMasteryPersistenceException if catalogs or batch file cannot be loaded
+     * or unused orderNumbers cannot be returned
+     */
+    public BatchReport run(Path file) throws FlooringMasteryPersistenceException {
+        long start = System.nanoTime();
+        service.loadData();
+        Totals totals = new Totals();
+        List<Command> chunk = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                chunk.add(new Command(lineNumber, FlooringMasteryCsv.splitFields(trimmed)));
+                if (chunk.size() == CHUNK_SIZE) {
+                    runChunk(chunk, totals);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException("Cannot read batch file " + file);
+        }
+        runChunk(chunk, totals);
+        BatchReport report = new BatchReport(totals.added, totals.edited, totals.deleted, totals.displayed,
+                totals.errors, totals.files, System.nanoTime() - start);
+        view.displayBatchReport(report);
+        service.uploadLastOrderNumber();
+        return report;
+    }
+
+    /**
+     * Imports orders from CSV file through the import pipeline of the service and displays
+     * the summary. Rejected rows are written next to the file, to FILE.rejected.csv
+     * @param file CSV file with rows OrderDate,CustomerName,State,ProductType,Area
+     * @return ImportReport of the import
+     * @throws FlooringMasteryPersistenceException if import fails
+     */
+    public ImportReport runImport(Path file) throws FlooringMasteryPersistenceException {
+        Path rejected = file.resolveSibling(file.getFileName() + ".rejected.csv");
+        ImportReport report = service.importOrders(file, rejected);
+        view.displayImportReport(report, rejected);
+        return report;
+    }
+
+    /**
+     * Exports orders and displays the summary
+     * @param full true to reprocess all day files, false to reuse the previous export
+     * for dates which didn't change since
+     * @return ExportReport of the export
+     * @throws FlooringMasteryPersistenceException if export fails
+     */
+    public ExportReport runExport(boolean full) throws FlooringMasteryPersistenceException {
+        ExportReport report = full ? service.exportOrders() : service.exportChangedOrders();
+        view.displayExportReport(report);
+        return report;
+    }
+
+    /**
+     * Restores orders from the export and displays the summary
+     * @return RestoreReport of the restore
+     * @throws FlooringMasteryPersistenceException if restore fails
+     */
+    public RestoreReport runRestore() throws FlooringMasteryPersistenceException {
+        RestoreReport report = service.restoreOrders();
+        view.displayRestoreReport(report);
+        return report;
+    }
+
+    /**
+     * Groups commands of the chunk by date, applies them and displays
+     * results of display commands in file order
+     * @param chunk commands in file order
+     * @param totals counters of the batch
+     */
+    private void runChunk(List<Command> chunk, Totals totals) {
+        Map<LocalDate, List<Command>> commandsByDate = new LinkedHashMap<>();
+        for (Command command : chunk) {
+            try {
+                command.date = validateCommand(command);
+                commandsByDate.computeIfAbsent(command.date, date -> new ArrayList<>()).add(command);
+            } catch (InvalidInputException e) {
+                command.error = e.getMessage();
+            }
+        }
+        for (Map.Entry<LocalDate, List<Command>> entry : commandsByDate.entrySet()) {
+            if (runDate(entry.getKey(), entry.getValue())) {
+                totals.files++;
+            }
+        }
+        for (Command command : chunk) {
+            if (command.error != null) {
+                totals.errors.add("Line " + command.line + ": " + command.error);
+                continue;
+            }
+            switch (command.name) {
+                case "add":
+                    totals.added++;
+                    break;
+                case "edit":
+                    totals.edited++;
+                    break;
+                case "delete":
+                    totals.deleted++;
+                    break;
+                default:
+                    totals.displayed++;
+                    view.displayBatchOrders(command.line, command.date, command.orders);
+            }
+        }
+    }
+
+    /**
+     * Applies commands of one date to its orders and saves orders once if any command changed them.
+     * Other changes of the date wait until the orders are saved
+     * @param date LocalDate of the commands
+     * @param commands commands in file order
+     * @return true if day file was written
+     */
+    private boolean runDate(LocalDate date, List<Command> commands) {
+        boolean[] applied = new boolean[1];
+        try {
+            return service.modifyOrders(date, orderMap -> {
+                applied[0] = true;
+                boolean modified = false;
+                for (Command command : commands) {
+                    try {
+                        modified |= execute(command, orderMap);
+                    } catch (InvalidInputException | ItemNotFoundException | FlooringMasteryPersistenceException e) {
+                        command.error = e.getMessage();
+                    }
+                }
+                return modified;
+            });
+        } catch (FlooringMasteryPersistenceException e) {
+            for (Command command : commands) {
+                // orders were not loaded, or changes were not saved
+                if (!applied[0] || command.error == null && !command.name.equals("display")) {
+                    command.error = e.getMessage();
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Applies the command to orders of its date without saving them
+     * @param command command to apply
+     * @param orderMap Map with orderNumbers as keys and Order objects of the date as values
+     * @return true if orders were changed
+     * @throws InvalidInputException if a field of the command is not valid
+     * @throws ItemNotFoundException if order to edit or delete doesn't exist
+     * @throws FlooringMasteryPersistenceException if orderNumber cannot be generated
+     */
+    private boolean execute(Command command, Map<Integer, Order> orderMap)
+            throws InvalidInputException, ItemNotFoundException, FlooringMasteryPersistenceException {
+        String[] fields = command.fields;
+        switch (command.name) {
+            case "add": {
+                service.validateName(fields[2]);
+                Tax tax = service.validateState(fields[3]);
+                Product product = service.validateType(fields[4]);
+                BigDecimal area = service.validateArea(fields[5]);
+                Order order = service.createOrder(command.date, fields[2], tax, product, area);
+                service.assignOrderNumber(order);
+                orderMap.put(order.getOrderNumber(), order);
+                return true;
+            }
+            case "edit": {
+                int number = parseNumber(fields[2]);
+                Order order = getOrder(orderMap, number, command.date);
+                String name = fields[3].isEmpty() ? order.getCustomerName() : fields[3];
+                service.validateName(name);
+                Tax tax = service.validateState(fields[4].isEmpty() ? order.getState() : fields[4]);
+                Product product = service.validateType(fields[5].isEmpty() ? order.getProductType() : fields[5]);
+                BigDecimal area = fields[6].isEmpty() ? order.getArea() : service.validateArea(fields[6]);
+                // new object, so orders taken by earlier display commands stay as they were
+                Order edited = service.createOrder(command.date, name, tax, product, area);
+                edited.setOrderNumber(number);
+                orderMap.put(number, edited);
+                return true;
+            }
+            case "delete": {
+                int number = parseNumber(fields[2]);
+                getOrder(orderMap, number, command.date);
+                orderMap.remove(number);
+                return true;
+            }
+            default:
+                command.orders = new ArrayList<>(orderMap.values());
+                return false;
+        }
+    }
+
+    /**
+     * Checks name and number of fields of the command and validates its date.
+     * Dates of new orders should be in the future
+     * @param command command to validate
+     * @return LocalDate of the command
+     * @throws InvalidInputException if command is unknown, has wrong number of fields or wrong date
+     */
+    private LocalDate validateCommand(Command command) throws InvalidInputException {
+        int fieldCount;
+        switch (command.name) {
+            case "add":
+                fieldCount = 6;
+                break;
+            case "edit":
+                fieldCount = 7;
+                break;
+            case "delete":
+                fieldCount = 3;
+                break;
+            case "display":
+                fieldCount = 2;
+                break;
+            default:
+                throw new InvalidInputException("Unknown command '" + command.fields[0] + "'");
+        }
+        if (command.fields.length != fieldCount) {
+            throw new InvalidInputException("Command " + command.name + " should have " + fieldCount
+                    + " fields, found " + command.fields.length);
+        }
+        return command.name.equals("add")
+                ? service.validateDate(command.fields[1])
+                : service.parseDate(command.fields[1]);
+    }
+
+    /**
+     * Gets order from the orders of its date
+     * @param orderMap Map with orderNumbers as keys and Order objects of the date as values
+     * @param number orderNumber
+     * @param date LocalDate of the orders
+     * @return Order object
+     * @throws ItemNotFoundException if order doesn't exist
+     */
+    private Order getOrder(Map<Integer, Order> orderMap, int number, LocalDate date) throws ItemNotFoundException {
+        Order order = orderMap.get(number);
+        if (order == null) {
+            throw new ItemNotFoundException("Order # " + number + " for " + date + " doesn't exist");
+        }
+        return order;
+    }
+
+    private int parseNumber(String number) throws InvalidInputException {
+        try {
+            return Integer.parseInt(number);
+        } catch (NumberFormatException e) {
+            throw new InvalidInputException("Order number should be an integer");
+        }
+    }
+
+    /**
+     * Command of the batch file and the result of its execution
+     */
+    private static class Command {
+        private final int line;
+        private final String[] fields;
+        private final String name;
+        private LocalDate date;
+        // null if command succeeded
+        private String error;
+        // orders found by display command
+        private List<Order> orders;
+
+        private Command(int line, String[] fields) {
+            this.line = line;
+            this.fields = fields;
+            this.name = fields[0].toLowerCase();
+        }
+    }
+
+    /**
+     * Counters of the running batch
+     */
+    private static class Totals {
+        private int added;
+        private int edited;
+        private int deleted;
+        private int displayed;
+        private int files;
+        private final List<String> errors = new ArrayList<>();
+    }
+}
@@ -1,6 +1,7 @@
 package flooring.controller;
 
 import flooring.dao.FlooringMasteryPersistenceException;
+import flooring.model.ExportReport;
 import flooring.model.Order;
 import flooring.model.Product;
 import flooring.model.Tax;
@@ -33,13 +34,7 @@ public class FlooringMasteryController {
      */
     public void run() {
         boolean ifQuit = false;
-        // load necessary data, exit if loading fails
-        try {
-            service.loadData();
-        } catch (FlooringMasteryPersistenceException e) {
-            view.displayErrorMessage(e.getMessage());
-            ifQuit = true;
-        }
+        // taxes and products are loaded when an order is added or edited, so the menu shows at once
         // loop for processing requests
         while (!ifQuit) {
             int choice = view.displayMenu();
@@ -60,6 +55,9 @@ public class FlooringMasteryController {
                     exportOrders();
                     break;
                 case 6:
+                    findOrder();
+                    break;
+                case 7:
                     ifQuit = true;
                     break;
                 default:
@@ -75,6 +73,20 @@ public class FlooringMasteryController {
         view.displayGoodByeMessage();
     }
 
+    /**
+     * Loads taxes and products if they aren't loaded yet
+     * @return true if catalogs are loaded, false if loading failed
+     */
+    private boolean loadCatalogs() {
+        try {
+            service.loadData();
+            return true;
+        } catch (FlooringMasteryPersistenceException e) {
+            view.displayErrorMessage(e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * Gets date, orders for that date and displays them
      */
@@ -93,6 +105,9 @@ public class FlooringMasteryController {
      * If user confirms creation, saves this order
      */
     private void addOrder() {
+        if (!loadCatalogs()) {
+            return;
+        }
         LocalDate date = askAndValidateDate();
         String customerName = askAndValidateName();
         Tax tax = askAndValidateState();
@@ -173,6 +188,9 @@ public class FlooringMasteryController {
      * If order exists, modifies this order. If user confirms editing, saves it
      */
     private void editOrder() {
+        if (!loadCatalogs()) {
+            return;
+        }
         LocalDate date = getDate();
         int number = view.askNumber();
         Map<Integer, Order> orderMap = null;
@@ -212,12 +230,26 @@ public class FlooringMasteryController {
     }
 
     /**
-     * Runs code to export all orders from one persistent storage to another
+     * Gets orderNumber and displays the order with this number
+     */
+    private void findOrder() {
+        int number = view.askNumber();
+        try {
+            view.displayOrder(service.findOrder(number));
+            view.displayContinueBanner();
+        } catch (ItemNotFoundException e) {
+            view.displayErrorMessage(e.getMessage());
+        }
+    }
+
+    /**
+     * Runs code to export all orders from one persistent storage to another.
+     * Orders of dates which didn't change since the previous export are not reprocessed
      */
     private void exportOrders() {
         try {
-            service.exportOrders();
-            view.displaySuccessfulExportBanner();
+            ExportReport report = service.exportChangedOrders();
+            view.displaySuccessfulExportBanner(report);
         } catch (FlooringMasteryPersistenceException e) {
             view.displayErrorMessage(e.getMessage());
         }
@@ -0,0 +1,185 @@
+package flooring.dao;
+
+import flooring.metrics.CatalogMXBean;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Catalog read from a file with a header line and one item per line, keyed by
+ * the lower case name of the item. Items are kept in an immutable snapshot which
+ * is replaced as a whole on every load, so readers never lock. When the container
+ * enables watching, the file is watched from the first successful load and reloaded
+ * after every change; if it cannot be loaded, the previous snapshot stays
+ * @param <T> type of the items
+ */
+public abstract class FlooringMasteryCatalogFile<T> implements InitializingBean, DisposableBean, CatalogMXBean {
+
+    private final String CATALOG_FILE;
+    // name of the items in error messages
+    private final String itemName;
+    // immutable snapshot, replaced as a whole on every load so readers never lock
+    private volatile Map<String, T> items = Collections.emptyMap();
+    // incremented on every successful load
+    private volatile long version;
+    private volatile long lastReloadNanos;
+    private final AtomicLong failedReloads = new AtomicLong();
+    private FlooringMasteryFileWatcher watcher;
+    // set by the container, the file is watched from the first successful load
+    private boolean watchEnabled;
+
+    /**
+     * @param catalogFile path to the catalog file
+     * @param itemName name of the items in error messages
+     */
+    protected FlooringMasteryCatalogFile(String catalogFile, String itemName) {
+        CATALOG_FILE = catalogFile;
+        this.itemName = itemName;
+    }
+
+    /**
+     * Creates item from the line of the file
+     * @param line item information as a String
+     * @return item
+     */
+    protected abstract T decode(String line);
+
+    /**
+     * @param item item of the catalog
+     * @return name of the item, the catalog is searched by its lower case form
+     */
+    protected abstract String nameOf(T item);
+
+    /**
+     * @return current snapshot of the items
+     */
+    protected Map<String, T> getItems() {
+        return items;
+    }
+
+    /**
+     * Reads file line by line into a new map and publishes it as the snapshot
+     * @throws FlooringMasteryPersistenceException when file doesn't exist or is malformed
+     */
+    protected synchronized void load() throws FlooringMasteryPersistenceException {
+        long start = System.nanoTime();
+        Map<String, T> loaded = new HashMap<>();
+        String currentLine;
+        T currentItem;
+        try (BufferedReader in = new BufferedReader(new FileReader(CATALOG_FILE))) {
+            // read the header
+            in.readLine();
+            while ((currentLine = in.readLine()) != null) {
+                currentItem = decode(currentLine);
+                loaded.put(nameOf(currentItem).toLowerCase(), currentItem);
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new FlooringMasteryPersistenceException("Cannot upload " + itemName + " data");
+        }
+        items = Collections.unmodifiableMap(loaded);
+        version++;
+        lastReloadNanos = System.nanoTime() - start;
+        notifyAll();
+        if (watchEnabled && watcher == null) {
+            startWatcher();
+        }
+    }
+
+    /**
+     * Enables watching of the file, items are reloaded after every change of the file.
+     * Watching starts with the first load, so startup doesn't wait for the watcher
+     * @throws FlooringMasteryPersistenceException if items are loaded and the file cannot be watched
+     */
+    @Override
+    public synchronized void afterPropertiesSet() throws FlooringMasteryPersistenceException {
+        watchEnabled = true;
+        if (version > 0 && watcher == null) {
+            startWatcher();
+        }
+    }
+
+    /**
+     * Starts the watcher of the file
+     * @throws FlooringMasteryPersistenceException if file cannot be watched
+     */
+    private void startWatcher() throws FlooringMasteryPersistenceException {
+        try {
+            watcher = new FlooringMasteryFileWatcher(CATALOG_FILE, this::reload);
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException("Cannot watch " + itemName + " data");
+        }
+    }
+
+    /**
+     * Stops watching the file
+     */
+    @Override
+    public synchronized void destroy() {
+        watchEnabled = false;
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    /**
+     * Reloads items after the file changed. If the file cannot be loaded,
+     * for example it is saved only partly, the previous snapshot stays
+     */
+    private void reload() {
+        try {
+            load();
+        } catch (FlooringMasteryPersistenceException e) {
+            failedReloads.incrementAndGet();
+        }
+    }
+
+    /**
+     * Waits until the catalog is loaded the given number of times
+     * @param expected catalog version to wait for
+     * @param timeoutMillis the longest time to wait
+     * @return true if the catalog reached the version
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    synchronized boolean awaitCatalogVersion(long expected, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+        while (version < expected) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining / 1_000_000 + 1);
+        }
+        return true;
+    }
+
+    /**
+     * @return number of successful loads of the file
+     */
+    @Override
+    public long getCatalogVersion() {
+        return version;
+    }
+
+    /**
+     * @return duration of the last successful load in nanoseconds
+     */
+    @Override
+    public long getLastReloadNanos() {
+        return lastReloadNanos;
+    }
+
+    /**
+     * @return number of reloads which kept the previous snapshot because the file could not be loaded
+     */
+    @Override
+    public long getFailedReloadCount() {
+        return failedReloads.get();
+    }
+}
@@ -0,0 +1,391 @@
+package flooring.dao;
+
+import flooring.model.Order;
+
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes day files in the binary columnar format. Values of one field
+ * are stored together, State and ProductType as indexes into per-file dictionaries,
+ * decimals as fixed-point longs with a common scale. MaterialCost, LaborCost, Tax
+ * and Total are not stored, they are calculated from the other fields.
+ * All numbers are big-endian:
+ * <pre>
+ * header       MAGIC, VERSION byte, int orderCount
+ * dictionaries State, then ProductType: int size, then int length and UTF-8 bytes of every entry
+ * columns      OrderNumber          long column
+ *              CustomerName         long column of UTF-8 lengths, then UTF-8 bytes
+ *              State                long column of dictionary indexes
+ *              TaxRate              decimal column
+ *              ProductType          long column of dictionary indexes
+ *              Area, CostPerSquareFoot, LaborCostPerSquareFoot   decimal columns
+ * long column     long base, byte width (0, 1, 2, 4 or 8), then value - base of every order
+ *                 in width bytes, so equal values take no bytes at all
+ * decimal column  byte scale, or MIXED_SCALES followed by long column of scales,
+ *                 then long column of unscaled values
+ * </pre>
+ * Instances are thread-safe
+ */
+public class FlooringMasteryColumnarCodec {
+
+    private static final byte[] MAGIC = {'F', 'M', 'C', 'O'};
+    private static final byte VERSION = 1;
+    // marks decimal columns whose values have different scales
+    private static final byte MIXED_SCALES = Byte.MIN_VALUE;
+
+    /**
+     * Encodes orders of one date in the given order, OrderDate is not stored
+     * @param orders orders with orderNumbers
+     * @return content of the day file
+     * @throws IllegalArgumentException if a decimal doesn't fit into a long with its scale
+     */
+    public byte[] encode(Collection<Order> orders) {
+        int count = orders.size();
+        Map<String, Integer> states = new HashMap<>();
+        Map<String, Integer> products = new HashMap<>();
+        List<String> stateDictionary = new ArrayList<>();
+        List<String> productDictionary = new ArrayList<>();
+        long[] orderNumbers = new long[count];
+        byte[][] names = new byte[count][];
+        long[] nameLengths = new long[count];
+        long[] stateIndexes = new long[count];
+        long[] productIndexes = new long[count];
+        BigDecimal[] taxRates = new BigDecimal[count];
+        BigDecimal[] areas = new BigDecimal[count];
+        BigDecimal[] costs = new BigDecimal[count];
+        BigDecimal[] laborCosts = new BigDecimal[count];
+        int nameBytes = 0;
+        int i = 0;
+        for (Order order : orders) {
+            orderNumbers[i] = order.getOrderNumber();
+            names[i] = order.getCustomerName().getBytes(StandardCharsets.UTF_8);
+            nameLengths[i] = names[i].length;
+            nameBytes += names[i].length;
+            stateIndexes[i] = dictionaryIndex(order.getState(), states, stateDictionary);
+            productIndexes[i] = dictionaryIndex(order.getProductType(), products, productDictionary);
+            taxRates[i] = order.getTaxRate();
+            areas[i] = order.getArea();
+            costs[i] = order.getCostPerSquareFoot();
+            laborCosts[i] = order.getLaborCostPerSquareFoot();
+            i++;
+        }
+        byte[][] stateBytes = dictionaryBytes(stateDictionary);
+        byte[][] productBytes = dictionaryBytes(productDictionary);
+        // upper bound: every column with 8 byte values, decimals with scale columns
+        int size = MAGIC.length + 1 + 4 + dictionarySize(stateBytes) + dictionarySize(productBytes)
+                + 3 * longColumnSize(count) + 4 * (1 + 2 * longColumnSize(count))
+                + longColumnSize(count) + nameBytes;
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.put(MAGIC).put(VERSION).putInt(count);
+        putDictionary(out, stateBytes);
+        putDictionary(out, productBytes);
+        putLongColumn(out, orderNumbers);
+        putLongColumn(out, nameLengths);
+        for (byte[] name : names) {
+            out.put(name);
+        }
+        putLongColumn(out, stateIndexes);
+        putDecimalColumn(out, taxRates);
+        putLongColumn(out, productIndexes);
+        putDecimalColumn(out, areas);
+        putDecimalColumn(out, costs);
+        putDecimalColumn(out, laborCosts);
+        byte[] content = new byte[out.position()];
+        System.arraycopy(out.array(), 0, content, 0, content.length);
+        return content;
+    }
+
+    /**
+     * Decodes all orders of the day file
+     * @param content content of the day file
+     * @param date LocalDate of the day file, set to every order
+     * @return orders in the stored order
+     * @throws IllegalArgumentException if content is not a day file in this format
+     */
+    public List<Order> decode(byte[] content, LocalDate date) {
+        try {
+            ByteBuffer in = ByteBuffer.wrap(content);
+            int count = readHeader(in);
+            String[] states = readDictionary(in);
+            String[] products = readDictionary(in);
+            long[] orderNumbers = readLongColumn(in, count);
+            long[] nameLengths = readLongColumn(in, count);
+            String[] names = new String[count];
+            int position = in.position();
+            for (int i = 0; i < count; i++) {
+                int length = (int) nameLengths[i];
+                names[i] = new String(content, position, length, StandardCharsets.UTF_8);
+                position += length;
+            }
+            in.position(position);
+            long[] stateIndexes = readLongColumn(in, count);
+            BigDecimal[] taxRates = readDecimalColumn(in, count);
+            long[] productIndexes = readLongColumn(in, count);
+            BigDecimal[] areas = readDecimalColumn(in, count);
+            BigDecimal[] costs = readDecimalColumn(in, count);
+            BigDecimal[] laborCosts = readDecimalColumn(in, count);
+            List<Order> orders = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Order order = new Order(date, names[i], states[(int) stateIndexes[i]], taxRates[i],
+                        products[(int) productIndexes[i]], areas[i], costs[i], laborCosts[i]);
+                order.setOrderNumber((int) orderNumbers[i]);
+                orders.add(order);
+            }
+            return orders;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("Truncated or damaged day file", e);
+        }
+    }
+
+    /**
+     * Checks if the day file has the order reading only the OrderNumber column
+     * @param content content of the day file
+     * @param orderNumber number of the order
+     * @return true if the day file has the order
+     * @throws IllegalArgumentException if content is not a day file in this format
+     */
+    public boolean containsOrder(byte[] content, int orderNumber) {
+        try {
+            ByteBuffer in = ByteBuffer.wrap(content);
+            int count = readHeader(in);
+            skipDictionary(in);
+            skipDictionary(in);
+            long base = in.getLong();
+            int width = in.get();
+            long delta = orderNumber - base;
+            for (int i = 0; i < count; i++) {
+                if (readUnsigned(in, width) == delta) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated or damaged day file", e);
+        }
+    }
+
+    /**
+     * Checks if the day file may have orders of the State and ProductType
+     * reading only the dictionaries
+     * @param content content of the day file
+     * @param state State of the orders, null for any
+     * @param productType ProductType of the orders, null for any
+     * @return false if no order of the day file has them
+     * @throws IllegalArgumentException if content is not a day file in this format
+     */
+    public boolean mayContain(byte[] content, String state, String productType) {
+        try {
+            ByteBuffer in = ByteBuffer.wrap(content);
+            readHeader(in);
+            String[] states = readDictionary(in);
+            String[] products = readDictionary(in);
+            return (state == null || Arrays.asList(states).contains(state))
+                    && (productType == null || Arrays.asList(products).contains(productType));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("Truncated or damaged day file", e);
+        }
+    }
+
+    /**
+     * Checks MAGIC and VERSION of the day file
+     * @param in buffer at the start of the day file
+     * @return number of orders
+     */
+    private int readHeader(ByteBuffer in) {
+        for (byte expected : MAGIC) {
+            if (in.get() != expected) {
+                throw new IllegalArgumentException("Not a binary day file");
+            }
+        }
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported day file version " + version);
+        }
+        int count = in.getInt();
+        if (count < 0) {
+            throw new IllegalArgumentException("Negative number of orders " + count);
+        }
+        return count;
+    }
+
+    private int dictionaryIndex(String value, Map<String, Integer> indexes, List<String> dictionary) {
+        Integer index = indexes.get(value);
+        if (index == null) {
+            index = dictionary.size();
+            indexes.put(value, index);
+            dictionary.add(value);
+        }
+        return index;
+    }
+
+    private byte[][] dictionaryBytes(List<String> dictionary) {
+        byte[][] entries = new byte[dictionary.size()][];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = dictionary.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+        return entries;
+    }
+
+    private int dictionarySize(byte[][] entries) {
+        int size = 4;
+        for (byte[] entry : entries) {
+            size += 4 + entry.length;
+        }
+        return size;
+    }
+
+    private void putDictionary(ByteBuffer out, byte[][] entries) {
+        out.putInt(entries.length);
+        for (byte[] entry : entries) {
+            out.putInt(entry.length).put(entry);
+        }
+    }
+
+    private String[] readDictionary(ByteBuffer in) {
+        String[] entries = new String[in.getInt()];
+        for (int i = 0; i < entries.length; i++) {
+            int length = in.getInt();
+            entries[i] = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        }
+        return entries;
+    }
+
+    private void skipDictionary(ByteBuffer in) {
+        int size = in.getInt();
+        for (int i = 0; i < size; i++) {
+            int length = in.getInt();
+            in.position(in.position() + length);
+        }
+    }
+
+    private int longColumnSize(int count) {
+        return 8 + 1 + 8 * count;
+    }
+
+    /**
+     * Writes the smallest value as base and differences from it in the
+     * smallest width which fits all of them
+     * @param out buffer to write to
+     * @param values values of the column
+     */
+    private void putLongColumn(ByteBuffer out, long[] values) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (long value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        if (values.length == 0) {
+            min = 0;
+            max = 0;
+        }
+        // differences are unsigned, overflow of max - min only happens in 8 byte width
+        long range = max - min;
+        int width = range == 0 ? 0
+                : Long.compareUnsigned(range, 0xFFL) <= 0 ? 1
+                : Long.compareUnsigned(range, 0xFFFFL) <= 0 ? 2
+                : Long.compareUnsigned(range, 0xFFFFFFFFL) <= 0 ? 4
+                : 8;
+        out.putLong(min).put((byte) width);
+        for (long value : values) {
+            long delta = value - min;
+            switch (width) {
+                case 1:
+                    out.put((byte) delta);
+                    break;
+                case 2:
+                    out.putShort((short) delta);
+                    break;
+                case 4:
+                    out.putInt((int) delta);
+                    break;
+                case 8:
+                    out.putLong(delta);
+                    break;
+                default:
+                    // all values are equal to the base
+            }
+        }
+    }
+
+    private long[] readLongColumn(ByteBuffer in, int count) {
+        long base = in.getLong();
+        int width = in.get();
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = base + readUnsigned(in, width);
+        }
+        return values;
+    }
+
+    private long readUnsigned(ByteBuffer in, int width) {
+        switch (width) {
+            case 0:
+                return 0;
+            case 1:
+                return in.get() & 0xFFL;
+            case 2:
+                return in.getShort() & 0xFFFFL;
+            case 4:
+                return in.getInt() & 0xFFFFFFFFL;
+            case 8:
+                return in.getLong();
+            default:
+                throw new IllegalArgumentException("Unsupported column width " + width);
+        }
+    }
+
+    /**
+     * Writes unscaled values with the common scale, or with a column of
+     * scales if they differ, so every value keeps its scale
+     * @param out buffer to write to
+     * @param values values of the column
+     * @throws IllegalArgumentException if a value doesn't fit into a long with its scale
+     */
+    private void putDecimalColumn(ByteBuffer out, BigDecimal[] values) {
+        long[] unscaled = new long[values.length];
+        long[] scales = new long[values.length];
+        boolean mixed = false;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].scale() <= MIXED_SCALES || values[i].scale() > Byte.MAX_VALUE) {
+                throw new IllegalArgumentException("Scale of " + values[i] + " is out of range");
+            }
+            try {
+                unscaled[i] = values[i].unscaledValue().longValueExact();
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException(values[i] + " has too many digits");
+            }
+            scales[i] = values[i].scale();
+            mixed |= scales[i] != scales[0];
+        }
+        if (mixed) {
+            out.put(MIXED_SCALES);
+            putLongColumn(out, scales);
+        } else {
+            out.put(values.length == 0 ? 0 : (byte) scales[0]);
+        }
+        putLongColumn(out, unscaled);
+    }
+
+    private BigDecimal[] readDecimalColumn(ByteBuffer in, int count) {
+        byte scale = in.get();
+        long[] scales = scale == MIXED_SCALES ? readLongColumn(in, count) : null;
+        long[] unscaled = readLongColumn(in, count);
+        BigDecimal[] values = new BigDecimal[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = BigDecimal.valueOf(unscaled[i], scales == null ? scale : (int) scales[i]);
+        }
+        return values;
+    }
+}
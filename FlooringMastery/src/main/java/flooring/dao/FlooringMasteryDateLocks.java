@@ -0,0 +1,55 @@
+package flooring.dao;
+
+import java.time.LocalDate;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks striped by date. A date always maps to the same lock and
+ * neighbouring dates map to different locks, so changes of one date are serialized
+ * while changes of unrelated dates run in parallel. Operations on all dates take
+ * every lock in stripe order, which cannot deadlock with holders of a single lock
+ */
+public class FlooringMasteryDateLocks {
+
+    private final ReentrantLock[] stripes;
+
+    /**
+     * @param stripeCount number of locks, dates which differ by a multiple of it share a lock
+     */
+    public FlooringMasteryDateLocks(int stripeCount) {
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Acquires the lock of the date. Locks are reentrant
+     * @param date LocalDate to lock
+     * @return acquired Lock which should be unlocked in finally block
+     */
+    public Lock lock(LocalDate date) {
+        ReentrantLock lock = stripes[(int) Math.floorMod(date.toEpochDay(), (long) stripes.length)];
+        lock.lock();
+        return lock;
+    }
+
+    /**
+     * Acquires locks of all dates. Should not be called holding the lock of a date
+     */
+    public void lockAll() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    /**
+     * Releases locks acquired by lockAll
+     */
+    public void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+}
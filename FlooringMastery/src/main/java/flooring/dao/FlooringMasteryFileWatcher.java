@@ -0,0 +1,96 @@
+package flooring.dao;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches one file with WatchService and runs callback on a background thread
+ * when the file is created, modified or replaced. Events which come shortly
+ * one after another, like several writes of one save, cause one callback
+ */
+public class FlooringMasteryFileWatcher implements Closeable {
+
+    // Time to wait for the rest of the events of one change
+    private static final long SETTLE_MILLIS = 100;
+
+    private final Path fileName;
+    private final Runnable onChange;
+    private final WatchService watchService;
+    private final Thread watchThread;
+
+    /**
+     * Starts watching the file
+     * @param file path to the file, its directory must exist
+     * @param onChange callback to run after the file changed
+     * @throws IOException if directory cannot be watched
+     */
+    public FlooringMasteryFileWatcher(String file, Runnable onChange) throws IOException {
+        Path path = Paths.get(file).toAbsolutePath();
+        this.fileName = path.getFileName();
+        this.onChange = onChange;
+        watchService = FileSystems.getDefault().newWatchService();
+        path.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        watchThread = new Thread(this::watchLoop, "file-watcher-" + fileName);
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    /**
+     * Stops watching the file
+     */
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            // thread is interrupted anyway
+        }
+        watchThread.interrupt();
+    }
+
+    /**
+     * Background loop: waits for events of the file and runs callback
+     * when no more events come for SETTLE_MILLIS
+     */
+    private void watchLoop() {
+        try {
+            while (true) {
+                if (isFileChanged(watchService.take())) {
+                    WatchKey key;
+                    while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                        isFileChanged(key);
+                    }
+                    onChange.run();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // watcher was closed
+        }
+    }
+
+    /**
+     * Checks events of the key and resets it
+     * @param key WatchKey with events of the directory
+     * @return true if one of the events belongs to the watched file
+     */
+    private boolean isFileChanged(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+}
@@ -0,0 +1,182 @@
+package flooring.dao;
+
+import flooring.model.Order;
+
+import java.math.BigDecimal;
+
+/**
+ * Order backed by its record of the day file in UTF-8 bytes. OrderNumber and
+ * OrderDate are set on creation, other fields are decoded from the record on
+ * first access and kept, so scans which read a few fields don't create Strings
+ * and BigDecimals of the rest. A malformed field throws NumberFormatException
+ * on its first access. Setting a field decodes all fields and drops the record.
+ * Like Order, it may be read but not changed by several threads
+ */
+class FlooringMasteryLazyOrder extends Order {
+
+    private final FlooringMasteryRecordCodec codec;
+    // null when all fields are decoded because one of them was set
+    private byte[] record;
+
+    /**
+     * @param codec codec which decodes fields
+     * @param record order record in UTF-8 bytes without line separator, not changed later
+     * @param orderNumber OrderNumber of the record
+     */
+    FlooringMasteryLazyOrder(FlooringMasteryRecordCodec codec, byte[] record, int orderNumber) {
+        this.codec = codec;
+        this.record = record;
+        setOrderNumber(orderNumber);
+    }
+
+    @Override
+    public String getCustomerName() {
+        String customerName = super.getCustomerName();
+        byte[] record = this.record;
+        if (customerName == null && record != null) {
+            customerName = codec.decodeText(record, FlooringMasteryRecordCodec.CUSTOMER_NAME);
+            super.setCustomerName(customerName);
+        }
+        return customerName;
+    }
+
+    @Override
+    public void setCustomerName(String customerName) {
+        decodeAll();
+        super.setCustomerName(customerName);
+    }
+
+    @Override
+    public String getState() {
+        String state = super.getState();
+        byte[] record = this.record;
+        if (state == null && record != null) {
+            state = codec.decodeText(record, FlooringMasteryRecordCodec.STATE);
+            super.setState(state);
+        }
+        return state;
+    }
+
+    @Override
+    public void setState(String state) {
+        decodeAll();
+        super.setState(state);
+    }
+
+    @Override
+    public BigDecimal getTaxRate() {
+        BigDecimal taxRate = super.getTaxRate();
+        byte[] record = this.record;
+        if (taxRate == null && record != null) {
+            taxRate = codec.decodeDecimal(record, FlooringMasteryRecordCodec.TAX_RATE);
+            super.setTaxRate(taxRate);
+        }
+        return taxRate;
+    }
+
+    @Override
+    public void setTaxRate(BigDecimal taxRate) {
+        decodeAll();
+        super.setTaxRate(taxRate);
+    }
+
+    @Override
+    public String getProductType() {
+        String productType = super.getProductType();
+        byte[] record = this.record;
+        if (productType == null && record != null) {
+            productType = codec.decodeText(record, FlooringMasteryRecordCodec.PRODUCT_TYPE);
+            super.setProductType(productType);
+        }
+        return productType;
+    }
+
+    @Override
+    public void setProductType(String productType) {
+        decodeAll();
+        super.setProductType(productType);
+    }
+
+    @Override
+    public BigDecimal getArea() {
+        BigDecimal area = super.getArea();
+        byte[] record = this.record;
+        if (area == null && record != null) {
+            area = codec.decodeDecimal(record, FlooringMasteryRecordCodec.AREA);
+            super.setArea(area);
+        }
+        return area;
+    }
+
+    @Override
+    public void setArea(BigDecimal area) {
+        decodeAll();
+        super.setArea(area);
+    }
+
+    @Override
+    public BigDecimal getCostPerSquareFoot() {
+        BigDecimal costPerSquareFoot = super.getCostPerSquareFoot();
+        byte[] record = this.record;
+        if (costPerSquareFoot == null && record != null) {
+            costPerSquareFoot = codec.decodeDecimal(record, FlooringMasteryRecordCodec.COST_PER_SQUARE_FOOT);
+            super.setCostPerSquareFoot(costPerSquareFoot);
+        }
+        return costPerSquareFoot;
+    }
+
+    @Override
+    public void setCostPerSquareFoot(BigDecimal costPerSquareFoot) {
+        decodeAll();
+        super.setCostPerSquareFoot(costPerSquareFoot);
+    }
+
+    @Override
+    public BigDecimal getLaborCostPerSquareFoot() {
+        BigDecimal laborCostPerSquareFoot = super.getLaborCostPerSquareFoot();
+        byte[] record = this.record;
+        if (laborCostPerSquareFoot == null && record != null) {
+            laborCostPerSquareFoot = codec.decodeDecimal(record, FlooringMasteryRecordCodec.LABOR_COST_PER_SQUARE_FOOT);
+            super.setLaborCostPerSquareFoot(laborCostPerSquareFoot);
+        }
+        return laborCostPerSquareFoot;
+    }
+
+    @Override
+    public void setLaborCostPerSquareFoot(BigDecimal laborCostPerSquareFoot) {
+        decodeAll();
+        super.setLaborCostPerSquareFoot(laborCostPerSquareFoot);
+    }
+
+    /**
+     * Creates a copy which decodes fields from the same record,
+     * or an ordinary Order if a field was set
+     * @return copy of the order
+     */
+    @Override
+    public Order copy() {
+        if (record == null) {
+            return new Order(this);
+        }
+        Order copy = new FlooringMasteryLazyOrder(codec, record, getOrderNumber());
+        copy.setDate(getDate());
+        return copy;
+    }
+
+    /**
+     * Decodes fields which weren't accessed yet and drops the record,
+     * so fields set to null later are not decoded again
+     */
+    private void decodeAll() {
+        if (record != null) {
+            getCustomerName();
+            getState();
+            getTaxRate();
+            getProductType();
+            getArea();
+            getCostPerSquareFoot();
+            getLaborCostPerSquareFoot();
+            record = null;
+        }
+    }
+}
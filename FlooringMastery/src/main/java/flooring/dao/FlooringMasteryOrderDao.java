@@ -1,10 +1,15 @@
 package flooring.dao;
 
+import flooring.model.ExportReport;
 import flooring.model.Order;
+import flooring.model.OrderFilter;
+import flooring.model.RestoreReport;
 
 import java.time.LocalDate;
 import java.util.Collection;
 import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 public interface FlooringMasteryOrderDao {
 
@@ -15,6 +20,14 @@ public interface FlooringMasteryOrderDao {
      */
     public void uploadOrder(Order order) throws FlooringMasteryPersistenceException;
 
+    /**
+     * Appends new orders of one date to persistent storage at once
+     * @param orders Collection of orders with orderNumbers, all of them for given date
+     * @param date LocalDate of the orders
+     * @throws FlooringMasteryPersistenceException when uploading fails
+     */
+    public void uploadOrders(Collection<Order> orders, LocalDate date) throws FlooringMasteryPersistenceException;
+
     /**
      * Gets all orders for given date
      * @param date LocalDate object
@@ -23,6 +36,36 @@ public interface FlooringMasteryOrderDao {
      */
     public Map<Integer, Order> getOrdersForDate(LocalDate date) throws FlooringMasteryPersistenceException;
 
+    /**
+     * Gets orders of all dates between from and to inclusive
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @return lazy Stream of orders ordered by date and orderNumber, empty if there are no orders
+     * @throws FlooringMasteryPersistenceException when loading of orders fails
+     */
+    public Stream<Order> getOrdersBetween(LocalDate from, LocalDate to) throws FlooringMasteryPersistenceException;
+
+    /**
+     * Gets orders of all dates between from and to inclusive which match the filter,
+     * without loading orders which don't match
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @param filter criteria of the orders
+     * @return lazy Stream of matching orders ordered by date and orderNumber, should be closed
+     * if it is not consumed completely
+     * @throws FlooringMasteryPersistenceException when loading of orders fails
+     */
+    public Stream<Order> scanOrders(LocalDate from, LocalDate to, OrderFilter filter)
+            throws FlooringMasteryPersistenceException;
+
+    /**
+     * Finds order by its number without knowing its date
+     * @param orderNumber number of the order
+     * @return Order object or null if order doesn't exist
+     * @throws FlooringMasteryPersistenceException when loading fails
+     */
+    public Order findOrder(int orderNumber) throws FlooringMasteryPersistenceException;
+
     /**
      * Uploads orders back to persistent storage after modifying one of the orders
      * @param orders Collection of orders to upload
@@ -31,22 +74,73 @@ public interface FlooringMasteryOrderDao {
      */
     public void uploadModifiedOrders(Collection<Order> orders, LocalDate date) throws FlooringMasteryPersistenceException;
 
+    /**
+     * Loads orders of the date, lets the change modify them and saves them if it returns true.
+     * No other change of this date's orders happens in between, so no update is lost
+     * @param date LocalDate of the orders
+     * @param change gets modifiable Map with orderNumbers as keys and Order objects as values,
+     * empty if there are no orders for the date, and returns true if orders should be saved
+     * @return true if orders were saved
+     * @throws FlooringMasteryPersistenceException when loading or uploading of orders fails
+     */
+    public boolean modifyOrders(LocalDate date, Predicate<Map<Integer, Order>> change)
+            throws FlooringMasteryPersistenceException;
+
+    /**
+     * Replaces stored order having the same date and orderNumber with the given one.
+     * Other orders for this date are not rewritten
+     * @param order edited Order object
+     * @throws FlooringMasteryPersistenceException when order doesn't exist or uploading fails
+     */
+    public void updateOrder(Order order) throws FlooringMasteryPersistenceException;
+
+    /**
+     * Removes order from persistent storage.
+     * Other orders for this date are not rewritten
+     * @param date LocalDate of the order
+     * @param orderNumber number of the order to remove
+     * @throws FlooringMasteryPersistenceException when order doesn't exist or uploading fails
+     */
+    public void removeOrder(LocalDate date, int orderNumber) throws FlooringMasteryPersistenceException;
+
     /**
      * Exports all existing orders from one persistent storage to another
+     * @return ExportReport with export statistics
      * @throws FlooringMasteryPersistenceException when export fails
      */
-    public void exportOrders() throws FlooringMasteryPersistenceException;
+    public ExportReport exportOrders() throws FlooringMasteryPersistenceException;
 
     /**
-     * Load orderNumber from persistent storage
-     * @return integer with loaded number
+     * Exports all existing orders like exportOrders, but reuses the previous export
+     * for orders of dates which didn't change since
+     * @return ExportReport with export statistics
+     * @throws FlooringMasteryPersistenceException when export fails
+     */
+    public ExportReport exportChangedOrders() throws FlooringMasteryPersistenceException;
+
+    /**
+     * Replaces orders of every date found in the export with the exported ones
+     * and moves orderNumber after the greatest restored one
+     * @return RestoreReport with restore statistics
+     * @throws FlooringMasteryPersistenceException when export cannot be read or orders cannot be saved
      */
-    public int loadOrderNumber();
+    public RestoreReport restoreOrders() throws FlooringMasteryPersistenceException;
 
     /**
-     * Upload orderNumber to persistent storage
-     * @param orderNumber new orderNumber to upload
-     * * @throws FlooringMasteryPersistenceException when uploading fails
+     * Reserves a block of consecutive orderNumbers. Reserved numbers are never
+     * given out again, even if the application crashes before using them
+     * @param count number of orderNumbers to reserve
+     * @return the first reserved orderNumber
+     * @throws FlooringMasteryPersistenceException when reservation fails
+     */
+    public int leaseOrderNumbers(int count) throws FlooringMasteryPersistenceException;
+
+    /**
+     * Returns unused orderNumbers from the end of the last reserved block,
+     * if nobody reserved numbers after it
+     * @param from the first unused orderNumber
+     * @param to orderNumber after the last reserved one
+     * @throws FlooringMasteryPersistenceException when uploading fails
      */
-    public void uploadOrderNumber(int orderNumber) throws FlooringMasteryPersistenceException;
+    public void releaseOrderNumbers(int from, int to) throws FlooringMasteryPersistenceException;
 }
@@ -0,0 +1,613 @@
+package flooring.dao;
+
+import flooring.metrics.DayFileParseEvent;
+import flooring.metrics.DayFileReadEvent;
+import flooring.metrics.DayFileWriteEvent;
+import flooring.metrics.FlooringMasteryMetrics;
+import flooring.metrics.OrderExportEvent;
+import flooring.model.ExportReport;
+import flooring.model.Order;
+import flooring.model.OrderFilter;
+import flooring.model.RestoreReport;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Stores orders in binary columnar day files Order_MMddyyyy.bin, see FlooringMasteryColumnarCodec.
+ * Used instead of FlooringMasteryOrderDaoFileImpl when "binary" profile is active
+ * (-Dspring.profiles.active=binary), day files of one format are converted to the other
+ * with flooring.tools.DayFileConverter. Every change rewrites the whole day file, which
+ * atomically replaces the old one, so there are no tombstones, journal or index.
+ * Export and restore use the same text backup file as FlooringMasteryOrderDaoFileImpl
+ */
+@Component
+@Profile("binary")
+public class FlooringMasteryOrderDaoBinaryImpl implements FlooringMasteryOrderDao {
+
+    private final String DELIMITER = FlooringMasteryRecordCodec.DELIMITER;
+
+    // Encodes day files
+    private final FlooringMasteryColumnarCodec codec = new FlooringMasteryColumnarCodec();
+
+    // Encodes records of the backup file
+    private final FlooringMasteryRecordCodec recordCodec = new FlooringMasteryRecordCodec();
+
+    // Partial path for persistent storage
+    private final String ORDER_FILE_PATH;
+
+    // Path for orders' export
+    private final String ORDER_BACKUP_PATH;
+
+    // file to store lastOrderNumber
+    private final FlooringMasteryOrderNumberFile orderNumbers;
+
+    // Formatter for persistent storage
+    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMddyyyy");
+
+    // Formatter for export
+    private final DateTimeFormatter backupFormatter = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+
+    // Header for export
+    private final String BACKUP_HEADER = "OrderNumber::CustomerName::State::TaxRate::ProductType::" +
+            "Area::CostPerSquareFoot::LaborCostPerSquareFoot::MaterialCost::LaborCost::Tax::Total::OrderDate";
+
+    // Number of day file locks, dates DATE_LOCK_STRIPES days apart share a lock
+    private static final int DATE_LOCK_STRIPES = 64;
+
+    // Guards rewrites of day files, striped by date
+    private final FlooringMasteryDateLocks dateLocks = new FlooringMasteryDateLocks(DATE_LOCK_STRIPES);
+
+    public FlooringMasteryOrderDaoBinaryImpl() {
+        this("Orders", "Backup/DataExport.txt", "Data/OrderNumber.txt");
+    }
+
+    /**
+     * @param orderFile directory with day files
+     * @param backupFile file for orders' export
+     * @param numberFile file to store lastOrderNumber
+     */
+    public FlooringMasteryOrderDaoBinaryImpl(String orderFile, String backupFile, String numberFile) {
+        ORDER_FILE_PATH = orderFile;
+        ORDER_BACKUP_PATH = backupFile;
+        orderNumbers = new FlooringMasteryOrderNumberFile(numberFile);
+        new File(ORDER_FILE_PATH).mkdirs();
+    }
+
+    /**
+     * Adds order to its day file, creates the file if it doesn't exist
+     * @param order Order object to upload
+     * @throws FlooringMasteryPersistenceException when day file cannot be read or written
+     */
+    @Override
+    public void uploadOrder(Order order) throws FlooringMasteryPersistenceException {
+        uploadOrders(Collections.singletonList(order), order.getDate());
+    }
+
+    /**
+     * Adds orders to the day file with one rewrite, creates the file if it doesn't exist
+     * @param orders Collection of orders with orderNumbers, all of them for given date
+     * @param date LocalDate of the orders
+     * @throws FlooringMasteryPersistenceException when day file cannot be read or written
+     */
+    @Override
+    public void uploadOrders(Collection<Order> orders, LocalDate date) throws FlooringMasteryPersistenceException {
+        modifyOrders(date, orderMap -> {
+            for (Order order : orders) {
+                orderMap.put(order.getOrderNumber(), order);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Reads and decodes the day file of the date
+     * @param date LocalDate object
+     * @return Map with orderNumbers as Keys and Order objects as values, ordered by orderNumber
+     * @throws FlooringMasteryPersistenceException when file for given date doesn't exist or is damaged
+     */
+    @Override
+    public Map<Integer, Order> getOrdersForDate(LocalDate date) throws FlooringMasteryPersistenceException {
+        List<Order> orders;
+        try {
+            orders = loadDayFile("getOrdersForDate", date);
+        } catch (NoSuchFileException e) {
+            throw new FlooringMasteryPersistenceException("Cannot load data");
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException("Cannot load orders for " + date.format(backupFormatter));
+        }
+        Map<Integer, Order> orderMap = new LinkedHashMap<>();
+        for (Order order : orders) {
+            orderMap.put(order.getOrderNumber(), order);
+        }
+        return orderMap;
+    }
+
+    /**
+     * Gets orders of all dates from the range which have day files,
+     * day files are loaded one by one as the stream is consumed
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @return lazy Stream of orders ordered by date and orderNumber
+     */
+    @Override
+    public Stream<Order> getOrdersBetween(LocalDate from, LocalDate to) {
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date : listOrderDates()) {
+            if (!date.isBefore(from) && !date.isAfter(to)) {
+                dates.add(date);
+            }
+        }
+        return dates.stream().flatMap(date -> {
+            try {
+                return loadDayFile("getOrdersBetween", date).stream();
+            } catch (NoSuchFileException e) {
+                return Stream.empty();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot load orders for " + date, e);
+            }
+        });
+    }
+
+    /**
+     * Gets orders matching the filter like getOrdersBetween. Day files whose
+     * dictionaries don't have State or ProductType of the filter are skipped
+     * without decoding their columns
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @param filter criteria of the orders
+     * @return lazy Stream of matching orders ordered by date and orderNumber
+     */
+    @Override
+    public Stream<Order> scanOrders(LocalDate from, LocalDate to, OrderFilter filter) {
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date : listOrderDates()) {
+            if (!date.isBefore(from) && !date.isAfter(to)) {
+                dates.add(date);
+            }
+        }
+        return dates.stream().flatMap(date -> {
+            try {
+                byte[] content = readDayFile("scanOrders", date);
+                if (!codec.mayContain(content, filter.getState(), filter.getProductType())) {
+                    return Stream.empty();
+                }
+                return decodeDayFile("scanOrders", date, content).stream().filter(filter);
+            } catch (NoSuchFileException e) {
+                return Stream.empty();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot load orders for " + date, e);
+            } catch (IllegalArgumentException e) {
+                throw new UncheckedIOException(new IOException(
+                        "Day file for " + date + " is damaged: " + e.getMessage(), e));
+            }
+        });
+    }
+
+    /**
+     * Finds order by reading only the OrderNumber column of every day file
+     * until the one with the order is found
+     * @param orderNumber number of the order
+     * @return Order object or null if order doesn't exist
+     * @throws FlooringMasteryPersistenceException when a day file cannot be read
+     */
+    @Override
+    public Order findOrder(int orderNumber) throws FlooringMasteryPersistenceException {
+        for (LocalDate date : listOrderDates()) {
+            try {
+                byte[] content = Files.readAllBytes(dayFile(date));
+                FlooringMasteryMetrics.addBytesRead(content.length);
+                if (codec.containsOrder(content, orderNumber)) {
+                    for (Order order : codec.decode(content, date)) {
+                        if (order.getOrderNumber() == orderNumber) {
+                            return order;
+                        }
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                // removed after listing
+            } catch (IOException | IllegalArgumentException e) {
+                throw new FlooringMasteryPersistenceException("Cannot load orders for " + date.format(backupFormatter));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replaces the day file with the given orders
+     * @param orders Collection of orders to upload
+     * @param date LocalDate object associated with orderDate
+     * @throws FlooringMasteryPersistenceException when day file cannot be written
+     */
+    @Override
+    public void uploadModifiedOrders(Collection<Order> orders, LocalDate date) throws FlooringMasteryPersistenceException {
+        Lock lock = dateLocks.lock(date);
+        try {
+            writeDayFile("uploadModifiedOrders", orders, date);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Loads orders of the date, lets the change modify them and rewrites the day file
+     * ordered by orderNumber if the change returns true. Other changes of the date wait
+     * @param date LocalDate of the orders
+     * @param change gets modifiable Map with orderNumbers as keys and Order objects as values,
+     * empty if there are no orders for the date, and returns true if orders should be saved
+     * @return true if orders were saved
+     * @throws FlooringMasteryPersistenceException when day file cannot be read or written
+     */
+    @Override
+    public boolean modifyOrders(LocalDate date, Predicate<Map<Integer, Order>> change)
+            throws FlooringMasteryPersistenceException {
+        Lock lock = dateLocks.lock(date);
+        try {
+            Map<Integer, Order> orderMap = new LinkedHashMap<>();
+            try {
+                for (Order order : loadDayFile("modifyOrders", date)) {
+                    orderMap.put(order.getOrderNumber(), order);
+                }
+            } catch (NoSuchFileException e) {
+                // first orders of the date
+            } catch (IOException e) {
+                throw new FlooringMasteryPersistenceException("Cannot load orders for " + date.format(backupFormatter));
+            }
+            if (!change.test(orderMap)) {
+                return false;
+            }
+            writeDayFile("modifyOrders", new TreeMap<>(orderMap).values(), date);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces order with the same orderNumber and rewrites its day file
+     * @param order edited Order object
+     * @throws FlooringMasteryPersistenceException if order doesn't exist or writing fails
+     */
+    @Override
+    public void updateOrder(Order order) throws FlooringMasteryPersistenceException {
+        replaceOrder(order.getDate(), order.getOrderNumber(), order);
+    }
+
+    /**
+     * Removes order and rewrites its day file
+     * @param date LocalDate of the order
+     * @param orderNumber number of the order to remove
+     * @throws FlooringMasteryPersistenceException if order doesn't exist or writing fails
+     */
+    @Override
+    public void removeOrder(LocalDate date, int orderNumber) throws FlooringMasteryPersistenceException {
+        replaceOrder(date, orderNumber, null);
+    }
+
+    /**
+     * Writes all orders to the backup file (ORDER_BACKUP_PATH) in the text format
+     * of FlooringMasteryOrderDaoFileImpl, day by day ordered by orderNumber
+     * @return ExportReport with number of exported orders, bytes and time
+     * @throws FlooringMasteryPersistenceException when day files cannot be read or backup file written
+     */
+    @Override
+    public ExportReport exportOrders() throws FlooringMasteryPersistenceException {
+        OrderExportEvent exportEvent = new OrderExportEvent();
+        exportEvent.begin();
+        long start = System.nanoTime();
+        Path backup = Paths.get(ORDER_BACKUP_PATH);
+        Path exported = Paths.get(ORDER_BACKUP_PATH + ".tmp");
+        int fileCount = 0;
+        long orderCount = 0;
+        long byteCount;
+        StringBuilder record = new StringBuilder(256);
+        try {
+            Files.createDirectories(backup.toAbsolutePath().getParent());
+            try (BufferedWriter out = Files.newBufferedWriter(exported, StandardCharsets.UTF_8)) {
+                out.write(BACKUP_HEADER);
+                out.write('\n');
+                for (LocalDate date : listOrderDates()) {
+                    List<Order> orders;
+                    try {
+                        orders = loadDayFile("exportOrders", date);
+                    } catch (NoSuchFileException e) {
+                        continue;
+                    }
+                    String suffix = DELIMITER + date.format(backupFormatter) + "\n";
+                    for (Order order : orders) {
+                        record.setLength(0);
+                        out.append(recordCodec.appendOrder(order, record).append(suffix));
+                    }
+                    fileCount++;
+                    orderCount += orders.size();
+                }
+            }
+            byteCount = Files.size(exported);
+            Files.move(exported, backup, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException("Cannot export data");
+        }
+        FlooringMasteryMetrics.addBytesWritten(byteCount);
+        exportEvent.commit("exportOrders", null, (int) Math.min(orderCount, Integer.MAX_VALUE), byteCount);
+        return new ExportReport(fileCount, orderCount, byteCount, System.nanoTime() - start);
+    }
+
+    /**
+     * Exports all orders like exportOrders. Binary day files share nothing
+     * with the text records of the backup file, so nothing is reused
+     * @return ExportReport with export statistics
+     * @throws FlooringMasteryPersistenceException when export fails
+     */
+    @Override
+    public ExportReport exportChangedOrders() throws FlooringMasteryPersistenceException {
+        return exportOrders();
+    }
+
+    /**
+     * Reads the backup file line by line and replaces day files of the dates found in it.
+     * Records of a date are collected until the date changes, so the backup file written
+     * by an export is restored with one write per date. The number file is set after the
+     * greatest restored orderNumber unless it is already greater
+     * @return RestoreReport with number of restored files, orders, bytes and time
+     * @throws FlooringMasteryPersistenceException when backup file cannot be read or parsed
+     * or day files cannot be written. Dates restored before the failure stay restored
+     */
+    @Override
+    public RestoreReport restoreOrders() throws FlooringMasteryPersistenceException {
+        OrderExportEvent restoreEvent = new OrderExportEvent();
+        restoreEvent.begin();
+        long start = System.nanoTime();
+        Path backup = Paths.get(ORDER_BACKUP_PATH);
+        Set<LocalDate> restored = new HashSet<>();
+        List<Order> pending = new ArrayList<>();
+        LocalDate pendingDate = null;
+        long orderCount = 0;
+        int maxOrderNumber = 0;
+        long byteCount;
+        dateLocks.lockAll();
+        try (BufferedReader in = Files.newBufferedReader(backup, StandardCharsets.UTF_8)) {
+            byteCount = Files.size(backup);
+            String line = in.readLine();
+            long lineNumber = 1;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                int dateStart = line.lastIndexOf(DELIMITER);
+                Order order;
+                try {
+                    order = recordCodec.decodeOrder(line.substring(0, Math.max(dateStart, 0)));
+                    order.setDate(LocalDate.parse(line.substring(dateStart + DELIMITER.length()), backupFormatter));
+                } catch (NumberFormatException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+                    throw new FlooringMasteryPersistenceException("Cannot restore data: line " + lineNumber
+                            + " of " + ORDER_BACKUP_PATH + " is malformed");
+                }
+                if (!order.getDate().equals(pendingDate)) {
+                    restoreDate(pendingDate, pending, restored);
+                    pending.clear();
+                    pendingDate = order.getDate();
+                }
+                pending.add(order);
+                orderCount++;
+                maxOrderNumber = Math.max(maxOrderNumber, order.getOrderNumber());
+            }
+            restoreDate(pendingDate, pending, restored);
+        } catch (NoSuchFileException e) {
+            throw new FlooringMasteryPersistenceException("Backup file " + ORDER_BACKUP_PATH + " doesn't exist");
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException("Cannot restore data");
+        } finally {
+            dateLocks.unlockAll();
+        }
+        orderNumbers.moveForward(maxOrderNumber + 1);
+        FlooringMasteryMetrics.addBytesRead(byteCount);
+        restoreEvent.commit("restoreOrders", null, (int) Math.min(orderCount, Integer.MAX_VALUE), byteCount);
+        return new RestoreReport(restored.size(), orderCount, byteCount, maxOrderNumber, System.nanoTime() - start);
+    }
+
+    @Override
+    public int leaseOrderNumbers(int count) throws FlooringMasteryPersistenceException {
+        return orderNumbers.lease(count);
+    }
+
+    @Override
+    public void releaseOrderNumbers(int from, int to) throws FlooringMasteryPersistenceException {
+        orderNumbers.release(from, to);
+    }
+
+    /**
+     * Writes collected orders of one date of the backup file. The first write
+     * of a date replaces its day file, later ones add to it
+     * @param date LocalDate of the orders, null if nothing was collected
+     * @param orders orders of the date in backup file order
+     * @param restored dates written by this restore
+     * @throws FlooringMasteryPersistenceException when day file cannot be read or written
+     */
+    private void restoreDate(LocalDate date, List<Order> orders, Set<LocalDate> restored)
+            throws FlooringMasteryPersistenceException {
+        if (date == null) {
+            return;
+        }
+        if (restored.add(date)) {
+            writeDayFile("restoreOrders", orders, date);
+        } else {
+            uploadOrders(orders, date);
+        }
+    }
+
+    /**
+     * Replaces or removes one order of the day file
+     * @param date LocalDate of the order
+     * @param orderNumber number of the order
+     * @param replacement new Order object or null to remove the order
+     * @throws FlooringMasteryPersistenceException if order doesn't exist or writing fails
+     */
+    private void replaceOrder(LocalDate date, int orderNumber, Order replacement)
+            throws FlooringMasteryPersistenceException {
+        boolean[] found = new boolean[1];
+        modifyOrders(date, orderMap -> {
+            found[0] = orderMap.containsKey(orderNumber);
+            if (found[0]) {
+                if (replacement == null) {
+                    orderMap.remove(orderNumber);
+                } else {
+                    orderMap.put(orderNumber, replacement);
+                }
+            }
+            return found[0];
+        });
+        if (!found[0]) {
+            throw new FlooringMasteryPersistenceException("Order # " + orderNumber + " for " + date + " doesn't exist");
+        }
+    }
+
+    /**
+     * Reads and decodes the day file
+     * @param operation name of the operation for events
+     * @param date LocalDate of the day file
+     * @return orders in file order
+     * @throws NoSuchFileException if day file doesn't exist
+     * @throws IOException if day file cannot be read or is damaged
+     */
+    private List<Order> loadDayFile(String operation, LocalDate date) throws IOException {
+        return decodeDayFile(operation, date, readDayFile(operation, date));
+    }
+
+    /**
+     * Reads the day file
+     * @param operation name of the operation for events
+     * @param date LocalDate of the day file
+     * @return content of the day file
+     * @throws NoSuchFileException if day file doesn't exist
+     * @throws IOException if day file cannot be read
+     */
+    private byte[] readDayFile(String operation, LocalDate date) throws IOException {
+        DayFileReadEvent readEvent = new DayFileReadEvent();
+        readEvent.begin();
+        byte[] content = Files.readAllBytes(dayFile(date));
+        readEvent.commit(operation, date, 0, content.length);
+        return content;
+    }
+
+    /**
+     * Decodes the day file
+     * @param operation name of the operation for events
+     * @param date LocalDate of the day file
+     * @param content content of the day file
+     * @return orders in file order
+     * @throws IOException if day file is damaged
+     */
+    private List<Order> decodeDayFile(String operation, LocalDate date, byte[] content) throws IOException {
+        DayFileParseEvent parseEvent = new DayFileParseEvent();
+        parseEvent.begin();
+        List<Order> orders;
+        try {
+            orders = codec.decode(content, date);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Day file for " + date + " is damaged: " + e.getMessage(), e);
+        }
+        parseEvent.commit(operation, date, orders.size(), content.length);
+        FlooringMasteryMetrics.addBytesRead(content.length);
+        FlooringMasteryMetrics.addOrdersParsed(orders.size());
+        return orders;
+    }
+
+    /**
+     * Writes orders to a new day file which is forced to disk and atomically replaces the old one,
+     * so readers without the lock see either old or new orders.
+     * Should be called holding the lock of the date
+     * @param operation name of the operation for events
+     * @param orders all orders of the date
+     * @param date LocalDate of the day file
+     * @throws FlooringMasteryPersistenceException if an order cannot be encoded or writing fails
+     */
+    private void writeDayFile(String operation, Collection<Order> orders, LocalDate date)
+            throws FlooringMasteryPersistenceException {
+        DayFileWriteEvent writeEvent = new DayFileWriteEvent();
+        writeEvent.begin();
+        byte[] content;
+        try {
+            content = codec.encode(orders);
+        } catch (IllegalArgumentException e) {
+            throw new FlooringMasteryPersistenceException("Cannot upload orders for "
+                    + date.format(backupFormatter) + ": " + e.getMessage());
+        }
+        Path file = dayFile(date);
+        Path rewritten = Paths.get(ORDER_FILE_PATH, "Order_" + date.format(formatter) + ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(rewritten, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                // the new file must be on disk before it replaces the old one
+                out.force(true);
+            }
+            Files.move(rewritten, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException("Failed to upload data");
+        }
+        FlooringMasteryMetrics.addBytesWritten(content.length);
+        writeEvent.commit(operation, date, orders.size(), content.length);
+    }
+
+    private Path dayFile(LocalDate date) {
+        return Paths.get(ORDER_FILE_PATH, "Order_" + date.format(formatter) + ".bin");
+    }
+
+    /**
+     * Lists dates which have day files in ORDER_FILE_PATH
+     * @return sorted List of dates
+     */
+    private List<LocalDate> listOrderDates() {
+        List<LocalDate> dates = new ArrayList<>();
+        String[] fileNames = new File(ORDER_FILE_PATH).list();
+        if (fileNames == null) {
+            return dates;
+        }
+        for (String fileName : fileNames) {
+            // skip files being written and other files
+            if (fileName.length() == 18 && fileName.startsWith("Order_") && fileName.endsWith(".bin")) {
+                try {
+                    dates.add(LocalDate.parse(fileName.substring(6, 14), formatter));
+                } catch (DateTimeParseException e) {
+                    // not a day file
+                }
+            }
+        }
+        dates.sort(Comparator.naturalOrder());
+        return dates;
+    }
+}
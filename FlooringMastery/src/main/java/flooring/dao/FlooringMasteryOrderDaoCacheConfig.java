@@ -0,0 +1,28 @@
+package flooring.dao;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Puts the order cache in front of the file DAO when "cache" profile is active
+ * (-Dspring.profiles.active=cache), or in front of the binary DAO when "binary"
+ * profile is active too. Limits are set with flooring.cache.maxDates
+ * and flooring.cache.maxBytes system properties
+ */
+@Configuration
+@Profile("cache")
+public class FlooringMasteryOrderDaoCacheConfig {
+
+    @Bean
+    @Primary
+    public FlooringMasteryOrderDaoCacheImpl cachedOrderDao(
+            // the DAO of the active storage format, the cache itself is not a candidate
+            FlooringMasteryOrderDao orderDao,
+            @Value("${flooring.cache.maxDates:64}") int maxDates,
+            @Value("${flooring.cache.maxBytes:67108864}") long maxBytes) {
+        return new FlooringMasteryOrderDaoCacheImpl(orderDao, maxDates, maxBytes);
+    }
+}
@@ -0,0 +1,453 @@
+package flooring.dao;
+
+import flooring.model.ExportReport;
+import flooring.model.Order;
+import flooring.model.OrderFilter;
+import flooring.model.RestoreReport;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Caching decorator for FlooringMasteryOrderDao.
+ * Keeps orders of recently used dates in memory and evicts least recently used
+ * dates when cache holds more than maxDates dates or more than maxBytes estimated bytes.
+ * All uploads are written through to the wrapped DAO, which stays the source of truth.
+ * Callers always get copies, so they can modify returned orders and maps freely
+ */
+public class FlooringMasteryOrderDaoCacheImpl implements FlooringMasteryOrderDao {
+
+    // Rough size of Order object with its BigDecimal and LocalDate fields
+    private static final long ORDER_OVERHEAD_BYTES = 400;
+    // Size of map entry with boxed orderNumber
+    private static final long ENTRY_OVERHEAD_BYTES = 64;
+    // Number of write locks, dates DATE_LOCK_STRIPES days apart share a lock
+    private static final int DATE_LOCK_STRIPES = 64;
+
+    private final FlooringMasteryOrderDao orderDao;
+    private final int maxDates;
+    private final long maxBytes;
+
+    // access-ordered map, the eldest entry is the least recently used date
+    private final LinkedHashMap<LocalDate, CachedDate> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+    // incremented on every write, loaded orders are not cached if a write happened during loading
+    private long writeCount;
+
+    // Write-through and the cache update are done under the lock of the date,
+    // so cached orders change in the same order as stored ones
+    private final FlooringMasteryDateLocks dateLocks = new FlooringMasteryDateLocks(DATE_LOCK_STRIPES);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param orderDao DAO to cache
+     * @param maxDates maximum number of cached dates
+     * @param maxBytes maximum estimated size of cached orders in bytes
+     */
+    public FlooringMasteryOrderDaoCacheImpl(FlooringMasteryOrderDao orderDao, int maxDates, long maxBytes) {
+        this.orderDao = orderDao;
+        this.maxDates = maxDates;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Uploads order through the wrapped DAO and adds it to the cached date
+     * @param order Order object to upload
+     * @throws FlooringMasteryPersistenceException when uploading fails
+     */
+    @Override
+    public void uploadOrder(Order order) throws FlooringMasteryPersistenceException {
+        Lock lock = dateLocks.lock(order.getDate());
+        try {
+            orderDao.uploadOrder(order);
+            synchronized (cache) {
+                writeCount++;
+                CachedDate cached = cache.get(order.getDate());
+                if (cached != null) {
+                    cachedBytes += put(cached, order.copy());
+                    evictIfNeeded();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Uploads orders through the wrapped DAO and adds them to the cached date
+     * @param orders Collection of orders with orderNumbers, all of them for given date
+     * @param date LocalDate of the orders
+     * @throws FlooringMasteryPersistenceException when uploading fails
+     */
+    @Override
+    public void uploadOrders(Collection<Order> orders, LocalDate date) throws FlooringMasteryPersistenceException {
+        Lock lock = dateLocks.lock(date);
+        try {
+            try {
+                orderDao.uploadOrders(orders, date);
+            } catch (FlooringMasteryPersistenceException e) {
+                invalidate(date);
+                throw e;
+            }
+            synchronized (cache) {
+                writeCount++;
+                CachedDate cached = cache.get(date);
+                if (cached != null) {
+                    for (Order order : orders) {
+                        cachedBytes += put(cached, order.copy());
+                    }
+                    evictIfNeeded();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets orders for date from cache or loads them through the wrapped DAO
+     * @param date LocalDate object
+     * @return Map with copies of orders
+     * @throws FlooringMasteryPersistenceException when loading of orders fails
+     */
+    @Override
+    public Map<Integer, Order> getOrdersForDate(LocalDate date) throws FlooringMasteryPersistenceException {
+        synchronized (cache) {
+            CachedDate cached = cache.get(date);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return copy(cached.orders.values());
+            }
+        }
+        misses.incrementAndGet();
+        long writesBeforeLoading;
+        synchronized (cache) {
+            writesBeforeLoading = writeCount;
+        }
+        Map<Integer, Order> orderMap = orderDao.getOrdersForDate(date);
+        CachedDate cached = new CachedDate();
+        for (Order order : orderMap.values()) {
+            put(cached, order.copy());
+        }
+        synchronized (cache) {
+            if (writeCount == writesBeforeLoading) {
+                cacheDate(date, cached);
+            }
+        }
+        return orderMap;
+    }
+
+    /**
+     * Uploads orders through the wrapped DAO and replaces cached date with them
+     * @param orders Collection of orders to upload
+     * @param date LocalDate object associated with orderDate
+     * @throws FlooringMasteryPersistenceException when uploading of orders fails
+     */
+    @Override
+    public void uploadModifiedOrders(Collection<Order> orders, LocalDate date) throws FlooringMasteryPersistenceException {
+        Lock lock = dateLocks.lock(date);
+        try {
+            try {
+                orderDao.uploadModifiedOrders(orders, date);
+            } catch (FlooringMasteryPersistenceException e) {
+                invalidate(date);
+                throw e;
+            }
+            CachedDate cached = new CachedDate();
+            for (Order order : orders) {
+                put(cached, order.copy());
+            }
+            synchronized (cache) {
+                writeCount++;
+                cacheDate(date, cached);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Modifies orders through the wrapped DAO and replaces cached date with the saved orders
+     * @param date LocalDate of the orders
+     * @param change gets modifiable Map of the orders and returns true if they should be saved
+     * @return true if orders were saved
+     * @throws FlooringMasteryPersistenceException when loading or uploading of orders fails
+     */
+    @Override
+    public boolean modifyOrders(LocalDate date, Predicate<Map<Integer, Order>> change)
+            throws FlooringMasteryPersistenceException {
+        Lock lock = dateLocks.lock(date);
+        try {
+            CachedDate saved = new CachedDate();
+            boolean modified;
+            try {
+                modified = orderDao.modifyOrders(date, orderMap -> {
+                    if (!change.test(orderMap)) {
+                        return false;
+                    }
+                    for (Order order : orderMap.values()) {
+                        put(saved, order.copy());
+                    }
+                    return true;
+                });
+            } catch (FlooringMasteryPersistenceException e) {
+                invalidate(date);
+                throw e;
+            }
+            if (modified) {
+                synchronized (cache) {
+                    writeCount++;
+                    cacheDate(date, saved);
+                }
+            }
+            return modified;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Updates order through the wrapped DAO and in the cached date
+     * @param order edited Order object
+     * @throws FlooringMasteryPersistenceException when order doesn't exist or uploading fails
+     */
+    @Override
+    public void updateOrder(Order order) throws FlooringMasteryPersistenceException {
+        Lock lock = dateLocks.lock(order.getDate());
+        try {
+            orderDao.updateOrder(order);
+            synchronized (cache) {
+                writeCount++;
+                CachedDate cached = cache.get(order.getDate());
+                if (cached != null) {
+                    cachedBytes += put(cached, order.copy());
+                    evictIfNeeded();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes order through the wrapped DAO and from the cached date
+     * @param date LocalDate of the order
+     * @param orderNumber number of the order to remove
+     * @throws FlooringMasteryPersistenceException when order doesn't exist or uploading fails
+     */
+    @Override
+    public void removeOrder(LocalDate date, int orderNumber) throws FlooringMasteryPersistenceException {
+        Lock lock = dateLocks.lock(date);
+        try {
+            orderDao.removeOrder(date, orderNumber);
+            synchronized (cache) {
+                writeCount++;
+                CachedDate cached = cache.get(date);
+                if (cached != null) {
+                    Order removed = cached.orders.remove(orderNumber);
+                    if (removed != null) {
+                        long size = estimateSize(removed);
+                        cached.bytes -= size;
+                        cachedBytes -= size;
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Stream<Order> getOrdersBetween(LocalDate from, LocalDate to) throws FlooringMasteryPersistenceException {
+        // ranges may cover years, they are streamed from the wrapped DAO without filling the cache
+        return orderDao.getOrdersBetween(from, to);
+    }
+
+    @Override
+    public Stream<Order> scanOrders(LocalDate from, LocalDate to, OrderFilter filter)
+            throws FlooringMasteryPersistenceException {
+        // scans filter raw records of the wrapped DAO, cached orders wouldn't save much
+        return orderDao.scanOrders(from, to, filter);
+    }
+
+    @Override
+    public Order findOrder(int orderNumber) throws FlooringMasteryPersistenceException {
+        return orderDao.findOrder(orderNumber);
+    }
+
+    @Override
+    public ExportReport exportOrders() throws FlooringMasteryPersistenceException {
+        return orderDao.exportOrders();
+    }
+
+    @Override
+    public ExportReport exportChangedOrders() throws FlooringMasteryPersistenceException {
+        return orderDao.exportChangedOrders();
+    }
+
+    /**
+     * Restores orders through the cached DAO and drops all cached dates,
+     * any of them may have been replaced
+     */
+    @Override
+    public RestoreReport restoreOrders() throws FlooringMasteryPersistenceException {
+        dateLocks.lockAll();
+        try {
+            return orderDao.restoreOrders();
+        } finally {
+            synchronized (cache) {
+                writeCount++;
+                cache.clear();
+                cachedBytes = 0;
+            }
+            dateLocks.unlockAll();
+        }
+    }
+
+    @Override
+    public int leaseOrderNumbers(int count) throws FlooringMasteryPersistenceException {
+        return orderDao.leaseOrderNumbers(count);
+    }
+
+    @Override
+    public void releaseOrderNumbers(int from, int to) throws FlooringMasteryPersistenceException {
+        orderDao.releaseOrderNumbers(from, to);
+    }
+
+    /**
+     * @return number of getOrdersForDate calls served from cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of getOrdersForDate calls that loaded orders through the wrapped DAO
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of dates evicted from cache
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return number of currently cached dates
+     */
+    public int getCachedDateCount() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * @return estimated size of cached orders in bytes
+     */
+    public long getCachedBytes() {
+        synchronized (cache) {
+            return cachedBytes;
+        }
+    }
+
+    /**
+     * Puts orders to cache as the most recently used date. Must be called under lock
+     * @param date LocalDate of the orders
+     * @param cached CachedDate with copies of orders for this date
+     */
+    private void cacheDate(LocalDate date, CachedDate cached) {
+        CachedDate previous = cache.put(date, cached);
+        if (previous != null) {
+            cachedBytes -= previous.bytes;
+        }
+        cachedBytes += cached.bytes;
+        evictIfNeeded();
+    }
+
+    /**
+     * Removes date from cache
+     * @param date LocalDate to remove
+     */
+    private void invalidate(LocalDate date) {
+        synchronized (cache) {
+            writeCount++;
+            CachedDate previous = cache.remove(date);
+            if (previous != null) {
+                cachedBytes -= previous.bytes;
+            }
+        }
+    }
+
+    /**
+     * Adds order to cached date, replacing the order with the same number
+     * @param cached CachedDate to add order to
+     * @param order Order object owned by cache
+     * @return change of the cached date size in bytes
+     */
+    private long put(CachedDate cached, Order order) {
+        Order previous = cached.orders.put(order.getOrderNumber(), order);
+        long delta = estimateSize(order) - (previous == null ? 0 : estimateSize(previous));
+        cached.bytes += delta;
+        return delta;
+    }
+
+    /**
+     * Evicts least recently used dates while cache exceeds its limits.
+     * The most recently used date is always kept. Must be called under lock
+     */
+    private void evictIfNeeded() {
+        Iterator<CachedDate> iterator = cache.values().iterator();
+        while (cache.size() > 1 && (cache.size() > maxDates || cachedBytes > maxBytes)) {
+            CachedDate eldest = iterator.next();
+            cachedBytes -= eldest.bytes;
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Estimates memory taken by the order
+     * @param order Order object
+     * @return estimated size in bytes
+     */
+    private long estimateSize(Order order) {
+        return ORDER_OVERHEAD_BYTES + ENTRY_OVERHEAD_BYTES
+                + 2L * (order.getCustomerName().length() + order.getState().length()
+                + order.getProductType().length());
+    }
+
+    /**
+     * Creates map with copies of given orders
+     * @param orders Collection of orders
+     * @return Map with orderNumbers as keys and copies of orders as values
+     */
+    private Map<Integer, Order> copy(Collection<Order> orders) {
+        Map<Integer, Order> orderMap = new HashMap<>();
+        for (Order order : orders) {
+            orderMap.put(order.getOrderNumber(), order.copy());
+        }
+        return orderMap;
+    }
+
+    /**
+     * Orders of one cached date with their estimated size
+     */
+    private static class CachedDate {
+        private final Map<Integer, Order> orders = new HashMap<>();
+        private long bytes;
+    }
+}
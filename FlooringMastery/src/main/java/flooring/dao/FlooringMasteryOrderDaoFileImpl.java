@@ -1,18 +1,64 @@
 package flooring.dao;
 
+import flooring.metrics.DayFileOpenEvent;
+import flooring.metrics.DayFileParseEvent;
+import flooring.metrics.DayFileReadEvent;
+import flooring.metrics.DayFileWriteEvent;
+import flooring.metrics.FlooringMasteryMetrics;
+import flooring.metrics.OrderExportEvent;
+import flooring.model.ExportReport;
 import flooring.model.Order;
+import flooring.model.OrderFilter;
+import flooring.model.RestoreReport;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import java.io.*;
-import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32C;
 
 @Component
-public class FlooringMasteryOrderDaoFileImpl implements FlooringMasteryOrderDao {
+@Profile("!binary")
+public class FlooringMasteryOrderDaoFileImpl implements FlooringMasteryOrderDao, DisposableBean {
 
-    private final String DELIMITER = "::";
+    private final String DELIMITER = FlooringMasteryRecordCodec.DELIMITER;
+
+    // Parses and writes order records
+    private final FlooringMasteryRecordCodec codec = new FlooringMasteryRecordCodec();
 
     // Partial path for persistent storage
     private final String ORDER_FILE_PATH;
@@ -20,8 +66,11 @@ public class FlooringMasteryOrderDaoFileImpl implements FlooringMasteryOrderDao
     // Path for orders' export
     private final String ORDER_BACKUP_PATH;
 
+    // Size, modification time, checksum and position in the export of every exported day file
+    private final String EXPORT_MANIFEST_PATH;
+
     // file to store lastOrderNumber
-    private final String ORDER_NUMBER_FILE;
+    private final FlooringMasteryOrderNumberFile orderNumbers;
 
     // Formatter for persistent storage
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMddyyyy");
@@ -36,36 +85,145 @@ public class FlooringMasteryOrderDaoFileImpl implements FlooringMasteryOrderDao
     // Header for export
     private final String BACKUP_HEADER = HEADER + "::OrderDate";
 
-    public FlooringMasteryOrderDaoFileImpl() {
-        ORDER_FILE_PATH = "Orders";
-        ORDER_BACKUP_PATH = "Backup/DataExport.txt";
-        ORDER_NUMBER_FILE = "Data/OrderNumber.txt";
+    // Write-ahead log for new orders, null if orders are written to day files directly
+    private final FlooringMasteryOrderJournal journal;
+
+    // Index from orderNumber to date and position of the order record
+    private final FlooringMasteryOrderIndex index;
+
+    // Guards changes of day files: appends, tombstones, rewrites and compaction, striped by date
+    private final FlooringMasteryDateLocks dateLocks = new FlooringMasteryDateLocks(DATE_LOCK_STRIPES);
+
+    // Bytes taken by tombstones in each day file
+    private final Map<LocalDate, Long> deadBytes = new ConcurrentHashMap<>();
+
+    // Day file is compacted when tombstones take this many bytes or half of the file
+    private static final long COMPACTION_THRESHOLD = 64 * 1024;
+    private static final long COMPACTION_PERIOD_SECONDS = 30;
+
+    // Number of day file locks, dates DATE_LOCK_STRIPES days apart share a lock
+    private static final int DATE_LOCK_STRIPES = 64;
+
+    // Export converts day files on a bounded pool, each thread may be EXPORT_WINDOW files ahead of the writer
+    private static final int EXPORT_THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int EXPORT_WINDOW = 2;
+
+    // Restore maps the backup file in chunks of RESTORE_CHUNK_BYTES cut at line ends,
+    // at most RESTORE_PENDING_BYTES of parsed records wait for day file writes
+    private static final int RESTORE_CHUNK_BYTES = 8 * 1024 * 1024;
+    private static final int RESTORE_PENDING_BYTES = 64 * 1024 * 1024;
+
+    // Range queries load at most RANGE_WINDOW day files per pool thread ahead of the consumer
+    private static final int RANGE_WINDOW = 2;
+
+    // Day files up to mapThreshold bytes are mapped and parsed in place, bigger ones are
+    // streamed through a buffer of DAY_FILE_BUFFER_BYTES, which grows only for longer lines
+    private static final int DAY_FILE_BUFFER_BYTES = 1024 * 1024;
+    private long mapThreshold = 64 * 1024 * 1024;
+
+    // Mapped day files of parallelThreshold bytes and more are parsed in parts on the common ForkJoinPool
+    private long parallelThreshold = 8 * 1024 * 1024;
+
+    // Background compactor, started with the first tombstone
+    private ScheduledExecutorService compactor;
+
+    public FlooringMasteryOrderDaoFileImpl() throws FlooringMasteryPersistenceException {
+        this("Orders", "Backup/DataExport.txt", "Data/OrderNumber.txt",
+                "Data/OrderJournal.txt", "Data/OrderIndex.txt");
     }
 
     public FlooringMasteryOrderDaoFileImpl(String orderFile, String backupFile, String numberFile) {
         ORDER_FILE_PATH = orderFile;
         ORDER_BACKUP_PATH = backupFile;
-        ORDER_NUMBER_FILE = numberFile;
+        EXPORT_MANIFEST_PATH = backupFile + ".manifest";
+        orderNumbers = new FlooringMasteryOrderNumberFile(numberFile);
+        new File(ORDER_FILE_PATH).mkdirs();
+        index = new FlooringMasteryOrderIndex(null, new IndexSource());
+        journal = null;
+    }
+
+    public FlooringMasteryOrderDaoFileImpl(String orderFile, String backupFile, String numberFile, String journalFile)
+            throws FlooringMasteryPersistenceException {
+        this(orderFile, backupFile, numberFile, journalFile, null);
+    }
+
+    /**
+     * @param orderFile directory with day files
+     * @param backupFile file for orders' export
+     * @param numberFile file to store lastOrderNumber
+     * @param journalFile file for write-ahead log of new orders
+     * @param indexFile file for order index, null to keep index in memory only
+     * @throws FlooringMasteryPersistenceException if journal cannot be opened or replayed
+     */
+    public FlooringMasteryOrderDaoFileImpl(String orderFile, String backupFile, String numberFile,
+                                           String journalFile, String indexFile)
+            throws FlooringMasteryPersistenceException {
+        ORDER_FILE_PATH = orderFile;
+        ORDER_BACKUP_PATH = backupFile;
+        EXPORT_MANIFEST_PATH = backupFile + ".manifest";
+        orderNumbers = new FlooringMasteryOrderNumberFile(numberFile);
+        new File(ORDER_FILE_PATH).mkdirs();
+        index = new FlooringMasteryOrderIndex(indexFile, new IndexSource());
+        journal = new FlooringMasteryOrderJournal(journalFile, this::applyJournalRecords);
     }
 
     /**
-     * Checks if file for this date exists, if not - creates file and writes HEADER.
+     * Sets the biggest day file which is read through a memory mapping. Bigger
+     * files are streamed, so reading them doesn't map their full size at once
+     * @param mapThreshold size in bytes, 0 to stream all day files
+     */
+    @Value("${flooring.orders.mapThreshold:67108864}")
+    public void setMapThreshold(long mapThreshold) {
+        this.mapThreshold = mapThreshold;
+    }
+
+    /**
+     * Sets the smallest mapped day file which is parsed in parts in parallel,
+     * smaller files are parsed faster on the reading thread alone
+     * @param parallelThreshold size in bytes, Long.MAX_VALUE to parse all day files on one thread
+     */
+    @Value("${flooring.orders.parallelThreshold:8388608}")
+    public void setParallelThreshold(long parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * If journal is used, appends order to the journal and returns when it is durable,
+     * day file is updated in the background.
+     * Otherwise checks if file for this date exists, if not - creates file and writes HEADER.
      * Adds given order to this file.
      * @param order Order object to upload
      * @throws FlooringMasteryPersistenceException when IOException occurs
      */
     @Override
     public void uploadOrder(Order order) throws FlooringMasteryPersistenceException {
+        if (journal != null) {
+            journal.append(marshallData(order) + DELIMITER + order.getDate().format(backupFormatter));
+            return;
+        }
+        Lock lock = dateLocks.lock(order.getDate());
+        try {
+            appendOrder(order);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends order to its day file, creates file with HEADER if it doesn't exist
+     * @param order Order object to append
+     * @throws FlooringMasteryPersistenceException when IOException occurs
+     */
+    private void appendOrder(Order order) throws FlooringMasteryPersistenceException {
+        DayFileWriteEvent writeEvent = new DayFileWriteEvent();
+        writeEvent.begin();
         PrintWriter out;
         String fileName = ORDER_FILE_PATH + "/Order_" + order.getDate().format(formatter) + ".txt";
-        try {
-            // check if file exists
-            new FileReader(fileName);
-        } catch (FileNotFoundException e) {
+        if (!Files.exists(Paths.get(fileName))) {
             try {
                 // create file and write header
                 out = new PrintWriter(new BufferedWriter(new FileWriter(fileName)));
-                out.println(HEADER);
+                out.print(HEADER + "\n");
                 out.flush();
                 out.close();
             } catch (IOException err) {
@@ -73,46 +231,197 @@ public class FlooringMasteryOrderDaoFileImpl implements FlooringMasteryOrderDao
             }
         }
         // add order info to the file
+        long position = new File(fileName).length();
+        DayFileOpenEvent openEvent = new DayFileOpenEvent();
+        openEvent.begin();
         try {
             out = new PrintWriter(new FileWriter(fileName, true));
         } catch (IOException e) {
             throw new FlooringMasteryPersistenceException("Cannot upload order data");
         }
-        out.println(marshallData(order));
+        openEvent.commit("uploadOrder", order.getDate(), 0, position);
+        String line = marshallData(order);
+        out.print(line + "\n");
         out.flush();
         out.close();
+        int bytes = FlooringMasteryRecordCodec.utf8Length(line, 0, line.length()) + 1;
+        FlooringMasteryMetrics.addBytesWritten(bytes);
+        writeEvent.commit("uploadOrder", order.getDate(), 1, bytes);
+        index.put(order.getOrderNumber(), order.getDate(), position);
+    }
+
+    /**
+     * Appends orders to their day file with one write and forces the file to disk.
+     * Orders of the journal are applied first, so day file keeps the upload order
+     * @param orders Collection of orders with orderNumbers, all of them for given date
+     * @param date LocalDate of the orders
+     * @throws FlooringMasteryPersistenceException when IOException occurs
+     */
+    @Override
+    public void uploadOrders(Collection<Order> orders, LocalDate date) throws FlooringMasteryPersistenceException {
+        checkpointJournal();
+        List<String> lines = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            lines.add(marshallData(order));
+        }
+        DayFileWriteEvent writeEvent = new DayFileWriteEvent();
+        writeEvent.begin();
+        long bytes;
+        Lock lock = dateLocks.lock(date);
+        try {
+            try {
+                bytes = appendLines(date, lines);
+            } catch (IOException e) {
+                throw new FlooringMasteryPersistenceException("Cannot upload orders for " + date.format(backupFormatter));
+            }
+        } finally {
+            lock.unlock();
+        }
+        FlooringMasteryMetrics.addBytesWritten(bytes);
+        writeEvent.commit("uploadOrders", date, lines.size(), bytes);
     }
 
     /**
-     * If file with orders for this date exists reads this file line by line,
-     * create Order object for each line and puts this object to orderMap as
-     * a value with orderNumber as a key
+     * If file with orders for this date exists reads this file, decodes
+     * each line straight from its bytes to Order object and puts this object
+     * to orderMap as a value with orderNumber as a key
      * @param date LocalDate object
      * @return Map with orderNumbers as Keys and Order objects as values
      * @throws FlooringMasteryPersistenceException when file for given date doesn't exist
      */
     @Override
     public Map<Integer, Order> getOrdersForDate(LocalDate date) throws FlooringMasteryPersistenceException {
-        Scanner in;
-        String fileName = ORDER_FILE_PATH + "/Order_" + date.format(formatter) + ".txt";
+        checkpointJournal();
         try {
-            // check if file exists
-            in = new Scanner(new BufferedReader(new FileReader(fileName)));
-        } catch (FileNotFoundException e) {
+            return readDayFile("getOrdersForDate", date);
+        } catch (IOException e) {
             throw new FlooringMasteryPersistenceException("Cannot load data");
         }
-        Map<Integer, Order> orderMap = new HashMap<>();
-        // read the header
-        in.nextLine();
-        String currentLine;
-        Order currentOrder;
-        while (in.hasNextLine()) {
-            currentLine = in.nextLine();
-            currentOrder = unmarshallData(currentLine);
-            currentOrder.setDate(date);
-            orderMap.put(currentOrder.getOrderNumber(), currentOrder);
+    }
+
+    /**
+     * Gets orders of all dates from the range which have day files. Day files
+     * are loaded and parsed in parallel on the common ForkJoinPool, at most
+     * RANGE_WINDOW files per pool thread ahead of the consumer, so memory
+     * doesn't depend on the length of the range. Day files which disappear
+     * while the stream is consumed are skipped
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @return lazy Stream of orders ordered by date and orderNumber, should be closed
+     * to stop loading if it is not consumed completely
+     * @throws FlooringMasteryPersistenceException if applying of the journal failed
+     */
+    @Override
+    public Stream<Order> getOrdersBetween(LocalDate from, LocalDate to) throws FlooringMasteryPersistenceException {
+        return streamDayFiles("getOrdersBetween", from, to, null);
+    }
+
+    /**
+     * Gets orders matching the filter like getOrdersBetween. Criteria except
+     * total are checked on the bytes of every record before it becomes an Order,
+     * so only matching orders are created
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @param filter criteria of the orders
+     * @return lazy Stream of matching orders ordered by date and orderNumber, should be closed
+     * to stop scanning if it is not consumed completely
+     * @throws FlooringMasteryPersistenceException if applying of the journal failed
+     */
+    @Override
+    public Stream<Order> scanOrders(LocalDate from, LocalDate to, OrderFilter filter)
+            throws FlooringMasteryPersistenceException {
+        return streamDayFiles("scanOrders", from, to, new FlooringMasteryRecordFilter(codec, filter));
+    }
+
+    /**
+     * Streams orders of the day files from the range, see getOrdersBetween
+     * @param operation name of the operation for events
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @param filter filter of the records, null for all orders
+     * @return lazy Stream of orders ordered by date and orderNumber
+     * @throws FlooringMasteryPersistenceException if applying of the journal failed
+     */
+    private Stream<Order> streamDayFiles(String operation, LocalDate from, LocalDate to,
+                                         FlooringMasteryRecordFilter filter) throws FlooringMasteryPersistenceException {
+        checkpointJournal();
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date : listOrderDates()) {
+            if (!date.isBefore(from) && !date.isAfter(to)) {
+                dates.add(date);
+            }
+        }
+        DayFileLoader loader = new DayFileLoader(dates, date -> loadDayFile(operation, date, filter));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(loader,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .flatMap(List::stream)
+                .onClose(loader::cancel);
+    }
+
+    /**
+     * Reads orders of the day file. Files up to mapThreshold bytes are mapped
+     * and records are decoded from the mapped bytes, in parallel if the file has
+     * parallelThreshold bytes or more. Bigger files are read through a buffer
+     * and parsed while they are read
+     * @param operation name of the operation for events
+     * @param date LocalDate of the day file
+     * @return Map with orderNumbers as Keys and Order objects as values
+     * @throws NoSuchFileException if day file doesn't exist
+     * @throws IOException if reading fails
+     */
+    private Map<Integer, Order> readDayFile(String operation, LocalDate date) throws IOException {
+        return readDayFile(operation, date, null);
+    }
+
+    /**
+     * Reads orders of the day file which match the filter, see readDayFile(String, LocalDate)
+     * @param operation name of the operation for events
+     * @param date LocalDate of the day file
+     * @param filter filter of the records, null to read all orders
+     * @return Map with orderNumbers as Keys and Order objects as values
+     * @throws NoSuchFileException if day file doesn't exist
+     * @throws IOException if reading fails
+     */
+    private Map<Integer, Order> readDayFile(String operation, LocalDate date, FlooringMasteryRecordFilter filter)
+            throws IOException {
+        Path file = Paths.get(ORDER_FILE_PATH, "Order_" + date.format(formatter) + ".txt");
+        DayFileReadEvent readEvent = new DayFileReadEvent();
+        readEvent.begin();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size <= Math.min(mapThreshold, Integer.MAX_VALUE)) {
+                MappedByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                readEvent.commit(operation, date, 0, size);
+                DayFileParser parser = new DayFileParser(date, filter);
+                if (size >= parallelThreshold) {
+                    // the reading thread parses a part too
+                    parser.parseInParts(content, ForkJoinPool.getCommonPoolParallelism() + 1);
+                } else {
+                    parser.parse(content, true);
+                }
+                return parser.finish(operation);
+            }
+            DayFileParser parser = new DayFileParser(date, filter);
+            ByteBuffer buffer = ByteBuffer.allocate(DAY_FILE_BUFFER_BYTES);
+            boolean last = false;
+            long bytes = 0;
+            while (!last) {
+                int read = channel.read(buffer);
+                last = read < 0;
+                bytes += Math.max(read, 0);
+                buffer.flip();
+                buffer.position(parser.parse(buffer, last));
+                if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+                    // the line doesn't fit into the buffer
+                    buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer);
+                } else {
+                    buffer.compact();
+                }
+            }
+            // parsing of streamed file is a part of reading
+            readEvent.commit(operation, date, 0, bytes);
+            return parser.finish(operation);
         }
-        return orderMap;
     }
 
     /**
@@ -124,132 +433,1648 @@ public class FlooringMasteryOrderDaoFileImpl implements FlooringMasteryOrderDao
      */
     @Override
     public void uploadModifiedOrders(Collection<Order> orders, LocalDate date) throws FlooringMasteryPersistenceException {
-        PrintWriter out;
-        String fileName = ORDER_FILE_PATH + "/Order_" + date.format(formatter) + ".txt";
+        checkpointJournal();
+        Lock lock = dateLocks.lock(date);
+        try {
+            rewriteDayFile("uploadModifiedOrders", orders, date);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Loads orders of the date, lets the change modify them and, if it returns true,
+     * writes them back, all under the lock of the date. Uploads, edits and other
+     * modifications of this date wait until the change is written, other dates are not blocked.
+     * Journaled orders are applied before loading
+     * @param date LocalDate of the orders
+     * @param change gets modifiable Map ordered by orderNumber, empty if there are no orders
+     * for the date, and returns true if orders should be written
+     * @return true if orders were written
+     * @throws FlooringMasteryPersistenceException if orders cannot be loaded or written
+     */
+    @Override
+    public boolean modifyOrders(LocalDate date, Predicate<Map<Integer, Order>> change)
+            throws FlooringMasteryPersistenceException {
+        // journal is applied in the background under date locks, so it is never awaited holding one
+        checkpointJournal();
+        Lock lock = dateLocks.lock(date);
+        try {
+            Map<Integer, Order> orderMap = new LinkedHashMap<>();
+            Path file = Paths.get(ORDER_FILE_PATH, "Order_" + date.format(formatter) + ".txt");
+            if (Files.exists(file)) {
+                try {
+                    new TreeMap<>(readDayFile("modifyOrders", date)).forEach(orderMap::put);
+                } catch (IOException e) {
+                    throw new FlooringMasteryPersistenceException("Cannot load orders for " + date.format(backupFormatter));
+                }
+            }
+            Set<Integer> loaded = new HashSet<>(orderMap.keySet());
+            if (!change.test(orderMap)) {
+                return false;
+            }
+            rewriteDayFile("modifyOrders", orderMap.values(), date);
+            loaded.removeAll(orderMap.keySet());
+            loaded.forEach(index::remove);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes orders to a new day file which is forced to disk and atomically replaces the old one,
+     * so readers without the lock see either old or new orders.
+     * Should be called holding the lock of the date
+     * @param operation name of the operation for events
+     * @param orders all orders of the date
+     * @param date LocalDate of the day file
+     * @throws FlooringMasteryPersistenceException if writing fails
+     */
+    private void rewriteDayFile(String operation, Collection<Order> orders, LocalDate date)
+            throws FlooringMasteryPersistenceException {
+        Path file = Paths.get(ORDER_FILE_PATH, "Order_" + date.format(formatter) + ".txt");
+        Path rewritten = Paths.get(ORDER_FILE_PATH, "Order_" + date.format(formatter) + ".tmp");
+        DayFileWriteEvent writeEvent = new DayFileWriteEvent();
+        writeEvent.begin();
+        StringBuilder content = new StringBuilder(HEADER.length() + orders.size() * 128);
+        content.append(HEADER).append('\n');
+        long position = content.length();
+        Map<Integer, Long> positions = new HashMap<>();
+        for (Order order : orders) {
+            int lineStart = content.length();
+            codec.appendOrder(order, content);
+            positions.put(order.getOrderNumber(), position);
+            position += FlooringMasteryRecordCodec.utf8Length(content, lineStart, content.length()) + 1;
+            content.append('\n');
+        }
         try {
-            out = new PrintWriter(new BufferedWriter(new FileWriter(fileName)));
+            try (FileChannel out = FileChannel.open(rewritten, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeFully(out, ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8)), 0);
+                // the new file must be on disk before it replaces the old one
+                out.force(true);
+            }
+            Files.move(rewritten, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
             throw new FlooringMasteryPersistenceException("Failed to upload data");
         }
-        out.println(HEADER);
-        out.flush();
-        orders.stream()
-               .forEach((order) -> {
-                            out.println(marshallData(order));
-                            out.flush();
+        FlooringMasteryMetrics.addBytesWritten(position);
+        writeEvent.commit(operation, date, orders.size(), position);
+        deadBytes.remove(date);
+        index.putAll(date, positions);
+    }
+
+    /**
+     * Appends edited order to the end of its day file and turns the previous
+     * record of this order into a tombstone. Other records are not touched
+     * @param order edited Order object
+     * @throws FlooringMasteryPersistenceException if order doesn't exist or writing fails
+     */
+    @Override
+    public void updateOrder(Order order) throws FlooringMasteryPersistenceException {
+        checkpointJournal();
+        byte[] line = (marshallData(order) + "\n").getBytes(StandardCharsets.UTF_8);
+        mutateRecord(order.getDate(), order.getOrderNumber(), line);
+    }
+
+    /**
+     * Turns the record of the order into a tombstone. Other records are not touched
+     * @param date LocalDate of the order
+     * @param orderNumber number of the order to remove
+     * @throws FlooringMasteryPersistenceException if order doesn't exist or writing fails
+     */
+    @Override
+    public void removeOrder(LocalDate date, int orderNumber) throws FlooringMasteryPersistenceException {
+        checkpointJournal();
+        mutateRecord(date, orderNumber, null);
+    }
+
+    /**
+     * Rewrites day file without tombstones. New file is written next to the old one
+     * and atomically replaces it
+     * @param date LocalDate of the day file
+     * @throws FlooringMasteryPersistenceException if compaction fails
+     */
+    public void compactOrders(LocalDate date) throws FlooringMasteryPersistenceException {
+        Path file = Paths.get(ORDER_FILE_PATH, "Order_" + date.format(formatter) + ".txt");
+        Path compacted = Paths.get(ORDER_FILE_PATH, "Order_" + date.format(formatter) + ".tmp");
+        Map<Integer, Long> positions = new HashMap<>();
+        DayFileWriteEvent writeEvent = new DayFileWriteEvent();
+        Lock lock = dateLocks.lock(date);
+        try {
+            writeEvent.begin();
+            long position = 0;
+            try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+                 BufferedWriter out = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+                String line = in.readLine();
+                boolean header = true;
+                while (line != null) {
+                    if (!isTombstone(line)) {
+                        if (!header) {
+                            positions.put(Integer.parseInt(line.substring(0, line.indexOf(DELIMITER))), position);
                         }
-                        );
-        out.close();
+                        out.write(line);
+                        out.write('\n');
+                        position += FlooringMasteryRecordCodec.utf8Length(line, 0, line.length()) + 1;
+                    }
+                    header = false;
+                    line = in.readLine();
+                }
+            } catch (IOException e) {
+                throw new FlooringMasteryPersistenceException("Cannot compact orders for " + date);
+            }
+            try {
+                try (FileChannel channel = FileChannel.open(compacted, StandardOpenOption.WRITE)) {
+                    channel.force(false);
+                }
+                Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new FlooringMasteryPersistenceException("Cannot compact orders for " + date);
+            }
+            writeEvent.commit("compactOrders", date, positions.size(), position);
+            deadBytes.remove(date);
+            index.putAll(date, positions);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
-     * Iterates through all files with orders in ORDER_FILE_PATH, reads
-     * them line by line and writes each line to the backup file
-     * (ORDER_BACKUP_PATH)
+     * Converts all day files in ORDER_FILE_PATH to the backup format and replaces
+     * the backup file (ORDER_BACKUP_PATH), see export(boolean)
+     * @return ExportReport with number of exported orders, bytes and time
      * @throws FlooringMasteryPersistenceException when loading or uploading fails
      */
     @Override
-    public void exportOrders() throws FlooringMasteryPersistenceException {
-        PrintWriter out;
-        Scanner in;
-        // create backup file and writes header
+    public ExportReport exportOrders() throws FlooringMasteryPersistenceException {
+        return export(false);
+    }
+
+    /**
+     * Updates the backup file (ORDER_BACKUP_PATH) with day files changed since the previous export,
+     * see export(boolean)
+     * @return ExportReport with number of exported orders, reused files, bytes and time
+     * @throws FlooringMasteryPersistenceException when loading or uploading fails
+     */
+    @Override
+    public ExportReport exportChangedOrders() throws FlooringMasteryPersistenceException {
+        return export(true);
+    }
+
+    /**
+     * Writes records of all day files to the backup file in date order and the manifest
+     * (EXPORT_MANIFEST_PATH) with size, modification time and checksum of every day file
+     * and the position of its segment in the backup file. Day files are converted in parallel
+     * on a bounded pool, at most EXPORT_WINDOW files ahead of the writer.
+     * Incremental export reuses segments of day files which didn't change since the previous
+     * export: same size and modification time, or same size and checksum. Files modified
+     * not before the start of the previous export may have changed within the same tick of
+     * the file system clock, they are reused only if their checksum matches. The new backup
+     * file is built in a temporary file which atomically replaces the old one, the leading
+     * run of reused segments is copied with one transfer. Without a valid manifest, or if the
+     * backup file was changed after the manifest was written, all day files are converted
+     * @param incremental true to reuse segments of the previous export
+     * @return ExportReport with number of exported orders, reused files, written bytes and time
+     * @throws FlooringMasteryPersistenceException when loading or uploading fails
+     */
+    private ExportReport export(boolean incremental) throws FlooringMasteryPersistenceException {
+        checkpointJournal();
+        OrderExportEvent exportEvent = new OrderExportEvent();
+        exportEvent.begin();
+        long start = System.nanoTime();
+        List<LocalDate> dates = listOrderDates();
+        Path backup = Paths.get(ORDER_BACKUP_PATH);
+        Path manifest = Paths.get(EXPORT_MANIFEST_PATH);
+        Path tail = Paths.get(ORDER_BACKUP_PATH + ".tail");
+        byte[] header = (BACKUP_HEADER + "\n").getBytes(StandardCharsets.UTF_8);
+        List<ManifestEntry> files = new ArrayList<>(dates.size());
+        Map<String, ManifestEntry> previous;
+        long exportStart;
         try {
-            out = new PrintWriter(new BufferedWriter(new FileWriter(ORDER_BACKUP_PATH)));
+            exportStart = fileSystemTime();
+            for (LocalDate date : dates) {
+                files.add(statDayFile(date));
+            }
+            previous = incremental ? readManifest() : Collections.emptyMap();
         } catch (IOException e) {
-            throw new FlooringMasteryPersistenceException("Cannot upload data");
+            throw new FlooringMasteryPersistenceException("Cannot export data");
         }
-        out.println(BACKUP_HEADER);
-        out.flush();
-        // get array of order files
-        File f = new File(ORDER_FILE_PATH);
-        String[] fileNames = f.list();
+        // leading run of unchanged day files is kept in place
+        long keep = 0;
+        int kept = 0;
+        long orderCount = 0;
+        if (!previous.isEmpty()) {
+            keep = header.length;
+            while (kept < files.size()) {
+                ManifestEntry old = previous.get(files.get(kept).fileName);
+                if (!files.get(kept).hasSameStat(old) || old.offset != keep) {
+                    break;
+                }
+                files.set(kept++, old);
+                keep += old.length;
+                orderCount += old.orderCount;
+            }
+        }
+        int reusedCount = kept;
+        long byteCount = 0;
+        int threads = Math.max(1, Math.min(EXPORT_THREADS, files.size() - kept));
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "order-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            try (FileChannel out = FileChannel.open(tail, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                 FileChannel old = previous.isEmpty() ? null : FileChannel.open(backup, StandardOpenOption.READ)) {
+                long position = keep;
+                if (keep == 0) {
+                    writeFully(out, ByteBuffer.wrap(header), 0);
+                    position = header.length;
+                } else {
+                    transferFully(old, 0, keep, out, 0);
+                }
+                Deque<Future<ExportSegment>> window = new ArrayDeque<>();
+                int next = kept;
+                for (int i = kept; i < files.size(); i++) {
+                    while (next < files.size() && window.size() < threads * EXPORT_WINDOW) {
+                        ManifestEntry file = files.get(next++);
+                        ManifestEntry reusable = previous.get(file.fileName);
+                        window.add(file.hasSameStat(reusable)
+                                ? CompletableFuture.completedFuture(new ExportSegment(reusable))
+                                : pool.submit(() -> convertForExport(file, reusable)));
+                    }
+                    ExportSegment segment = window.poll().get();
+                    ManifestEntry file = files.get(i);
+                    long length;
+                    if (segment.reused != null) {
+                        length = segment.reused.length;
+                        transferFully(old, segment.reused.offset, length, out, position);
+                        reusedCount++;
+                    } else {
+                        length = segment.content.limit();
+                        writeFully(out, segment.content, position);
+                    }
+                    files.set(i, new ManifestEntry(file.fileName, file.size, file.modified, segment.checksum,
+                            position, length, segment.orderCount));
+                    orderCount += segment.orderCount;
+                    position += length;
+                }
+                byteCount = position - keep;
+                out.force(false);
+            }
+            // from here the backup file doesn't match the manifest until the new one is written
+            Files.deleteIfExists(manifest);
+            Files.move(tail, backup, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            writeManifest(files, exportStart);
+        } catch (IOException | ExecutionException e) {
+            throw new FlooringMasteryPersistenceException("Cannot export data");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FlooringMasteryPersistenceException("Export was interrupted");
+        } finally {
+            pool.shutdownNow();
+        }
+        FlooringMasteryMetrics.addBytesWritten(byteCount);
+        exportEvent.commit(incremental ? "exportChangedOrders" : "exportOrders", null,
+                (int) Math.min(orderCount, Integer.MAX_VALUE), byteCount);
+        return new ExportReport(files.size(), orderCount, byteCount, reusedCount, System.nanoTime() - start);
+    }
+
+    /**
+     * Reads day file and converts its records to the backup format:
+     * header and tombstones are dropped, OrderDate is added to every record.
+     * If the file has the same size and checksum as in the previous export,
+     * its previous segment is reused instead
+     * @param file ManifestEntry with name, size and modification time of the day file
+     * @param previous ManifestEntry of the file from the previous export or null
+     * @return ExportSegment with converted records or the segment to reuse
+     * @throws IOException when reading fails
+     */
+    private ExportSegment convertForExport(ManifestEntry file, ManifestEntry previous) throws IOException {
+        DayFileReadEvent readEvent = new DayFileReadEvent();
+        readEvent.begin();
+        LocalDate date = LocalDate.parse(file.fileName.substring(6, 14), formatter);
+        byte[] content = Files.readAllBytes(Paths.get(ORDER_FILE_PATH, file.fileName));
+        FlooringMasteryMetrics.addBytesRead(content.length);
+        readEvent.commit("exportOrders", date, 0, content.length);
+        CRC32C crc = new CRC32C();
+        crc.update(content, 0, content.length);
+        if (previous != null && previous.size == content.length && previous.checksum == crc.getValue()) {
+            return new ExportSegment(previous);
+        }
+        byte[] suffix = (DELIMITER + date.format(backupFormatter) + "\n").getBytes(StandardCharsets.UTF_8);
+        // every record grows by the suffix, estimate number of records by the average record size
+        ByteBuffer result = ByteBuffer.allocate(content.length + suffix.length * (content.length / 64 + 1));
+        int orderCount = 0;
+        int lineStart = 0;
+        boolean header = true;
+        for (int i = 0; i <= content.length; i++) {
+            if (i < content.length && content[i] != '\n') {
+                continue;
+            }
+            int lineEnd = i > lineStart && content[i - 1] == '\r' ? i - 1 : i;
+            if (header) {
+                header = false;
+            } else if (!isTombstone(content, lineStart, lineEnd)) {
+                if (result.remaining() < lineEnd - lineStart + suffix.length) {
+                    ByteBuffer larger = ByteBuffer.allocate(result.capacity() * 2 + lineEnd - lineStart + suffix.length);
+                    result.flip();
+                    larger.put(result);
+                    result = larger;
+                }
+                result.put(content, lineStart, lineEnd - lineStart);
+                result.put(suffix);
+                orderCount++;
+            }
+            lineStart = i + 1;
+        }
+        result.flip();
+        return new ExportSegment(result, orderCount, crc.getValue());
+    }
+
+    /**
+     * Reads size and modification time of the day file.
+     * Should be done before the file is read, so a later change is seen by the next export
+     * @param date LocalDate of the day file
+     * @return ManifestEntry without checksum and position
+     * @throws IOException when file attributes cannot be read
+     */
+    private ManifestEntry statDayFile(LocalDate date) throws IOException {
+        String fileName = "Order_" + date.format(formatter) + ".txt";
+        BasicFileAttributes attributes = Files.readAttributes(Paths.get(ORDER_FILE_PATH, fileName),
+                BasicFileAttributes.class);
+        return new ManifestEntry(fileName, attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                0, 0, 0, 0);
+    }
+
+    /**
+     * Gets the current time of the file system clock, which sets modification times of day files,
+     * by writing an empty temporary manifest
+     * @return current time of the file system clock in nanoseconds
+     * @throws IOException when the temporary manifest cannot be written
+     */
+    private long fileSystemTime() throws IOException {
+        Path temporary = Paths.get(EXPORT_MANIFEST_PATH + ".tmp");
+        Files.write(temporary, new byte[0]);
+        return Files.getLastModifiedTime(temporary).to(TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Reads manifest of the previous export. The first line holds size and modification time
+     * of the backup file when the manifest was written, other lines describe day files
+     * @return Map with file names as keys and ManifestEntry objects as values,
+     * empty if manifest is missing, cannot be parsed or the backup file was changed
+     * @throws IOException when reading fails
+     */
+    private Map<String, ManifestEntry> readManifest() throws IOException {
+        Path manifest = Paths.get(EXPORT_MANIFEST_PATH);
+        Path backup = Paths.get(ORDER_BACKUP_PATH);
+        if (!Files.exists(manifest) || !Files.exists(backup)) {
+            return Collections.emptyMap();
+        }
+        Map<String, ManifestEntry> entries = new HashMap<>();
+        try (BufferedReader in = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            ManifestEntry export = ManifestEntry.parse(in.readLine());
+            BasicFileAttributes attributes = Files.readAttributes(backup, BasicFileAttributes.class);
+            if (export.size != attributes.size()
+                    || export.modified != attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)) {
+                return Collections.emptyMap();
+            }
+            String line;
+            while ((line = in.readLine()) != null) {
+                ManifestEntry entry = ManifestEntry.parse(line);
+                entries.put(entry.fileName, entry);
+            }
+        } catch (RuntimeException e) {
+            return Collections.emptyMap();
+        }
+        return entries;
+    }
+
+    /**
+     * Writes manifest of the finished export, the first line describes the backup file.
+     * Day files modified not before the export started are written without modification
+     * time, as they could change again within the same tick of the file system clock
+     * @param files ManifestEntry objects of exported day files
+     * @param exportStart time of the file system clock before day files were examined
+     * @throws IOException when writing fails
+     */
+    private void writeManifest(List<ManifestEntry> files, long exportStart) throws IOException {
+        Path manifest = Paths.get(EXPORT_MANIFEST_PATH);
+        Path temporary = Paths.get(EXPORT_MANIFEST_PATH + ".tmp");
+        BasicFileAttributes attributes = Files.readAttributes(Paths.get(ORDER_BACKUP_PATH), BasicFileAttributes.class);
+        try (BufferedWriter out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            out.write(new ManifestEntry(Paths.get(ORDER_BACKUP_PATH).getFileName().toString(), attributes.size(),
+                    attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), 0, 0, 0, 0).toString());
+            out.newLine();
+            for (ManifestEntry file : files) {
+                out.write((file.modified < exportStart ? file : file.withoutModified()).toString());
+                out.newLine();
+            }
+        }
+        Files.move(temporary, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Copies bytes between channels with as many transfers as needed
+     * @param in channel to read from
+     * @param position position in the channel to read from
+     * @param length number of bytes to copy
+     * @param out channel to write to
+     * @param target position in the channel to write to
+     * @throws IOException when reading or writing fails or source is too short
+     */
+    private void transferFully(FileChannel in, long position, long length, FileChannel out, long target)
+            throws IOException {
+        out.position(target);
+        long copied = 0;
+        while (copied < length) {
+            long transferred = in.transferTo(position + copied, length - copied, out);
+            if (transferred <= 0) {
+                throw new EOFException("Source ended after " + copied + " of " + length + " bytes");
+            }
+            copied += transferred;
+        }
+    }
+
+    /**
+     * Splits the backup file (ORDER_BACKUP_PATH) back into day files. The backup file is
+     * memory-mapped in chunks of RESTORE_CHUNK_BYTES cut at line ends and chunks are parsed
+     * in parallel: records are routed by their OrderDate into per-date buffers. Buffers are
+     * written to day files on the pool as soon as their chunk is parsed, writes of one date
+     * keep file order, writes of different dates run concurrently.
+     * Day files of dates found in the backup file are replaced, other day files are kept.
+     * The number file is set after the greatest restored orderNumber unless it is
+     * already greater. The order index is dropped and rebuilt on the next lookup
+     * @return RestoreReport with number of restored files, orders, bytes and time
+     * @throws FlooringMasteryPersistenceException when backup file cannot be read or parsed
+     * or day files cannot be written
+     */
+    @Override
+    public RestoreReport restoreOrders() throws FlooringMasteryPersistenceException {
+        checkpointJournal();
+        OrderExportEvent restoreEvent = new OrderExportEvent();
+        restoreEvent.begin();
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(EXPORT_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "order-restore");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long orderCount = 0;
+        long byteCount;
+        int maxOrderNumber = 0;
+        Map<LocalDate, CompletableFuture<Void>> writes = new HashMap<>();
+        dateLocks.lockAll();
+        try {
+            try (FileChannel in = FileChannel.open(Paths.get(ORDER_BACKUP_PATH), StandardOpenOption.READ)) {
+                byteCount = in.size();
+                List<long[]> chunks = splitAtLineEnds(in, byteCount);
+                Semaphore pendingBytes = new Semaphore(RESTORE_PENDING_BYTES);
+                Deque<Future<RestoreChunk>> window = new ArrayDeque<>();
+                int next = 0;
+                while (next < chunks.size() || !window.isEmpty()) {
+                    while (next < chunks.size() && window.size() < EXPORT_THREADS * EXPORT_WINDOW) {
+                        long[] range = chunks.get(next++);
+                        window.add(pool.submit(() -> parseBackupChunk(in, range[0], range[1])));
+                    }
+                    RestoreChunk chunk = window.poll().get();
+                    orderCount += chunk.orderCount;
+                    maxOrderNumber = Math.max(maxOrderNumber, chunk.maxOrderNumber);
+                    for (Map.Entry<LocalDate, ByteBuffer> entry : chunk.records.entrySet()) {
+                        LocalDate date = entry.getKey();
+                        ByteBuffer records = entry.getValue();
+                        records.flip();
+                        int permits = Math.min(records.remaining(), RESTORE_PENDING_BYTES);
+                        pendingBytes.acquire(permits);
+                        CompletableFuture<Void> previous = writes.get(date);
+                        CompletableFuture<Void> write = previous == null
+                                ? CompletableFuture.runAsync(() -> writeRestoredRecords(date, records, true), pool)
+                                : previous.thenRunAsync(() -> writeRestoredRecords(date, records, false), pool);
+                        write.whenComplete((result, failure) -> pendingBytes.release(permits));
+                        writes.put(date, write);
+                    }
+                }
+                CompletableFuture.allOf(writes.values().toArray(new CompletableFuture<?>[0])).join();
+            } catch (NoSuchFileException e) {
+                throw new FlooringMasteryPersistenceException("Backup file " + ORDER_BACKUP_PATH + " doesn't exist");
+            } catch (IOException | CompletionException e) {
+                throw new FlooringMasteryPersistenceException("Cannot restore data");
+            } catch (ExecutionException e) {
+                throw new FlooringMasteryPersistenceException("Cannot restore data: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new FlooringMasteryPersistenceException("Restore was interrupted");
+            } finally {
+                pool.shutdownNow();
+            }
+            writes.keySet().forEach(deadBytes::remove);
+            index.invalidate();
+        } finally {
+            dateLocks.unlockAll();
+        }
+        orderNumbers.moveForward(maxOrderNumber + 1);
+        FlooringMasteryMetrics.addBytesRead(byteCount);
+        restoreEvent.commit("restoreOrders", null, (int) Math.min(orderCount, Integer.MAX_VALUE), byteCount);
+        return new RestoreReport(writes.size(), orderCount, byteCount, maxOrderNumber, System.nanoTime() - start);
+    }
+
+    /**
+     * Cuts the file into ranges of about RESTORE_CHUNK_BYTES, every range ends after a line separator
+     * or at the end of the file
+     * @param in FileChannel of the backup file
+     * @param size size of the file
+     * @return List of ranges {start, end}
+     * @throws IOException when reading fails
+     */
+    private List<long[]> splitAtLineEnds(FileChannel in, long size) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + RESTORE_CHUNK_BYTES);
+            while (end < size) {
+                probe.clear();
+                int read = in.read(probe, end);
+                int newline = -1;
+                for (int i = 0; i < read && newline < 0; i++) {
+                    if (probe.get(i) == '\n') {
+                        newline = i;
+                    }
+                }
+                if (newline >= 0) {
+                    end += newline + 1;
+                    break;
+                }
+                end = read <= 0 ? size : end + read;
+            }
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Maps the range of the backup file and copies its records without OrderDate
+     * to per-date buffers. Line at the start of the file is skipped if it is the header
+     * @param in FileChannel of the backup file
+     * @param start position of the first line of the range
+     * @param end position after the last line of the range
+     * @return RestoreChunk with records of the range
+     * @throws IOException when reading fails or a record has no valid OrderDate or orderNumber
+     */
+    private RestoreChunk parseBackupChunk(FileChannel in, long start, long end) throws IOException {
+        MappedByteBuffer map = in.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        ByteBuffer view = map.duplicate();
+        RestoreChunk chunk = new RestoreChunk();
+        byte[] header = HEADER.getBytes(StandardCharsets.UTF_8);
+        LocalDate date = null;
+        int dateKey = -1;
+        int limit = map.limit();
+        int lineStart = 0;
+        for (int i = 0; i <= limit; i++) {
+            if (i < limit && map.get(i) != '\n') {
+                continue;
+            }
+            int lineEnd = i > lineStart && map.get(i - 1) == '\r' ? i - 1 : i;
+            if (lineEnd > lineStart && !(start == 0 && lineStart == 0 && startsWith(map, header))) {
+                // record::MM-dd-yyyy
+                int dateStart = lineEnd - 10;
+                if (dateStart - DELIMITER.length() <= lineStart || map.get(dateStart - 1) != ':'
+                        || map.get(dateStart - 2) != ':') {
+                    throw new IOException("Record at byte " + (start + lineStart) + " has no OrderDate");
+                }
+                int key = parseBackupDate(map, dateStart);
+                if (key != dateKey) {
+                    try {
+                        date = LocalDate.of(key % 10000, key / 1000000, key / 10000 % 100);
+                    } catch (DateTimeException e) {
+                        throw new IOException("Record at byte " + (start + lineStart) + " has wrong OrderDate");
+                    }
+                    dateKey = key;
+                }
+                int orderNumber = 0;
+                int digits = 0;
+                for (int j = lineStart; j < dateStart && map.get(j) != ':'; j++, digits++) {
+                    byte digit = map.get(j);
+                    if (digit < '0' || digit > '9' || digits == 9) {
+                        digits = 0;
+                        break;
+                    }
+                    orderNumber = orderNumber * 10 + digit - '0';
+                }
+                if (digits == 0) {
+                    throw new IOException("Record at byte " + (start + lineStart) + " has wrong OrderNumber");
+                }
+                chunk.maxOrderNumber = Math.max(chunk.maxOrderNumber, orderNumber);
+                chunk.orderCount++;
+                int recordEnd = dateStart - DELIMITER.length();
+                view.limit(recordEnd).position(lineStart);
+                chunk.buffer(date, recordEnd - lineStart + 1).put(view).put((byte) '\n');
+                view.clear();
+            }
+            lineStart = i + 1;
+        }
+        return chunk;
+    }
+
+    /**
+     * Parses date in the format MM-dd-yyyy without creating objects
+     * @param map mapped chunk of the backup file
+     * @param position position of the date
+     * @return month * 1000000 + day * 10000 + year
+     * @throws IOException if date has wrong format
+     */
+    private int parseBackupDate(ByteBuffer map, int position) throws IOException {
+        int key = 0;
+        for (int i = 0; i < 10; i++) {
+            byte symbol = map.get(position + i);
+            if (i == 2 || i == 5) {
+                if (symbol != '-') {
+                    throw new IOException("Wrong OrderDate at byte " + (position + i));
+                }
+            } else if (symbol < '0' || symbol > '9') {
+                throw new IOException("Wrong OrderDate at byte " + (position + i));
+            } else {
+                key = key * 10 + symbol - '0';
+            }
+        }
+        return key;
+    }
+
+    private boolean startsWith(ByteBuffer map, byte[] prefix) {
+        if (map.limit() < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (map.get(i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes restored records to the day file, the first write of the restore replaces
+     * the file with HEADER and the records, later writes append
+     * @param date LocalDate of the day file
+     * @param records records with line separators, ready to be read
+     * @param first true for the first records of the date
+     */
+    private void writeRestoredRecords(LocalDate date, ByteBuffer records, boolean first) {
+        DayFileWriteEvent writeEvent = new DayFileWriteEvent();
+        writeEvent.begin();
+        Path file = Paths.get(ORDER_FILE_PATH, "Order_" + date.format(formatter) + ".txt");
+        long bytes = records.remaining();
+        try {
+            if (first) {
+                // a new file instead of truncating, readers may have the old one mapped
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try (FileChannel out = first
+                ? FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            if (first) {
+                ByteBuffer header = ByteBuffer.wrap((HEADER + "\n").getBytes(StandardCharsets.UTF_8));
+                bytes += header.remaining();
+                while (header.hasRemaining()) {
+                    out.write(header);
+                }
+            }
+            while (records.hasRemaining()) {
+                out.write(records);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        FlooringMasteryMetrics.addBytesWritten(bytes);
+        writeEvent.commit("restoreOrders", date, 0, bytes);
+    }
+
+    /**
+     * Lists dates which have day files in ORDER_FILE_PATH
+     * @return sorted List of dates
+     */
+    private List<LocalDate> listOrderDates() {
+        List<LocalDate> dates = new ArrayList<>();
+        String[] fileNames = new File(ORDER_FILE_PATH).list();
         if (fileNames == null) {
-            return;
+            return dates;
         }
-        LocalDate date;
-        // iterate through order files
         for (String fileName : fileNames) {
-            try {
-                in = new Scanner(new BufferedReader(new FileReader(ORDER_FILE_PATH + "/" +fileName)));
-            } catch (FileNotFoundException e) {
-                throw new FlooringMasteryPersistenceException("Cannot load data");
-            }
-            // read header
-            in.nextLine();
-            String currentLine;
-            date = LocalDate.parse(fileName.substring(6, 14), formatter);
-            while (in.hasNextLine()) {
-                currentLine = in.nextLine();
-                out.println(currentLine + DELIMITER + date.format(backupFormatter));
-                out.flush();
+            // skip files being compacted and other files
+            if (fileName.length() == 18 && fileName.startsWith("Order_") && fileName.endsWith(".txt")) {
+                try {
+                    dates.add(LocalDate.parse(fileName.substring(6, 14), formatter));
+                } catch (DateTimeParseException e) {
+                    // not a day file
+                }
             }
         }
-        out.close();
+        Collections.sort(dates);
+        return dates;
+    }
+
+    /**
+     * Reserves block of orderNumbers, see FlooringMasteryOrderNumberFile.lease
+     * @param count number of orderNumbers to reserve
+     * @return the first reserved orderNumber
+     * @throws FlooringMasteryPersistenceException when file cannot be read or written
+     */
+    @Override
+    public int leaseOrderNumbers(int count) throws FlooringMasteryPersistenceException {
+        return orderNumbers.lease(count);
+    }
+
+    /**
+     * Writes back the first unused orderNumber, see FlooringMasteryOrderNumberFile.release
+     * @param from the first unused orderNumber
+     * @param to orderNumber after the last reserved one
+     * @throws FlooringMasteryPersistenceException when file cannot be read or written
+     */
+    @Override
+    public void releaseOrderNumbers(int from, int to) throws FlooringMasteryPersistenceException {
+        orderNumbers.release(from, to);
     }
 
     /**
-     * Load orderNumber from file or return 1
-     * @return saved orderNumber or 1
+     * Finds order by its number through the order index and reads only its record.
+     * If the record moved since it was indexed, positions of its date are read again
+     * @param orderNumber number of the order
+     * @return Order object or null if order doesn't exist
+     * @throws FlooringMasteryPersistenceException when index or record cannot be read
      */
     @Override
-    public int loadOrderNumber() {
-        Scanner in;
+    public Order findOrder(int orderNumber) throws FlooringMasteryPersistenceException {
+        checkpointJournal();
+        LocalDate date = index.getDate(orderNumber);
+        if (date == null) {
+            return null;
+        }
+        File file = new File(ORDER_FILE_PATH + "/Order_" + date.format(formatter) + ".txt");
+        DayFileOpenEvent openEvent = new DayFileOpenEvent();
+        openEvent.begin();
+        try (FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+            openEvent.commit("findOrder", date, 0, 0);
+            DayFileReadEvent readEvent = new DayFileReadEvent();
+            readEvent.begin();
+            long[] record = readRecordAt(channel, orderNumber, index.getPosition(orderNumber));
+            if (record == null) {
+                // index is stale, refresh positions of this date
+                Map<Integer, Long> positions = readPositions(date);
+                Lock lock = dateLocks.lock(date);
+                try {
+                    index.putAll(date, positions);
+                    if (!positions.containsKey(orderNumber)) {
+                        index.remove(orderNumber);
+                        return null;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                record = readRecordAt(channel, orderNumber, positions.get(orderNumber));
+                if (record == null) {
+                    return null;
+                }
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) record[1]);
+            channel.read(buffer, record[0]);
+            readEvent.commit("findOrder", date, 1, buffer.position());
+            DayFileParseEvent parseEvent = new DayFileParseEvent();
+            parseEvent.begin();
+            Order order = unmarshallData(buffer.array(), 0, buffer.position());
+            order.setDate(date);
+            parseEvent.commit("findOrder", date, 1, buffer.position());
+            FlooringMasteryMetrics.addBytesRead(buffer.position());
+            FlooringMasteryMetrics.addOrdersParsed(1);
+            return order;
+        } catch (FileNotFoundException e) {
+            index.remove(orderNumber);
+            return null;
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException("Cannot load data");
+        }
+    }
+
+    /**
+     * Rebuilds order index from the day files
+     * @throws FlooringMasteryPersistenceException if rebuilding fails
+     */
+    public void rebuildIndex() throws FlooringMasteryPersistenceException {
+        checkpointJournal();
+        dateLocks.lockAll();
         try {
-            in = new Scanner(new BufferedReader(new FileReader(ORDER_NUMBER_FILE)));
-            return in.nextInt();
-        } catch (Exception e) {
-            return 1;
+            index.rebuild();
+        } finally {
+            dateLocks.unlockAll();
         }
     }
 
     /**
-     * Upload lastOrderNumber to persistent file
-     * @throws FlooringMasteryPersistenceException if uploading fails
+     * Applies all journaled orders and closes the journal
+     * @throws FlooringMasteryPersistenceException if applying fails
      */
     @Override
-    public void uploadOrderNumber(int orderNumber) throws FlooringMasteryPersistenceException {
-        PrintWriter out;
+    public void destroy() throws FlooringMasteryPersistenceException {
+        synchronized (deadBytes) {
+            if (compactor != null) {
+                compactor.shutdownNow();
+            }
+        }
         try {
-            out = new PrintWriter(new FileWriter(ORDER_NUMBER_FILE));
-            out.println(orderNumber);
-            out.flush();
-            out.close();
-        } catch (IOException e) {
-            throw new FlooringMasteryPersistenceException("Cannot upload data");
+            if (journal != null) {
+                journal.close();
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    /**
+     * Finds the record of the order in the day file, appends replacement if
+     * it is given and overwrites the old record with spaces. Replacement is
+     * written first, so concurrent readers see either old or new record
+     * @param date LocalDate of the day file
+     * @param orderNumber number of the order to find
+     * @param replacement new record with line separator or null to remove the order
+     * @throws FlooringMasteryPersistenceException if order doesn't exist or writing fails
+     */
+    private void mutateRecord(LocalDate date, int orderNumber, byte[] replacement)
+            throws FlooringMasteryPersistenceException {
+        File file = new File(ORDER_FILE_PATH + "/Order_" + date.format(formatter) + ".txt");
+        long[] record;
+        String operation = replacement == null ? "removeOrder" : "updateOrder";
+        Lock lock = dateLocks.lock(date);
+        try {
+            DayFileOpenEvent openEvent = new DayFileOpenEvent();
+            openEvent.begin();
+            try (FileChannel channel = new RandomAccessFile(file, "rw").getChannel()) {
+                openEvent.commit(operation, date, 0, 0);
+                DayFileWriteEvent writeEvent = new DayFileWriteEvent();
+                writeEvent.begin();
+                record = readRecordAt(channel, orderNumber, indexedPosition(orderNumber, date));
+                if (record == null) {
+                    record = findRecord(channel, orderNumber);
+                }
+                if (record == null) {
+                    throw new FlooringMasteryPersistenceException(
+                            "Order # " + orderNumber + " for " + date + " doesn't exist");
+                }
+                long position = channel.size();
+                if (replacement != null) {
+                    writeFully(channel, ByteBuffer.wrap(replacement), position);
+                }
+                byte[] tombstone = new byte[(int) record[1]];
+                Arrays.fill(tombstone, (byte) ' ');
+                writeFully(channel, ByteBuffer.wrap(tombstone), record[0]);
+                channel.force(false);
+                int bytes = tombstone.length + (replacement == null ? 0 : replacement.length);
+                FlooringMasteryMetrics.addBytesWritten(bytes);
+                writeEvent.commit(operation, date, replacement == null ? 0 : 1, bytes);
+                if (replacement != null) {
+                    index.put(orderNumber, date, position);
+                } else {
+                    index.remove(orderNumber);
+                }
+            } catch (FileNotFoundException e) {
+                throw new FlooringMasteryPersistenceException("Cannot load data");
+            } catch (IOException e) {
+                throw new FlooringMasteryPersistenceException("Cannot upload order data");
+            }
+        } finally {
+            lock.unlock();
+        }
+        addDeadBytes(date, record[1] + 1);
+    }
+
+    /**
+     * Gets indexed position of the order if it is indexed for the given date
+     * @param orderNumber number of the order
+     * @param date LocalDate of the day file
+     * @return position or -1
+     * @throws FlooringMasteryPersistenceException if index cannot be loaded
+     */
+    private long indexedPosition(int orderNumber, LocalDate date) throws FlooringMasteryPersistenceException {
+        if (!index.isLoaded()) {
+            // don't load the whole index just for a hint
+            return -1;
+        }
+        return date.equals(index.getDate(orderNumber)) ? index.getPosition(orderNumber) : -1;
+    }
+
+    /**
+     * Reads the line starting at given position and checks that it is the record of the order
+     * @param channel FileChannel of the day file
+     * @param orderNumber number of the order
+     * @param position position of the line start, -1 if unknown
+     * @return array with offset and length of the line without line separator, null if it is another line
+     * @throws IOException when reading fails
+     */
+    private long[] readRecordAt(FileChannel channel, int orderNumber, long position) throws IOException {
+        if (position < 0) {
+            return null;
+        }
+        byte[] prefix = (orderNumber + DELIMITER).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        long length = 0;
+        byte previous = 0;
+        int read;
+        while ((read = channel.read(buffer, position + length)) > 0) {
+            for (int i = 0; i < read; i++, length++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    if (length < prefix.length) {
+                        return null;
+                    }
+                    return new long[]{position, previous == '\r' ? length - 1 : length};
+                }
+                if (length < prefix.length && b != prefix[(int) length]) {
+                    return null;
+                }
+                previous = b;
+            }
+            buffer.clear();
+        }
+        return length >= prefix.length ? new long[]{position, length} : null;
+    }
+
+    /**
+     * Scans day file for the line of the given order
+     * @param channel FileChannel of the day file
+     * @param orderNumber number of the order
+     * @return array with offset and length of the line without line separator, null if not found
+     * @throws IOException when reading fails
+     */
+    private long[] findRecord(FileChannel channel, int orderNumber) throws IOException {
+        byte[] prefix = (orderNumber + DELIMITER).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long lineStart = 0;
+        long position = 0;
+        // number of prefix bytes matched at the start of the current line, -1 if line doesn't match
+        int matched = 0;
+        while (channel.read(buffer, position) > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n') {
+                    if (matched == prefix.length) {
+                        long length = position - lineStart;
+                        return new long[]{lineStart, length > 0 && isCarriageReturn(channel, position - 1)
+                                ? length - 1 : length};
+                    }
+                    lineStart = position + 1;
+                    matched = 0;
+                } else if (matched >= 0 && matched < prefix.length) {
+                    matched = b == prefix[matched] ? matched + 1 : -1;
+                }
+                position++;
+            }
+            buffer.clear();
+        }
+        if (matched == prefix.length) {
+            return new long[]{lineStart, position - lineStart};
+        }
+        return null;
+    }
+
+    /**
+     * Checks if byte at given position is a carriage return
+     * @param channel FileChannel to read from
+     * @param position position of the byte
+     * @return true if byte is '\r'
+     * @throws IOException when reading fails
+     */
+    private boolean isCarriageReturn(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        channel.read(buffer, position);
+        return buffer.get(0) == '\r';
+    }
+
+    /**
+     * Writes whole buffer to the channel starting at given position
+     * @param channel FileChannel to write to
+     * @param buffer ByteBuffer with data
+     * @param position position in the file
+     * @throws IOException when writing fails
+     */
+    private void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Checks if line is a tombstone left by edited or removed order
+     * @param line line of the day file
+     * @return true if line contains only whitespaces
+     */
+    private boolean isTombstone(String line) {
+        return line.trim().isEmpty();
+    }
+
+    /**
+     * Checks if line is a tombstone left by edited or removed order
+     * @param content bytes of the day file
+     * @param start index of the first byte of the line
+     * @param end index after the last byte of the line
+     * @return true if line contains only whitespaces
+     */
+    private boolean isTombstone(byte[] content, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (content[i] > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if line is a tombstone left by edited or removed order
+     * @param content bytes of the day file
+     * @param start index of the first byte of the line
+     * @param end index after the last byte of the line
+     * @return true if line contains only whitespaces
+     */
+    private boolean isTombstone(ByteBuffer content, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (content.get(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds dead bytes to the date and schedules background compaction
+     * @param date LocalDate of the day file
+     * @param bytes number of bytes taken by new tombstones
+     */
+    private void addDeadBytes(LocalDate date, long bytes) {
+        deadBytes.merge(date, bytes, Long::sum);
+        scheduleCompaction();
+    }
+
+    /**
+     * Records dead bytes counted in the whole day file and schedules background
+     * compaction. Concurrent reads of the file count the same tombstones, so the
+     * count only grows to the largest one seen
+     * @param date LocalDate of the day file
+     * @param bytes number of bytes taken by all tombstones of the file
+     */
+    private void countDeadBytes(LocalDate date, long bytes) {
+        deadBytes.merge(date, bytes, Math::max);
+        scheduleCompaction();
+    }
+
+    /**
+     * Starts the background compaction if it isn't running yet
+     */
+    private void scheduleCompaction() {
+        synchronized (deadBytes) {
+            if (compactor == null) {
+                compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "order-compactor");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                compactor.scheduleWithFixedDelay(this::compactDeadFiles,
+                        COMPACTION_PERIOD_SECONDS, COMPACTION_PERIOD_SECONDS, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    /**
+     * Compacts day files where tombstones take more than COMPACTION_THRESHOLD bytes
+     * or half of the file
+     */
+    private void compactDeadFiles() {
+        for (Map.Entry<LocalDate, Long> entry : deadBytes.entrySet()) {
+            LocalDate date = entry.getKey();
+            long size = new File(ORDER_FILE_PATH + "/Order_" + date.format(formatter) + ".txt").length();
+            if (entry.getValue() >= COMPACTION_THRESHOLD || entry.getValue() * 2 >= size) {
+                try {
+                    compactOrders(date);
+                } catch (FlooringMasteryPersistenceException e) {
+                    // file stays as it is, next run tries again
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until all journaled orders are written to day files
+     * @throws FlooringMasteryPersistenceException if applying of the journal failed
+     */
+    private void checkpointJournal() throws FlooringMasteryPersistenceException {
+        if (journal != null) {
+            journal.checkpoint();
+        }
+    }
+
+    /**
+     * Groups journal records by date and appends each group to its day file
+     * with one write, creating the file with HEADER if needed. Forces every
+     * touched file to disk. When recovering skips orders already present in the day file
+     * @param records journal records: order line with OrderDate as the last field
+     * @param recovering true if records may already be in the day files
+     * @throws IOException when writing fails
+     */
+    private void applyJournalRecords(List<String> records, boolean recovering) throws IOException {
+        Map<LocalDate, List<String>> linesByDate = new LinkedHashMap<>();
+        Map<LocalDate, Set<Integer>> existingByDate = new HashMap<>();
+        for (String record : records) {
+            int dateStart = record.lastIndexOf(DELIMITER);
+            LocalDate date = LocalDate.parse(record.substring(dateStart + DELIMITER.length()), backupFormatter);
+            String line = record.substring(0, dateStart);
+            if (recovering) {
+                Set<Integer> existing = existingByDate.get(date);
+                if (existing == null) {
+                    existing = new HashSet<>(readPositions(date).keySet());
+                    existingByDate.put(date, existing);
+                }
+                if (!existing.add(parseOrderNumber(line))) {
+                    continue;
+                }
+            }
+            linesByDate.computeIfAbsent(date, d -> new ArrayList<>()).add(line);
+        }
+        for (Map.Entry<LocalDate, List<String>> entry : linesByDate.entrySet()) {
+            Lock lock = dateLocks.lock(entry.getKey());
+            try {
+                appendLines(entry.getKey(), entry.getValue());
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Appends order records to the day file with one write, creating the file
+     * with HEADER if needed, forces the file to disk and indexes the records.
+     * Should be called holding the lock of the date
+     * @param date LocalDate of the day file
+     * @param lines order records without line separators
+     * @return number of written bytes
+     * @throws IOException when writing fails
+     */
+    private long appendLines(LocalDate date, List<String> lines) throws IOException {
+        File file = new File(ORDER_FILE_PATH + "/Order_" + date.format(formatter) + ".txt");
+        try (FileChannel channel = new FileOutputStream(file, true).getChannel()) {
+            StringBuilder content = new StringBuilder();
+            long start = channel.size();
+            long position = start;
+            if (position == 0) {
+                content.append(HEADER).append('\n');
+                position = HEADER.length() + 1;
+            }
+            Map<Integer, Long> positions = new HashMap<>();
+            for (String line : lines) {
+                content.append(line).append('\n');
+                positions.put(parseOrderNumber(line), position);
+                position += FlooringMasteryRecordCodec.utf8Length(line, 0, line.length()) + 1;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            index.putAll(date, positions);
+            return position - start;
+        }
+    }
+
+    /**
+     * Reads orderNumber from the beginning of the record
+     * @param line order record
+     * @return orderNumber
+     */
+    private int parseOrderNumber(String line) {
+        return Integer.parseInt(line.substring(0, line.indexOf(DELIMITER)));
+    }
+
+    /**
+     * Reads positions of the order records in the day file, skipping header and tombstones
+     * @param date LocalDate of the day file
+     * @return Map with orderNumbers as keys and positions as values, empty if file doesn't exist
+     * @throws IOException when reading fails
+     */
+    private Map<Integer, Long> readPositions(LocalDate date) throws IOException {
+        Map<Integer, Long> positions = new HashMap<>();
+        File file = new File(ORDER_FILE_PATH + "/Order_" + date.format(formatter) + ".txt");
+        if (!file.exists()) {
+            return positions;
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024)) {
+            long position = 0;
+            long lineStart = 0;
+            boolean header = true;
+            // orderNumber being read at the start of the line, -1 when the rest of the line is skipped
+            int number = 0;
+            boolean digits = false;
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') {
+                    header = false;
+                    number = 0;
+                    digits = false;
+                    lineStart = position + 1;
+                } else if (!header && number >= 0) {
+                    if (b >= '0' && b <= '9') {
+                        number = number * 10 + (b - '0');
+                        digits = true;
+                    } else {
+                        if (b == ':' && digits) {
+                            positions.put(number, lineStart);
+                        }
+                        number = -1;
+                    }
+                }
+                position++;
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Reads day files for the order index
+     */
+    private class IndexSource implements FlooringMasteryOrderIndex.DayFileSource {
+
+        @Override
+        public List<LocalDate> listDates() {
+            return listOrderDates();
+        }
+
+        @Override
+        public Map<Integer, Long> readPositions(LocalDate date) throws IOException {
+            return FlooringMasteryOrderDaoFileImpl.this.readPositions(date);
         }
     }
+
     /**
      * Converts Order object to String
      * @param order Order object that should be converted to String
      * @return String with order information
      */
     private String marshallData(Order order) {
-        return order.getOrderNumber() + DELIMITER + order.getCustomerName() +
-                DELIMITER + order.getState() + DELIMITER + order.getTaxRate() +
-                DELIMITER + order.getProductType() + DELIMITER + order.getArea() +
-                DELIMITER + order.getCostPerSquareFoot() + DELIMITER +
-                order.getLaborCostPerSquareFoot() + DELIMITER + order.getMaterialCost() +
-                DELIMITER + order.getLaborCost() + DELIMITER + order.getTax() +
-                DELIMITER + order.getTotal();
+        return codec.encodeOrder(order);
     }
 
     /**
-     * Creates Order object from the given String
-     * @param orderAsString String with order information
+     * Creates Order object from the order record in UTF-8 bytes
+     * @param bytes bytes containing the record
+     * @param start index of the first byte of the record
+     * @param end index after the last byte of the record
      * @return Order object
      */
-    private Order unmarshallData(String orderAsString) {
-        String[] orderArray = orderAsString.split(DELIMITER);
-        Order order = new Order();
-        order.setOrderNumber(Integer.parseInt(orderArray[0]));
-        order.setCustomerName(orderArray[1]);
-        order.setState(orderArray[2]);
-        order.setTaxRate(new BigDecimal(orderArray[3]));
-        order.setProductType(orderArray[4]);
-        order.setArea(new BigDecimal(orderArray[5]));
-        order.setCostPerSquareFoot(new BigDecimal(orderArray[6]));
-        order.setLaborCostPerSquareFoot(new BigDecimal(orderArray[7]));
-        return order;
+    private Order unmarshallData(byte[] bytes, int start, int end) {
+        return codec.decodeOrder(bytes, start, end);
+    }
+
+    /**
+     * Creates Order object from the order record in UTF-8 bytes of the buffer,
+     * the order keeps a copy of the record and decodes fields on first access
+     * @param buffer buffer containing the record
+     * @param start index of the first byte of the record
+     * @param end index after the last byte of the record
+     * @return FlooringMasteryLazyOrder object
+     */
+    private Order unmarshallData(ByteBuffer buffer, int start, int end) {
+        return codec.decodeLazyOrder(buffer, start, end);
+    }
+
+    /**
+     * Parses orders of a day file from one or more parts of its bytes, skipping
+     * header and tombstones, and counts bytes taken by tombstones. With a filter
+     * only matching records become orders, a later record of an orderNumber which
+     * doesn't match removes the earlier one, as it would replace it
+     */
+    private class DayFileParser {
+        private final LocalDate date;
+        private final FlooringMasteryRecordFilter filter;
+        private final DayFileParseEvent parseEvent = new DayFileParseEvent();
+        private final Map<Integer, Order> orderMap = new HashMap<>();
+        // orderNumbers whose last record is rejected by the filter, a later part
+        // removes them from the orders of the earlier parts when merged
+        private final Set<Integer> rejected = new HashSet<>();
+        private long bytes;
+        private long tombstoneBytes;
+        private boolean header = true;
+
+        private DayFileParser(LocalDate date, FlooringMasteryRecordFilter filter) {
+            this.date = date;
+            this.filter = filter;
+            parseEvent.begin();
+        }
+
+        /**
+         * Parses the whole day file in parts cut at line ends, parts are parsed
+         * on the common ForkJoinPool and merged in file order, removals of rejected
+         * records included, so the map is the same as parsed on one thread
+         * @param content bytes of the day file from its position to limit
+         * @param parts number of parts
+         */
+        private void parseInParts(ByteBuffer content, int parts) {
+            List<ForkJoinTask<DayFileParser>> tasks = new ArrayList<>();
+            int start = content.position();
+            int limit = content.limit();
+            for (int part = 1; part <= parts && start < limit; part++) {
+                int end = part == parts ? limit : lineEndAfter(content, start + (limit - start) / (parts - part + 1));
+                ByteBuffer range = content.duplicate();
+                range.limit(end).position(start);
+                DayFileParser parser = new DayFileParser(date, filter);
+                parser.header = tasks.isEmpty() && header;
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    parser.parse(range, true);
+                    return parser;
+                }));
+                start = end;
+            }
+            header = false;
+            for (ForkJoinTask<DayFileParser> task : ForkJoinTask.invokeAll(tasks)) {
+                DayFileParser parser = task.join();
+                orderMap.keySet().removeAll(parser.rejected);
+                rejected.removeAll(parser.orderMap.keySet());
+                rejected.addAll(parser.rejected);
+                orderMap.putAll(parser.orderMap);
+                bytes += parser.bytes;
+                tombstoneBytes += parser.tombstoneBytes;
+            }
+        }
+
+        /**
+         * Finds the end of the line
+         * @param content bytes of the day file
+         * @param position index of a byte of the line
+         * @return index after the line separator, limit if the line has none
+         */
+        private int lineEndAfter(ByteBuffer content, int position) {
+            for (int i = position; i < content.limit(); i++) {
+                if (content.get(i) == '\n') {
+                    return i + 1;
+                }
+            }
+            return content.limit();
+        }
+
+        /**
+         * Parses lines of the next part of the day file which start at its position
+         * @param content bytes of the day file from its position to limit
+         * @param last true if content ends with the end of the file,
+         * so the line without line separator is parsed too
+         * @return index of the first byte which isn't parsed yet
+         */
+        private int parse(ByteBuffer content, boolean last) {
+            int lineStart = content.position();
+            int limit = content.limit();
+            for (int i = lineStart; i <= limit; i++) {
+                if (i < limit ? content.get(i) != '\n' : !last) {
+                    continue;
+                }
+                int lineEnd = i > lineStart && content.get(i - 1) == '\r' ? i - 1 : i;
+                if (header) {
+                    header = false;
+                } else if (isTombstone(content, lineStart, lineEnd)) {
+                    // there is no line after the last line separator
+                    if (i < limit || lineEnd > lineStart) {
+                        tombstoneBytes += lineEnd - lineStart + 1;
+                    }
+                } else if (filter != null && !filter.test(content, lineStart, lineEnd)) {
+                    reject(codec.decodeOrderNumber(content, lineStart, lineEnd));
+                } else {
+                    Order order = unmarshallData(content, lineStart, lineEnd);
+                    order.setDate(date);
+                    if (filter == null || filter.test(order)) {
+                        orderMap.put(order.getOrderNumber(), order);
+                        rejected.remove(order.getOrderNumber());
+                    } else {
+                        reject(order.getOrderNumber());
+                    }
+                }
+                lineStart = Math.min(i + 1, limit);
+            }
+            bytes += lineStart - content.position();
+            return lineStart;
+        }
+
+        /**
+         * Removes the order replaced by a record which doesn't match the filter
+         * @param orderNumber orderNumber of the record
+         */
+        private void reject(int orderNumber) {
+            orderMap.remove(orderNumber);
+            rejected.add(orderNumber);
+        }
+
+        /**
+         * Records parsed bytes, orders and tombstones
+         * @param operation name of the operation for DayFileParseEvent
+         * @return Map with orderNumbers as Keys and Order objects as values
+         */
+        private Map<Integer, Order> finish(String operation) {
+            if (tombstoneBytes > 0) {
+                countDeadBytes(date, tombstoneBytes);
+            }
+            FlooringMasteryMetrics.addBytesRead(bytes);
+            FlooringMasteryMetrics.addOrdersParsed(orderMap.size());
+            parseEvent.commit(operation, date, orderMap.size(), bytes);
+            return orderMap;
+        }
+    }
+
+    /**
+     * Iterates over orders of the day files in date order, loading the next
+     * day files on the common ForkJoinPool while the current one is consumed
+     */
+    private class DayFileLoader implements Iterator<List<Order>> {
+        private final List<LocalDate> dates;
+        private final Function<LocalDate, List<Order>> load;
+        private final Deque<ForkJoinTask<List<Order>>> window = new ArrayDeque<>();
+        private final int windowSize = ForkJoinPool.commonPool().getParallelism() * RANGE_WINDOW;
+        private int next;
+
+        /**
+         * @param dates dates of the day files in order
+         * @param load loads orders of the date, called on the pool
+         */
+        private DayFileLoader(List<LocalDate> dates, Function<LocalDate, List<Order>> load) {
+            this.dates = dates;
+            this.load = load;
+        }
+
+        @Override
+        public boolean hasNext() {
+            fill();
+            return !window.isEmpty();
+        }
+
+        @Override
+        public List<Order> next() {
+            fill();
+            ForkJoinTask<List<Order>> task = window.poll();
+            if (task == null) {
+                throw new NoSuchElementException();
+            }
+            return task.join();
+        }
+
+        /**
+         * Submits loading of the next dates until the window is full
+         */
+        private void fill() {
+            while (next < dates.size() && window.size() < windowSize) {
+                LocalDate date = dates.get(next++);
+                window.add(ForkJoinPool.commonPool().submit(() -> load.apply(date)));
+            }
+        }
+
+        /**
+         * Cancels loading of the dates which were not consumed
+         */
+        private void cancel() {
+            for (ForkJoinTask<List<Order>> task : window) {
+                task.cancel(false);
+            }
+            window.clear();
+            next = dates.size();
+        }
+    }
+
+    /**
+     * Loads orders of the day file for range queries and scans
+     * @param operation name of the operation for events
+     * @param date LocalDate of the day file
+     * @param filter filter of the records, null for all orders
+     * @return List of orders ordered by orderNumber, empty if file doesn't exist anymore
+     * @throws UncheckedIOException when reading fails
+     */
+    private List<Order> loadDayFile(String operation, LocalDate date, FlooringMasteryRecordFilter filter) {
+        List<Order> orders;
+        try {
+            orders = new ArrayList<>(readDayFile(operation, date, filter).values());
+        } catch (NoSuchFileException e) {
+            return Collections.emptyList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load orders for " + date, e);
+        }
+        orders.sort(Comparator.comparingInt(Order::getOrderNumber));
+        return orders;
+    }
+
+    /**
+     * Records of one chunk of the backup file grouped by date
+     */
+    private static class RestoreChunk {
+        private final Map<LocalDate, ByteBuffer> records = new LinkedHashMap<>();
+        private long orderCount;
+        private int maxOrderNumber;
+
+        /**
+         * Gets buffer of the date with room for the given number of bytes
+         * @param date LocalDate of the records
+         * @param bytes number of bytes to put
+         * @return ByteBuffer ready to be written
+         */
+        private ByteBuffer buffer(LocalDate date, int bytes) {
+            ByteBuffer buffer = records.get(date);
+            if (buffer == null || buffer.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(buffer == null
+                        ? Math.max(64 * 1024, bytes) : buffer.capacity() * 2 + bytes);
+                if (buffer != null) {
+                    buffer.flip();
+                    larger.put(buffer);
+                }
+                records.put(date, larger);
+                buffer = larger;
+            }
+            return buffer;
+        }
+    }
+
+    /**
+     * Day file converted to the backup format or the segment of the previous export to reuse
+     */
+    private static class ExportSegment {
+        private final ByteBuffer content;
+        private final int orderCount;
+        private final long checksum;
+        // null unless the previous segment is reused
+        private final ManifestEntry reused;
+
+        private ExportSegment(ByteBuffer content, int orderCount, long checksum) {
+            this.content = content;
+            this.orderCount = orderCount;
+            this.checksum = checksum;
+            this.reused = null;
+        }
+
+        private ExportSegment(ManifestEntry reused) {
+            this.content = null;
+            this.orderCount = reused.orderCount;
+            this.checksum = reused.checksum;
+            this.reused = reused;
+        }
     }
 
+    /**
+     * Line of the export manifest:
+     * fileName::size::modified::checksum::offset::length::orderCount
+     */
+    private static class ManifestEntry {
+        private final String fileName;
+        private final long size;
+        // modification time in nanoseconds
+        private final long modified;
+        // CRC32C of the day file
+        private final long checksum;
+        // position and length of the segment in the backup file
+        private final long offset;
+        private final long length;
+        private final int orderCount;
+
+        private ManifestEntry(String fileName, long size, long modified, long checksum,
+                              long offset, long length, int orderCount) {
+            this.fileName = fileName;
+            this.size = size;
+            this.modified = modified;
+            this.checksum = checksum;
+            this.offset = offset;
+            this.length = length;
+            this.orderCount = orderCount;
+        }
+
+        private static ManifestEntry parse(String line) {
+            String[] fields = line.split(FlooringMasteryRecordCodec.DELIMITER);
+            return new ManifestEntry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                    Long.parseLong(fields[3], 16), Long.parseLong(fields[4]), Long.parseLong(fields[5]),
+                    Integer.parseInt(fields[6]));
+        }
+
+        /**
+         * @param other ManifestEntry of the previous export or null
+         * @return true if the file has the same size and modification time
+         */
+        private boolean hasSameStat(ManifestEntry other) {
+            return other != null && size == other.size && modified == other.modified;
+        }
+
+        /**
+         * @return copy of the entry which never has the same stat, so its checksum decides on reuse
+         */
+        private ManifestEntry withoutModified() {
+            return new ManifestEntry(fileName, size, -1, checksum, offset, length, orderCount);
+        }
+
+        @Override
+        public String toString() {
+            String delimiter = FlooringMasteryRecordCodec.DELIMITER;
+            return fileName + delimiter + size + delimiter + modified + delimiter + Long.toHexString(checksum)
+                    + delimiter + offset + delimiter + length + delimiter + orderCount;
+        }
+    }
 }
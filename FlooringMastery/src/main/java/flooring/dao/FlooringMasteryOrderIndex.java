@@ -0,0 +1,470 @@
+package flooring.dao;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index from orderNumber to the date and byte position of the order record in its day file.
+ * Lookups are served from memory. If index file is given, every change is appended to it,
+ * so the index survives restarts; the file is trusted only if it was closed cleanly,
+ * otherwise the index is rebuilt from the day files. The clean marker is removed when the
+ * file is opened for changes and written only by close(). Index is loaded on first use
+ */
+public class FlooringMasteryOrderIndex {
+
+    /**
+     * Source of the day files to rebuild the index from
+     */
+    public interface DayFileSource {
+
+        /**
+         * @return dates which have day files
+         */
+        List<LocalDate> listDates();
+
+        /**
+         * Reads positions of all records in the day file
+         * @param date LocalDate of the day file
+         * @return Map with orderNumbers as keys and record positions as values
+         * @throws IOException when reading fails
+         */
+        Map<Integer, Long> readPositions(LocalDate date) throws IOException;
+    }
+
+    private static final String DELIMITER = "::";
+    private static final String REMOVED = "REMOVED";
+    // last line of the index file which was closed cleanly
+    private static final String CLEAN = "CLEAN";
+    // positions take the lower bits of the entry, epoch day takes the rest
+    private static final int POSITION_BITS = 40;
+    private static final long POSITION_MASK = (1L << POSITION_BITS) - 1;
+
+    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMddyyyy");
+
+    private final Path indexPath;
+    private final DayFileSource source;
+
+    // orderNumber -> epoch day and position packed into one long
+    private final Map<Integer, Long> entries = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    // true if the index file was deleted because of a change made before loading
+    private boolean discarded;
+    private BufferedWriter out;
+    private long logLines;
+
+    /**
+     * @param indexFile path to the index file, null to keep the index in memory only
+     * @param source DayFileSource to rebuild the index from
+     */
+    public FlooringMasteryOrderIndex(String indexFile, DayFileSource source) {
+        this.indexPath = indexFile == null ? null : Paths.get(indexFile);
+        this.source = source;
+    }
+
+    /**
+     * @return true if index was loaded or rebuilt
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Gets date of the order
+     * @param orderNumber number of the order
+     * @return LocalDate of the order or null if order is not indexed
+     * @throws FlooringMasteryPersistenceException if index cannot be loaded
+     */
+    public LocalDate getDate(int orderNumber) throws FlooringMasteryPersistenceException {
+        ensureLoaded();
+        Long entry = entries.get(orderNumber);
+        return entry == null ? null : LocalDate.ofEpochDay(entry >>> POSITION_BITS);
+    }
+
+    /**
+     * Gets position of the order record in its day file
+     * @param orderNumber number of the order
+     * @return position of the record or -1 if order is not indexed
+     * @throws FlooringMasteryPersistenceException if index cannot be loaded
+     */
+    public long getPosition(int orderNumber) throws FlooringMasteryPersistenceException {
+        ensureLoaded();
+        Long entry = entries.get(orderNumber);
+        return entry == null ? -1 : entry & POSITION_MASK;
+    }
+
+    /**
+     * Puts or replaces position of the order. Until the index is loaded only the index
+     * file is dropped, because loading rebuilds the current state from the day files
+     * @param orderNumber number of the order
+     * @param date LocalDate of the order
+     * @param position position of the record in the day file
+     */
+    public synchronized void put(int orderNumber, LocalDate date, long position) {
+        if (!loaded) {
+            discardFile();
+            return;
+        }
+        putEntry(orderNumber, date, position);
+        flushLog();
+    }
+
+    /**
+     * Puts or replaces positions of all orders of the date, the changes are flushed together
+     * @param date LocalDate of the orders
+     * @param positions Map with orderNumbers as keys and record positions as values
+     */
+    public synchronized void putAll(LocalDate date, Map<Integer, Long> positions) {
+        if (!loaded) {
+            discardFile();
+            return;
+        }
+        for (Map.Entry<Integer, Long> position : positions.entrySet()) {
+            putEntry(position.getKey(), date, position.getValue());
+        }
+        flushLog();
+    }
+
+    /**
+     * Removes order from the index
+     * @param orderNumber number of the order
+     */
+    public synchronized void remove(int orderNumber) {
+        if (!loaded) {
+            discardFile();
+            return;
+        }
+        entries.remove(orderNumber);
+        log(orderNumber + DELIMITER + REMOVED);
+        flushLog();
+    }
+
+    /**
+     * Rebuilds the index from the day files and replaces the index file with the new snapshot
+     * @throws FlooringMasteryPersistenceException if day files cannot be read or index cannot be written
+     */
+    public synchronized void rebuild() throws FlooringMasteryPersistenceException {
+        entries.clear();
+        try {
+            for (LocalDate date : source.listDates()) {
+                long epochDay = date.toEpochDay();
+                for (Map.Entry<Integer, Long> position : source.readPositions(date).entrySet()) {
+                    entries.put(position.getKey(), epochDay << POSITION_BITS | position.getValue());
+                }
+            }
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException("Cannot rebuild order index");
+        }
+        writeSnapshot();
+        loaded = true;
+    }
+
+    /**
+     * Drops all entries and the index file, so the index is rebuilt from the day files
+     * on the next lookup. Cheaper than rebuild() when day files were replaced in bulk
+     */
+    public synchronized void invalidate() {
+        entries.clear();
+        loaded = false;
+        if (out != null) {
+            try {
+                // without clean marker the file cannot be loaded even if it is not deleted
+                out.close();
+            } catch (IOException e) {
+                // file is deleted below
+            }
+            out = null;
+        }
+        discarded = false;
+        discardFile();
+    }
+
+    /**
+     * Writes clean marker and closes the index file
+     */
+    public synchronized void close() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.write(CLEAN);
+            out.newLine();
+            out.close();
+        } catch (IOException e) {
+            // index will be rebuilt on the next start
+        }
+        out = null;
+    }
+
+    /**
+     * Loads index from the index file if it was closed cleanly, otherwise rebuilds it
+     * @throws FlooringMasteryPersistenceException if index cannot be loaded or rebuilt
+     */
+    private void ensureLoaded() throws FlooringMasteryPersistenceException {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            if (indexPath == null || !load()) {
+                rebuild();
+            } else {
+                if (needsSnapshot()) {
+                    writeSnapshot();
+                } else {
+                    openLog();
+                }
+                loaded = true;
+            }
+        }
+    }
+
+    /**
+     * Deletes the index file once, so a clean file which misses changes of this
+     * session is not trusted on the next start
+     */
+    private void discardFile() {
+        if (indexPath == null || discarded) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(indexPath);
+            discarded = true;
+        } catch (IOException e) {
+            // tried again on the next change
+        }
+    }
+
+    /**
+     * Replays the index file
+     * @return true if file exists and was closed cleanly
+     */
+    private boolean load() {
+        if (!Files.exists(indexPath)) {
+            return false;
+        }
+        String lastLine = null;
+        logLines = 0;
+        try (BufferedReader in = Files.newBufferedReader(indexPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lastLine = line;
+                logLines++;
+                if (line.equals(CLEAN)) {
+                    continue;
+                }
+                String[] fields = line.split(DELIMITER);
+                int orderNumber = Integer.parseInt(fields[0]);
+                if (fields[1].equals(REMOVED)) {
+                    entries.remove(orderNumber);
+                } else {
+                    long epochDay = LocalDate.parse(fields[1], formatter).toEpochDay();
+                    entries.put(orderNumber, epochDay << POSITION_BITS | Long.parseLong(fields[2]));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            entries.clear();
+            return false;
+        }
+        if (!CLEAN.equals(lastLine)) {
+            entries.clear();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes all entries to a new index file which atomically replaces the old one
+     * @throws FlooringMasteryPersistenceException if index file cannot be written
+     */
+    private void writeSnapshot() throws FlooringMasteryPersistenceException {
+        if (indexPath == null) {
+            return;
+        }
+        closeLog();
+        Path snapshot = Paths.get(indexPath + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(snapshot, StandardCharsets.UTF_8)) {
+            for (Map.Entry<Integer, Long> entry : entries.entrySet()) {
+                long value = entry.getValue();
+                writer.write(entry.getKey() + DELIMITER
+                        + LocalDate.ofEpochDay(value >>> POSITION_BITS).format(formatter)
+                        + DELIMITER + (value & POSITION_MASK));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException("Cannot write order index");
+        }
+        try {
+            Files.move(snapshot, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException("Cannot write order index");
+        }
+        logLines = entries.size();
+        discarded = false;
+        openLog();
+    }
+
+    /**
+     * Opens index file for appending changes. The clean marker of a loaded file is cut off
+     * and forced first, so a crash before close() leaves a file which is not trusted,
+     * even if day files were changed and the change wasn't logged yet
+     */
+    private void openLog() {
+        FileChannel channel = null;
+        try {
+            Path parent = indexPath.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long end = cleanMarkerStart(channel);
+            if (end < channel.size()) {
+                channel.truncate(end);
+                channel.force(false);
+                logLines--;
+            }
+            channel.position(end);
+            out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException err) {
+                    // file is deleted below
+                }
+            }
+            // index stays in memory and will be rebuilt on the next start
+            out = null;
+            discarded = false;
+            discardFile();
+        }
+    }
+
+    /**
+     * Finds the clean marker line at the end of the index file
+     * @param channel FileChannel of the index file
+     * @return position of the clean marker, size of the file if it doesn't end with the marker
+     * @throws IOException when reading fails
+     */
+    private static long cleanMarkerStart(FileChannel channel) throws IOException {
+        long size = channel.size();
+        byte[] marker = CLEAN.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer tail = ByteBuffer.allocate((int) Math.min(size, marker.length + 3));
+        long tailStart = size - tail.capacity();
+        while (tail.hasRemaining() && channel.read(tail, tailStart + tail.position()) >= 0) {
+            // read until the tail is complete
+        }
+        int end = tail.position();
+        // line separator is \n or \r\n
+        if (end > 0 && tail.get(end - 1) == '\n') {
+            end--;
+        }
+        if (end > 0 && tail.get(end - 1) == '\r') {
+            end--;
+        }
+        int start = end - marker.length;
+        if (start < 0 || (start > 0 && tail.get(start - 1) != '\n')) {
+            return size;
+        }
+        for (int i = 0; i < marker.length; i++) {
+            if (tail.get(start + i) != marker[i]) {
+                return size;
+            }
+        }
+        return tailStart + start;
+    }
+
+    /**
+     * Closes the index file without clean marker
+     */
+    private void closeLog() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            // the file is replaced or rebuilt on the next start
+        }
+        out = null;
+    }
+
+    /**
+     * Puts entry and appends it to the index file without flushing
+     * @param orderNumber number of the order
+     * @param date LocalDate of the order
+     * @param position position of the record in the day file
+     */
+    private void putEntry(int orderNumber, LocalDate date, long position) {
+        entries.put(orderNumber, date.toEpochDay() << POSITION_BITS | position);
+        log(orderNumber + DELIMITER + date.format(formatter) + DELIMITER + position);
+    }
+
+    /**
+     * Appends change to the buffer of the index file
+     * @param line change to append
+     */
+    private void log(String line) {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.write(line);
+            out.newLine();
+            logLines++;
+        } catch (IOException e) {
+            // without clean marker the index will be rebuilt on the next start
+            out = null;
+        }
+    }
+
+    /**
+     * Flushes logged changes, and replaces the index file with a snapshot
+     * when most of its lines are replaced or removed entries
+     */
+    private void flushLog() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            // without clean marker the index will be rebuilt on the next start
+            out = null;
+            return;
+        }
+        if (needsSnapshot()) {
+            try {
+                writeSnapshot();
+            } catch (FlooringMasteryPersistenceException e) {
+                // the old file has no clean marker and stops getting changes, it is rebuilt on the next start
+                closeLog();
+            }
+        }
+    }
+
+    /**
+     * @return true if the index file has much more lines than entries
+     */
+    private boolean needsSnapshot() {
+        return logLines > 2L * entries.size() + 1024;
+    }
+}
@@ -0,0 +1,414 @@
+package flooring.dao;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only write-ahead log for new orders.
+ * Records are appended to a single file that stays open. Concurrent writers
+ * are grouped: one of them writes the whole pending batch and forces it to disk,
+ * the others wait for that single fsync (group commit). Durable batches are
+ * handed to a background thread which applies them to the day files.
+ * The file starts with the position after the last applied record, which is
+ * forced before the records count as applied, so records applied and then
+ * removed from the day files are not replayed after a crash. The log is
+ * truncated once everything written to it has been applied, and the applied
+ * part is cut off when it grows over COMPACT_BYTES under steady writes.
+ */
+public class FlooringMasteryOrderJournal {
+
+    /**
+     * Applies journal records to the main persistent storage
+     */
+    public interface Applier {
+
+        /**
+         * Applies records to the main storage. Storage must be durable when this method returns
+         * @param records journal records in the order they were written
+         * @param recovering true if records are replayed after restart and may be applied already
+         * @throws IOException when applying fails
+         */
+        void apply(List<String> records, boolean recovering) throws IOException;
+    }
+
+    private static final byte NEW_LINE = '\n';
+    // the header holds the applied position as 19 digits and a line separator
+    static final int HEADER_BYTES = 20;
+    // size of applied records after which they are cut off even if the log is never empty
+    static final long COMPACT_BYTES = 1 << 20;
+
+    private final Path journalPath;
+    private final Applier applier;
+    // replaced only by the applying thread holding lock while no batch is written
+    private FileChannel channel;
+    // offset of the first record of the file among all records written since opening,
+    // batches keep these offsets, so they stay valid when the applied part is cut off
+    private long fileStart;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition durableCondition = lock.newCondition();
+    private final Condition appliedCondition = lock.newCondition();
+
+    // records waiting for the next group commit
+    private List<String> pending = new ArrayList<>();
+    // sequence numbers of the last appended, durable and applied records
+    private long appendedSeq;
+    private long durableSeq;
+    private long appliedSeq;
+    // true while one of the writers is writing and forcing a batch
+    private boolean flushing;
+    private boolean closed;
+    private Exception failure;
+
+    private final BlockingQueue<Batch> applyQueue = new LinkedBlockingQueue<>();
+    private final Thread applyThread;
+
+    /**
+     * Opens the journal, replays records left after previous run and
+     * starts background applying
+     * @param journalFile path to the journal file
+     * @param applier Applier to write journal records to the main storage
+     * @throws FlooringMasteryPersistenceException when journal cannot be opened or replayed
+     */
+    public FlooringMasteryOrderJournal(String journalFile, Applier applier)
+            throws FlooringMasteryPersistenceException {
+        this.journalPath = Paths.get(journalFile);
+        this.applier = applier;
+        try {
+            Path parent = journalPath.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(journalPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            recover();
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException("Cannot open order journal");
+        }
+        applyThread = new Thread(this::applyLoop, "order-journal-applier");
+        applyThread.setDaemon(true);
+        applyThread.start();
+    }
+
+    /**
+     * Appends record to the journal and waits until it is durable
+     * @param record record without line separator
+     * @throws FlooringMasteryPersistenceException when writing to the journal fails
+     */
+    public void append(String record) throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            checkState();
+            pending.add(record);
+            long seq = ++appendedSeq;
+            while (durableSeq < seq) {
+                checkState();
+                if (flushing) {
+                    // another writer is forcing the log, our record goes with the next batch
+                    durableCondition.awaitUninterruptibly();
+                    continue;
+                }
+                flushing = true;
+                List<String> batch = pending;
+                long batchEnd = appendedSeq;
+                pending = new ArrayList<>();
+                lock.unlock();
+                IOException error = null;
+                long batchOffset = 0;
+                try {
+                    batchOffset = write(batch);
+                } catch (IOException e) {
+                    error = e;
+                } finally {
+                    lock.lock();
+                }
+                flushing = false;
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableSeq = batchEnd;
+                    applyQueue.add(new Batch(batch, batchEnd, batchOffset));
+                }
+                durableCondition.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until all appended records are applied to the main storage
+     * @throws FlooringMasteryPersistenceException if writing or applying of records failed
+     */
+    public void checkpoint() throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            long target = appendedSeq;
+            while (appliedSeq < target) {
+                checkState();
+                appliedCondition.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies all records and closes the journal
+     * @throws FlooringMasteryPersistenceException if applying of records fails
+     */
+    public void close() throws FlooringMasteryPersistenceException {
+        try {
+            checkpoint();
+        } finally {
+            lock.lock();
+            try {
+                closed = true;
+                appliedCondition.signalAll();
+                durableCondition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            applyThread.interrupt();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new FlooringMasteryPersistenceException("Cannot close order journal");
+            }
+        }
+    }
+
+    /**
+     * Throws exception if journal cannot accept or apply records anymore.
+     * Must be called under lock
+     * @throws FlooringMasteryPersistenceException if journal failed or was closed
+     */
+    private void checkState() throws FlooringMasteryPersistenceException {
+        if (failure != null) {
+            throw new FlooringMasteryPersistenceException("Order journal failed: " + failure.getMessage());
+        }
+        if (closed) {
+            throw new FlooringMasteryPersistenceException("Order journal is closed");
+        }
+    }
+
+    /**
+     * Writes batch of records to the end of the journal and forces it to disk.
+     * Must be called by the flushing writer
+     * @param batch records to write
+     * @return offset after the batch
+     * @throws IOException when writing fails
+     */
+    private long write(List<String> batch) throws IOException {
+        StringBuilder builder = new StringBuilder(batch.size() * 128);
+        for (String record : batch) {
+            builder.append(record).append((char) NEW_LINE);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(builder.toString().getBytes(StandardCharsets.UTF_8));
+        long position = channel.size();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        channel.force(false);
+        return fileStart + position - HEADER_BYTES;
+    }
+
+    /**
+     * Replays complete records after the applied position and truncates the journal.
+     * Incomplete last record was never acknowledged and is dropped. Journal without
+     * header is replayed from the beginning
+     * @throws IOException when reading or applying fails
+     */
+    private void recover() throws IOException {
+        long size = channel.size();
+        long applied = readHeader(size);
+        if (size - applied > Integer.MAX_VALUE) {
+            throw new IOException("Order journal is too large");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) (size - applied));
+        long position = applied;
+        while (buffer.hasRemaining() && channel.read(buffer, position) >= 0) {
+            position = applied + buffer.position();
+        }
+        byte[] content = buffer.array();
+        int end = buffer.position();
+        while (end > 0 && content[end - 1] != NEW_LINE) {
+            end--;
+        }
+        List<String> records = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < end; i++) {
+            if (content[i] == NEW_LINE) {
+                if (i > start) {
+                    records.add(new String(content, start, i - start, StandardCharsets.UTF_8));
+                }
+                start = i + 1;
+            }
+        }
+        if (!records.isEmpty()) {
+            applier.apply(records, true);
+        }
+        channel.truncate(HEADER_BYTES);
+        writeHeader(channel, HEADER_BYTES);
+        channel.force(false);
+    }
+
+    /**
+     * Reads the applied position from the header
+     * @param size size of the journal
+     * @return position of the first record which may be not applied, not more than size
+     * @throws IOException when reading fails
+     */
+    private long readHeader(long size) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+            // read until the header is complete or the file ends
+        }
+        if (header.hasRemaining() || header.get(HEADER_BYTES - 1) != NEW_LINE) {
+            return 0;
+        }
+        long applied = 0;
+        for (int i = 0; i < HEADER_BYTES - 1; i++) {
+            byte digit = header.get(i);
+            if (digit < '0' || digit > '9') {
+                // records start with orderNumber and a delimiter, so it is a journal without header
+                return 0;
+            }
+            applied = applied * 10 + digit - '0';
+        }
+        return Math.max(HEADER_BYTES, Math.min(applied, size));
+    }
+
+    /**
+     * Writes the applied position to the header, doesn't force it
+     * @param channel FileChannel of the journal
+     * @param applied position after the last applied record
+     * @throws IOException when writing fails
+     */
+    private static void writeHeader(FileChannel channel, long applied) throws IOException {
+        ByteBuffer header = ByteBuffer.wrap(String.format("%019d%c", applied, (char) NEW_LINE)
+                .getBytes(StandardCharsets.US_ASCII));
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+    }
+
+    /**
+     * Replaces the journal with a new file holding only the records after
+     * the applied offset. Must be called holding lock while no batch is written
+     * @param applied offset after the last applied record
+     * @throws IOException when writing or replacing fails
+     */
+    private void cutApplied(long applied) throws IOException {
+        long from = HEADER_BYTES + applied - fileStart;
+        Path next = Paths.get(journalPath + ".tmp");
+        FileChannel nextChannel = FileChannel.open(next, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            writeHeader(nextChannel, HEADER_BYTES);
+            long size = channel.size();
+            long position = from;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, nextChannel);
+            }
+            nextChannel.force(false);
+            Files.move(next, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            nextChannel.close();
+            throw e;
+        }
+        channel.close();
+        channel = nextChannel;
+        fileStart = applied;
+    }
+
+    /**
+     * Background loop: takes durable batches, applies them together and makes
+     * the applied position durable. Truncates the journal when it has no
+     * unapplied records or cuts off applied records when they take too much
+     */
+    private void applyLoop() {
+        List<Batch> batches = new ArrayList<>();
+        while (true) {
+            try {
+                batches.add(applyQueue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            applyQueue.drainTo(batches);
+            List<String> records = new ArrayList<>();
+            for (Batch batch : batches) {
+                records.addAll(batch.records);
+            }
+            Batch last = batches.get(batches.size() - 1);
+            batches.clear();
+            Exception error = null;
+            try {
+                applier.apply(records, false);
+                // fileStart and channel are changed only by this thread
+                writeHeader(channel, HEADER_BYTES + last.offset - fileStart);
+                channel.force(false);
+            } catch (IOException | RuntimeException e) {
+                error = e;
+            }
+            lock.lock();
+            try {
+                if (error != null) {
+                    // records stay in the journal and will be replayed on the next start
+                    failure = error;
+                } else {
+                    appliedSeq = last.end;
+                    if (!flushing && !closed) {
+                        if (appliedSeq == appendedSeq) {
+                            channel.truncate(HEADER_BYTES);
+                            writeHeader(channel, HEADER_BYTES);
+                            channel.force(false);
+                            fileStart = last.offset;
+                        } else if (last.offset - fileStart > COMPACT_BYTES) {
+                            cutApplied(last.offset);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                appliedCondition.signalAll();
+                durableCondition.signalAll();
+                lock.unlock();
+            }
+            if (error != null) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Records made durable by one group commit
+     */
+    private static class Batch {
+        private final List<String> records;
+        private final long end;
+        // offset after the batch
+        private final long offset;
+
+        private Batch(List<String> records, long end, long offset) {
+            this.records = records;
+            this.end = end;
+            this.offset = offset;
+        }
+    }
+}
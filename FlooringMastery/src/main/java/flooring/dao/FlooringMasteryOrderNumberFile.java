@@ -0,0 +1,137 @@
+package flooring.dao;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * File with the next free orderNumber, shared by the order DAOs of every
+ * storage format. Leases and releases change the file under an exclusive
+ * FileLock and force it to disk, so processes never hand out the same number
+ */
+class FlooringMasteryOrderNumberFile {
+
+    // Serializes access to number files inside this JVM, FileLock serializes processes
+    private static final Object ORDER_NUMBER_LOCK = new Object();
+
+    // file to store lastOrderNumber
+    private final String ORDER_NUMBER_FILE;
+
+    /**
+     * @param numberFile file to store lastOrderNumber
+     */
+    FlooringMasteryOrderNumberFile(String numberFile) {
+        ORDER_NUMBER_FILE = numberFile;
+    }
+
+    /**
+     * Reserves block of orderNumbers: under exclusive FileLock reads the next free
+     * number from ORDER_NUMBER_FILE, writes number after the block and forces the file
+     * to disk before returning
+     * @param count number of orderNumbers to reserve
+     * @return the first reserved orderNumber
+     * @throws FlooringMasteryPersistenceException when file cannot be read or written
+     */
+    int lease(int count) throws FlooringMasteryPersistenceException {
+        synchronized (ORDER_NUMBER_LOCK) {
+            try (FileChannel channel = FileChannel.open(Paths.get(ORDER_NUMBER_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // released when the channel is closed
+                channel.lock();
+                int next = readOrderNumber(channel);
+                writeOrderNumber(channel, next + count);
+                return next;
+            } catch (IOException | NumberFormatException e) {
+                throw new FlooringMasteryPersistenceException("Cannot lease order numbers");
+            }
+        }
+    }
+
+    /**
+     * Under exclusive FileLock writes back the first unused orderNumber if
+     * ORDER_NUMBER_FILE still holds the end of the released block
+     * @param from the first unused orderNumber
+     * @param to orderNumber after the last reserved one
+     * @throws FlooringMasteryPersistenceException when file cannot be read or written
+     */
+    void release(int from, int to) throws FlooringMasteryPersistenceException {
+        synchronized (ORDER_NUMBER_LOCK) {
+            try (FileChannel channel = FileChannel.open(Paths.get(ORDER_NUMBER_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // released when the channel is closed
+                channel.lock();
+                if (readOrderNumber(channel) == to) {
+                    writeOrderNumber(channel, from);
+                }
+            } catch (IOException | NumberFormatException e) {
+                throw new FlooringMasteryPersistenceException("Cannot release order numbers");
+            }
+        }
+    }
+
+    /**
+     * Under exclusive FileLock moves ORDER_NUMBER_FILE forward to the given orderNumber,
+     * numbers are never moved back
+     * @param orderNumber the first orderNumber which may be given out
+     * @throws FlooringMasteryPersistenceException when file cannot be written
+     */
+    void moveForward(int orderNumber) throws FlooringMasteryPersistenceException {
+        synchronized (ORDER_NUMBER_LOCK) {
+            try (FileChannel channel = FileChannel.open(Paths.get(ORDER_NUMBER_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // released when the channel is closed
+                channel.lock();
+                int stored;
+                try {
+                    stored = readOrderNumber(channel);
+                } catch (NumberFormatException e) {
+                    // damaged file is rebuilt from the restored orders
+                    stored = 1;
+                }
+                if (stored < orderNumber) {
+                    writeOrderNumber(channel, orderNumber);
+                }
+            } catch (IOException e) {
+                throw new FlooringMasteryPersistenceException("Cannot restore order number");
+            }
+        }
+    }
+
+    /**
+     * Reads orderNumber from the first line of the file
+     * @param channel FileChannel of ORDER_NUMBER_FILE
+     * @return stored orderNumber or 1 if file is empty
+     * @throws IOException when reading fails
+     */
+    private int readOrderNumber(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), 64));
+        channel.read(buffer, 0);
+        String content = new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII).trim();
+        if (content.isEmpty()) {
+            return 1;
+        }
+        int end = content.indexOf('\n');
+        return Integer.parseInt((end < 0 ? content : content.substring(0, end)).trim());
+    }
+
+    /**
+     * Overwrites orderNumber in place and forces it to disk. File is never
+     * empty in between, so a crash cannot make numbers start from 1 again
+     * @param channel FileChannel of ORDER_NUMBER_FILE
+     * @param orderNumber number to write
+     * @throws IOException when writing fails
+     */
+    private void writeOrderNumber(FileChannel channel, int orderNumber) throws IOException {
+        ByteBuffer content = ByteBuffer.wrap((orderNumber + "\n").getBytes(StandardCharsets.US_ASCII));
+        int length = content.remaining();
+        long position = 0;
+        while (content.hasRemaining()) {
+            position += channel.write(content, position);
+        }
+        channel.truncate(length);
+        channel.force(false);
+    }
+}
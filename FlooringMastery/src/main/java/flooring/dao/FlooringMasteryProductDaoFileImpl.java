@@ -3,60 +3,39 @@ package flooring.dao;
 import flooring.model.Product;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Scanner;
 
 @Component
-public class FlooringMasteryProductDaoFileImpl implements FlooringMasteryProductDao {
+public class FlooringMasteryProductDaoFileImpl extends FlooringMasteryCatalogFile<Product>
+        implements FlooringMasteryProductDao {
 
-    private final String DELIMITER = "::";
-    private final String PRODUCT_FILE;
-    private Map<String, Product> productMap = new HashMap<>();
+    private final FlooringMasteryRecordCodec codec = new FlooringMasteryRecordCodec();
 
     public FlooringMasteryProductDaoFileImpl() {
-        PRODUCT_FILE = "Data/Products.txt";
+        super("Data/Products.txt", "product");
     }
 
     public FlooringMasteryProductDaoFileImpl(String productFile) {
-        PRODUCT_FILE = productFile;
+        super(productFile, "product");
     }
 
     /**
-     * Reads file line by line and loads each line as a product to productMap
-     * @throws FlooringMasteryPersistenceException when file doesn't exist
+     * Reads file line by line and publishes the products as a new snapshot
+     * @throws FlooringMasteryPersistenceException when file doesn't exist or is malformed
      */
     @Override
     public void loadProducts() throws FlooringMasteryPersistenceException {
-        Scanner in;
-        try {
-            in = new Scanner(new BufferedReader(new FileReader(PRODUCT_FILE)));
-        } catch (FileNotFoundException e) {
-            throw new FlooringMasteryPersistenceException("Cannot upload product data");
-        }
-        String currentLine;
-        Product currentProduct;
-        // read the header
-        in.nextLine();
-        while (in.hasNextLine()) {
-            currentLine = in.nextLine();
-            currentProduct = unmarshallData(currentLine);
-            productMap.put(currentProduct.getProductType().toLowerCase(), currentProduct);
-        }
+        load();
     }
 
     /**
-     * Gets Product object for given productType from productMap
+     * Gets Product object for given productType from the snapshot
      * @param productType type of the product
      * @return Product object
      */
     @Override
     public Product getProduct(String productType) {
-        return productMap.get(productType);
+        return getItems().get(productType);
     }
 
     /**
@@ -64,17 +43,26 @@ public class FlooringMasteryProductDaoFileImpl implements FlooringMasteryProduct
      * @param productAsString product information as a String
      * @return Product object
      */
-    private Product unmarshallData(String productAsString) {
-        String[] productArray = productAsString.split(DELIMITER);
-        return new Product(productArray);
+    @Override
+    protected Product decode(String productAsString) {
+        return codec.decodeProduct(productAsString);
+    }
+
+    /**
+     * @param product Product object
+     * @return type of the product
+     */
+    @Override
+    protected String nameOf(Product product) {
+        return product.getProductType();
     }
 
     /**
-     * Gets Collection of all available products from productMap
+     * Gets Collection of all available products from the snapshot
      * @return Collection of Product objects
      */
     @Override
     public Collection<Product> getAllProducts() {
-        return productMap.values();
+        return getItems().values();
     }
 }
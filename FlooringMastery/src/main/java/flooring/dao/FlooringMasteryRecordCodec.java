@@ -0,0 +1,506 @@
+package flooring.dao;
+
+import flooring.model.Order;
+import flooring.model.Product;
+import flooring.model.Tax;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads and writes "::" delimited records of the order, tax and product files.
+ * Fields are found by scanning for the delimiter by hand, numbers are parsed
+ * straight from the characters, repeating values like state and product type
+ * are shared instead of creating new Strings. Records can be decoded from Strings
+ * or from raw UTF-8 bytes of arrays and buffers. Records are encoded through a reused per-thread buffer.
+ * Instances are thread-safe
+ */
+public class FlooringMasteryRecordCodec {
+
+    public static final String DELIMITER = "::";
+
+    // BigDecimal.valueOf(long, int) is exact up to this many digits
+    private static final int MAX_LONG_DIGITS = 18;
+    // size of the table of shared Strings, must be a power of two
+    private static final int SHARED_STRINGS = 256;
+
+    // Indexes of the order record fields decoded by FlooringMasteryLazyOrder
+    static final int CUSTOMER_NAME = 1;
+    static final int STATE = 2;
+    static final int TAX_RATE = 3;
+    static final int PRODUCT_TYPE = 4;
+    static final int AREA = 5;
+    static final int COST_PER_SQUARE_FOOT = 6;
+    static final int LABOR_COST_PER_SQUARE_FOOT = 7;
+
+    // shared Strings of repeating fields, races only cost an extra String
+    private final String[] sharedStrings = new String[SHARED_STRINGS];
+
+    private final ThreadLocal<StringBuilder> encodeBuffer = ThreadLocal.withInitial(() -> new StringBuilder(256));
+    private final ThreadLocal<ByteRecord> byteRecord = ThreadLocal.withInitial(ByteRecord::new);
+
+    /**
+     * Creates Order object from the order record, OrderDate is not set
+     * @param record order record without line separator
+     * @return Order object
+     * @throws NumberFormatException if record is malformed
+     */
+    public Order decodeOrder(CharSequence record) {
+        Order order = new Order();
+        int start = 0;
+        int end = nextDelimiter(record, start);
+        order.setOrderNumber(parseInt(record, start, end));
+        start = end + DELIMITER.length();
+        end = nextDelimiter(record, start);
+        order.setCustomerName(text(record, start, end));
+        start = end + DELIMITER.length();
+        end = nextDelimiter(record, start);
+        order.setState(sharedText(record, start, end));
+        start = end + DELIMITER.length();
+        end = nextDelimiter(record, start);
+        order.setTaxRate(parseDecimal(record, start, end));
+        start = end + DELIMITER.length();
+        end = nextDelimiter(record, start);
+        order.setProductType(sharedText(record, start, end));
+        start = end + DELIMITER.length();
+        end = nextDelimiter(record, start);
+        order.setArea(parseDecimal(record, start, end));
+        start = end + DELIMITER.length();
+        end = nextDelimiter(record, start);
+        order.setCostPerSquareFoot(parseDecimal(record, start, end));
+        start = end + DELIMITER.length();
+        end = nextDelimiter(record, start);
+        order.setLaborCostPerSquareFoot(parseDecimal(record, start, end));
+        // MaterialCost, LaborCost, Tax and Total are calculated from the fields above
+        return order;
+    }
+
+    /**
+     * Creates Order object from the order record in UTF-8 bytes, OrderDate is not set
+     * @param bytes bytes containing the record
+     * @param start index of the first byte of the record
+     * @param end index after the last byte of the record, without line separator
+     * @return Order object
+     * @throws NumberFormatException if record is malformed
+     */
+    public Order decodeOrder(byte[] bytes, int start, int end) {
+        return decodeOrder(byteRecord.get().wrap(bytes, start, end));
+    }
+
+    /**
+     * Creates Order object from the order record in UTF-8 bytes of the buffer,
+     * e.g. a mapped file, without copying the record. OrderDate is not set
+     * @param buffer buffer containing the record, its position is not changed
+     * @param start index of the first byte of the record
+     * @param end index after the last byte of the record, without line separator
+     * @return Order object
+     * @throws NumberFormatException if record is malformed
+     */
+    public Order decodeOrder(ByteBuffer buffer, int start, int end) {
+        return decodeOrder(byteRecord.get().wrap(buffer, start, end));
+    }
+
+    /**
+     * Creates Order object which keeps a copy of the order record in UTF-8 bytes
+     * and decodes its fields on first access, only OrderNumber is decoded now.
+     * OrderDate is not set
+     * @param buffer buffer containing the record, its position is not changed
+     * @param start index of the first byte of the record
+     * @param end index after the last byte of the record, without line separator
+     * @return FlooringMasteryLazyOrder object
+     * @throws NumberFormatException if OrderNumber is malformed
+     */
+    Order decodeLazyOrder(ByteBuffer buffer, int start, int end) {
+        byte[] record = new byte[end - start];
+        ByteBuffer view = buffer.duplicate();
+        view.position(start);
+        view.get(record);
+        ByteRecord chars = byteRecord.get().wrap(record, 0, record.length);
+        return new FlooringMasteryLazyOrder(this, record, parseInt(chars, 0, nextDelimiter(chars, 0)));
+    }
+
+    /**
+     * Decodes a text field of the order record
+     * @param record order record in UTF-8 bytes
+     * @param field index of the field, CUSTOMER_NAME, STATE or PRODUCT_TYPE
+     * @return String of the field
+     */
+    String decodeText(byte[] record, int field) {
+        ByteRecord chars = byteRecord.get().wrap(record, 0, record.length);
+        int start = fieldStart(chars, field);
+        int end = nextDelimiter(chars, start);
+        return field == CUSTOMER_NAME ? text(chars, start, end) : sharedText(chars, start, end);
+    }
+
+    /**
+     * Decodes a decimal field of the order record
+     * @param record order record in UTF-8 bytes
+     * @param field index of the field, TAX_RATE, AREA, COST_PER_SQUARE_FOOT or LABOR_COST_PER_SQUARE_FOOT
+     * @return BigDecimal of the field
+     * @throws NumberFormatException if the field is malformed
+     */
+    BigDecimal decodeDecimal(byte[] record, int field) {
+        ByteRecord chars = byteRecord.get().wrap(record, 0, record.length);
+        int start = fieldStart(chars, field);
+        return parseDecimal(chars, start, nextDelimiter(chars, start));
+    }
+
+    /**
+     * Decodes OrderNumber of the order record in UTF-8 bytes of the buffer
+     * @param buffer buffer containing the record, its position is not changed
+     * @param start index of the first byte of the record
+     * @param end index after the last byte of the record
+     * @return OrderNumber
+     * @throws NumberFormatException if OrderNumber is malformed
+     */
+    int decodeOrderNumber(ByteBuffer buffer, int start, int end) {
+        ByteRecord chars = byteRecord.get().wrap(buffer, start, end);
+        return parseInt(chars, 0, nextDelimiter(chars, 0));
+    }
+
+    /**
+     * Decodes a decimal from UTF-8 bytes of the buffer
+     * @param buffer buffer containing the decimal, its position is not changed
+     * @param start index of the first byte
+     * @param end index after the last byte
+     * @return BigDecimal
+     * @throws NumberFormatException if bytes are not a decimal
+     */
+    BigDecimal decodeDecimal(ByteBuffer buffer, int start, int end) {
+        return parseDecimal(byteRecord.get().wrap(buffer, start, end), 0, end - start);
+    }
+
+    /**
+     * Finds the first character of the field
+     * @param record record to scan
+     * @param field index of the field
+     * @return index of the first character, length of the record if there is no such field
+     */
+    private static int fieldStart(CharSequence record, int field) {
+        int start = 0;
+        for (int i = 0; i < field && start < record.length(); i++) {
+            start = Math.min(nextDelimiter(record, start) + DELIMITER.length(), record.length());
+        }
+        return start;
+    }
+
+    /**
+     * Creates Tax object from the tax record
+     * @param record tax record without line separator
+     * @return Tax object
+     * @throws NumberFormatException if record is malformed
+     */
+    public Tax decodeTax(CharSequence record) {
+        int start = 0;
+        int end = nextDelimiter(record, start);
+        String stateAbbreviation = text(record, start, end);
+        start = end + DELIMITER.length();
+        end = nextDelimiter(record, start);
+        String stateName = text(record, start, end);
+        start = end + DELIMITER.length();
+        end = nextDelimiter(record, start);
+        return new Tax(stateAbbreviation, stateName, parseDecimal(record, start, end));
+    }
+
+    /**
+     * Creates Product object from the product record
+     * @param record product record without line separator
+     * @return Product object
+     * @throws NumberFormatException if record is malformed
+     */
+    public Product decodeProduct(CharSequence record) {
+        int start = 0;
+        int end = nextDelimiter(record, start);
+        String productType = text(record, start, end);
+        start = end + DELIMITER.length();
+        end = nextDelimiter(record, start);
+        BigDecimal costPerSquareFoot = parseDecimal(record, start, end);
+        start = end + DELIMITER.length();
+        end = nextDelimiter(record, start);
+        return new Product(productType, costPerSquareFoot, parseDecimal(record, start, end));
+    }
+
+    /**
+     * Converts Order object to the order record using reused per-thread buffer
+     * @param order Order object
+     * @return order record without line separator
+     */
+    public String encodeOrder(Order order) {
+        StringBuilder buffer = encodeBuffer.get();
+        buffer.setLength(0);
+        return appendOrder(order, buffer).toString();
+    }
+
+    /**
+     * Appends the order record to the builder
+     * @param order Order object
+     * @param out StringBuilder to append to
+     * @return given StringBuilder
+     */
+    public StringBuilder appendOrder(Order order, StringBuilder out) {
+        return out.append(order.getOrderNumber()).append(DELIMITER)
+                .append(order.getCustomerName()).append(DELIMITER)
+                .append(order.getState()).append(DELIMITER)
+                .append(order.getTaxRate()).append(DELIMITER)
+                .append(order.getProductType()).append(DELIMITER)
+                .append(order.getArea()).append(DELIMITER)
+                .append(order.getCostPerSquareFoot()).append(DELIMITER)
+                .append(order.getLaborCostPerSquareFoot()).append(DELIMITER)
+                .append(order.getMaterialCost()).append(DELIMITER)
+                .append(order.getLaborCost()).append(DELIMITER)
+                .append(order.getTax()).append(DELIMITER)
+                .append(order.getTotal());
+    }
+
+    /**
+     * Counts bytes of the characters in UTF-8 without encoding them
+     * @param chars characters to count
+     * @param start index of the first character
+     * @param end index after the last character
+     * @return number of bytes
+     */
+    public static int utf8Length(CharSequence chars, int start, int end) {
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Finds the next delimiter
+     * @param record record to scan
+     * @param from index to start from
+     * @return index of the delimiter or length of the record if there is none
+     */
+    private static int nextDelimiter(CharSequence record, int from) {
+        int last = record.length() - 1;
+        for (int i = from; i < last; i++) {
+            if (record.charAt(i) == ':' && record.charAt(i + 1) == ':') {
+                return i;
+            }
+        }
+        return record.length();
+    }
+
+    /**
+     * Parses int from the characters
+     * @param chars characters to parse
+     * @param start index of the first character
+     * @param end index after the last character
+     * @return parsed int
+     * @throws NumberFormatException if characters are not an int
+     */
+    private static int parseInt(CharSequence chars, int start, int end) {
+        boolean negative = start < end && chars.charAt(start) == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end || end - i > 10) {
+            throw new NumberFormatException("Invalid number: " + chars.subSequence(start, end));
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            char c = chars.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Invalid number: " + chars.subSequence(start, end));
+            }
+            value = value * 10 + (c - '0');
+        }
+        value = negative ? -value : value;
+        if (value != (int) value) {
+            throw new NumberFormatException("Invalid number: " + chars.subSequence(start, end));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses BigDecimal from the characters without creating a String.
+     * Numbers with exponent or more than MAX_LONG_DIGITS digits go through BigDecimal(String)
+     * @param chars characters to parse
+     * @param start index of the first character
+     * @param end index after the last character
+     * @return BigDecimal with the same unscaled value and scale as new BigDecimal(String)
+     * @throws NumberFormatException if characters are not a decimal number
+     */
+    private static BigDecimal parseDecimal(CharSequence chars, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+            negative = chars.charAt(i) == '-';
+            i++;
+        }
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            char c = chars.charAt(i);
+            if (c >= '0' && c <= '9') {
+                unscaled = unscaled * 10 + (c - '0');
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (c == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                break;
+            }
+        }
+        if (i < end || digits > MAX_LONG_DIGITS) {
+            return new BigDecimal(chars.subSequence(start, end).toString());
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Invalid number: " + chars.subSequence(start, end));
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+
+    /**
+     * Gets String of the characters
+     * @param chars characters of the record
+     * @param start index of the first character
+     * @param end index after the last character
+     * @return new String
+     */
+    private static String text(CharSequence chars, int start, int end) {
+        if (chars instanceof ByteRecord) {
+            return ((ByteRecord) chars).decode(start, end);
+        }
+        return chars.subSequence(start, end).toString();
+    }
+
+    /**
+     * Gets String of the characters, reusing String with the same characters
+     * returned before. Used for fields with few distinct values
+     * @param chars characters of the record
+     * @param start index of the first character
+     * @param end index after the last character
+     * @return shared or new String
+     */
+    private String sharedText(CharSequence chars, int start, int end) {
+        if (chars instanceof ByteRecord && !((ByteRecord) chars).ascii) {
+            // bytes of multi-byte characters cannot be compared with Strings
+            return text(chars, start, end);
+        }
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + chars.charAt(i);
+        }
+        int slot = (hash ^ hash >>> 16) & (SHARED_STRINGS - 1);
+        String shared = sharedStrings[slot];
+        if (shared != null && contentEquals(shared, chars, start, end)) {
+            return shared;
+        }
+        String value = text(chars, start, end);
+        sharedStrings[slot] = value;
+        return value;
+    }
+
+    /**
+     * Compares String with the characters
+     * @param value String to compare
+     * @param chars characters of the record
+     * @param start index of the first character
+     * @param end index after the last character
+     * @return true if String has the same characters
+     */
+    private static boolean contentEquals(String value, CharSequence chars, int start, int end) {
+        if (value.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i - start) != chars.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * View of a record in UTF-8 bytes. Delimiters and digits are ASCII and
+     * bytes of multi-byte characters never match them, so fields are found on
+     * the bytes and only text fields are decoded. Not thread-safe, one per thread
+     */
+    private static class ByteRecord implements CharSequence {
+        // either bytes or buffer holds the record
+        private byte[] bytes;
+        private ByteBuffer buffer;
+        private int offset;
+        private int length;
+        // true if record has only ASCII characters, so bytes match characters one to one
+        private boolean ascii;
+
+        private ByteRecord wrap(byte[] bytes, int start, int end) {
+            this.bytes = bytes;
+            this.buffer = null;
+            this.offset = start;
+            this.length = end - start;
+            ascii = true;
+            for (int i = start; i < end; i++) {
+                if (bytes[i] < 0) {
+                    ascii = false;
+                    break;
+                }
+            }
+            return this;
+        }
+
+        private ByteRecord wrap(ByteBuffer buffer, int start, int end) {
+            this.bytes = null;
+            this.buffer = buffer;
+            this.offset = start;
+            this.length = end - start;
+            ascii = true;
+            for (int i = start; i < end; i++) {
+                if (buffer.get(i) < 0) {
+                    ascii = false;
+                    break;
+                }
+            }
+            return this;
+        }
+
+        private String decode(int start, int end) {
+            Charset charset = ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8;
+            if (bytes != null) {
+                return new String(bytes, offset + start, end - start, charset);
+            }
+            byte[] text = new byte[end - start];
+            for (int i = 0; i < text.length; i++) {
+                text[i] = buffer.get(offset + start + i);
+            }
+            return new String(text, charset);
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) ((bytes != null ? bytes[offset + index] : buffer.get(offset + index)) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return decode(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return decode(0, length);
+        }
+    }
+}
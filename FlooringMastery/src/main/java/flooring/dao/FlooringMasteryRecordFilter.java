@@ -0,0 +1,136 @@
+package flooring.dao;
+
+import flooring.model.Order;
+import flooring.model.OrderFilter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * OrderFilter applied to order records in UTF-8 bytes. CustomerName, State
+ * and ProductType are compared with the bytes of their fields and Area is
+ * parsed from its field, so records which don't match never become Orders.
+ * Total needs all pricing fields, it is checked on the Order. Instances are thread-safe
+ */
+class FlooringMasteryRecordFilter {
+
+    private final FlooringMasteryRecordCodec codec;
+    private final OrderFilter filter;
+    // UTF-8 bytes of the text criteria, null if there is no criterion
+    private final byte[] customerName;
+    private final byte[] state;
+    private final byte[] productType;
+    private final boolean areaRange;
+    // the last field checked on the bytes
+    private final int lastField;
+
+    FlooringMasteryRecordFilter(FlooringMasteryRecordCodec codec, OrderFilter filter) {
+        this.codec = codec;
+        this.filter = filter;
+        customerName = utf8(filter.getCustomerName());
+        state = utf8(filter.getState());
+        productType = utf8(filter.getProductType());
+        areaRange = filter.getMinArea() != null || filter.getMaxArea() != null;
+        lastField = areaRange ? FlooringMasteryRecordCodec.AREA
+                : productType != null ? FlooringMasteryRecordCodec.PRODUCT_TYPE
+                : state != null ? FlooringMasteryRecordCodec.STATE
+                : customerName != null ? FlooringMasteryRecordCodec.CUSTOMER_NAME
+                : 0;
+    }
+
+    /**
+     * Checks criteria which don't need the Order
+     * @param content bytes containing the record
+     * @param start index of the first byte of the record
+     * @param end index after the last byte of the record, without line separator
+     * @return false if the record doesn't match, true if it matches or has too few fields,
+     * which fail when the Order is decoded
+     * @throws NumberFormatException if Area is malformed
+     */
+    boolean test(ByteBuffer content, int start, int end) {
+        int fieldStart = start;
+        for (int field = 0; field <= lastField; field++) {
+            int fieldEnd = nextDelimiter(content, fieldStart, end);
+            switch (field) {
+                case FlooringMasteryRecordCodec.CUSTOMER_NAME:
+                    if (!equals(customerName, content, fieldStart, fieldEnd)) {
+                        return false;
+                    }
+                    break;
+                case FlooringMasteryRecordCodec.STATE:
+                    if (!equals(state, content, fieldStart, fieldEnd)) {
+                        return false;
+                    }
+                    break;
+                case FlooringMasteryRecordCodec.PRODUCT_TYPE:
+                    if (!equals(productType, content, fieldStart, fieldEnd)) {
+                        return false;
+                    }
+                    break;
+                case FlooringMasteryRecordCodec.AREA:
+                    if (areaRange && !filter.matchesArea(codec.decodeDecimal(content, fieldStart, fieldEnd))) {
+                        return false;
+                    }
+                    break;
+                default:
+            }
+            if (fieldEnd == end) {
+                return true;
+            }
+            fieldStart = fieldEnd + FlooringMasteryRecordCodec.DELIMITER.length();
+        }
+        return true;
+    }
+
+    /**
+     * Checks criteria which need the Order, if the record matched
+     * @param order Order of a matching record
+     * @return true if order matches
+     */
+    boolean test(Order order) {
+        return !filter.hasTotalRange() || filter.matchesTotal(order.getTotal());
+    }
+
+    /**
+     * Compares the criterion with the field
+     * @param value UTF-8 bytes of the criterion, null matches any field
+     * @param content bytes containing the field
+     * @param start index of the first byte of the field
+     * @param end index after the last byte of the field
+     * @return true if field matches
+     */
+    private static boolean equals(byte[] value, ByteBuffer content, int start, int end) {
+        if (value == null) {
+            return true;
+        }
+        if (value.length != end - start) {
+            return false;
+        }
+        for (int i = 0; i < value.length; i++) {
+            if (value[i] != content.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the next delimiter
+     * @param content bytes containing the record
+     * @param from index to start from
+     * @param end index after the last byte of the record
+     * @return index of the delimiter or end if there is none
+     */
+    private static int nextDelimiter(ByteBuffer content, int from, int end) {
+        for (int i = from; i < end - 1; i++) {
+            if (content.get(i) == ':' && content.get(i + 1) == ':') {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -3,59 +3,36 @@ package flooring.dao;
 import flooring.model.Tax;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Scanner;
-
 @Component
-public class FlooringMasteryTaxDaoFileImpl implements FlooringMasteryTaxDao {
+public class FlooringMasteryTaxDaoFileImpl extends FlooringMasteryCatalogFile<Tax> implements FlooringMasteryTaxDao {
 
-    private final String DELIMITER = "::";
-    private final String TAX_FILE;
-    private Map<String, Tax> taxMap = new HashMap<>();
+    private final FlooringMasteryRecordCodec codec = new FlooringMasteryRecordCodec();
 
     public FlooringMasteryTaxDaoFileImpl() {
-        TAX_FILE = "Data/Taxes.txt";
+        super("Data/Taxes.txt", "tax");
     }
 
     public FlooringMasteryTaxDaoFileImpl(String taxFile) {
-        TAX_FILE = taxFile;
+        super(taxFile, "tax");
     }
 
     /**
-     * Reads file line by line and loads each line as a tax to taxMap
-     * @throws FlooringMasteryPersistenceException when file doesn't exist
+     * Reads file line by line and publishes the taxes as a new snapshot
+     * @throws FlooringMasteryPersistenceException when file doesn't exist or is malformed
      */
     @Override
     public void loadTaxes() throws FlooringMasteryPersistenceException {
-        Scanner in;
-        try {
-            in = new Scanner(new BufferedReader(new FileReader(TAX_FILE)));
-        } catch (FileNotFoundException e) {
-            throw new FlooringMasteryPersistenceException("Cannot upload tax data");
-        }
-        String currentLine;
-        Tax currentTax;
-        // read the header
-        in.nextLine();
-        while (in.hasNextLine()) {
-            currentLine = in.nextLine();
-            currentTax = unmarshallData(currentLine);
-            taxMap.put(currentTax.getStateName().toLowerCase(), currentTax);
-        }
+        load();
     }
 
     /**
-     * Gets Tax object for given state from taxMap
+     * Gets Tax object for given state from the snapshot
      * @param state state name
      * @return Tax object
      */
     @Override
     public Tax getTax(String state) {
-        return taxMap.get(state);
+        return getItems().get(state);
     }
 
     /**
@@ -63,9 +40,17 @@ public class FlooringMasteryTaxDaoFileImpl implements FlooringMasteryTaxDao {
      * @param taxAsString tax information as a String
      * @return Tax object
      */
-    private Tax unmarshallData(String taxAsString) {
-        String[] taxArray = taxAsString.split(DELIMITER);
-        return new Tax(taxArray);
+    @Override
+    protected Tax decode(String taxAsString) {
+        return codec.decodeTax(taxAsString);
     }
 
+    /**
+     * @param tax Tax object
+     * @return state name of the tax
+     */
+    @Override
+    protected String nameOf(Tax tax) {
+        return tax.getStateName();
+    }
 }
@@ -0,0 +1,22 @@
+package flooring.metrics;
+
+/**
+ * State of a catalog which is reloaded when its file changes
+ */
+public interface CatalogMXBean {
+
+    /**
+     * @return number of successful loads of the catalog
+     */
+    long getCatalogVersion();
+
+    /**
+     * @return duration of the last successful load in nanoseconds
+     */
+    long getLastReloadNanos();
+
+    /**
+     * @return number of reloads which failed and kept the previous catalog
+     */
+    long getFailedReloadCount();
+}
@@ -0,0 +1,11 @@
+package flooring.metrics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("flooring.DayFileOpen")
+@Label("Day File Open")
+@Description("Opening of a day file for random access or append")
+public class DayFileOpenEvent extends OrderFileEvent {
+}
@@ -0,0 +1,11 @@
+package flooring.metrics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("flooring.DayFileParse")
+@Label("Day File Parse")
+@Description("Decoding of day file records to orders")
+public class DayFileParseEvent extends OrderFileEvent {
+}
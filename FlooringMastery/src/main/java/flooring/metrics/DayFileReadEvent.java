@@ -0,0 +1,11 @@
+package flooring.metrics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("flooring.DayFileRead")
+@Label("Day File Read")
+@Description("Reading of a whole day file or of one record")
+public class DayFileReadEvent extends OrderFileEvent {
+}
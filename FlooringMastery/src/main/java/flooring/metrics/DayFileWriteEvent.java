@@ -0,0 +1,11 @@
+package flooring.metrics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("flooring.DayFileWrite")
+@Label("Day File Write")
+@Description("Writing of records to a day file")
+public class DayFileWriteEvent extends OrderFileEvent {
+}
@@ -0,0 +1,121 @@
+package flooring.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the application metrics. Every metric is published on the platform
+ * MBeanServer under the "flooring" domain when it is created, so it can be watched
+ * in jconsole or VisualVM:
+ * flooring:type=Operation,component=...,name=... for operations,
+ * flooring:type=IO for byte and order counters,
+ * flooring:type=Catalog,name=... for catalogs
+ */
+public final class FlooringMasteryMetrics {
+
+    private static final String DOMAIN = "flooring";
+
+    private static final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private static final LongAdder bytesRead = new LongAdder();
+    private static final LongAdder bytesWritten = new LongAdder();
+    private static final LongAdder ordersParsed = new LongAdder();
+
+    static {
+        register(DOMAIN + ":type=IO", new IoMetricsMXBean() {
+            @Override
+            public long getBytesRead() {
+                return bytesRead.sum();
+            }
+
+            @Override
+            public long getBytesWritten() {
+                return bytesWritten.sum();
+            }
+
+            @Override
+            public long getOrdersParsed() {
+                return ordersParsed.sum();
+            }
+        });
+    }
+
+    private FlooringMasteryMetrics() {
+    }
+
+    /**
+     * Gets metrics of the operation, creates and publishes them on the first call
+     * @param component name of the service or DAO
+     * @param name name of the operation
+     * @return OperationMetrics of the operation
+     */
+    public static OperationMetrics operation(String component, String name) {
+        String objectName = DOMAIN + ":type=Operation,component=" + ObjectName.quote(component)
+                + ",name=" + ObjectName.quote(name);
+        OperationMetrics metrics = operations.get(objectName);
+        if (metrics == null) {
+            metrics = operations.computeIfAbsent(objectName, key -> {
+                OperationMetrics created = new OperationMetrics();
+                register(key, created);
+                return created;
+            });
+        }
+        return metrics;
+    }
+
+    /**
+     * Publishes catalog, replacing catalog with the same name
+     * @param name name of the catalog
+     * @param catalog CatalogMXBean
+     */
+    public static void registerCatalog(String name, CatalogMXBean catalog) {
+        register(DOMAIN + ":type=Catalog,name=" + ObjectName.quote(name), catalog);
+    }
+
+    public static void addBytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    public static void addBytesWritten(long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    public static void addOrdersParsed(long orders) {
+        ordersParsed.add(orders);
+    }
+
+    public static long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public static long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    public static long getOrdersParsed() {
+        return ordersParsed.sum();
+    }
+
+    /**
+     * Registers MBean on the platform MBeanServer, replacing MBean with the same name.
+     * Metrics keep working if JMX is not available
+     * @param objectName name of the MBean
+     * @param mbean MXBean implementation
+     */
+    private static void register(String objectName, Object mbean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(objectName);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(mbean, name);
+        } catch (JMException | SecurityException e) {
+            // metrics are still recorded, they are only not visible in JMX
+        }
+    }
+}
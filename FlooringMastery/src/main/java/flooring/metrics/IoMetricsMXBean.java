@@ -0,0 +1,13 @@
+package flooring.metrics;
+
+/**
+ * Bytes of order files read and written and orders parsed by the DAOs
+ */
+public interface IoMetricsMXBean {
+
+    long getBytesRead();
+
+    long getBytesWritten();
+
+    long getOrdersParsed();
+}
@@ -0,0 +1,211 @@
+package flooring.metrics;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in nanoseconds. Every thread records into its own
+ * array of counters, so recording takes no locks and no CAS; readers merge
+ * arrays of all threads into a Snapshot. Buckets are log-linear: SUB_BUCKETS
+ * per power of two, so percentiles are accurate within 1/SUB_BUCKETS.
+ * Counts are cumulative: arrays of finished threads are folded into a shared
+ * array when a snapshot is taken or a new thread starts recording, so short-lived
+ * pool threads don't pile up arrays
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // values below SUB_BUCKETS have own buckets, every next power of two has SUB_BUCKETS buckets
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    // slots after the buckets
+    private static final int COUNT = BUCKETS;
+    private static final int SUM = BUCKETS + 1;
+    private static final int MAX = BUCKETS + 2;
+
+    private final List<Recorder> recorders = new CopyOnWriteArrayList<>();
+    // counters of finished threads, guarded by this
+    private final long[] retired = new long[BUCKETS + 3];
+    private final ThreadLocal<AtomicLongArray> recorder = ThreadLocal.withInitial(() -> {
+        AtomicLongArray counters = new AtomicLongArray(BUCKETS + 3);
+        synchronized (this) {
+            retireFinished();
+            recorders.add(new Recorder(Thread.currentThread(), counters));
+        }
+        return counters;
+    });
+
+    /**
+     * Records one value. Only the current thread writes its counters,
+     * so plain read and ordered write are enough
+     * @param nanos latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        AtomicLongArray counters = recorder.get();
+        int bucket = bucketOf(value);
+        counters.lazySet(bucket, counters.get(bucket) + 1);
+        counters.lazySet(COUNT, counters.get(COUNT) + 1);
+        counters.lazySet(SUM, counters.get(SUM) + value);
+        if (value > counters.get(MAX)) {
+            counters.lazySet(MAX, value);
+        }
+    }
+
+    /**
+     * Merges counters of all threads. Values recorded during the merge may be
+     * partially included
+     * @return Snapshot of the histogram
+     */
+    public synchronized Snapshot snapshot() {
+        retireFinished();
+        long[] buckets = new long[BUCKETS];
+        System.arraycopy(retired, 0, buckets, 0, BUCKETS);
+        long count = retired[COUNT];
+        long sum = retired[SUM];
+        long max = retired[MAX];
+        for (Recorder live : recorders) {
+            AtomicLongArray counters = live.counters;
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] += counters.get(i);
+            }
+            count += counters.get(COUNT);
+            sum += counters.get(SUM);
+            max = Math.max(max, counters.get(MAX));
+        }
+        return new Snapshot(buckets, count, sum, max);
+    }
+
+    /**
+     * @return number of threads whose counters are not folded yet
+     */
+    int recorderCount() {
+        return recorders.size();
+    }
+
+    /**
+     * Adds counters of finished threads to the retired counters and drops them.
+     * Must be called holding the monitor of the histogram
+     */
+    private void retireFinished() {
+        for (Recorder finished : recorders) {
+            if (!finished.isFinished()) {
+                continue;
+            }
+            AtomicLongArray counters = finished.counters;
+            for (int i = 0; i < MAX; i++) {
+                retired[i] += counters.get(i);
+            }
+            retired[MAX] = Math.max(retired[MAX], counters.get(MAX));
+            recorders.remove(finished);
+        }
+    }
+
+    /**
+     * @param value non-negative value
+     * @return index of the bucket of the value
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @param bucket index of the bucket
+     * @return the highest value of the bucket
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Counters of one thread
+     */
+    private static final class Recorder {
+        // doesn't keep the thread from being collected, cleared reference means it has finished
+        private final WeakReference<Thread> owner;
+        private final AtomicLongArray counters;
+
+        private Recorder(Thread owner, AtomicLongArray counters) {
+            this.owner = new WeakReference<>(owner);
+            this.counters = counters;
+        }
+
+        /**
+         * @return true if the thread has finished and won't record anymore
+         */
+        private boolean isFinished() {
+            Thread thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+    }
+
+    /**
+     * Merged state of the histogram at one moment
+     */
+    public static final class Snapshot {
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] buckets, long count, long sum, long max) {
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * @return mean of recorded values, 0 if nothing was recorded
+         */
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Gets value below which the given percent of recorded values lie
+         * @param percentile percent from 0 to 100
+         * @return the highest value of the bucket with the percentile, not more than max;
+         * 0 if nothing was recorded
+         */
+        public long getValueAtPercentile(double percentile) {
+            long total = 0;
+            for (long bucketCount : buckets) {
+                total += bucketCount;
+            }
+            long rank = Math.max(1, (long) Math.ceil(total * Math.min(percentile, 100) / 100));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueOf(i), max);
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package flooring.metrics;
+
+import flooring.dao.FlooringMasteryOrderDao;
+import flooring.dao.FlooringMasteryProductDao;
+import flooring.dao.FlooringMasteryTaxDao;
+import flooring.service.FlooringMasteryServiceLayer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times every call of the service layer and DAO interface methods. Beans which
+ * implement these interfaces are wrapped in class-based proxies, so they can still
+ * be injected by their class. Catalog DAOs are published as CatalogMXBeans
+ */
+@Component
+public class MetricsBeanPostProcessor implements BeanPostProcessor {
+
+    private static final Class<?>[] TIMED_INTERFACES = {
+            FlooringMasteryServiceLayer.class, FlooringMasteryOrderDao.class,
+            FlooringMasteryTaxDao.class, FlooringMasteryProductDao.class
+    };
+
+    // marks methods which aren't timed, ConcurrentHashMap cannot hold nulls
+    private static final OperationMetrics NOT_TIMED = new OperationMetrics();
+
+    /**
+     * Wraps service and DAO beans in timing proxies
+     * @param bean initialized bean
+     * @param beanName name of the bean
+     * @return proxy of the bean or the bean itself if it isn't timed
+     */
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof CatalogMXBean) {
+            FlooringMasteryMetrics.registerCatalog(beanName, (CatalogMXBean) bean);
+        }
+        if (!isTimed(bean.getClass()) || AopUtils.isAopProxy(bean)) {
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(new TimingInterceptor(bean.getClass().getSimpleName()));
+        return proxyFactory.getProxy(bean.getClass().getClassLoader());
+    }
+
+    /**
+     * @param type class of the bean
+     * @return true if class implements one of TIMED_INTERFACES
+     */
+    private static boolean isTimed(Class<?> type) {
+        for (Class<?> timed : TIMED_INTERFACES) {
+            if (timed.isAssignableFrom(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records latency and failures of the calls of timed interface methods,
+     * other methods are called as is. Streams are timed until they are returned
+     */
+    private static class TimingInterceptor implements MethodInterceptor {
+
+        private final String component;
+        private final Map<Method, OperationMetrics> metrics = new ConcurrentHashMap<>();
+
+        private TimingInterceptor(String component) {
+            this.component = component;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            OperationMetrics operation = metrics.computeIfAbsent(invocation.getMethod(), this::operationOf);
+            if (operation == NOT_TIMED) {
+                return invocation.proceed();
+            }
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = invocation.proceed();
+                failed = false;
+                return result;
+            } finally {
+                operation.record(System.nanoTime() - start, failed);
+            }
+        }
+
+        /**
+         * @param method called method
+         * @return OperationMetrics of the method or NOT_TIMED if method isn't declared by a timed interface
+         */
+        private OperationMetrics operationOf(Method method) {
+            for (Class<?> timed : TIMED_INTERFACES) {
+                if (declares(timed, method)) {
+                    return FlooringMasteryMetrics.operation(component, method.getName());
+                }
+            }
+            return NOT_TIMED;
+        }
+
+        /**
+         * @param type interface
+         * @param method method of the bean class
+         * @return true if interface has method with the same signature
+         */
+        private static boolean declares(Class<?> type, Method method) {
+            if (!type.isAssignableFrom(method.getDeclaringClass())) {
+                return false;
+            }
+            try {
+                type.getMethod(method.getName(), method.getParameterTypes());
+                return true;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package flooring.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and error counter of one operation
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * Records one call
+     * @param nanos duration of the call in nanoseconds
+     * @param failed true if the call threw an exception
+     */
+    public void record(long nanos, boolean failed) {
+        latency.record(nanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * @return Snapshot of the latency histogram in nanoseconds
+     */
+    public LatencyHistogram.Snapshot getLatency() {
+        return latency.snapshot();
+    }
+
+    @Override
+    public long getCount() {
+        return latency.snapshot().getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latency.snapshot().getMean() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return percentileMicros(50);
+    }
+
+    @Override
+    public double getP90Micros() {
+        return percentileMicros(90);
+    }
+
+    @Override
+    public double getP99Micros() {
+        return percentileMicros(99);
+    }
+
+    @Override
+    public double getP999Micros() {
+        return percentileMicros(99.9);
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latency.snapshot().getMax() / NANOS_PER_MICRO;
+    }
+
+    private double percentileMicros(double percentile) {
+        return latency.snapshot().getValueAtPercentile(percentile) / NANOS_PER_MICRO;
+    }
+}
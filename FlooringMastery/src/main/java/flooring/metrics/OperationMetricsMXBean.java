@@ -0,0 +1,23 @@
+package flooring.metrics;
+
+/**
+ * Latency and calls of one service or DAO operation, latencies in microseconds
+ */
+public interface OperationMetricsMXBean {
+
+    long getCount();
+
+    long getErrorCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+}
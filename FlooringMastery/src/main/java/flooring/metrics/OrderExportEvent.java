@@ -0,0 +1,11 @@
+package flooring.metrics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("flooring.OrderExport")
+@Label("Order Export")
+@Description("Export of all day files to the backup file or restore of day files from it")
+public class OrderExportEvent extends OrderFileEvent {
+}
@@ -0,0 +1,55 @@
+package flooring.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+import java.time.LocalDate;
+
+/**
+ * Java Flight Recorder event of order file I/O. Fields are set only if the event
+ * will be committed, so an event costs a begin and an enabled check when JFR is off.
+ * Usage:
+ * <pre>
+ * DayFileReadEvent event = new DayFileReadEvent();
+ * event.begin();
+ * ... read the file ...
+ * event.commit("getOrdersForDate", date, 0, bytes);
+ * </pre>
+ */
+// fields are protected, JFR ignores private fields of event superclasses
+@Category({"Flooring", "Order Files"})
+public abstract class OrderFileEvent extends Event {
+
+    @Label("Operation")
+    protected String operation;
+
+    @Label("Order Date")
+    protected String orderDate;
+
+    @Label("Records")
+    protected int records;
+
+    @Label("Bytes")
+    @DataAmount
+    protected long bytes;
+
+    /**
+     * Ends the event and commits it if it is enabled and lasted longer than its threshold
+     * @param operation name of the DAO operation
+     * @param date date of the day file or null if the event covers many day files
+     * @param records number of records
+     * @param bytes number of bytes
+     */
+    public void commit(String operation, LocalDate date, int records, long bytes) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.orderDate = date == null ? null : date.toString();
+            this.records = records;
+            this.bytes = bytes;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package flooring.model;
+
+import java.util.List;
+
+public class BatchReport {
+
+    private final int added;
+    private final int edited;
+    private final int deleted;
+    private final int displayed;
+    private final List<String> errors;
+    private final int fileCount;
+    private final long elapsedNanos;
+
+    /**
+     * @param added number of added orders
+     * @param edited number of edited orders
+     * @param deleted number of deleted orders
+     * @param displayed number of displayed dates
+     * @param errors messages of failed commands with their line numbers
+     * @param fileCount number of written day files
+     * @param elapsedNanos duration of the batch
+     */
+    public BatchReport(int added, int edited, int deleted, int displayed, List<String> errors,
+                       int fileCount, long elapsedNanos) {
+        this.added = added;
+        this.edited = edited;
+        this.deleted = deleted;
+        this.displayed = displayed;
+        this.errors = errors;
+        this.fileCount = fileCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getAdded() {
+        return added;
+    }
+
+    public int getEdited() {
+        return edited;
+    }
+
+    public int getDeleted() {
+        return deleted;
+    }
+
+    public int getDisplayed() {
+        return displayed;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public int getFailed() {
+        return errors.size();
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Counts all commands of the batch, failed ones included
+     * @return number of commands
+     */
+    public int getCommandCount() {
+        return added + edited + deleted + displayed + errors.size();
+    }
+
+    /**
+     * Calculates batch throughput in commands per second
+     * @return commands per second
+     */
+    public double getCommandsPerSecond() {
+        return elapsedNanos == 0 ? 0 : getCommandCount() / (elapsedNanos / 1e9);
+    }
+}
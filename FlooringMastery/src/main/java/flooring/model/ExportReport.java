@@ -0,0 +1,65 @@
+package flooring.model;
+
+public class ExportReport {
+
+    private final int fileCount;
+    private final long orderCount;
+    private final long byteCount;
+    private final int reusedFileCount;
+    private final long elapsedNanos;
+
+    public ExportReport(int fileCount, long orderCount, long byteCount, long elapsedNanos) {
+        this(fileCount, orderCount, byteCount, 0, elapsedNanos);
+    }
+
+    /**
+     * @param fileCount number of exported day files
+     * @param orderCount number of exported orders
+     * @param byteCount number of bytes written to the backup file
+     * @param reusedFileCount number of day files whose segments of the previous export were reused
+     * @param elapsedNanos duration of the export
+     */
+    public ExportReport(int fileCount, long orderCount, long byteCount, int reusedFileCount, long elapsedNanos) {
+        this.fileCount = fileCount;
+        this.orderCount = orderCount;
+        this.byteCount = byteCount;
+        this.reusedFileCount = reusedFileCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    public int getReusedFileCount() {
+        return reusedFileCount;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Calculates export throughput in megabytes of written data per second
+     * @return megabytes per second
+     */
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : byteCount / (1024.0 * 1024.0) / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Calculates export throughput in orders per second
+     * @return orders per second
+     */
+    public double getOrdersPerSecond() {
+        return elapsedNanos == 0 ? 0 : orderCount / (elapsedNanos / 1e9);
+    }
+}
@@ -0,0 +1,50 @@
+package flooring.model;
+
+public class ImportReport {
+
+    private final long importedCount;
+    private final long rejectedCount;
+    private final int writeCount;
+    private final long elapsedNanos;
+
+    /**
+     * @param importedCount number of saved orders
+     * @param rejectedCount number of rejected rows
+     * @param writeCount number of writes to day files
+     * @param elapsedNanos duration of the import
+     */
+    public ImportReport(long importedCount, long rejectedCount, int writeCount, long elapsedNanos) {
+        this.importedCount = importedCount;
+        this.rejectedCount = rejectedCount;
+        this.writeCount = writeCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getImportedCount() {
+        return importedCount;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public long getRowCount() {
+        return importedCount + rejectedCount;
+    }
+
+    public int getWriteCount() {
+        return writeCount;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Calculates import throughput in rows per second
+     * @return rows per second
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : getRowCount() / (elapsedNanos / 1e9);
+    }
+}
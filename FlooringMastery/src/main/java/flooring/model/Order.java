@@ -1,7 +1,6 @@
 package flooring.model;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.Objects;
 
@@ -20,6 +19,8 @@ public class Order {
     private BigDecimal laborCost;
     private BigDecimal tax;
     private BigDecimal total;
+    // fixed-point price, calculated on first use and reset when a pricing field changes
+    private PricingEngine.Price price;
 
     public Order() {
     }
@@ -39,6 +40,32 @@ public class Order {
         this.laborCostPerSquareFoot = laborCostPerSquareFoot;
     }
 
+    /**
+     * Creates a copy of the given order, fields are read through getters,
+     * so subclasses which load fields on demand are copied completely
+     * @param order Order object to copy
+     */
+    public Order(Order order) {
+        this.date = order.getDate();
+        this.orderNumber = order.getOrderNumber();
+        this.customerName = order.getCustomerName();
+        this.state = order.getState();
+        this.taxRate = order.getTaxRate();
+        this.productType = order.getProductType();
+        this.area = order.getArea();
+        this.costPerSquareFoot = order.getCostPerSquareFoot();
+        this.laborCostPerSquareFoot = order.getLaborCostPerSquareFoot();
+        this.price = order.price;
+    }
+
+    /**
+     * Creates a copy of the order, subclasses may keep their representation
+     * @return copy of the order
+     */
+    public Order copy() {
+        return new Order(this);
+    }
+
     public LocalDate getDate() {
         return date;
     }
@@ -77,6 +104,7 @@ public class Order {
 
     public void setTaxRate(BigDecimal taxRate) {
         this.taxRate = taxRate;
+        price = null;
     }
 
     public String getProductType() {
@@ -93,6 +121,7 @@ public class Order {
 
     public void setArea(BigDecimal area) {
         this.area = area;
+        price = null;
     }
 
     public BigDecimal getCostPerSquareFoot() {
@@ -101,6 +130,7 @@ public class Order {
 
     public void setCostPerSquareFoot(BigDecimal costPerSquareFoot) {
         this.costPerSquareFoot = costPerSquareFoot;
+        price = null;
     }
 
     public BigDecimal getLaborCostPerSquareFoot() {
@@ -109,6 +139,7 @@ public class Order {
 
     public void setLaborCostPerSquareFoot(BigDecimal laborCostPerSquareFoot) {
         this.laborCostPerSquareFoot = laborCostPerSquareFoot;
+        price = null;
     }
 
     /**
@@ -116,7 +147,7 @@ public class Order {
      * @return materialCost as BigDecimal with scale 2 and RoundingMode HALF_UP
      */
     public BigDecimal getMaterialCost() {
-        return costPerSquareFoot.multiply(area).setScale(2, RoundingMode.HALF_UP);
+        return getPrice().getMaterialCost();
     }
 
     /**
@@ -124,7 +155,7 @@ public class Order {
      * @return laborCost as BigDecimal with scale 2 and RoundingMode HALF_UP
      */
     public BigDecimal getLaborCost() {
-        return laborCostPerSquareFoot.multiply(area).setScale(2, RoundingMode.HALF_UP);
+        return getPrice().getLaborCost();
     }
 
     /**
@@ -132,9 +163,7 @@ public class Order {
      * @return tax as BigDecimal with scale 2 and RoundingMode HALF_UP
      */
     public BigDecimal getTax() {
-        BigDecimal costWithoutTax = getLaborCost().add(getMaterialCost());
-        return costWithoutTax.multiply(getTaxRate())
-                .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
+        return getPrice().getTax();
     }
 
     /**
@@ -142,8 +171,18 @@ public class Order {
      * @return total cost as BigDecimal
      */
     public BigDecimal getTotal() {
-        BigDecimal costWithoutTax = getLaborCost().add(getMaterialCost());
-        return costWithoutTax.add(getTax());
+        return getPrice().getTotal();
+    }
+
+    /**
+     * Prices the order with PricingEngine once until a pricing field changes
+     * @return Price of the order
+     */
+    private PricingEngine.Price getPrice() {
+        if (price == null) {
+            price = PricingEngine.price(getCostPerSquareFoot(), getLaborCostPerSquareFoot(), getArea(), getTaxRate());
+        }
+        return price;
     }
 
     @Override
@@ -0,0 +1,111 @@
+package flooring.model;
+
+import java.math.BigDecimal;
+import java.util.function.Predicate;
+
+/**
+ * Criteria of an order search. Every criterion may be null, which matches all
+ * orders, ranges include their bounds
+ */
+public class OrderFilter implements Predicate<Order> {
+
+    private final String customerName;
+    private final String state;
+    private final String productType;
+    private final BigDecimal minArea;
+    private final BigDecimal maxArea;
+    private final BigDecimal minTotal;
+    private final BigDecimal maxTotal;
+
+    /**
+     * @param customerName exact name of the customer
+     * @param state exact name of the state
+     * @param productType exact product type
+     * @param minArea the smallest area
+     * @param maxArea the largest area
+     * @param minTotal the smallest total
+     * @param maxTotal the largest total
+     */
+    public OrderFilter(String customerName, String state, String productType,
+                       BigDecimal minArea, BigDecimal maxArea, BigDecimal minTotal, BigDecimal maxTotal) {
+        this.customerName = customerName;
+        this.state = state;
+        this.productType = productType;
+        this.minArea = minArea;
+        this.maxArea = maxArea;
+        this.minTotal = minTotal;
+        this.maxTotal = maxTotal;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public String getProductType() {
+        return productType;
+    }
+
+    public BigDecimal getMinArea() {
+        return minArea;
+    }
+
+    public BigDecimal getMaxArea() {
+        return maxArea;
+    }
+
+    public BigDecimal getMinTotal() {
+        return minTotal;
+    }
+
+    public BigDecimal getMaxTotal() {
+        return maxTotal;
+    }
+
+    /**
+     * Checks if area is inside the area range
+     * @param area area of an order
+     * @return true if area matches
+     */
+    public boolean matchesArea(BigDecimal area) {
+        return (minArea == null || area.compareTo(minArea) >= 0)
+                && (maxArea == null || area.compareTo(maxArea) <= 0);
+    }
+
+    /**
+     * Checks if total is inside the total range
+     * @param total total of an order
+     * @return true if total matches
+     */
+    public boolean matchesTotal(BigDecimal total) {
+        return (minTotal == null || total.compareTo(minTotal) >= 0)
+                && (maxTotal == null || total.compareTo(maxTotal) <= 0);
+    }
+
+    /**
+     * Checks if Total has to be calculated to check the order
+     * @return true if there is a total range
+     */
+    public boolean hasTotalRange() {
+        return minTotal != null || maxTotal != null;
+    }
+
+    /**
+     * Checks all criteria, Total is calculated only if other criteria match
+     * @param order Order object
+     * @return true if order matches
+     */
+    @Override
+    public boolean test(Order order) {
+        if ((customerName != null && !customerName.equals(order.getCustomerName()))
+                || (state != null && !state.equals(order.getState()))
+                || (productType != null && !productType.equals(order.getProductType()))
+                || ((minArea != null || maxArea != null) && !matchesArea(order.getArea()))) {
+            return false;
+        }
+        return !hasTotalRange() || matchesTotal(order.getTotal());
+    }
+}
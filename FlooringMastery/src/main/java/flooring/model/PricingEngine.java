@@ -0,0 +1,268 @@
+package flooring.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * Prices orders in fixed point. Money is kept in cents, per square foot costs,
+ * area and taxRate as unscaled longs with their scale, e.g. taxRate 4.45 is
+ * 445 basis points. Results are the same as BigDecimal arithmetic with HALF_UP
+ * rounding to cents; values which don't fit into longs are priced with BigDecimal
+ */
+public final class PricingEngine {
+
+    private static final int CENTS_SCALE = 2;
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L,
+            10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L,
+            10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+    private static final BigDecimal HUNDRED = new BigDecimal("100");
+
+    private PricingEngine() {
+    }
+
+    /**
+     * Calculates price of the order from its per square foot costs, area and taxRate
+     * @param costPerSquareFoot material cost per square foot
+     * @param laborCostPerSquareFoot labor cost per square foot
+     * @param area area in square feet
+     * @param taxRate tax rate in percents
+     * @return Price with costs rounded HALF_UP to cents
+     */
+    public static Price price(BigDecimal costPerSquareFoot, BigDecimal laborCostPerSquareFoot,
+                              BigDecimal area, BigDecimal taxRate) {
+        try {
+            long areaUnscaled = unscaled(area);
+            long materialCents = costCents(unscaled(costPerSquareFoot), costPerSquareFoot.scale(),
+                    areaUnscaled, area.scale());
+            long laborCents = costCents(unscaled(laborCostPerSquareFoot), laborCostPerSquareFoot.scale(),
+                    areaUnscaled, area.scale());
+            long taxCents = taxCents(Math.addExact(materialCents, laborCents), unscaled(taxRate), taxRate.scale());
+            Math.addExact(Math.addExact(materialCents, laborCents), taxCents);
+            return new Price(materialCents, laborCents, taxCents);
+        } catch (ArithmeticException e) {
+            return priceExact(costPerSquareFoot, laborCostPerSquareFoot, area, taxRate);
+        }
+    }
+
+    /**
+     * Prices all orders at once without creating BigDecimal results
+     * @param orders List of orders
+     * @return Batch with costs of every order in cents, in the order of the list
+     * @throws ArithmeticException if a cost doesn't fit into long cents
+     */
+    public static Batch priceAll(List<? extends Order> orders) {
+        Batch batch = new Batch(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            BigDecimal area = order.getArea();
+            long materialCents;
+            long laborCents;
+            long taxCents;
+            try {
+                long areaUnscaled = unscaled(area);
+                materialCents = costCents(unscaled(order.getCostPerSquareFoot()),
+                        order.getCostPerSquareFoot().scale(), areaUnscaled, area.scale());
+                laborCents = costCents(unscaled(order.getLaborCostPerSquareFoot()),
+                        order.getLaborCostPerSquareFoot().scale(), areaUnscaled, area.scale());
+                taxCents = taxCents(Math.addExact(materialCents, laborCents),
+                        unscaled(order.getTaxRate()), order.getTaxRate().scale());
+            } catch (ArithmeticException e) {
+                Price price = priceExact(order.getCostPerSquareFoot(), order.getLaborCostPerSquareFoot(),
+                        area, order.getTaxRate());
+                materialCents = price.getMaterialCost().unscaledValue().longValueExact();
+                laborCents = price.getLaborCost().unscaledValue().longValueExact();
+                taxCents = price.getTax().unscaledValue().longValueExact();
+            }
+            batch.materialCents[i] = materialCents;
+            batch.laborCents[i] = laborCents;
+            batch.taxCents[i] = taxCents;
+            batch.totalCents[i] = Math.addExact(Math.addExact(materialCents, laborCents), taxCents);
+        }
+        return batch;
+    }
+
+    /**
+     * Multiplies per square foot cost by area and rounds HALF_UP to cents
+     * @param perSquareFootUnscaled unscaled cost per square foot
+     * @param perSquareFootScale scale of cost per square foot
+     * @param areaUnscaled unscaled area
+     * @param areaScale scale of area
+     * @return cost in cents
+     * @throws ArithmeticException if result doesn't fit into long
+     */
+    public static long costCents(long perSquareFootUnscaled, int perSquareFootScale,
+                                 long areaUnscaled, int areaScale) {
+        return toCents(Math.multiplyExact(perSquareFootUnscaled, areaUnscaled),
+                Math.addExact(perSquareFootScale, areaScale));
+    }
+
+    /**
+     * Calculates tax in percents of the cost and rounds it HALF_UP to cents
+     * @param costCents cost in cents
+     * @param taxRateUnscaled unscaled tax rate in percents
+     * @param taxRateScale scale of tax rate
+     * @return tax in cents
+     * @throws ArithmeticException if result doesn't fit into long
+     */
+    public static long taxCents(long costCents, long taxRateUnscaled, int taxRateScale) {
+        // cost * taxRate has scale of cents plus scale of the rate, dividing by 100 adds two more
+        return toCents(Math.multiplyExact(costCents, taxRateUnscaled),
+                Math.addExact(taxRateScale, 2 * CENTS_SCALE));
+    }
+
+    /**
+     * Prices order with BigDecimal arithmetic
+     * @param costPerSquareFoot material cost per square foot
+     * @param laborCostPerSquareFoot labor cost per square foot
+     * @param area area in square feet
+     * @param taxRate tax rate in percents
+     * @return Price with costs rounded HALF_UP to cents
+     */
+    private static Price priceExact(BigDecimal costPerSquareFoot, BigDecimal laborCostPerSquareFoot,
+                                    BigDecimal area, BigDecimal taxRate) {
+        BigDecimal materialCost = costPerSquareFoot.multiply(area).setScale(CENTS_SCALE, RoundingMode.HALF_UP);
+        BigDecimal laborCost = laborCostPerSquareFoot.multiply(area).setScale(CENTS_SCALE, RoundingMode.HALF_UP);
+        BigDecimal tax = materialCost.add(laborCost).multiply(taxRate)
+                .divide(HUNDRED, CENTS_SCALE, RoundingMode.HALF_UP);
+        return new Price(materialCost, laborCost, tax);
+    }
+
+    /**
+     * Gets unscaled value of BigDecimal as long
+     * @param value BigDecimal
+     * @return unscaled value
+     * @throws ArithmeticException if unscaled value doesn't fit into long
+     */
+    private static long unscaled(BigDecimal value) {
+        if (value.precision() >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("Too many digits: " + value);
+        }
+        return value.unscaledValue().longValue();
+    }
+
+    /**
+     * Rescales fixed point value to cents rounding HALF_UP
+     * @param unscaled unscaled value
+     * @param scale scale of the value
+     * @return value in cents
+     * @throws ArithmeticException if result doesn't fit into long
+     */
+    private static long toCents(long unscaled, int scale) {
+        if (scale <= CENTS_SCALE) {
+            return Math.multiplyExact(unscaled, powerOfTen(CENTS_SCALE - scale));
+        }
+        long divisor = powerOfTen(scale - CENTS_SCALE);
+        long quotient = unscaled / divisor;
+        long remainder = Math.abs(unscaled % divisor);
+        // HALF_UP rounds ties away from zero
+        if (remainder >= divisor - remainder) {
+            quotient += unscaled < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+
+    /**
+     * @param exponent power of ten
+     * @return 10 to the power of exponent
+     * @throws ArithmeticException if power doesn't fit into long
+     */
+    private static long powerOfTen(int exponent) {
+        if (exponent >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("Scale is too large: " + exponent);
+        }
+        return POWERS_OF_TEN[exponent];
+    }
+
+    /**
+     * Price of one order, all costs have scale 2
+     */
+    public static final class Price {
+        private final BigDecimal materialCost;
+        private final BigDecimal laborCost;
+        private final BigDecimal tax;
+        private final BigDecimal total;
+
+        private Price(long materialCents, long laborCents, long taxCents) {
+            this.materialCost = BigDecimal.valueOf(materialCents, CENTS_SCALE);
+            this.laborCost = BigDecimal.valueOf(laborCents, CENTS_SCALE);
+            this.tax = BigDecimal.valueOf(taxCents, CENTS_SCALE);
+            this.total = BigDecimal.valueOf(materialCents + laborCents + taxCents, CENTS_SCALE);
+        }
+
+        private Price(BigDecimal materialCost, BigDecimal laborCost, BigDecimal tax) {
+            this.materialCost = materialCost;
+            this.laborCost = laborCost;
+            this.tax = tax;
+            this.total = materialCost.add(laborCost).add(tax);
+        }
+
+        public BigDecimal getMaterialCost() {
+            return materialCost;
+        }
+
+        public BigDecimal getLaborCost() {
+            return laborCost;
+        }
+
+        public BigDecimal getTax() {
+            return tax;
+        }
+
+        public BigDecimal getTotal() {
+            return total;
+        }
+    }
+
+    /**
+     * Costs of many orders in cents, index i belongs to the i-th priced order
+     */
+    public static final class Batch {
+        private final long[] materialCents;
+        private final long[] laborCents;
+        private final long[] taxCents;
+        private final long[] totalCents;
+
+        private Batch(int size) {
+            materialCents = new long[size];
+            laborCents = new long[size];
+            taxCents = new long[size];
+            totalCents = new long[size];
+        }
+
+        public int size() {
+            return totalCents.length;
+        }
+
+        public long getMaterialCents(int i) {
+            return materialCents[i];
+        }
+
+        public long getLaborCents(int i) {
+            return laborCents[i];
+        }
+
+        public long getTaxCents(int i) {
+            return taxCents[i];
+        }
+
+        public long getTotalCents(int i) {
+            return totalCents[i];
+        }
+
+        /**
+         * @return sum of totals of all orders in cents
+         * @throws ArithmeticException if sum doesn't fit into long
+         */
+        public long getSumOfTotalCents() {
+            long sum = 0;
+            for (long total : totalCents) {
+                sum = Math.addExact(sum, total);
+            }
+            return sum;
+        }
+    }
+}
@@ -14,6 +14,12 @@ public class Product {
         laborCostPerSquareFoot = new BigDecimal(productArray[2]);
     }
 
+    public Product(String productType, BigDecimal costPerSquareFoot, BigDecimal laborCostPerSquareFoot) {
+        this.productType = productType;
+        this.costPerSquareFoot = costPerSquareFoot;
+        this.laborCostPerSquareFoot = laborCostPerSquareFoot;
+    }
+
     public String getProductType() {
         return productType;
     }
@@ -0,0 +1,61 @@
+package flooring.model;
+
+public class RestoreReport {
+
+    private final int fileCount;
+    private final long orderCount;
+    private final long byteCount;
+    private final int maxOrderNumber;
+    private final long elapsedNanos;
+
+    /**
+     * @param fileCount number of written day files
+     * @param orderCount number of restored orders
+     * @param byteCount size of the backup file
+     * @param maxOrderNumber the greatest restored orderNumber, 0 if nothing was restored
+     * @param elapsedNanos duration of the restore
+     */
+    public RestoreReport(int fileCount, long orderCount, long byteCount, int maxOrderNumber, long elapsedNanos) {
+        this.fileCount = fileCount;
+        this.orderCount = orderCount;
+        this.byteCount = byteCount;
+        this.maxOrderNumber = maxOrderNumber;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    public int getMaxOrderNumber() {
+        return maxOrderNumber;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Calculates restore throughput in megabytes of read data per second
+     * @return megabytes per second
+     */
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : byteCount / (1024.0 * 1024.0) / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Calculates restore throughput in orders per second
+     * @return orders per second
+     */
+    public double getOrdersPerSecond() {
+        return elapsedNanos == 0 ? 0 : orderCount / (elapsedNanos / 1e9);
+    }
+}
@@ -14,6 +14,12 @@ public class Tax {
         taxRate = new BigDecimal(taxArray[2]);
     }
 
+    public Tax(String stateAbbreviation, String stateName, BigDecimal taxRate) {
+        this.stateAbbreviation = stateAbbreviation;
+        this.stateName = stateName;
+        this.taxRate = taxRate;
+    }
+
     public String getStateName() {
         return stateName;
     }
@@ -4,19 +4,28 @@ import flooring.dao.FlooringMasteryOrderDao;
 import flooring.dao.FlooringMasteryPersistenceException;
 import flooring.dao.FlooringMasteryProductDao;
 import flooring.dao.FlooringMasteryTaxDao;
+import flooring.model.ExportReport;
+import flooring.model.ImportReport;
 import flooring.model.Order;
+import flooring.model.OrderFilter;
 import flooring.model.Product;
+import flooring.model.RestoreReport;
 import flooring.model.Tax;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 @Component
 public class FlooringMasterServiceLayerImpl implements FlooringMasteryServiceLayer {
@@ -28,21 +37,37 @@ public class FlooringMasterServiceLayerImpl implements FlooringMasteryServiceLay
     @Autowired
     private FlooringMasteryOrderDao orderDao;
 
-    private int lastOrderNumber;
+    // Block of leased orderNumbers, numbers are taken from it without locking
+    private final AtomicReference<OrderNumberBlock> orderNumbers =
+            new AtomicReference<>(new OrderNumberBlock(0, 0));
+    private final int ORDER_NUMBER_BLOCK = 100;
+    private final int IMPORT_VALIDATORS = Runtime.getRuntime().availableProcessors();
+    // taxes and products are loaded by the first loadData call
+    private volatile boolean catalogsLoaded;
+    private final BigDecimal MIN_AREA = new BigDecimal("100");
     private final int SCALE = 2;
     private final RoundingMode MODE = RoundingMode.HALF_UP;
 
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM-dd-yyyy");
 
     /**
-     * Loads taxes, products and lastOrderNumber
+     * Loads taxes and products on the first call, later calls return at once,
+     * so callers invoke it right before catalogs are needed instead of at startup.
+     * OrderNumbers are leased on the first saved order
      * @throws FlooringMasteryPersistenceException if loading fails
      */
     @Override
     public void loadData() throws FlooringMasteryPersistenceException {
-        taxDao.loadTaxes();
-        productDao.loadProducts();
-        loadLastOrderNumber();
+        if (catalogsLoaded) {
+            return;
+        }
+        synchronized (this) {
+            if (!catalogsLoaded) {
+                taxDao.loadTaxes();
+                productDao.loadProducts();
+                catalogsLoaded = true;
+            }
+        }
     }
 
     /**
@@ -112,6 +137,26 @@ public class FlooringMasterServiceLayerImpl implements FlooringMasteryServiceLay
         return product;
     }
 
+    /**
+     * Validates that given String is a number not less than MIN_AREA
+     * @param area String supposed to be area
+     * @return area as BigDecimal with SCALE digits after the point
+     * @throws InvalidInputException if validation fails
+     */
+    @Override
+    public BigDecimal validateArea(String area) throws InvalidInputException {
+        BigDecimal value;
+        try {
+            value = convertToBigDecimal(area.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidInputException("Area should be a number");
+        }
+        if (value.compareTo(MIN_AREA) < 0) {
+            throw new InvalidInputException("Minimum order size is " + MIN_AREA + " sq ft");
+        }
+        return value;
+    }
+
     /**
      * Creates Order object
      * @param date order date as LocalDate
@@ -138,9 +183,50 @@ public class FlooringMasterServiceLayerImpl implements FlooringMasteryServiceLay
      */
     @Override
     public void saveOrder(Order order) throws FlooringMasteryPersistenceException {
+        assignOrderNumber(order);
+        orderDao.uploadOrder(order);
+    }
+
+    /**
+     * Takes orderNumber from the leased block and sets it to given order.
+     * Numbers of orders which are never saved are skipped
+     * @param order Order object without orderNumber
+     * @return generated orderNumber
+     * @throws FlooringMasteryPersistenceException if leasing of the next block fails
+     */
+    @Override
+    public int assignOrderNumber(Order order) throws FlooringMasteryPersistenceException {
         int orderNumber = generateOrderNumber();
         order.setOrderNumber(orderNumber);
-        orderDao.uploadOrder(order);
+        return orderNumber;
+    }
+
+    /**
+     * Loads catalogs and runs FlooringMasteryOrderImporter with IMPORT_VALIDATORS validating threads.
+     * Imported orders are numbered with their own leases of orderDao
+     * @param source CSV file with orders, the first row may be a header
+     * @param rejected file for the rejection report with line numbers and errors of rejected rows
+     * @return ImportReport with import statistics
+     * @throws FlooringMasteryPersistenceException if files cannot be read or written or orders cannot be saved
+     */
+    @Override
+    public ImportReport importOrders(Path source, Path rejected) throws FlooringMasteryPersistenceException {
+        loadData();
+        return new FlooringMasteryOrderImporter(this, orderDao, IMPORT_VALIDATORS).importOrders(source, rejected);
+    }
+
+    /**
+     * Modifies orders for given date through orderDao, which loads, changes and writes
+     * them under the lock of the date, so concurrent changes of the date are not lost
+     * @param date LocalDate of the orders
+     * @param change gets modifiable Map ordered by orderNumber and returns true if orders should be saved
+     * @return true if orders were saved
+     * @throws FlooringMasteryPersistenceException if orders cannot be loaded or saved
+     */
+    @Override
+    public boolean modifyOrders(LocalDate date, Predicate<Map<Integer, Order>> change)
+            throws FlooringMasteryPersistenceException {
+        return orderDao.modifyOrders(date, change);
     }
 
     /**
@@ -196,6 +282,50 @@ public class FlooringMasterServiceLayerImpl implements FlooringMasteryServiceLay
         return orderMap.values();
     }
 
+    /**
+     * Validates the range and gets orders of all its dates
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @return lazy Stream of orders ordered by date and orderNumber
+     * @throws InvalidInputException if from is after to
+     * @throws FlooringMasteryPersistenceException if orders cannot be loaded
+     */
+    @Override
+    public Stream<Order> getOrdersBetween(LocalDate from, LocalDate to)
+            throws InvalidInputException, FlooringMasteryPersistenceException {
+        validateRange(from, to);
+        return orderDao.getOrdersBetween(from, to);
+    }
+
+    /**
+     * Validates the range and searches orders of all its dates which match the filter
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @param filter criteria of the orders
+     * @return lazy Stream of matching orders ordered by date and orderNumber
+     * @throws InvalidInputException if from is after to
+     * @throws FlooringMasteryPersistenceException if orders cannot be loaded
+     */
+    @Override
+    public Stream<Order> scanOrders(LocalDate from, LocalDate to, OrderFilter filter)
+            throws InvalidInputException, FlooringMasteryPersistenceException {
+        validateRange(from, to);
+        return orderDao.scanOrders(from, to, filter);
+    }
+
+    /**
+     * Checks that the range isn't empty
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @throws InvalidInputException if from is after to
+     */
+    private void validateRange(LocalDate from, LocalDate to) throws InvalidInputException {
+        if (from.isAfter(to)) {
+            throw new InvalidInputException("Start date " + from.format(formatter)
+                    + " should not be after end date " + to.format(formatter));
+        }
+    }
+
     /**
      * Searches order for given date and orderNumber
      * @param date LocalDate to search order
@@ -218,6 +348,26 @@ public class FlooringMasterServiceLayerImpl implements FlooringMasteryServiceLay
         return orderMap;
     }
 
+    /**
+     * Searches order by orderNumber through the order index of orderDao
+     * @param number orderNumber to search order
+     * @return Order object
+     * @throws ItemNotFoundException if order with given number doesn't exist or cannot be loaded
+     */
+    @Override
+    public Order findOrder(int number) throws ItemNotFoundException {
+        Order order;
+        try {
+            order = orderDao.findOrder(number);
+        } catch (FlooringMasteryPersistenceException e) {
+            throw new ItemNotFoundException("Cannot load order # " + number);
+        }
+        if (order == null) {
+            throw new ItemNotFoundException("Order # " + number + " doesn't exist");
+        }
+        return order;
+    }
+
     /**
      * Modifies order's attributes without persistent saving
      * @param order Order object to modify
@@ -239,16 +389,38 @@ public class FlooringMasterServiceLayerImpl implements FlooringMasteryServiceLay
 
     /**
      * Exports all existing orders from one persistent storage to another
+     * @return ExportReport with export statistics
      * @throws FlooringMasteryPersistenceException when export fails
      */
     @Override
-    public void exportOrders() throws FlooringMasteryPersistenceException {
-        orderDao.exportOrders();
+    public ExportReport exportOrders() throws FlooringMasteryPersistenceException {
+        return orderDao.exportOrders();
+    }
+
+    /**
+     * Exports all existing orders, reprocessing only orders of dates changed since the previous export
+     * @return ExportReport with export statistics
+     * @throws FlooringMasteryPersistenceException when export fails
+     */
+    @Override
+    public ExportReport exportChangedOrders() throws FlooringMasteryPersistenceException {
+        return orderDao.exportChangedOrders();
+    }
+
+    /**
+     * Restores orders from the export through orderDao. OrderNumbers leased before
+     * stay valid, restore never moves the stored orderNumber back
+     * @return RestoreReport with restore statistics
+     * @throws FlooringMasteryPersistenceException when restore fails
+     */
+    @Override
+    public RestoreReport restoreOrders() throws FlooringMasteryPersistenceException {
+        return orderDao.restoreOrders();
     }
 
     /**
      * Deletes order for given date and orderNumber.
-     * Update orders for given date accordingly
+     * Only the record of the deleted order is changed in persistent storage
      * @param orderMap Map with orderNumbers as key and Order objects for given date as values
      * @param number int orderNumber to delete order
      * @param date LocalDate to delete order
@@ -257,11 +429,12 @@ public class FlooringMasterServiceLayerImpl implements FlooringMasteryServiceLay
     @Override
     public void deleteOrder(Map<Integer, Order> orderMap, int number, LocalDate date) throws FlooringMasteryPersistenceException {
         orderMap.remove(number);
-        orderDao.uploadModifiedOrders(orderMap.values(), date);
+        orderDao.removeOrder(date, number);
     }
 
     /**
      * Persistently edits order for given date and orderNumber with given Order object.
+     * Only the record of the edited order is changed in persistent storage
      * @param orderMap Map with orderNumbers as keys and Order objects as value
      * @param number int orderNumber to edit
      * @param order edited Order object to save
@@ -271,30 +444,58 @@ public class FlooringMasterServiceLayerImpl implements FlooringMasteryServiceLay
     @Override
     public void editOrder(Map<Integer, Order> orderMap, int number, Order order, LocalDate date) throws FlooringMasteryPersistenceException {
         orderMap.put(number, order);
-        orderDao.uploadModifiedOrders(orderMap.values(), date);
+        orderDao.updateOrder(order);
     }
 
     /**
-     * Gives lastOrderNumber and increments it
-     * @return lastOrderNumber
+     * Gives next orderNumber from the leased block. Numbers inside the block are
+     * taken with one atomic increment; when the block runs out, one thread leases
+     * the next block through orderDao while others wait for it
+     * @return unique orderNumber
+     * @throws FlooringMasteryPersistenceException if leasing of the next block fails
      */
-    private int generateOrderNumber() {
-        return lastOrderNumber++;
+    private int generateOrderNumber() throws FlooringMasteryPersistenceException {
+        while (true) {
+            OrderNumberBlock block = orderNumbers.get();
+            int number = block.next.getAndIncrement();
+            if (number < block.end) {
+                return number;
+            }
+            synchronized (orderNumbers) {
+                if (orderNumbers.get() == block) {
+                    int first = orderDao.leaseOrderNumbers(ORDER_NUMBER_BLOCK);
+                    orderNumbers.set(new OrderNumberBlock(first, first + ORDER_NUMBER_BLOCK));
+                }
+            }
+        }
     }
 
     /**
-     * Set lastOrderNumber to loaded
+     * Returns unused numbers of the leased block to persistent storage through orderDao
+     * @throws FlooringMasteryPersistenceException if uploading fails
      */
-    private void loadLastOrderNumber() {
-        lastOrderNumber = orderDao.loadOrderNumber();
+    public void uploadLastOrderNumber() throws FlooringMasteryPersistenceException {
+        synchronized (orderNumbers) {
+            OrderNumberBlock block = orderNumbers.get();
+            // take all remaining numbers at once, so nobody can get them after release
+            int next = block.next.getAndSet(block.end);
+            if (next < block.end) {
+                orderDao.releaseOrderNumbers(next, block.end);
+            }
+        }
     }
 
     /**
-     * Upload lastOrderNumber to persistent storage through orderDao
-     * @throws FlooringMasteryPersistenceException if uploading fails
+     * Leased orderNumbers from next (inclusive) to end (exclusive)
      */
-    public void uploadLastOrderNumber() throws FlooringMasteryPersistenceException {
-        orderDao.uploadOrderNumber(lastOrderNumber);
+    private static class OrderNumberBlock {
+        private final AtomicInteger next;
+        private final int end;
+
+        private OrderNumberBlock(int next, int end) {
+            this.next = new AtomicInteger(next);
+            this.end = end;
+        }
     }
 
 }
@@ -0,0 +1,61 @@
+package flooring.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Comma separated lines of batch and import files. Fields containing commas
+ * or double quotes are put in double quotes, quotes inside them are doubled
+ */
+public class FlooringMasteryCsv {
+
+    private FlooringMasteryCsv() {
+    }
+
+    /**
+     * Splits line to comma separated fields. Commas and doubled quotes
+     * inside double quotes belong to the field
+     * @param line line of the file
+     * @return trimmed fields
+     */
+    public static String[] splitFields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+     * Puts field in double quotes if it contains commas, quotes or line separators
+     * @param field text of the field
+     * @return field ready to be joined with commas
+     */
+    public static String quote(String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0
+                && field.indexOf('\r') < 0) {
+            return field;
+        }
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+}
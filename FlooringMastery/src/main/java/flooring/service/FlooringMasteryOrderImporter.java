@@ -0,0 +1,319 @@
+package flooring.service;
+
+import flooring.dao.FlooringMasteryOrderDao;
+import flooring.dao.FlooringMasteryPersistenceException;
+import flooring.model.ImportReport;
+import flooring.model.Order;
+import flooring.model.Product;
+import flooring.model.Tax;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Staged import of orders from CSV rows OrderDate,CustomerName,State,ProductType,Area
+ * with dates in the format MM-dd-yyyy. The first row is skipped if it is a header.
+ * <pre>
+ * reader --row batches--> validators --order batches--> writer
+ * </pre>
+ * The reader cuts the file into batches of ROWS_PER_BATCH rows. Validators parse, validate
+ * and price rows in parallel. The writer numbers orders, collects them in per-date buffers
+ * and appends a buffer to its day file with one write when it reaches DATE_BUFFER_ORDERS,
+ * or, when all buffers together hold more than MAX_BUFFERED_ORDERS, the largest buffers.
+ * Queues between stages are bounded, so a slow stage holds up the previous ones and memory
+ * doesn't depend on the size of the file. Rejected rows are written to the rejection report
+ * with their line numbers and errors
+ */
+class FlooringMasteryOrderImporter {
+
+    private final int ROWS_PER_BATCH = 1000;
+    private final int QUEUED_BATCHES_PER_VALIDATOR = 2;
+    private final int DATE_BUFFER_ORDERS = 10000;
+    private final int MAX_BUFFERED_ORDERS = 100000;
+    private final String HEADER = "OrderDate";
+    private final String REJECTION_HEADER = "Line,Error,Row";
+
+    // batch after the last one, each validator gets its own
+    private static final RowBatch END_OF_ROWS = new RowBatch(0, Collections.emptyList());
+    private static final OrderBatch END_OF_ORDERS = new OrderBatch();
+
+    private final FlooringMasteryServiceLayer service;
+    private final FlooringMasteryOrderDao orderDao;
+    private final int validators;
+
+    /**
+     * @param service service to validate and create orders, catalogs should be loaded
+     * @param orderDao DAO to lease orderNumbers and upload orders
+     * @param validators number of validating threads
+     */
+    FlooringMasteryOrderImporter(FlooringMasteryServiceLayer service, FlooringMasteryOrderDao orderDao,
+                                 int validators) {
+        this.service = service;
+        this.orderDao = orderDao;
+        this.validators = Math.max(1, validators);
+    }
+
+    /**
+     * Imports all rows of the source file. The writer runs in the calling thread
+     * @param source CSV file with orders
+     * @param rejected file for the rejection report
+     * @return ImportReport with import statistics
+     * @throws FlooringMasteryPersistenceException if files cannot be read or written or orders cannot be saved.
+     * Orders written before the failure stay saved
+     */
+    ImportReport importOrders(Path source, Path rejected) throws FlooringMasteryPersistenceException {
+        long start = System.nanoTime();
+        BlockingQueue<RowBatch> rows = new ArrayBlockingQueue<>(validators * QUEUED_BATCHES_PER_VALIDATOR);
+        BlockingQueue<OrderBatch> orders = new ArrayBlockingQueue<>(validators * QUEUED_BATCHES_PER_VALIDATOR);
+        ExecutorService pool = Executors.newFixedThreadPool(validators + 1, runnable -> {
+            Thread thread = new Thread(runnable, "order-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (BufferedWriter rejections = Files.newBufferedWriter(rejected)) {
+            Future<?> reader = pool.submit(() -> {
+                readRows(source, rows);
+                return null;
+            });
+            List<Future<?>> validations = new ArrayList<>();
+            for (int i = 0; i < validators; i++) {
+                validations.add(pool.submit(() -> {
+                    validateRows(rows, orders);
+                    return null;
+                }));
+            }
+            rejections.write(REJECTION_HEADER);
+            rejections.newLine();
+            DateBuffers buffers = new DateBuffers();
+            long rejectedCount = 0;
+            int finished = 0;
+            while (finished < validators) {
+                OrderBatch batch = orders.take();
+                if (batch == END_OF_ORDERS) {
+                    finished++;
+                    continue;
+                }
+                for (String rejection : batch.rejections) {
+                    rejections.write(rejection);
+                    rejections.newLine();
+                }
+                rejectedCount += batch.rejections.size();
+                buffers.addAll(batch.orders);
+            }
+            buffers.flushAll();
+            // validators are done, so the reader either finished or is stuck with nobody to take its rows
+            pool.shutdownNow();
+            for (Future<?> validation : validations) {
+                validation.get();
+            }
+            reader.get();
+            return new ImportReport(buffers.importedCount, rejectedCount, buffers.writeCount,
+                    System.nanoTime() - start);
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException("Cannot write rejected rows to " + rejected);
+        } catch (ExecutionException e) {
+            throw new FlooringMasteryPersistenceException("Cannot import orders from " + source + ": "
+                    + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FlooringMasteryPersistenceException("Import of " + source + " was interrupted");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Reader stage: puts batches of rows to the queue, then END_OF_ROWS for every validator
+     * @param source CSV file with orders
+     * @param rows queue of the validators
+     * @throws IOException if file cannot be read
+     * @throws InterruptedException if import was stopped
+     */
+    private void readRows(Path source, BlockingQueue<RowBatch> rows) throws IOException, InterruptedException {
+        try (BufferedReader reader = Files.newBufferedReader(source)) {
+            List<String> lines = new ArrayList<>(ROWS_PER_BATCH);
+            long lineNumber = 0;
+            long firstLine = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && line.regionMatches(true, 0, HEADER, 0, HEADER.length())) {
+                    firstLine = 2;
+                    continue;
+                }
+                lines.add(line);
+                if (lines.size() == ROWS_PER_BATCH) {
+                    rows.put(new RowBatch(firstLine, lines));
+                    lines = new ArrayList<>(ROWS_PER_BATCH);
+                    firstLine = lineNumber + 1;
+                }
+            }
+            if (!lines.isEmpty()) {
+                rows.put(new RowBatch(firstLine, lines));
+            }
+        } finally {
+            for (int i = 0; i < validators; i++) {
+                rows.put(END_OF_ROWS);
+            }
+        }
+    }
+
+    /**
+     * Validator stage: turns batches of rows to batches of priced orders and rejections
+     * until END_OF_ROWS, then puts END_OF_ORDERS
+     * @param rows queue of the validators
+     * @param orders queue of the writer
+     * @throws InterruptedException if import was stopped
+     */
+    private void validateRows(BlockingQueue<RowBatch> rows, BlockingQueue<OrderBatch> orders)
+            throws InterruptedException {
+        try {
+            RowBatch rowBatch;
+            while ((rowBatch = rows.take()) != END_OF_ROWS) {
+                OrderBatch orderBatch = new OrderBatch();
+                long lineNumber = rowBatch.firstLine;
+                for (String line : rowBatch.lines) {
+                    if (!line.trim().isEmpty()) {
+                        try {
+                            orderBatch.orders.add(toOrder(line));
+                        } catch (InvalidInputException e) {
+                            orderBatch.rejections.add(lineNumber + "," + FlooringMasteryCsv.quote(e.getMessage())
+                                    + "," + FlooringMasteryCsv.quote(line));
+                        }
+                    }
+                    lineNumber++;
+                }
+                orders.put(orderBatch);
+            }
+        } finally {
+            orders.put(END_OF_ORDERS);
+        }
+    }
+
+    /**
+     * Validates fields of the row and creates priced Order object without orderNumber
+     * @param line row of the CSV file
+     * @return Order object
+     * @throws InvalidInputException if any field is not valid
+     */
+    private Order toOrder(String line) throws InvalidInputException {
+        String[] fields = FlooringMasteryCsv.splitFields(line);
+        if (fields.length != 5) {
+            throw new InvalidInputException("Row should have 5 fields, found " + fields.length);
+        }
+        LocalDate date = service.parseDate(fields[0]);
+        service.validateName(fields[1]);
+        Tax tax = service.validateState(fields[2]);
+        Product product = service.validateType(fields[3]);
+        BigDecimal area = service.validateArea(fields[4]);
+        Order order = service.createOrder(date, fields[1], tax, product, area);
+        // price is calculated once and kept by the order, so the writer doesn't spend time on it
+        order.getTotal();
+        return order;
+    }
+
+    /**
+     * Writer stage: orders waiting for upload, grouped by date
+     */
+    private class DateBuffers {
+        private final Map<LocalDate, List<Order>> buffers = new HashMap<>();
+        private int bufferedCount;
+        private long importedCount;
+        private int writeCount;
+
+        /**
+         * Numbers orders with one lease and adds them to the buffers of their dates,
+         * uploads full buffers
+         * @param orders validated orders
+         * @throws FlooringMasteryPersistenceException if leasing or uploading fails
+         */
+        private void addAll(List<Order> orders) throws FlooringMasteryPersistenceException {
+            if (orders.isEmpty()) {
+                return;
+            }
+            int orderNumber = orderDao.leaseOrderNumbers(orders.size());
+            for (Order order : orders) {
+                order.setOrderNumber(orderNumber++);
+                List<Order> buffer = buffers.computeIfAbsent(order.getDate(), date -> new ArrayList<>());
+                buffer.add(order);
+                bufferedCount++;
+                if (buffer.size() == DATE_BUFFER_ORDERS) {
+                    flush(order.getDate());
+                }
+            }
+            if (bufferedCount > MAX_BUFFERED_ORDERS) {
+                flushLargest();
+            }
+        }
+
+        /**
+         * Uploads the largest buffers until at most half of MAX_BUFFERED_ORDERS orders are buffered
+         * @throws FlooringMasteryPersistenceException if uploading fails
+         */
+        private void flushLargest() throws FlooringMasteryPersistenceException {
+            List<Map.Entry<LocalDate, List<Order>>> entries = new ArrayList<>(buffers.entrySet());
+            entries.sort((first, second) -> second.getValue().size() - first.getValue().size());
+            for (Map.Entry<LocalDate, List<Order>> entry : entries) {
+                if (bufferedCount <= MAX_BUFFERED_ORDERS / 2) {
+                    return;
+                }
+                flush(entry.getKey());
+            }
+        }
+
+        /**
+         * Uploads all buffers
+         * @throws FlooringMasteryPersistenceException if uploading fails
+         */
+        private void flushAll() throws FlooringMasteryPersistenceException {
+            for (LocalDate date : new ArrayList<>(buffers.keySet())) {
+                flush(date);
+            }
+        }
+
+        private void flush(LocalDate date) throws FlooringMasteryPersistenceException {
+            List<Order> buffer = buffers.remove(date);
+            orderDao.uploadOrders(buffer, date);
+            bufferedCount -= buffer.size();
+            importedCount += buffer.size();
+            writeCount++;
+        }
+    }
+
+    /**
+     * Rows of the CSV file starting from line firstLine
+     */
+    private static class RowBatch {
+        private final long firstLine;
+        private final List<String> lines;
+
+        private RowBatch(long firstLine, List<String> lines) {
+            this.firstLine = firstLine;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * Valid orders and rejection report lines of one RowBatch
+     */
+    private static class OrderBatch {
+        private final List<Order> orders = new ArrayList<>();
+        private final List<String> rejections = new ArrayList<>();
+    }
+}
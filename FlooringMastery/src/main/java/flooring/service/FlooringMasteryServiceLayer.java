@@ -1,19 +1,27 @@
 package flooring.service;
 
 import flooring.dao.FlooringMasteryPersistenceException;
+import flooring.model.ExportReport;
+import flooring.model.ImportReport;
 import flooring.model.Order;
+import flooring.model.OrderFilter;
 import flooring.model.Product;
+import flooring.model.RestoreReport;
 import flooring.model.Tax;
 
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.Collection;
 import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 public interface FlooringMasteryServiceLayer {
 
     /**
-     * Loads all necessary data from persistent storage
+     * Loads taxes and products from persistent storage on the first call,
+     * later calls return at once
      * @throws FlooringMasteryPersistenceException if loading fails
      */
     public void loadData() throws FlooringMasteryPersistenceException;
@@ -49,6 +57,14 @@ public interface FlooringMasteryServiceLayer {
      */
     public Product validateType(String type) throws InvalidInputException;
 
+    /**
+     * Converts given String to area and validates it
+     * @param area String supposed to be area
+     * @return area as BigDecimal
+     * @throws InvalidInputException if given String is not a number or is less than minimum order size
+     */
+    public BigDecimal validateArea(String area) throws InvalidInputException;
+
     /**
      * Creates Order object
      * @param date order date as LocalDate
@@ -68,6 +84,36 @@ public interface FlooringMasteryServiceLayer {
      */
     public void saveOrder(Order order) throws FlooringMasteryPersistenceException;
 
+    /**
+     * Generates orderNumber and sets it to given order without saving the order
+     * @param order Order object without orderNumber
+     * @return generated orderNumber
+     * @throws FlooringMasteryPersistenceException if orderNumber cannot be generated
+     */
+    public int assignOrderNumber(Order order) throws FlooringMasteryPersistenceException;
+
+    /**
+     * Loads orders for given date, lets the change modify them and saves all of them
+     * if it returns true. Other changes of this date wait until the orders are saved
+     * @param date LocalDate of the orders
+     * @param change gets modifiable Map with orderNumbers as keys and Order objects as values,
+     * empty if there are no orders for this date, and returns true if orders should be saved
+     * @return true if orders were saved
+     * @throws FlooringMasteryPersistenceException if orders cannot be loaded or saved
+     */
+    public boolean modifyOrders(LocalDate date, Predicate<Map<Integer, Order>> change)
+            throws FlooringMasteryPersistenceException;
+
+    /**
+     * Imports orders from CSV file with rows OrderDate,CustomerName,State,ProductType,Area.
+     * Valid rows are saved as new orders, rejected rows are written to the rejection report
+     * @param source CSV file with orders, the first row may be a header
+     * @param rejected file for the rejection report with line numbers and errors of rejected rows
+     * @return ImportReport with import statistics
+     * @throws FlooringMasteryPersistenceException if files cannot be read or written or orders cannot be saved
+     */
+    public ImportReport importOrders(Path source, Path rejected) throws FlooringMasteryPersistenceException;
+
     /**
      * Gets collection of all available products
      * @return Collection of Product objects
@@ -104,6 +150,31 @@ public interface FlooringMasteryServiceLayer {
      */
     public Collection<Order> getOrders(LocalDate date) throws ItemNotFoundException;
 
+    /**
+     * Gets orders of all dates between from and to inclusive
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @return lazy Stream of orders ordered by date and orderNumber, should be closed
+     * if it is not consumed completely
+     * @throws InvalidInputException if from is after to
+     * @throws FlooringMasteryPersistenceException if orders cannot be loaded
+     */
+    public Stream<Order> getOrdersBetween(LocalDate from, LocalDate to)
+            throws InvalidInputException, FlooringMasteryPersistenceException;
+
+    /**
+     * Searches orders of all dates between from and to inclusive which match the filter
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @param filter criteria of the orders
+     * @return lazy Stream of matching orders ordered by date and orderNumber, should be closed
+     * if it is not consumed completely
+     * @throws InvalidInputException if from is after to
+     * @throws FlooringMasteryPersistenceException if orders cannot be loaded
+     */
+    public Stream<Order> scanOrders(LocalDate from, LocalDate to, OrderFilter filter)
+            throws InvalidInputException, FlooringMasteryPersistenceException;
+
     /**
      * Searches order for given date and orderNumber
      * @param date LocalDate to search order
@@ -113,6 +184,14 @@ public interface FlooringMasteryServiceLayer {
      */
     public Map<Integer, Order> getOrderMap(LocalDate date, int number) throws ItemNotFoundException;
 
+    /**
+     * Searches order by orderNumber without knowing its date
+     * @param number orderNumber to search order
+     * @return Order object
+     * @throws ItemNotFoundException if order with given number doesn't exist
+     */
+    public Order findOrder(int number) throws ItemNotFoundException;
+
     /**
      * Deletes order for given date and orderNumber.
      * Update orders for given date accordingly
@@ -145,12 +224,27 @@ public interface FlooringMasteryServiceLayer {
 
     /**
      * Exports all existing orders from one persistent storage to another
+     * @return ExportReport with export statistics
      * @throws FlooringMasteryPersistenceException when export fails
      */
-    public void exportOrders() throws FlooringMasteryPersistenceException;
+    public ExportReport exportOrders() throws FlooringMasteryPersistenceException;
+
+    /**
+     * Exports all existing orders, reprocessing only orders of dates changed since the previous export
+     * @return ExportReport with export statistics
+     * @throws FlooringMasteryPersistenceException when export fails
+     */
+    public ExportReport exportChangedOrders() throws FlooringMasteryPersistenceException;
+
+    /**
+     * Restores orders from the export, orders of exported dates are replaced
+     * @return RestoreReport with restore statistics
+     * @throws FlooringMasteryPersistenceException when restore fails
+     */
+    public RestoreReport restoreOrders() throws FlooringMasteryPersistenceException;
 
     /**
-     * Saves last orderNumber to persistent storage
+     * Returns unused leased orderNumbers to persistent storage
      * @throws FlooringMasteryPersistenceException if error during saving occurs
      */
     public void uploadLastOrderNumber() throws FlooringMasteryPersistenceException;
@@ -0,0 +1,164 @@
+package flooring.tools;
+
+import flooring.dao.FlooringMasteryOrderDao;
+import flooring.dao.FlooringMasteryOrderDaoBinaryImpl;
+import flooring.dao.FlooringMasteryOrderDaoFileImpl;
+import flooring.dao.FlooringMasteryPersistenceException;
+import flooring.model.Order;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Converts day files between the text format of FlooringMasteryOrderDaoFileImpl
+ * (Order_MMddyyyy.txt) and the binary columnar format of FlooringMasteryOrderDaoBinaryImpl
+ * (Order_MMddyyyy.bin) in the same directory. Orders are read through the DAO of one format
+ * and written through the DAO of the other, date by date, ordered by orderNumber.
+ * Should run while the application is stopped, so the journal of the text DAO is applied.
+ * Source day files are kept unless --delete is given
+ *
+ * Usage: java -cp FlooringMastery.jar flooring.tools.DayFileConverter --to=binary|text [--option=value ...]
+ */
+public class DayFileConverter {
+
+    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMddyyyy");
+
+    private final Path ordersDirectory;
+    private final FlooringMasteryOrderDao textDao;
+    private final FlooringMasteryOrderDao binaryDao;
+
+    /**
+     * @param ordersDirectory directory with day files
+     */
+    public DayFileConverter(String ordersDirectory) {
+        this.ordersDirectory = Paths.get(ordersDirectory);
+        // converter doesn't export or number orders, so these files are never touched
+        String backupFile = this.ordersDirectory.resolve("DataExport.txt").toString();
+        String numberFile = this.ordersDirectory.resolve("OrderNumber.txt").toString();
+        textDao = new FlooringMasteryOrderDaoFileImpl(ordersDirectory, backupFile, numberFile);
+        binaryDao = new FlooringMasteryOrderDaoBinaryImpl(ordersDirectory, backupFile, numberFile);
+    }
+
+    /**
+     * Converts all day files of one format to the other
+     * @param toBinary true to convert text day files to binary ones, false for the opposite
+     * @param deleteSource true to delete every source day file after its date is written
+     * @return Result with numbers of files, orders and bytes
+     * @throws FlooringMasteryPersistenceException if day files cannot be read or written
+     * @throws IOException if source day files cannot be measured or deleted
+     */
+    public Result convert(boolean toBinary, boolean deleteSource)
+            throws FlooringMasteryPersistenceException, IOException {
+        FlooringMasteryOrderDao source = toBinary ? textDao : binaryDao;
+        FlooringMasteryOrderDao target = toBinary ? binaryDao : textDao;
+        String sourceExtension = toBinary ? ".txt" : ".bin";
+        String targetExtension = toBinary ? ".bin" : ".txt";
+        Result result = new Result();
+        try (Stream<Order> orders = source.getOrdersBetween(LocalDate.MIN, LocalDate.MAX)) {
+            Iterator<Order> iterator = orders.iterator();
+            List<Order> dayOrders = new ArrayList<>();
+            LocalDate date = null;
+            while (iterator.hasNext() || !dayOrders.isEmpty()) {
+                Order order = iterator.hasNext() ? iterator.next() : null;
+                if (order != null && order.getDate().equals(date)) {
+                    dayOrders.add(order);
+                    continue;
+                }
+                if (date != null) {
+                    target.uploadModifiedOrders(dayOrders, date);
+                    Path sourceFile = dayFile(date, sourceExtension);
+                    result.fileCount++;
+                    result.orderCount += dayOrders.size();
+                    result.sourceBytes += Files.size(sourceFile);
+                    result.targetBytes += Files.size(dayFile(date, targetExtension));
+                    if (deleteSource) {
+                        Files.delete(sourceFile);
+                    }
+                    dayOrders.clear();
+                }
+                if (order != null) {
+                    date = order.getDate();
+                    dayOrders.add(order);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw new FlooringMasteryPersistenceException(e.getMessage());
+        }
+        return result;
+    }
+
+    private Path dayFile(LocalDate date, String extension) {
+        return ordersDirectory.resolve("Order_" + date.format(formatter) + extension);
+    }
+
+    /**
+     * Numbers of converted day files, orders and bytes
+     */
+    public static class Result {
+        private int fileCount;
+        private long orderCount;
+        private long sourceBytes;
+        private long targetBytes;
+
+        public int getFileCount() {
+            return fileCount;
+        }
+
+        public long getOrderCount() {
+            return orderCount;
+        }
+
+        public long getSourceBytes() {
+            return sourceBytes;
+        }
+
+        public long getTargetBytes() {
+            return targetBytes;
+        }
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        options.put("to", "");
+        options.put("orders", "Orders");
+        options.put("delete", "false");
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            String name = arg.startsWith("--") ? arg.substring(2, equals < 0 ? arg.length() : equals) : "";
+            if (!options.containsKey(name)) {
+                System.err.println("Unknown option " + arg + ", known options: " + options.keySet());
+                System.exit(2);
+            }
+            options.put(name, equals < 0 ? "true" : arg.substring(equals + 1));
+        }
+        String to = options.get("to");
+        if (!to.equals("binary") && !to.equals("text")) {
+            System.err.println("Option --to should be binary or text");
+            System.exit(2);
+        }
+        try {
+            long start = System.nanoTime();
+            Result result = new DayFileConverter(options.get("orders"))
+                    .convert(to.equals("binary"), Boolean.parseBoolean(options.get("delete")));
+            System.out.printf("Converted %d day files with %d orders to %s: %d bytes -> %d bytes (%.1f%%) in %.1f s%n",
+                    result.getFileCount(), result.getOrderCount(), to, result.getSourceBytes(),
+                    result.getTargetBytes(),
+                    result.getSourceBytes() == 0 ? 0 : 100.0 * result.getTargetBytes() / result.getSourceBytes(),
+                    (System.nanoTime() - start) / 1e9);
+        } catch (FlooringMasteryPersistenceException | IOException | RuntimeException e) {
+            System.err.println("Cannot convert day files: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
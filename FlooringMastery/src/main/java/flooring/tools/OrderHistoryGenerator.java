@@ -0,0 +1,412 @@
+package flooring.tools;
+
+import flooring.dao.FlooringMasteryRecordCodec;
+import flooring.model.Order;
+import flooring.model.Product;
+import flooring.model.Tax;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Generates synthetic order history in the format of FlooringMasteryOrderDaoFileImpl:
+ * one day file per date with the same header, orders numbered from 1 without gaps,
+ * and OrderNumber file with the next free number. Orders use all states and products
+ * of the catalogs. Volume is skewed towards weekends, spring and summer and random
+ * peak days, states and products are skewed by a Zipf-like distribution.
+ * Output depends only on the arguments, day files are generated in parallel
+ *
+ * Usage: java -cp FlooringMastery.jar flooring.tools.OrderHistoryGenerator [--option=value ...]
+ */
+public class OrderHistoryGenerator {
+
+    private final String HEADER = "OrderNumber::CustomerName::State::TaxRate::ProductType::" +
+            "Area::CostPerSquareFoot::LaborCostPerSquareFoot::MaterialCost::LaborCost::Tax::Total";
+
+    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMddyyyy");
+
+    // One day in PEAK_DAY_CHANCE is a peak day with PEAK_DAY_FACTOR times more orders
+    private static final double PEAK_DAY_CHANCE = 0.02;
+    private static final double PEAK_DAY_FACTOR = 4.0;
+    // Exponent of the Zipf-like popularity of states and products
+    private static final double POPULARITY_SKEW = 0.8;
+    // Salts keep random streams of day volumes and day orders apart
+    private static final long VOLUME_SALT = 0x5EEDL;
+    private static final long ORDER_SALT = 0x0DE5L;
+
+    private static final String[] FIRST_NAMES = {
+            "Ada", "Alan", "Grace", "Linus", "Margaret", "Dennis", "Barbara", "Ken", "Frances", "John",
+            "Radia", "Edsger", "Katherine", "Donald", "Hedy", "Niklaus"
+    };
+    private static final String[] LAST_NAMES = {
+            "Lovelace", "Turing", "Hopper", "Torvalds", "Hamilton", "Ritchie", "Liskov", "Thompson",
+            "Allen", "Backus", "Perlman", "Dijkstra", "Johnson", "Knuth", "Lamarr", "Wirth"
+    };
+    private static final String[] COMPANIES = {
+            "Acme, Inc.", "Tile Masters Co.", "Floors and More", "Wood Works, LLC", "Floor Depot 42"
+    };
+
+    private final Path ordersDirectory;
+    private final Path numberFile;
+    private final Path indexFile;
+    private final List<Tax> taxes;
+    private final List<Product> products;
+    private final FlooringMasteryRecordCodec codec = new FlooringMasteryRecordCodec();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean overwrite;
+
+    /**
+     * @param ordersDirectory directory for day files
+     * @param numberFile file to store the next orderNumber
+     * @param indexFile order index file which is removed to be rebuilt, may be null
+     * @param taxFile file with taxes
+     * @param productFile file with products
+     * @throws IOException if catalogs cannot be read
+     */
+    public OrderHistoryGenerator(String ordersDirectory, String numberFile, String indexFile,
+                                 String taxFile, String productFile) throws IOException {
+        this.ordersDirectory = Paths.get(ordersDirectory);
+        this.numberFile = Paths.get(numberFile);
+        this.indexFile = indexFile == null ? null : Paths.get(indexFile);
+        this.taxes = readCatalog(taxFile, codec::decodeTax);
+        this.products = readCatalog(productFile, codec::decodeProduct);
+        if (taxes.isEmpty() || products.isEmpty()) {
+            throw new IOException("Catalogs must have at least one state and one product");
+        }
+    }
+
+    /**
+     * @param threads number of threads which generate day files
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * @param overwrite true to remove existing day files, otherwise generation
+     *                  refuses to write into a directory which has day files
+     */
+    public void setOverwrite(boolean overwrite) {
+        this.overwrite = overwrite;
+    }
+
+    /**
+     * Generates day files for consecutive dates and writes the next orderNumber
+     * @param from date of the first day file
+     * @param days number of dates
+     * @param ordersPerDay average number of orders per date
+     * @param seed seed of all random choices
+     * @return number of generated orders
+     * @throws IOException if directory has day files or writing fails
+     */
+    public long generate(LocalDate from, int days, int ordersPerDay, long seed) throws IOException {
+        if (days < 1 || ordersPerDay < 1) {
+            throw new IllegalArgumentException("days and ordersPerDay must be positive");
+        }
+        prepareDirectory();
+        int[] counts = dayVolumes(from, days, ordersPerDay, seed);
+        long[] firstNumbers = new long[days];
+        long total = 0;
+        for (int day = 0; day < days; day++) {
+            firstNumbers[day] = total + 1;
+            total += counts[day];
+        }
+        if (total >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many orders for int orderNumbers: " + total);
+        }
+        double[] statePopularity = popularity(taxes.size(), new SplittableRandom(seed));
+        double[] productPopularity = popularity(products.size(), new SplittableRandom(~seed));
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>(days);
+            for (int day = 0; day < days; day++) {
+                LocalDate date = from.plusDays(day);
+                int count = counts[day];
+                int firstNumber = (int) firstNumbers[day];
+                results.add(pool.submit(() -> {
+                    writeDayFile(date, firstNumber, count, seed, statePopularity, productPopularity);
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Generation was interrupted");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException
+                    ? (IOException) e.getCause() : new IOException("Generation failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (numberFile.getParent() != null) {
+            Files.createDirectories(numberFile.getParent());
+        }
+        Files.write(numberFile, ((total + 1) + "\n").getBytes(StandardCharsets.US_ASCII));
+        if (indexFile != null) {
+            // index of the previous history would point to records which don't exist anymore
+            Files.deleteIfExists(indexFile);
+        }
+        return total;
+    }
+
+    /**
+     * Creates orders directory, removes its day files if overwrite is set
+     * @throws IOException if directory has day files and overwrite is not set
+     */
+    private void prepareDirectory() throws IOException {
+        Files.createDirectories(ordersDirectory);
+        try (DirectoryStream<Path> dayFiles = Files.newDirectoryStream(ordersDirectory, "Order_*.txt")) {
+            for (Path dayFile : dayFiles) {
+                if (!overwrite) {
+                    throw new IOException(ordersDirectory + " already has day files, use overwrite");
+                }
+                Files.delete(dayFile);
+            }
+        }
+    }
+
+    /**
+     * Calculates number of orders of every date. Weight of a date depends on the day
+     * of week, season and peak days; weights are scaled so that the average is ordersPerDay
+     * @param from date of the first day file
+     * @param days number of dates
+     * @param ordersPerDay average number of orders per date
+     * @param seed seed of all random choices
+     * @return number of orders of every date
+     */
+    private int[] dayVolumes(LocalDate from, int days, int ordersPerDay, long seed) {
+        double[] weights = new double[days];
+        double sum = 0;
+        for (int day = 0; day < days; day++) {
+            LocalDate date = from.plusDays(day);
+            SplittableRandom random = dayRandom(seed, date, VOLUME_SALT);
+            double weight = weekdayFactor(date.getDayOfWeek())
+                    * (1 + 0.35 * Math.sin(2 * Math.PI * (date.getDayOfYear() - 80) / 365.0))
+                    * (0.85 + 0.3 * random.nextDouble());
+            if (random.nextDouble() < PEAK_DAY_CHANCE) {
+                weight *= PEAK_DAY_FACTOR;
+            }
+            weights[day] = weight;
+            sum += weight;
+        }
+        int[] counts = new int[days];
+        double scale = (double) ordersPerDay * days / sum;
+        for (int day = 0; day < days; day++) {
+            counts[day] = Math.max(1, (int) Math.round(weights[day] * scale));
+        }
+        return counts;
+    }
+
+    /**
+     * @param dayOfWeek DayOfWeek
+     * @return relative number of orders on this day of week
+     */
+    private static double weekdayFactor(DayOfWeek dayOfWeek) {
+        switch (dayOfWeek) {
+            case SATURDAY:
+                return 1.6;
+            case SUNDAY:
+                return 0.6;
+            case FRIDAY:
+                return 1.1;
+            default:
+                return 0.9;
+        }
+    }
+
+    /**
+     * Writes day file with count orders numbered from firstNumber
+     * @param date LocalDate of the day file
+     * @param firstNumber orderNumber of the first order
+     * @param count number of orders
+     * @param seed seed of all random choices
+     * @param statePopularity cumulative popularity of taxes
+     * @param productPopularity cumulative popularity of products
+     * @throws IOException when writing fails
+     */
+    private void writeDayFile(LocalDate date, int firstNumber, int count, long seed,
+                              double[] statePopularity, double[] productPopularity) throws IOException {
+        SplittableRandom random = dayRandom(seed, date, ORDER_SALT);
+        StringBuilder content = new StringBuilder(HEADER.length() + count * 128);
+        content.append(HEADER).append('\n');
+        for (int i = 0; i < count; i++) {
+            Tax tax = taxes.get(pick(statePopularity, random));
+            Product product = products.get(pick(productPopularity, random));
+            Order order = new Order(date, customerName(random), tax.getStateName(), tax.getTaxRate(),
+                    product.getProductType(), area(random), product.getCostPerSquareFoot(),
+                    product.getLaborCostPerSquareFoot());
+            order.setOrderNumber(firstNumber + i);
+            codec.appendOrder(order, content).append('\n');
+        }
+        Files.write(ordersDirectory.resolve("Order_" + date.format(formatter) + ".txt"),
+                content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param random SplittableRandom of the day
+     * @return person name, or company name in one of five cases
+     */
+    private static String customerName(SplittableRandom random) {
+        if (random.nextInt(5) == 0) {
+            return COMPANIES[random.nextInt(COMPANIES.length)];
+        }
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    /**
+     * @param random SplittableRandom of the day
+     * @return area of at least 100 square feet with a long tail of large orders
+     */
+    private static BigDecimal area(SplittableRandom random) {
+        // exponential tail with mean of 250 extra square feet, capped at 10000
+        double extra = Math.min(-250 * Math.log(1 - random.nextDouble()), 9900);
+        return BigDecimal.valueOf(10_000 + Math.round(extra * 100), 2);
+    }
+
+    /**
+     * Gets cumulative Zipf-like popularity of items in an order shuffled by random,
+     * so the most popular item depends on the seed
+     * @param size number of items
+     * @param random SplittableRandom to shuffle ranks
+     * @return cumulative probabilities, the last one is 1
+     */
+    private static double[] popularity(int size, SplittableRandom random) {
+        int[] ranks = new int[size];
+        for (int i = 0; i < size; i++) {
+            ranks[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int rank = ranks[i];
+            ranks[i] = ranks[j];
+            ranks[j] = rank;
+        }
+        double[] cumulative = new double[size];
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += 1 / Math.pow(ranks[i] + 1, POPULARITY_SKEW);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= sum;
+        }
+        cumulative[size - 1] = 1;
+        return cumulative;
+    }
+
+    /**
+     * @param cumulative cumulative probabilities
+     * @param random SplittableRandom to use
+     * @return index of the picked item
+     */
+    private static int pick(double[] cumulative, SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1);
+    }
+
+    /**
+     * Gets random stream of one date, it doesn't depend on other dates or threads
+     * @param seed seed of all random choices
+     * @param date LocalDate
+     * @param salt VOLUME_SALT or ORDER_SALT
+     * @return SplittableRandom of the date
+     */
+    private static SplittableRandom dayRandom(long seed, LocalDate date, long salt) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + date.toEpochDay() * 0xBF58476D1CE4E5B9L + salt);
+    }
+
+    /**
+     * Reads catalog file skipping its header
+     * @param file path to the catalog
+     * @param decoder decodes one record
+     * @return List of items in the order of the file
+     * @throws IOException when reading fails
+     */
+    private static <T> List<T> readCatalog(String file, Function<String, T> decoder)
+            throws IOException {
+        List<T> items = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            // read the header
+            in.readLine();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    items.add(decoder.apply(line));
+                }
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Options: --orders, --number-file, --index-file, --taxes, --products, --from (yyyy-MM-dd),
+     * --days, --orders-per-day, --seed, --threads and --overwrite
+     * @param args options as --name=value
+     */
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        options.put("orders", "Orders");
+        options.put("number-file", "Data/OrderNumber.txt");
+        options.put("index-file", "Data/OrderIndex.txt");
+        options.put("taxes", "Data/Taxes.txt");
+        options.put("products", "Data/Products.txt");
+        options.put("from", LocalDate.now().minusYears(10).toString());
+        options.put("days", "3653");
+        options.put("orders-per-day", "1000");
+        options.put("seed", "1");
+        options.put("threads", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        options.put("overwrite", "false");
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            String name = arg.startsWith("--") ? arg.substring(2, equals < 0 ? arg.length() : equals) : "";
+            if (!options.containsKey(name)) {
+                System.err.println("Unknown option " + arg + ", known options: " + options.keySet());
+                System.exit(2);
+            }
+            options.put(name, equals < 0 ? "true" : arg.substring(equals + 1));
+        }
+        try {
+            OrderHistoryGenerator generator = new OrderHistoryGenerator(options.get("orders"),
+                    options.get("number-file"), options.get("index-file"),
+                    options.get("taxes"), options.get("products"));
+            generator.setThreads(Integer.parseInt(options.get("threads")));
+            generator.setOverwrite(Boolean.parseBoolean(options.get("overwrite")));
+            long start = System.nanoTime();
+            long orders = generator.generate(LocalDate.parse(options.get("from")),
+                    Integer.parseInt(options.get("days")), Integer.parseInt(options.get("orders-per-day")),
+                    Long.parseLong(options.get("seed")));
+            System.out.printf("Generated %d orders in %s in %.1f s%n", orders, options.get("orders"),
+                    (System.nanoTime() - start) / 1e9);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Cannot generate orders: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
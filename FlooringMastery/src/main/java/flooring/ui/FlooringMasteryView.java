@@ -1,12 +1,19 @@
 package flooring.ui;
 
+import flooring.model.BatchReport;
+import flooring.model.ExportReport;
+import flooring.model.ImportReport;
 import flooring.model.Order;
 import flooring.model.Product;
+import flooring.model.RestoreReport;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.Collection;
+import java.util.List;
 
 @Component
 public class FlooringMasteryView {
@@ -14,6 +21,8 @@ public class FlooringMasteryView {
     @Autowired
     private UserIO io;
 
+    private final int MAX_BATCH_ERRORS = 20;
+
     /**
      * Displays menu and reads user's input
      * @return int associated with menu button
@@ -26,9 +35,10 @@ public class FlooringMasteryView {
         io.print("* 3. Edit an Order");
         io.print("* 4. Remove an Order");
         io.print("* 5. Export All Data");
-        io.print("* 6. Quit");
+        io.print("* 6. Find an Order by Number");
+        io.print("* 7. Quit");
         io.print("****************");
-        return io.readInt("Please enter the number of your choice", 1, 6);
+        return io.readInt("Please enter the number of your choice", 1, 7);
     }
 
     /**
@@ -182,6 +192,15 @@ public class FlooringMasteryView {
      * @param orders Collection of Order objects
      */
     public void displayOrders(Collection<Order> orders) {
+        displayOrderLines(orders);
+        io.readString("Please hit enter to continue");
+    }
+
+    /**
+     * Displays information about orders from given Collection, one line per order
+     * @param orders Collection of Order objects
+     */
+    public void displayOrderLines(Collection<Order> orders) {
         orders.stream()
               .forEach((order) -> io.print(
                       "Order #" + order.getOrderNumber() + " - Customer "
@@ -189,7 +208,37 @@ public class FlooringMasteryView {
                        + " - " + order.getProductType() + " - Area "
                        + order.getArea() + "sq.f. - Cost $" + order.getTotal()
               ));
-        io.readString("Please hit enter to continue");
+    }
+
+    /**
+     * Displays orders requested by a display command of the batch
+     * @param line number of the command's line in the batch file
+     * @param date date of the orders
+     * @param orders Collection of Order objects
+     */
+    public void displayBatchOrders(int line, LocalDate date, Collection<Order> orders) {
+        io.print("Orders for " + date + " (line " + line + "): " + orders.size());
+        displayOrderLines(orders);
+    }
+
+    /**
+     * Displays summary of the finished batch and the first MAX_BATCH_ERRORS errors
+     * @param report BatchReport of the finished batch
+     */
+    public void displayBatchReport(BatchReport report) {
+        io.print(String.format("Batch of %d commands finished in %.3f s (%.0f commands/s), %d day files written",
+                report.getCommandCount(), report.getElapsedNanos() / 1e9, report.getCommandsPerSecond(),
+                report.getFileCount()));
+        io.print(String.format("Added %d, edited %d, deleted %d, displayed %d, failed %d",
+                report.getAdded(), report.getEdited(), report.getDeleted(), report.getDisplayed(),
+                report.getFailed()));
+        List<String> errors = report.getErrors();
+        errors.stream()
+              .limit(MAX_BATCH_ERRORS)
+              .forEach(io::print);
+        if (errors.size() > MAX_BATCH_ERRORS) {
+            io.print("... and " + (errors.size() - MAX_BATCH_ERRORS) + " more errors");
+        }
     }
 
     /**
@@ -202,12 +251,51 @@ public class FlooringMasteryView {
     }
 
     /**
-     * Displays a banner for successful export of the data and waits input to continue
+     * Displays a banner for successful export of the data with export throughput
+     * and waits input to continue
+     * @param report ExportReport of the finished export
      */
-    public void displaySuccessfulExportBanner() {
+    public void displaySuccessfulExportBanner(ExportReport report) {
+        displayExportReport(report);
         io.readString("Orders were exported. Please, hit enter to continue");
     }
 
+    /**
+     * Displays summary of the finished export with export throughput
+     * @param report ExportReport of the finished export
+     */
+    public void displayExportReport(ExportReport report) {
+        io.print(String.format("Exported %d orders from %d files in %.3f s (%.2f MB/s, %.0f orders/s), "
+                        + "%d unchanged files reused", report.getOrderCount(), report.getFileCount(),
+                report.getElapsedNanos() / 1e9, report.getMegabytesPerSecond(), report.getOrdersPerSecond(),
+                report.getReusedFileCount()));
+    }
+
+    /**
+     * Displays summary of the finished import
+     * @param report ImportReport of the finished import
+     * @param rejected file with the rejection report
+     */
+    public void displayImportReport(ImportReport report, Path rejected) {
+        io.print(String.format("Imported %d of %d rows in %.3f s (%.0f rows/s), %d day file writes",
+                report.getImportedCount(), report.getRowCount(), report.getElapsedNanos() / 1e9,
+                report.getRowsPerSecond(), report.getWriteCount()));
+        if (report.getRejectedCount() > 0) {
+            io.print("Rejected " + report.getRejectedCount() + " rows, see " + rejected);
+        }
+    }
+
+    /**
+     * Displays summary of the finished restore
+     * @param report RestoreReport of the finished restore
+     */
+    public void displayRestoreReport(RestoreReport report) {
+        io.print(String.format("Restored %d orders to %d files in %.3f s (%.2f MB/s, %.0f orders/s), "
+                        + "last order number %d", report.getOrderCount(), report.getFileCount(),
+                report.getElapsedNanos() / 1e9, report.getMegabytesPerSecond(), report.getOrdersPerSecond(),
+                report.getMaxOrderNumber()));
+    }
+
     /**
      * Displays a banner for successful order saving and waits input to continue
      */
@@ -229,6 +317,13 @@ public class FlooringMasteryView {
         io.readString("Order was edited. Please hit enter to continue");
     }
 
+    /**
+     * Waits input to continue
+     */
+    public void displayContinueBanner() {
+        io.readString("Please hit enter to continue");
+    }
+
     /**
      * Displays Good-bye message
      */
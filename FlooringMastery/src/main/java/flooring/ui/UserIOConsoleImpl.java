@@ -6,6 +6,10 @@ import java.util.Scanner;
 
 @Component
 public class UserIOConsoleImpl implements UserIO {
+
+    // one Scanner for all prompts, a new one would lose input buffered by the previous one
+    private final Scanner sc = new Scanner(System.in);
+
     @Override
     public void print(String message) {
         System.out.println(message);
@@ -14,7 +18,6 @@ public class UserIOConsoleImpl implements UserIO {
     @Override
     public String readString(String prompt) {
         System.out.println(prompt);
-        Scanner sc = new Scanner(System.in);
         return sc.nextLine();
 
     }
@@ -0,0 +1,104 @@
+package flooring.dao;
+
+import flooring.model.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlooringMasteryColumnarCodecTest {
+
+    private FlooringMasteryColumnarCodec codec;
+    private FlooringMasteryRecordCodec recordCodec;
+    private LocalDate date = LocalDate.of(2012, 12, 12);
+
+    @BeforeEach
+    void setUp() {
+        codec = new FlooringMasteryColumnarCodec();
+        recordCodec = new FlooringMasteryRecordCodec();
+    }
+
+    @Test
+    void testDecodeReturnsEncodedOrdersWithScales() {
+        List<Order> orders = new ArrayList<>();
+        String[] records = {
+                "7::Doctor Who::Texas::4.45::Wood::243.00::5.15::4.75::0::0::0::0",
+                "123456::A, B::California::25.00::Tile::100::3.5::4.15::0::0::0::0",
+                "2::Łódź Floors::Texas::.5::Carpet::-1.25::2.25::0::0::0::0::0",
+                "-3::name::Kentucky::6.00::Laminate::123456789012345.5::1.75::2.10::0::0::0::0",
+                "4::::Kentucky::6.00::Laminate::1E+2::1.75::2.10::0::0::0::0"
+        };
+        for (String record : records) {
+            Order order = recordCodec.decodeOrder(record);
+            order.setDate(date);
+            orders.add(order);
+        }
+
+        List<Order> decoded = codec.decode(codec.encode(orders), date);
+        assertEquals(orders, decoded);
+        for (int i = 0; i < orders.size(); i++) {
+            assertEquals(recordCodec.encodeOrder(orders.get(i)), recordCodec.encodeOrder(decoded.get(i)));
+        }
+    }
+
+    @Test
+    void testEqualValuesTakeNoBytes() {
+        Order order = new Order(date, "name", "Texas", new BigDecimal("4.45"), "Wood",
+                new BigDecimal("100.00"), new BigDecimal("5.15"), new BigDecimal("4.75"));
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Order copy = new Order(order);
+            copy.setOrderNumber(i);
+            orders.add(copy);
+        }
+        byte[] content = codec.encode(orders);
+        // two bytes per orderNumber, one per name length, names, no bytes for other columns
+        assertTrue(content.length < 1000 * (2 + 1 + "name".length()) + 200, "size " + content.length);
+        assertEquals(orders, codec.decode(content, date));
+        String text = recordCodec.encodeOrder(order);
+        assertTrue(content.length * 4 < orders.size() * text.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    void testContainsOrderReadsOrderNumbers() {
+        List<Order> orders = new ArrayList<>();
+        for (int number : new int[]{5, 100000, 42}) {
+            Order order = new Order(date, "name", "Texas", new BigDecimal("4.45"), "Wood",
+                    new BigDecimal("100.00"), new BigDecimal("5.15"), new BigDecimal("4.75"));
+            order.setOrderNumber(number);
+            orders.add(order);
+        }
+        byte[] content = codec.encode(orders);
+        assertTrue(codec.containsOrder(content, 42));
+        assertTrue(codec.containsOrder(content, 100000));
+        assertFalse(codec.containsOrder(content, 6));
+        assertFalse(codec.containsOrder(content, 4));
+        assertFalse(codec.containsOrder(codec.encode(Collections.emptyList()), 0));
+    }
+
+    @Test
+    void testEncodeRejectsTooLargeDecimals() {
+        Order order = new Order(date, "name", "Texas", new BigDecimal("4.45"), "Wood",
+                new BigDecimal("12345678901234567890.12"), new BigDecimal("5.15"), new BigDecimal("4.75"));
+        assertThrows(IllegalArgumentException.class, () -> codec.encode(List.of(order)));
+    }
+
+    @Test
+    void testDecodeRejectsDamagedContent() {
+        Order order = new Order(date, "name", "Texas", new BigDecimal("4.45"), "Wood",
+                new BigDecimal("100.00"), new BigDecimal("5.15"), new BigDecimal("4.75"));
+        byte[] content = codec.encode(List.of(order));
+        assertThrows(IllegalArgumentException.class,
+                () -> codec.decode(Arrays.copyOf(content, content.length - 3), date));
+        assertThrows(IllegalArgumentException.class,
+                () -> codec.decode("OrderNumber::CustomerName".getBytes(StandardCharsets.UTF_8), date));
+    }
+}
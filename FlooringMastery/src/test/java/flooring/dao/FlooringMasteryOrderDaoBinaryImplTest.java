@@ -0,0 +1,147 @@
+package flooring.dao;
+
+import flooring.model.ExportReport;
+import flooring.model.Order;
+import flooring.model.OrderFilter;
+import flooring.model.RestoreReport;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlooringMasteryOrderDaoBinaryImplTest {
+
+    private final String ORDER_FILE = "src/test/resources/testBinaryOrders";
+    private final String BACKUP_FILE = ORDER_FILE + "/backup.txt";
+    private final String NUMBER_FILE = ORDER_FILE + "/number.txt";
+
+    private FlooringMasteryOrderDao binaryDao;
+    private LocalDate date = LocalDate.of(2012, 12, 12);
+
+    @BeforeEach
+    void setUp() {
+        binaryDao = new FlooringMasteryOrderDaoBinaryImpl(ORDER_FILE, BACKUP_FILE, NUMBER_FILE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        try {
+            FileUtils.deleteDirectory(new File(ORDER_FILE));
+        } catch (IOException e) {
+            fail("tearDown fails during deleting directory");
+        }
+    }
+
+    private Order order(LocalDate date, int orderNumber, String name) {
+        Order order = new Order(date, name, "Texas", new BigDecimal("4.45"), "Wood",
+                new BigDecimal("100.00"), new BigDecimal("5.15"), new BigDecimal("4.75"));
+        order.setOrderNumber(orderNumber);
+        return order;
+    }
+
+    @Test
+    void testUploadedOrdersAreLoadedByOrderNumber() throws FlooringMasteryPersistenceException {
+        binaryDao.uploadOrder(order(date, 3, "third"));
+        binaryDao.uploadOrders(List.of(order(date, 2, "second"), order(date, 1, "first")), date);
+
+        assertTrue(new File(ORDER_FILE + "/Order_12122012.bin").exists());
+        Map<Integer, Order> orderMap = binaryDao.getOrdersForDate(date);
+        assertEquals(List.of(1, 2, 3), List.copyOf(orderMap.keySet()));
+        assertEquals(order(date, 2, "second"), orderMap.get(2));
+        // derived columns are not stored but calculated
+        assertEquals(order(date, 2, "second").getTotal(), orderMap.get(2).getTotal());
+    }
+
+    @Test
+    void testGetOrdersForDateWithoutFileThrowsException() {
+        assertThrows(FlooringMasteryPersistenceException.class, () -> binaryDao.getOrdersForDate(date));
+    }
+
+    @Test
+    void testUpdateAndRemoveOrder() throws FlooringMasteryPersistenceException {
+        binaryDao.uploadOrders(List.of(order(date, 1, "first"), order(date, 2, "second")), date);
+        binaryDao.updateOrder(order(date, 1, "edited"));
+        binaryDao.removeOrder(date, 2);
+
+        assertEquals(Map.of(1, order(date, 1, "edited")), binaryDao.getOrdersForDate(date));
+        assertThrows(FlooringMasteryPersistenceException.class, () -> binaryDao.removeOrder(date, 2));
+        assertThrows(FlooringMasteryPersistenceException.class, () -> binaryDao.updateOrder(order(date, 5, "x")));
+    }
+
+    @Test
+    void testFindOrderAndRangeQuery() throws FlooringMasteryPersistenceException {
+        for (int day = 0; day < 3; day++) {
+            binaryDao.uploadOrder(order(date.plusDays(day), day + 1, "day" + day));
+        }
+        assertEquals(order(date.plusDays(1), 2, "day1"), binaryDao.findOrder(2));
+        assertNull(binaryDao.findOrder(4));
+        List<Integer> numbers;
+        try (Stream<Order> orders = binaryDao.getOrdersBetween(date.plusDays(1), date.plusDays(5))) {
+            numbers = orders.map(Order::getOrderNumber).collect(Collectors.toList());
+        }
+        assertEquals(List.of(2, 3), numbers);
+    }
+
+    @Test
+    void testScanOrdersSkipsDaysWithoutStateOrProduct() throws FlooringMasteryPersistenceException {
+        binaryDao.uploadOrders(List.of(order(date, 1, "first"), order(date, 2, "second")), date);
+        Order ohio = order(date.plusDays(1), 3, "third");
+        ohio.setState("Ohio");
+        binaryDao.uploadOrders(List.of(ohio, order(date.plusDays(1), 4, "fourth")), date.plusDays(1));
+
+        try (Stream<Order> orders = binaryDao.scanOrders(date, date.plusDays(1),
+                new OrderFilter(null, "Ohio", "Wood", null, null, null, null))) {
+            assertEquals(List.of(ohio), orders.collect(Collectors.toList()));
+        }
+        try (Stream<Order> orders = binaryDao.scanOrders(date, date.plusDays(1),
+                new OrderFilter("second", null, null, null, new BigDecimal("100"), null, null))) {
+            assertEquals(List.of(order(date, 2, "second")), orders.collect(Collectors.toList()));
+        }
+        try (Stream<Order> orders = binaryDao.scanOrders(date, date.plusDays(1),
+                new OrderFilter(null, null, "Tile", null, null, null, null))) {
+            assertEquals(0, orders.count());
+        }
+    }
+
+    @Test
+    void testExportMatchesTextDaoAndRestoresOrders() throws Exception {
+        String textDirectory = ORDER_FILE + "/text";
+        FlooringMasteryOrderDao textDao = new FlooringMasteryOrderDaoFileImpl(textDirectory,
+                ORDER_FILE + "/textBackup.txt", NUMBER_FILE);
+        for (int day = 0; day < 3; day++) {
+            List<Order> orders = List.of(order(date.plusDays(day), 2 * day + 1, "a, b"),
+                    order(date.plusDays(day), 2 * day + 2, "c"));
+            binaryDao.uploadOrders(orders, date.plusDays(day));
+            textDao.uploadOrders(orders, date.plusDays(day));
+        }
+        ExportReport report = binaryDao.exportOrders();
+        textDao.exportOrders();
+        assertEquals(3, report.getFileCount());
+        assertEquals(6, report.getOrderCount());
+        assertArrayEquals(Files.readAllBytes(Paths.get(ORDER_FILE + "/textBackup.txt")),
+                Files.readAllBytes(Paths.get(BACKUP_FILE)));
+
+        binaryDao.removeOrder(date, 1);
+        binaryDao.uploadOrder(order(date, 7, "not exported"));
+        RestoreReport restoreReport = binaryDao.restoreOrders();
+        assertEquals(3, restoreReport.getFileCount());
+        assertEquals(6, restoreReport.getOrderCount());
+        assertEquals("7", Files.readAllLines(Paths.get(NUMBER_FILE)).get(0));
+        for (int day = 0; day < 3; day++) {
+            assertEquals(textDao.getOrdersForDate(date.plusDays(day)), binaryDao.getOrdersForDate(date.plusDays(day)));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package flooring.dao;
+
+import flooring.model.Order;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlooringMasteryOrderDaoCacheImplTest {
+
+    private final String ORDER_FILE = "src/test/resources/testOrders";
+    private final String BACKUP_FILE = "src/test/resources/testBackup/backup.txt";
+    private final String NUMBER_FILE = "src/test/resources/number.txt";
+
+    private FlooringMasteryOrderDao fileDao;
+    private FlooringMasteryOrderDaoCacheImpl cacheDao;
+    private LocalDate date = LocalDate.of(2012, 12, 12);
+
+    @BeforeEach
+    void setUp() {
+        fileDao = new FlooringMasteryOrderDaoFileImpl(ORDER_FILE, BACKUP_FILE, NUMBER_FILE);
+        cacheDao = new FlooringMasteryOrderDaoCacheImpl(fileDao, 2, Long.MAX_VALUE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        try {
+            FileUtils.cleanDirectory(new File(ORDER_FILE));
+        } catch (IOException e) {
+            fail("tearDown fails during cleaning directory");
+        }
+    }
+
+    private Order createOrder(LocalDate orderDate, int number) {
+        Order order = new Order(
+                orderDate, "name" + number, "testState",
+                new BigDecimal("10.00"), "testType", new BigDecimal("100.00"),
+                new BigDecimal("10.0"), new BigDecimal("5.0")
+        );
+        order.setOrderNumber(number);
+        return order;
+    }
+
+    @Test
+    void testSecondLoadIsServedFromCache() throws FlooringMasteryPersistenceException {
+        cacheDao.uploadOrder(createOrder(date, 1));
+        cacheDao.getOrdersForDate(date);
+        Map<Integer, Order> orders = cacheDao.getOrdersForDate(date);
+        assertEquals(1, orders.size());
+        assertEquals(1, cacheDao.getMissCount());
+        assertEquals(1, cacheDao.getHitCount());
+    }
+
+    @Test
+    void testWritesGoThroughToFileDao() throws FlooringMasteryPersistenceException {
+        cacheDao.uploadOrder(createOrder(date, 1));
+        cacheDao.getOrdersForDate(date);
+        cacheDao.uploadOrder(createOrder(date, 2));
+        Order edited = createOrder(date, 1);
+        edited.setCustomerName("edited");
+        cacheDao.updateOrder(edited);
+        cacheDao.removeOrder(date, 2);
+
+        Map<Integer, Order> cached = cacheDao.getOrdersForDate(date);
+        Map<Integer, Order> stored = fileDao.getOrdersForDate(date);
+        assertEquals(stored, cached);
+        assertEquals("edited", cached.get(1).getCustomerName());
+        assertEquals(1, cacheDao.getMissCount());
+    }
+
+    @Test
+    void testReturnedOrdersDoNotChangeCache() throws FlooringMasteryPersistenceException {
+        cacheDao.uploadOrder(createOrder(date, 1));
+        Map<Integer, Order> orders = cacheDao.getOrdersForDate(date);
+        orders.get(1).setCustomerName("notSaved");
+        orders.remove(1);
+        Order cached = cacheDao.getOrdersForDate(date).get(1);
+        assertNotNull(cached);
+        assertEquals("name1", cached.getCustomerName());
+    }
+
+    @Test
+    void testLeastRecentlyUsedDateIsEvicted() throws FlooringMasteryPersistenceException {
+        for (int day = 0; day < 3; day++) {
+            cacheDao.uploadOrder(createOrder(date.plusDays(day), day + 1));
+        }
+        cacheDao.getOrdersForDate(date);
+        cacheDao.getOrdersForDate(date.plusDays(1));
+        // use first date again, so second one becomes the eldest
+        cacheDao.getOrdersForDate(date);
+        cacheDao.getOrdersForDate(date.plusDays(2));
+        assertEquals(1, cacheDao.getEvictionCount());
+        assertEquals(2, cacheDao.getCachedDateCount());
+        cacheDao.getOrdersForDate(date);
+        assertEquals(2, cacheDao.getHitCount());
+        cacheDao.getOrdersForDate(date.plusDays(1));
+        assertEquals(4, cacheDao.getMissCount());
+    }
+
+    @Test
+    void testMissingDateIsNotCached() {
+        assertThrows(FlooringMasteryPersistenceException.class, () -> cacheDao.getOrdersForDate(date));
+        assertEquals(0, cacheDao.getCachedDateCount());
+    }
+}
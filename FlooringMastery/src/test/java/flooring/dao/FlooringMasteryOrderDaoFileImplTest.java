@@ -1,6 +1,9 @@
 package flooring.dao;
 
+import flooring.model.ExportReport;
 import flooring.model.Order;
+import flooring.model.OrderFilter;
+import flooring.model.RestoreReport;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,12 +11,24 @@ import org.junit.jupiter.api.Test;
 
 import java.io.*;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -36,6 +51,11 @@ class FlooringMasteryOrderDaoFileImplTest {
     private final String BACKUP_FILE = "src/test/resources/testBackup/backup.txt";
     private final String NUMBER_FILE = "src/test/resources/number.txt";
     private final String DELIMITER = "::";
+    private final String JOURNAL_FILE = "src/test/resources/testBackup/journal.txt";
+    private final String INDEX_FILE = "src/test/resources/testBackup/index.txt";
+    // exports of tests which don't check the committed backup file
+    private final String EXPORT_FILE = "src/test/resources/testBackup/export.txt";
+    private final String MANIFEST_FILE = EXPORT_FILE + ".manifest";
 
     @BeforeEach
     void setUp() {
@@ -63,6 +83,16 @@ class FlooringMasteryOrderDaoFileImplTest {
         } catch (IOException e) {
             fail("tearDown fails during cleaning directory");
         }
+        new File(JOURNAL_FILE).delete();
+        new File(INDEX_FILE).delete();
+        new File(MANIFEST_FILE).delete();
+        new File(BACKUP_FILE + ".manifest").delete();
+    }
+
+    @AfterEach
+    void deleteExport() {
+        // tests restoring the export call tearDown in between
+        new File(EXPORT_FILE).delete();
     }
 
     @Test
@@ -255,36 +285,772 @@ class FlooringMasteryOrderDaoFileImplTest {
     }
 
     @Test
-    void testLoadOrderNumberReturnsNumberFromFile() {
-        assertEquals(10, testOrderDao.loadOrderNumber());
-        testOrderDao = new FlooringMasteryOrderDaoFileImpl(ORDER_FILE, BACKUP_FILE, NUMBER_FILE);
+    void testLeaseOrderNumbersStartsFromNumberInFile() throws Exception {
+        String fileName = "src/test/resources/testOrders/number.txt";
+        Files.copy(Paths.get(NUMBER_FILE), Paths.get(fileName));
+        FlooringMasteryOrderDao anotherOrderDao = new FlooringMasteryOrderDaoFileImpl(
+                ORDER_FILE, EXPORT_FILE, fileName
+        );
+        assertEquals(10, anotherOrderDao.leaseOrderNumbers(1));
     }
 
     @Test
-    void testLoadOrderNumberReturns1WhenFileDoesNotExist() {
+    void testLeaseOrderNumbersStartsFrom1WhenFileDoesNotExist() throws Exception {
         FlooringMasteryOrderDao anotherOrderDao = new FlooringMasteryOrderDaoFileImpl(
-                ORDER_FILE, BACKUP_FILE, "notExisting"
+                ORDER_FILE, EXPORT_FILE, "src/test/resources/testOrders/number.txt"
+        );
+        assertEquals(1, anotherOrderDao.leaseOrderNumbers(1));
+    }
+
+    @Test
+    void testLeaseOrderNumbersWritesNextNumberToFile() throws Exception {
+        String fileName = "src/test/resources/testOrders/number.txt";
+        FlooringMasteryOrderDao anotherOrderDao = new FlooringMasteryOrderDaoFileImpl(
+                ORDER_FILE, EXPORT_FILE, fileName
+        );
+        anotherOrderDao.leaseOrderNumbers(12);
+        assertEquals(13, readNumberFile(fileName));
+    }
+
+    private int readNumberFile(String fileName) throws IOException {
+        return Integer.parseInt(Files.readAllLines(Paths.get(fileName)).get(0).trim());
+    }
+
+    @Test
+    void testJournaledOrderIsLoadedAfterUpload() throws FlooringMasteryPersistenceException {
+        FlooringMasteryOrderDaoFileImpl journalDao = new FlooringMasteryOrderDaoFileImpl(
+                ORDER_FILE, EXPORT_FILE, NUMBER_FILE, JOURNAL_FILE
+        );
+        try {
+            journalDao.uploadOrder(testOrder);
+            Map<Integer, Order> orders = journalDao.getOrdersForDate(testOrder.getDate());
+            assertEquals(1, orders.size());
+            assertEquals(testOrder, orders.get(testOrder.getOrderNumber()));
+            assertEquals(testOrder.getTotal(), orders.get(testOrder.getOrderNumber()).getTotal());
+        } finally {
+            journalDao.destroy();
+        }
+        // only the header is left
+        assertEquals(FlooringMasteryOrderJournal.HEADER_BYTES, new File(JOURNAL_FILE).length());
+    }
+
+    @Test
+    void testConcurrentJournaledUploadsAreAllApplied() throws Exception {
+        FlooringMasteryOrderDaoFileImpl journalDao = new FlooringMasteryOrderDaoFileImpl(
+                ORDER_FILE, EXPORT_FILE, NUMBER_FILE, JOURNAL_FILE
+        );
+        int threads = 8;
+        int ordersPerThread = 50;
+        List<Thread> workers = new ArrayList<>();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        for (int t = 0; t < threads; t++) {
+            int first = t * ordersPerThread + 1;
+            Thread worker = new Thread(() -> {
+                for (int number = first; number < first + ordersPerThread; number++) {
+                    Order order = new Order(
+                            testOrder.getDate().plusDays(number % 3), "name" + number, "testState",
+                            new BigDecimal("10.00"), "testType", new BigDecimal("100.00"),
+                            new BigDecimal("10.0"), new BigDecimal("5.0")
+                    );
+                    order.setOrderNumber(number);
+                    try {
+                        journalDao.uploadOrder(order);
+                    } catch (FlooringMasteryPersistenceException e) {
+                        errors.add(e);
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertTrue(errors.isEmpty());
+        int loaded = 0;
+        try {
+            for (int day = 0; day < 3; day++) {
+                loaded += journalDao.getOrdersForDate(testOrder.getDate().plusDays(day)).size();
+            }
+        } finally {
+            journalDao.destroy();
+        }
+        assertEquals(threads * ordersPerThread, loaded);
+    }
+
+    @Test
+    void testJournalIsReplayedWithoutDuplicates() throws FlooringMasteryPersistenceException {
+        Order secondOrder = new Order(
+                testOrder.getDate(), "secondName", "testState",
+                new BigDecimal("10.00"), "testType", new BigDecimal("200.00"),
+                new BigDecimal("10.0"), new BigDecimal("5.0")
         );
-        assertEquals(1, anotherOrderDao.loadOrderNumber());
+        secondOrder.setOrderNumber(2);
+        String dateSuffix = DELIMITER + testOrder.getDate().format(dateFormatter);
+        try {
+            // first order was applied before the crash, second one only reached the journal
+            testOrderDao.uploadOrder(testOrder);
+            out = new PrintWriter(new FileWriter(JOURNAL_FILE));
+            out.println(orderAsString + dateSuffix);
+            out.println(orderAsString.replaceFirst("1::testName", "2::secondName")
+                    .replace("::100.00::", "::200.00::") + dateSuffix);
+            // torn record that was never acknowledged
+            out.print("3::torn");
+            out.close();
+        } catch (IOException e) {
+            fail("Creation of journal file fails");
+        }
+        FlooringMasteryOrderDaoFileImpl journalDao = new FlooringMasteryOrderDaoFileImpl(
+                ORDER_FILE, EXPORT_FILE, NUMBER_FILE, JOURNAL_FILE
+        );
+        journalDao.destroy();
+        int lines = 0;
+        try {
+            in = new Scanner(new BufferedReader(new FileReader(ORDER_FILE + "/Order_" +
+                    testOrder.getDate().format(fileFormatter) + ".txt")));
+        } catch (FileNotFoundException e) {
+            fail("Day file was not created");
+        }
+        assertEquals(HEADER, in.nextLine());
+        while (in.hasNextLine()) {
+            in.nextLine();
+            lines++;
+        }
+        assertEquals(2, lines);
+        Map<Integer, Order> orders = testOrderDao.getOrdersForDate(testOrder.getDate());
+        assertEquals(secondOrder, orders.get(2));
     }
 
     @Test
-    void testUploadOrderNumberWritesNumberToFile() {
-       String fileName = "src/test/resources/testOrders/number.txt";
-       int number = 12;
-       FlooringMasteryOrderDao anotherOrderDao = new FlooringMasteryOrderDaoFileImpl(
-                ORDER_FILE, BACKUP_FILE, fileName
+    void testUpdateOrderLeavesTombstoneAndAppendsRecord() throws FlooringMasteryPersistenceException {
+        Order secondOrder = new Order(
+                testOrder.getDate(), "secondName", "testState",
+                new BigDecimal("10.00"), "testType", new BigDecimal("200.00"),
+                new BigDecimal("10.0"), new BigDecimal("5.0")
         );
-       try {
-           anotherOrderDao.uploadOrderNumber(number);
-       } catch (FlooringMasteryPersistenceException e) {
-           fail("Unexpected fail during writing to file");
-       }
-       try {
-           Scanner in = new Scanner(new BufferedReader(new FileReader(fileName)));
-           assertEquals(number, in.nextInt());
-       } catch (FileNotFoundException e) {
-           fail("File should be created");
-       }
-    }
-}
\ No newline at end of file
+        secondOrder.setOrderNumber(2);
+        testOrderDao.uploadOrder(testOrder);
+        testOrderDao.uploadOrder(secondOrder);
+        testOrder.setCustomerName("newName");
+        testOrder.setArea(new BigDecimal("300.00"));
+        testOrderDao.updateOrder(testOrder);
+
+        Map<Integer, Order> orders = testOrderDao.getOrdersForDate(testOrder.getDate());
+        assertEquals(2, orders.size());
+        assertEquals(testOrder, orders.get(1));
+        assertEquals(secondOrder, orders.get(2));
+        List<String> lines = readDayFile(testOrder.getDate());
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(1).trim().isEmpty());
+        assertTrue(lines.get(3).startsWith("1::newName::"));
+    }
+
+    @Test
+    void testRemoveOrderIsNotLoadedOrExported() throws FlooringMasteryPersistenceException {
+        testOrderDao = new FlooringMasteryOrderDaoFileImpl(ORDER_FILE, EXPORT_FILE, NUMBER_FILE);
+        testOrderDao.uploadOrder(testOrder);
+        testOrderDao.removeOrder(testOrder.getDate(), testOrder.getOrderNumber());
+        assertTrue(testOrderDao.getOrdersForDate(testOrder.getDate()).isEmpty());
+        testOrderDao.exportOrders();
+        try {
+            in = new Scanner(new BufferedReader(new FileReader(EXPORT_FILE)));
+        } catch (FileNotFoundException e) {
+            fail("Backup file wasn't created");
+        }
+        assertEquals(BACKUP_HEADER, in.nextLine());
+        assertFalse(in.hasNextLine());
+    }
+
+    @Test
+    void testRemoveNotExistingOrderThrowsException() throws FlooringMasteryPersistenceException {
+        testOrderDao.uploadOrder(testOrder);
+        assertThrows(
+                FlooringMasteryPersistenceException.class,
+                () -> testOrderDao.removeOrder(testOrder.getDate(), 11)
+        );
+    }
+
+    @Test
+    void testCompactOrdersRemovesTombstones() throws FlooringMasteryPersistenceException {
+        FlooringMasteryOrderDaoFileImpl fileDao = (FlooringMasteryOrderDaoFileImpl) testOrderDao;
+        testOrderDao.uploadOrder(testOrder);
+        testOrder.setCustomerName("newName");
+        testOrderDao.updateOrder(testOrder);
+        fileDao.compactOrders(testOrder.getDate());
+        List<String> lines = readDayFile(testOrder.getDate());
+        assertEquals(2, lines.size());
+        assertEquals(HEADER, lines.get(0));
+        assertEquals(testOrder, testOrderDao.getOrdersForDate(testOrder.getDate()).get(1));
+    }
+
+    @Test
+    void testMappedAndStreamedDayFilesAreParsedTheSame() throws Exception {
+        String longName = String.join("", Collections.nCopies(300_000, "Łódź"));
+        String content = HEADER + "\r\n" + orderAsString + "\r\n" + "     \n"
+                + orderAsString.replace("1::testName::", "2::" + longName + "::") + "\n"
+                + orderAsString.replace("1::testName::", "3::last::");
+        Files.write(Paths.get(ORDER_FILE, "Order_" + testOrder.getDate().format(fileFormatter) + ".txt"),
+                content.getBytes(StandardCharsets.UTF_8));
+
+        Map<Integer, Order> mapped = testOrderDao.getOrdersForDate(testOrder.getDate());
+        assertEquals(3, mapped.size());
+        assertEquals(testOrder, mapped.get(1));
+        assertEquals(longName, mapped.get(2).getCustomerName());
+        assertEquals("last", mapped.get(3).getCustomerName());
+
+        FlooringMasteryOrderDaoFileImpl streamingDao = new FlooringMasteryOrderDaoFileImpl(ORDER_FILE, EXPORT_FILE, NUMBER_FILE);
+        streamingDao.setMapThreshold(0);
+        assertEquals(mapped, streamingDao.getOrdersForDate(testOrder.getDate()));
+        FlooringMasteryOrderDaoFileImpl parallelDao = new FlooringMasteryOrderDaoFileImpl(ORDER_FILE, EXPORT_FILE, NUMBER_FILE);
+        parallelDao.setParallelThreshold(0);
+        assertEquals(mapped, parallelDao.getOrdersForDate(testOrder.getDate()));
+        assertThrows(FlooringMasteryPersistenceException.class,
+                () -> streamingDao.getOrdersForDate(testOrder.getDate().plusDays(1)));
+    }
+
+    @Test
+    void testDayFileParsedInPartsEqualsParsedOnOneThread() throws Exception {
+        StringBuilder content = new StringBuilder(HEADER).append('\n');
+        for (int i = 1; i <= 1000; i++) {
+            content.append(orderAsString.replace("1::testName::", i + "::name" + i + "::")).append('\n');
+            if (i % 10 == 0) {
+                content.append("          \n");
+            }
+        }
+        // a later record of the same order wins
+        content.append(orderAsString.replace("1::testName::", "1::later::")).append('\n');
+        // the last record of order 2 doesn't match the filter, it removes the matching one in an earlier part
+        content.append(orderAsString.replace("1::testName::", "2::renamed::"));
+        Files.write(Paths.get(ORDER_FILE, "Order_" + testOrder.getDate().format(fileFormatter) + ".txt"),
+                content.toString().getBytes(StandardCharsets.UTF_8));
+
+        FlooringMasteryOrderDaoFileImpl fileDao = (FlooringMasteryOrderDaoFileImpl) testOrderDao;
+        Map<Integer, Order> oneThread = fileDao.getOrdersForDate(testOrder.getDate());
+        assertEquals(1000, oneThread.size());
+        assertEquals("later", oneThread.get(1).getCustomerName());
+        assertEquals("renamed", oneThread.get(2).getCustomerName());
+
+        FlooringMasteryOrderDaoFileImpl parallelDao = new FlooringMasteryOrderDaoFileImpl(ORDER_FILE, EXPORT_FILE, NUMBER_FILE);
+        parallelDao.setParallelThreshold(0);
+        assertEquals(oneThread, parallelDao.getOrdersForDate(testOrder.getDate()));
+
+        OrderFilter filter = new OrderFilter("name2", null, null, null, null, null, null);
+        List<Order> scanned;
+        try (Stream<Order> orders = fileDao.scanOrders(testOrder.getDate(), testOrder.getDate(), filter)) {
+            scanned = orders.collect(Collectors.toList());
+        }
+        assertTrue(scanned.isEmpty());
+        try (Stream<Order> orders = parallelDao.scanOrders(testOrder.getDate(), testOrder.getDate(), filter)) {
+            assertEquals(scanned, orders.collect(Collectors.toList()));
+        }
+    }
+
+    private List<String> readDayFile(LocalDate date) {
+        List<String> lines = new ArrayList<>();
+        try (Scanner dayFile = new Scanner(new BufferedReader(new FileReader(
+                ORDER_FILE + "/Order_" + date.format(fileFormatter) + ".txt")))) {
+            while (dayFile.hasNextLine()) {
+                lines.add(dayFile.nextLine());
+            }
+        } catch (FileNotFoundException e) {
+            fail("Day file was not created");
+        }
+        return lines;
+    }
+
+    @Test
+    void testExportOrdersWritesDatesInOrderAndReportsCounts() throws FlooringMasteryPersistenceException {
+        testOrderDao = new FlooringMasteryOrderDaoFileImpl(ORDER_FILE, EXPORT_FILE, NUMBER_FILE);
+        // upload in reverse date order
+        for (int day = 4; day >= 0; day--) {
+            Order order = new Order(testOrder);
+            order.setDate(testOrder.getDate().plusDays(day * 40));
+            order.setOrderNumber(day + 1);
+            testOrderDao.uploadOrder(order);
+        }
+        ExportReport report = testOrderDao.exportOrders();
+        assertEquals(5, report.getFileCount());
+        assertEquals(5, report.getOrderCount());
+        assertEquals(new File(EXPORT_FILE).length(), report.getByteCount());
+        try {
+            in = new Scanner(new BufferedReader(new FileReader(EXPORT_FILE)));
+        } catch (FileNotFoundException e) {
+            fail("Backup file wasn't created");
+        }
+        assertEquals(BACKUP_HEADER, in.nextLine());
+        for (int day = 0; day < 5; day++) {
+            String line = in.nextLine();
+            assertTrue(line.startsWith((day + 1) + DELIMITER));
+            assertTrue(line.endsWith(testOrder.getDate().plusDays(day * 40).format(dateFormatter)));
+        }
+        assertFalse(in.hasNextLine());
+    }
+
+    @Test
+    void testFindOrderWithoutDate() throws FlooringMasteryPersistenceException {
+        Order secondOrder = new Order(testOrder);
+        secondOrder.setOrderNumber(2);
+        secondOrder.setDate(testOrder.getDate().plusDays(3));
+        testOrderDao.uploadOrder(testOrder);
+        testOrderDao.uploadOrder(secondOrder);
+        assertEquals(secondOrder, testOrderDao.findOrder(2));
+        assertEquals(testOrder, testOrderDao.findOrder(1));
+        assertNull(testOrderDao.findOrder(3));
+    }
+
+    @Test
+    void testUploadOrdersAppendsAllOrdersOfDate() throws FlooringMasteryPersistenceException {
+        testOrderDao.uploadOrder(testOrder);
+        // load index before the upload, so it is maintained incrementally
+        assertEquals(testOrder, testOrderDao.findOrder(1));
+        List<Order> orders = new ArrayList<>();
+        for (int number = 2; number <= 4; number++) {
+            Order order = new Order(testOrder);
+            order.setOrderNumber(number);
+            orders.add(order);
+        }
+        testOrderDao.uploadOrders(orders, testOrder.getDate());
+        LocalDate nextDate = testOrder.getDate().plusDays(1);
+        Order nextDayOrder = new Order(testOrder);
+        nextDayOrder.setOrderNumber(5);
+        nextDayOrder.setDate(nextDate);
+        testOrderDao.uploadOrders(List.of(nextDayOrder), nextDate);
+
+        Map<Integer, Order> loaded = testOrderDao.getOrdersForDate(testOrder.getDate());
+        assertEquals(Set.of(1, 2, 3, 4), loaded.keySet());
+        assertEquals(orders.get(2), testOrderDao.findOrder(4));
+        assertEquals(nextDayOrder, testOrderDao.findOrder(5));
+        try {
+            in = new Scanner(new BufferedReader(new FileReader(
+                    ORDER_FILE + "/Order_" + nextDate.format(fileFormatter) + ".txt")));
+        } catch (FileNotFoundException e) {
+            fail("File for the new date should be created");
+        }
+        assertEquals(HEADER, in.nextLine());
+        in.close();
+    }
+
+    @Test
+    void testFindOrderFollowsEditsRemovalAndCompaction() throws FlooringMasteryPersistenceException {
+        testOrderDao.uploadOrder(testOrder);
+        // load index before changes, so it is maintained incrementally
+        assertEquals(testOrder, testOrderDao.findOrder(1));
+        testOrder.setCustomerName("newName");
+        testOrderDao.updateOrder(testOrder);
+        assertEquals("newName", testOrderDao.findOrder(1).getCustomerName());
+        ((FlooringMasteryOrderDaoFileImpl) testOrderDao).compactOrders(testOrder.getDate());
+        assertEquals("newName", testOrderDao.findOrder(1).getCustomerName());
+        testOrderDao.removeOrder(testOrder.getDate(), 1);
+        assertNull(testOrderDao.findOrder(1));
+    }
+
+    @Test
+    void testPersistentIndexIsReusedAfterCleanClose() throws FlooringMasteryPersistenceException {
+        FlooringMasteryOrderDaoFileImpl indexedDao = new FlooringMasteryOrderDaoFileImpl(
+                ORDER_FILE, EXPORT_FILE, NUMBER_FILE, JOURNAL_FILE, INDEX_FILE
+        );
+        indexedDao.uploadOrder(testOrder);
+        assertEquals(testOrder, indexedDao.findOrder(1));
+        Order secondOrder = new Order(testOrder);
+        secondOrder.setOrderNumber(2);
+        indexedDao.uploadOrder(secondOrder);
+        indexedDao.destroy();
+
+        FlooringMasteryOrderDaoFileImpl reopenedDao = new FlooringMasteryOrderDaoFileImpl(
+                ORDER_FILE, EXPORT_FILE, NUMBER_FILE, JOURNAL_FILE, INDEX_FILE
+        );
+        try {
+            assertEquals(secondOrder, reopenedDao.findOrder(2));
+            assertEquals(testOrder, reopenedDao.findOrder(1));
+        } finally {
+            reopenedDao.destroy();
+        }
+    }
+
+    @Test
+    void testPersistentIndexIsNotTrustedAfterChangesWithoutLookup() throws FlooringMasteryPersistenceException {
+        FlooringMasteryOrderDaoFileImpl indexedDao = new FlooringMasteryOrderDaoFileImpl(
+                ORDER_FILE, EXPORT_FILE, NUMBER_FILE, JOURNAL_FILE, INDEX_FILE
+        );
+        indexedDao.uploadOrder(testOrder);
+        assertEquals(testOrder, indexedDao.findOrder(1));
+        indexedDao.destroy();
+
+        // the clean index file misses the order uploaded without a lookup
+        FlooringMasteryOrderDaoFileImpl uploadingDao = new FlooringMasteryOrderDaoFileImpl(
+                ORDER_FILE, EXPORT_FILE, NUMBER_FILE, JOURNAL_FILE, INDEX_FILE
+        );
+        Order secondOrder = new Order(testOrder);
+        secondOrder.setOrderNumber(2);
+        uploadingDao.uploadOrder(secondOrder);
+        uploadingDao.destroy();
+
+        FlooringMasteryOrderDaoFileImpl reopenedDao = new FlooringMasteryOrderDaoFileImpl(
+                ORDER_FILE, EXPORT_FILE, NUMBER_FILE, JOURNAL_FILE, INDEX_FILE
+        );
+        try {
+            assertEquals(secondOrder, reopenedDao.findOrder(2));
+            assertEquals(testOrder, reopenedDao.findOrder(1));
+        } finally {
+            reopenedDao.destroy();
+        }
+    }
+
+    @Test
+    void testLoadedIndexIsNotTrustedAfterCrash() throws FlooringMasteryPersistenceException {
+        FlooringMasteryOrderDaoFileImpl indexedDao = new FlooringMasteryOrderDaoFileImpl(
+                ORDER_FILE, EXPORT_FILE, NUMBER_FILE, JOURNAL_FILE, INDEX_FILE
+        );
+        indexedDao.uploadOrder(testOrder);
+        assertEquals(testOrder, indexedDao.findOrder(1));
+        indexedDao.destroy();
+
+        FlooringMasteryOrderDaoFileImpl crashingDao = new FlooringMasteryOrderDaoFileImpl(
+                ORDER_FILE, EXPORT_FILE, NUMBER_FILE, JOURNAL_FILE, INDEX_FILE
+        );
+        FlooringMasteryOrderDaoFileImpl reopenedDao = null;
+        try {
+            // loads the clean index file
+            assertEquals(testOrder, crashingDao.findOrder(1));
+            // the day file is written, the crash comes before the index entry
+            Order secondOrder = new Order(testOrder);
+            secondOrder.setOrderNumber(2);
+            testOrderDao.uploadOrder(secondOrder);
+
+            reopenedDao = new FlooringMasteryOrderDaoFileImpl(
+                    ORDER_FILE, EXPORT_FILE, NUMBER_FILE, JOURNAL_FILE, INDEX_FILE
+            );
+            assertEquals(secondOrder, reopenedDao.findOrder(2));
+        } finally {
+            if (reopenedDao != null) {
+                reopenedDao.destroy();
+            }
+            crashingDao.destroy();
+        }
+    }
+
+    @Test
+    void testIndexFileIsCompactedDuringSession() throws Exception {
+        FlooringMasteryOrderDaoFileImpl indexedDao = new FlooringMasteryOrderDaoFileImpl(
+                ORDER_FILE, EXPORT_FILE, NUMBER_FILE, JOURNAL_FILE, INDEX_FILE
+        );
+        try {
+            indexedDao.uploadOrder(testOrder);
+            assertEquals(testOrder, indexedDao.findOrder(1));
+            for (int i = 0; i < 1100; i++) {
+                testOrder.setCustomerName("name" + i);
+                indexedDao.updateOrder(testOrder);
+            }
+            // every update logs a line, the file is replaced by a snapshot before it grows past the limit
+            assertTrue(Files.readAllLines(Paths.get(INDEX_FILE)).size() <= 1026);
+            assertEquals(testOrder, indexedDao.findOrder(1));
+        } finally {
+            indexedDao.destroy();
+        }
+    }
+
+    @Test
+    void testLeasedOrderNumbersAreUniqueAcrossDaosAndThreads() throws Exception {
+        String fileName = "src/test/resources/testOrders/number.txt";
+        int threads = 8;
+        int leasesPerThread = 25;
+        Set<Integer> numbers = Collections.synchronizedSet(new HashSet<>());
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            // every thread uses its own DAO like a separate process would
+            FlooringMasteryOrderDao dao = new FlooringMasteryOrderDaoFileImpl(ORDER_FILE, EXPORT_FILE, fileName);
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < leasesPerThread; i++) {
+                    try {
+                        int first = dao.leaseOrderNumbers(10);
+                        for (int number = first; number < first + 10; number++) {
+                            assertTrue(numbers.add(number));
+                        }
+                    } catch (FlooringMasteryPersistenceException e) {
+                        fail("Unexpected fail during leasing");
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(threads * leasesPerThread * 10, numbers.size());
+        assertEquals(threads * leasesPerThread * 10 + 1,
+                readNumberFile(fileName));
+    }
+
+    @Test
+    void testReleaseOrderNumbersOnlyIfNobodyLeasedAfter() throws Exception {
+        String fileName = "src/test/resources/testOrders/number.txt";
+        FlooringMasteryOrderDao dao = new FlooringMasteryOrderDaoFileImpl(ORDER_FILE, EXPORT_FILE, fileName);
+        int first = dao.leaseOrderNumbers(100);
+        assertEquals(1, first);
+        dao.releaseOrderNumbers(5, 101);
+        assertEquals(5, readNumberFile(fileName));
+        int second = dao.leaseOrderNumbers(100);
+        dao.leaseOrderNumbers(100);
+        // another block was leased after the second one, so numbers cannot be returned
+        dao.releaseOrderNumbers(second + 1, second + 100);
+        assertEquals(second + 200, readNumberFile(fileName));
+    }
+
+    @Test
+    void testGetOrdersBetweenReturnsOrdersOfRangeInDateOrder() throws FlooringMasteryPersistenceException {
+        // 30 days, uploaded in reverse date order, two orders per day
+        for (int day = 29; day >= 0; day--) {
+            for (int i = 1; i >= 0; i--) {
+                Order order = new Order(testOrder);
+                order.setDate(testOrder.getDate().plusDays(day));
+                order.setOrderNumber(day * 2 + i + 1);
+                testOrderDao.uploadOrder(order);
+            }
+        }
+        List<Integer> numbers = new ArrayList<>();
+        try (Stream<Order> orders = testOrderDao.getOrdersBetween(
+                testOrder.getDate().plusDays(5), testOrder.getDate().plusDays(24))) {
+            orders.forEach(order -> {
+                assertEquals(testOrder.getDate().plusDays((order.getOrderNumber() - 1) / 2), order.getDate());
+                numbers.add(order.getOrderNumber());
+            });
+        }
+        assertEquals(40, numbers.size());
+        for (int i = 0; i < numbers.size(); i++) {
+            assertEquals(11 + i, (int) numbers.get(i));
+        }
+    }
+
+    @Test
+    void testGetOrdersBetweenCoveringYearsOnlyLoadsExistingFiles() throws FlooringMasteryPersistenceException {
+        testOrderDao.uploadOrder(testOrder);
+        Order secondOrder = new Order(testOrder);
+        secondOrder.setDate(testOrder.getDate().plusYears(3));
+        secondOrder.setOrderNumber(2);
+        testOrderDao.uploadOrder(secondOrder);
+        try (Stream<Order> orders = testOrderDao.getOrdersBetween(LocalDate.MIN, LocalDate.MAX)) {
+            assertEquals(Arrays.asList(testOrder, secondOrder), orders.collect(Collectors.toList()));
+        }
+        try (Stream<Order> orders = testOrderDao.getOrdersBetween(
+                testOrder.getDate().plusDays(1), secondOrder.getDate().minusDays(1))) {
+            assertEquals(0, orders.count());
+        }
+    }
+
+    @Test
+    void testGetOrdersBetweenCanBeClosedBeforeItIsConsumed() throws FlooringMasteryPersistenceException {
+        for (int day = 0; day < 50; day++) {
+            Order order = new Order(testOrder);
+            order.setDate(testOrder.getDate().plusDays(day));
+            order.setOrderNumber(day + 1);
+            testOrderDao.uploadOrder(order);
+        }
+        try (Stream<Order> orders = testOrderDao.getOrdersBetween(testOrder.getDate(), testOrder.getDate().plusDays(49))) {
+            assertEquals(Arrays.asList(1, 2, 3),
+                    orders.limit(3).map(Order::getOrderNumber).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void testScanOrdersMatchesFilteredRangeOnMappedAndStreamedFiles() throws FlooringMasteryPersistenceException {
+        String[] names = {"Ann", "Bob", "Ann Lee"};
+        String[] states = {"Texas", "Ohio"};
+        String[] types = {"Wood", "Tile", "Carpet"};
+        for (int i = 0; i < 60; i++) {
+            Order order = new Order(testOrder.getDate().plusDays(i % 6), names[i % 3], states[i % 2],
+                    new BigDecimal("4.45"), types[i % 3 == 0 ? i % 2 : 2], new BigDecimal(100 + 10 * i),
+                    new BigDecimal("5.15"), new BigDecimal("4.75"));
+            order.setOrderNumber(i + 1);
+            testOrderDao.uploadOrder(order);
+        }
+        // the record which matched is followed by a record which doesn't
+        Order edited = new Order(testOrderDao.findOrder(1));
+        edited.setCustomerName("Bob");
+        testOrderDao.updateOrder(edited);
+
+        List<OrderFilter> filters = Arrays.asList(
+                new OrderFilter("Ann", null, null, null, null, null, null),
+                new OrderFilter(null, "Ohio", "Carpet", null, null, null, null),
+                new OrderFilter(null, "Texas", null, new BigDecimal("200"), new BigDecimal("500.00"), null, null),
+                new OrderFilter("Bob", null, null, null, null, new BigDecimal("3000"), new BigDecimal("6000")),
+                new OrderFilter("Nobody", null, null, null, null, null, null),
+                new OrderFilter(null, null, null, null, null, null, null));
+        FlooringMasteryOrderDaoFileImpl streamingDao = new FlooringMasteryOrderDaoFileImpl(ORDER_FILE, EXPORT_FILE, NUMBER_FILE);
+        streamingDao.setMapThreshold(0);
+        LocalDate from = testOrder.getDate().plusDays(1);
+        LocalDate to = testOrder.getDate().plusDays(10);
+        for (OrderFilter filter : filters) {
+            List<Order> expected;
+            try (Stream<Order> orders = testOrderDao.getOrdersBetween(LocalDate.MIN, LocalDate.MAX)) {
+                expected = orders.filter(filter).collect(Collectors.toList());
+            }
+            try (Stream<Order> orders = testOrderDao.scanOrders(LocalDate.MIN, LocalDate.MAX, filter)) {
+                assertEquals(expected, orders.collect(Collectors.toList()));
+            }
+            try (Stream<Order> orders = streamingDao.scanOrders(from, to, filter)) {
+                assertEquals(expected.stream().filter(order -> !order.getDate().isBefore(from))
+                        .collect(Collectors.toList()), orders.collect(Collectors.toList()));
+            }
+        }
+        try (Stream<Order> orders = testOrderDao.scanOrders(testOrder.getDate(), testOrder.getDate(), filters.get(0))) {
+            assertFalse(orders.anyMatch(order -> order.getOrderNumber() == 1));
+        }
+    }
+
+    @Test
+    void testRestoreOrdersRebuildsDayFilesAndOrderNumber() throws Exception {
+        testOrderDao = new FlooringMasteryOrderDaoFileImpl(ORDER_FILE, EXPORT_FILE, NUMBER_FILE);
+        String numberFile = "src/test/resources/testBackup/restoredNumber.txt";
+        Map<LocalDate, Map<Integer, Order>> exported = new HashMap<>();
+        int orderNumber = 20;
+        for (int day = 0; day < 3; day++) {
+            LocalDate date = testOrder.getDate().plusDays(day);
+            for (int i = 0; i < 2; i++) {
+                Order order = new Order(testOrder);
+                order.setDate(date);
+                order.setOrderNumber(orderNumber++);
+                testOrderDao.uploadOrder(order);
+            }
+            exported.put(date, testOrderDao.getOrdersForDate(date));
+        }
+        // edited and removed orders are exported as they are now
+        Order edited = new Order(exported.get(testOrder.getDate()).get(20));
+        edited.setCustomerName("editedName");
+        testOrderDao.updateOrder(edited);
+        testOrderDao.removeOrder(testOrder.getDate(), 21);
+        exported.put(testOrder.getDate(), testOrderDao.getOrdersForDate(testOrder.getDate()));
+        testOrderDao.exportOrders();
+        tearDown();
+
+        FlooringMasteryOrderDao restoringDao = new FlooringMasteryOrderDaoFileImpl(
+                ORDER_FILE, EXPORT_FILE, numberFile);
+        try {
+            RestoreReport report = restoringDao.restoreOrders();
+            assertEquals(3, report.getFileCount());
+            assertEquals(5, report.getOrderCount());
+            assertEquals(25, report.getMaxOrderNumber());
+            assertEquals(new File(EXPORT_FILE).length(), report.getByteCount());
+            for (Map.Entry<LocalDate, Map<Integer, Order>> entry : exported.entrySet()) {
+                assertEquals(entry.getValue(), restoringDao.getOrdersForDate(entry.getKey()));
+            }
+            assertEquals(edited, restoringDao.findOrder(20));
+            assertNull(restoringDao.findOrder(21));
+            assertEquals(26, readNumberFile(numberFile));
+            in = new Scanner(new BufferedReader(new FileReader(
+                    ORDER_FILE + "/Order_" + testOrder.getDate().format(fileFormatter) + ".txt")));
+            assertEquals(HEADER, in.nextLine());
+            in.close();
+        } catch (FileNotFoundException e) {
+            fail("Day file should be restored");
+        } finally {
+            new File(numberFile).delete();
+        }
+    }
+
+    @Test
+    void testRestoreOrdersDoesNotMoveOrderNumberBack() throws Exception {
+        testOrderDao = new FlooringMasteryOrderDaoFileImpl(ORDER_FILE, EXPORT_FILE, NUMBER_FILE);
+        testOrderDao.uploadOrder(testOrder);
+        testOrderDao.exportOrders();
+        RestoreReport report = testOrderDao.restoreOrders();
+        assertEquals(1, report.getOrderCount());
+        assertEquals(10, readNumberFile(NUMBER_FILE));
+        assertEquals(testOrder, testOrderDao.findOrder(1));
+    }
+
+    @Test
+    void testRestoreOrdersFromMalformedExportThrowsException() {
+        String backupFile = "src/test/resources/testBackup/malformed.txt";
+        try {
+            out = new PrintWriter(new FileWriter(backupFile));
+            out.println(BACKUP_HEADER);
+            out.println(orderAsString + DELIMITER + "13-45-2012");
+            out.close();
+        } catch (IOException e) {
+            fail("Fails to create backup file");
+        }
+        FlooringMasteryOrderDao malformedDao = new FlooringMasteryOrderDaoFileImpl(
+                ORDER_FILE, backupFile, NUMBER_FILE);
+        try {
+            assertThrows(FlooringMasteryPersistenceException.class, malformedDao::restoreOrders);
+        } finally {
+            new File(backupFile).delete();
+        }
+    }
+
+    @Test
+    void testExportChangedOrdersReusesUnchangedDates() throws Exception {
+        testOrderDao = new FlooringMasteryOrderDaoFileImpl(ORDER_FILE, EXPORT_FILE, NUMBER_FILE);
+        for (int day = 0; day < 3; day++) {
+            Order order = new Order(testOrder);
+            order.setDate(testOrder.getDate().plusDays(day));
+            order.setOrderNumber(day + 1);
+            testOrderDao.uploadOrder(order);
+        }
+        testOrderDao.exportOrders();
+        assertTrue(new File(MANIFEST_FILE).exists());
+        // change the date in the middle
+        Order order = new Order(testOrder);
+        order.setDate(testOrder.getDate().plusDays(1));
+        order.setOrderNumber(4);
+        testOrderDao.uploadOrder(order);
+
+        ExportReport report = testOrderDao.exportChangedOrders();
+        assertEquals(3, report.getFileCount());
+        assertEquals(2, report.getReusedFileCount());
+        assertEquals(4, report.getOrderCount());
+        byte[] incremental = Files.readAllBytes(Paths.get(EXPORT_FILE));
+        assertEquals(0, testOrderDao.exportOrders().getReusedFileCount());
+        assertArrayEquals(Files.readAllBytes(Paths.get(EXPORT_FILE)), incremental);
+        assertEquals(3, testOrderDao.exportChangedOrders().getReusedFileCount());
+    }
+
+    @Test
+    void testExportChangedOrdersReusesTouchedFileWithSameContent() throws Exception {
+        testOrderDao = new FlooringMasteryOrderDaoFileImpl(ORDER_FILE, EXPORT_FILE, NUMBER_FILE);
+        testOrderDao.uploadOrder(testOrder);
+        testOrderDao.exportOrders();
+        File dayFile = new File(ORDER_FILE + "/Order_" + testOrder.getDate().format(fileFormatter) + ".txt");
+        assertTrue(dayFile.setLastModified(dayFile.lastModified() + 10000));
+        ExportReport report = testOrderDao.exportChangedOrders();
+        assertEquals(1, report.getReusedFileCount());
+        assertEquals(1, report.getOrderCount());
+    }
+
+    @Test
+    void testExportChangedOrdersSeesRemovalInSameClockTick() throws Exception {
+        testOrderDao = new FlooringMasteryOrderDaoFileImpl(ORDER_FILE, EXPORT_FILE, NUMBER_FILE);
+        Order secondOrder = new Order(testOrder);
+        secondOrder.setOrderNumber(2);
+        testOrderDao.uploadOrder(testOrder);
+        testOrderDao.uploadOrder(secondOrder);
+        // the day file looks modified when the export started
+        File dayFile = new File(ORDER_FILE + "/Order_" + testOrder.getDate().format(fileFormatter) + ".txt");
+        long tick = System.currentTimeMillis() + 60000;
+        assertTrue(dayFile.setLastModified(tick));
+        testOrderDao.exportChangedOrders();
+
+        // removal keeps the size of the day file and happens within the same tick
+        testOrderDao.removeOrder(testOrder.getDate(), 2);
+        assertTrue(dayFile.setLastModified(tick));
+        ExportReport report = testOrderDao.exportChangedOrders();
+        assertEquals(0, report.getReusedFileCount());
+        assertEquals(1, report.getOrderCount());
+        List<String> lines = Files.readAllLines(Paths.get(EXPORT_FILE));
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(1).startsWith("1::"));
+    }
+
+    @Test
+    void testExportChangedOrdersConvertsAllFilesIfBackupWasChanged() throws Exception {
+        testOrderDao = new FlooringMasteryOrderDaoFileImpl(ORDER_FILE, EXPORT_FILE, NUMBER_FILE);
+        testOrderDao.uploadOrder(testOrder);
+        testOrderDao.exportOrders();
+        byte[] exported = Files.readAllBytes(Paths.get(EXPORT_FILE));
+        Files.write(Paths.get(EXPORT_FILE), "broken".getBytes(), StandardOpenOption.APPEND);
+        ExportReport report = testOrderDao.exportChangedOrders();
+        assertEquals(0, report.getReusedFileCount());
+        assertArrayEquals(exported, Files.readAllBytes(Paths.get(EXPORT_FILE)));
+    }
+}
@@ -0,0 +1,204 @@
+package flooring.dao;
+
+import flooring.model.Order;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs mixed operations on a few dates from many threads at once and checks
+ * that every change survived
+ */
+class FlooringMasteryOrderDaoStressTest {
+
+    private final String ORDER_FILE = "src/test/resources/stressOrders";
+    private final String BACKUP_FILE = "src/test/resources/testBackup/stress.txt";
+    private final String NUMBER_FILE = "src/test/resources/stressNumber.txt";
+
+    private final int THREADS = 32;
+    private final int OPERATIONS_PER_THREAD = 150;
+    private final int DATES = 4;
+    private final BigDecimal COUNTER_AREA = new BigDecimal("100");
+
+    private final LocalDate firstDate = LocalDate.of(2012, 12, 12);
+    private FlooringMasteryOrderDaoFileImpl fileDao;
+
+    @BeforeEach
+    void setUp() {
+        // files left by an interrupted run would look like lost or resurrected orders
+        deleteFiles();
+        fileDao = new FlooringMasteryOrderDaoFileImpl(ORDER_FILE, BACKUP_FILE, NUMBER_FILE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteFiles();
+    }
+
+    private void deleteFiles() {
+        try {
+            FileUtils.deleteDirectory(new File(ORDER_FILE));
+        } catch (IOException e) {
+            fail("fails during deleting directory");
+        }
+        new File(NUMBER_FILE).delete();
+        new File(BACKUP_FILE).delete();
+    }
+
+    @Test
+    void testConcurrentChangesOfFileDaoAreNotLost() throws Exception {
+        hammer(fileDao);
+    }
+
+    @Test
+    void testConcurrentChangesOfCacheDaoAreNotLost() throws Exception {
+        hammer(new FlooringMasteryOrderDaoCacheImpl(fileDao, 2, Long.MAX_VALUE));
+    }
+
+    /**
+     * Every date has a counter order whose area is incremented by modifyOrders.
+     * Threads also add orders with uploadOrder and modifyOrders, rename and remove
+     * their own orders and compact day files. At the end orders of every date,
+     * read by a new DAO, should be exactly the expected ones
+     * @param dao DAO under test
+     */
+    private void hammer(FlooringMasteryOrderDao dao) throws Exception {
+        Map<LocalDate, Integer> counters = new HashMap<>();
+        for (int i = 0; i < DATES; i++) {
+            LocalDate date = firstDate.plusDays(i);
+            Order counter = newOrder(date, "counter", COUNTER_AREA);
+            counter.setOrderNumber(dao.leaseOrderNumbers(1));
+            dao.uploadOrder(counter);
+            counters.put(date, counter.getOrderNumber());
+        }
+        AtomicIntegerArray increments = new AtomicIntegerArray(DATES);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Map<Integer, Order>>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return runOperations(dao, thread, counters, increments);
+                }));
+            }
+            start.countDown();
+            Map<LocalDate, Map<Integer, String>> expected = new HashMap<>();
+            for (Future<Map<Integer, Order>> result : results) {
+                for (Order order : result.get().values()) {
+                    expected.computeIfAbsent(order.getDate(), date -> new HashMap<>())
+                            .put(order.getOrderNumber(), order.getCustomerName());
+                }
+            }
+
+            FlooringMasteryOrderDao reloaded = new FlooringMasteryOrderDaoFileImpl(ORDER_FILE, BACKUP_FILE, NUMBER_FILE);
+            for (int i = 0; i < DATES; i++) {
+                LocalDate date = firstDate.plusDays(i);
+                Map<Integer, Order> orderMap = reloaded.getOrdersForDate(date);
+                Order counter = orderMap.remove(counters.get(date));
+                assertNotNull(counter, "counter order of " + date + " is lost");
+                assertEquals(0, COUNTER_AREA.add(BigDecimal.valueOf(increments.get(i))).compareTo(counter.getArea()),
+                        "increments of " + date + " are lost");
+                Map<Integer, String> names = new HashMap<>();
+                orderMap.forEach((number, order) -> names.put(number, order.getCustomerName()));
+                assertEquals(expected.getOrDefault(date, Map.of()), names, "orders of " + date + " differ");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs random operations on random dates
+     * @return orders of the thread which should exist at the end
+     */
+    private Map<Integer, Order> runOperations(FlooringMasteryOrderDao dao, int thread,
+                                              Map<LocalDate, Integer> counters, AtomicIntegerArray increments)
+            throws FlooringMasteryPersistenceException {
+        Random random = new Random(thread);
+        Map<Integer, Order> own = new HashMap<>();
+        for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+            int dateIndex = random.nextInt(DATES);
+            LocalDate date = firstDate.plusDays(dateIndex);
+            String name = "t" + thread + "-" + i;
+            List<Integer> ownNumbers = new ArrayList<>(own.keySet());
+            switch (random.nextInt(6)) {
+                case 0: {
+                    Order order = newOrder(date, name, COUNTER_AREA);
+                    order.setOrderNumber(dao.leaseOrderNumbers(1));
+                    dao.uploadOrder(order);
+                    own.put(order.getOrderNumber(), order);
+                    break;
+                }
+                case 1: {
+                    Order order = newOrder(date, name, COUNTER_AREA);
+                    order.setOrderNumber(dao.leaseOrderNumbers(1));
+                    assertTrue(dao.modifyOrders(date, orderMap -> {
+                        orderMap.put(order.getOrderNumber(), order);
+                        return true;
+                    }));
+                    own.put(order.getOrderNumber(), order);
+                    break;
+                }
+                case 2: {
+                    int number = counters.get(date);
+                    assertTrue(dao.modifyOrders(date, orderMap -> {
+                        Order counter = new Order(orderMap.get(number));
+                        counter.setArea(counter.getArea().add(BigDecimal.ONE));
+                        orderMap.put(number, counter);
+                        return true;
+                    }));
+                    increments.incrementAndGet(dateIndex);
+                    break;
+                }
+                case 3:
+                    if (!ownNumbers.isEmpty()) {
+                        Order order = new Order(own.get(ownNumbers.get(random.nextInt(ownNumbers.size()))));
+                        order.setCustomerName(name);
+                        dao.updateOrder(order);
+                        own.put(order.getOrderNumber(), order);
+                    }
+                    break;
+                case 4:
+                    if (!ownNumbers.isEmpty()) {
+                        Order order = own.remove(ownNumbers.get(random.nextInt(ownNumbers.size())));
+                        if (random.nextBoolean()) {
+                            dao.removeOrder(order.getDate(), order.getOrderNumber());
+                        } else {
+                            assertTrue(dao.modifyOrders(order.getDate(),
+                                    orderMap -> orderMap.remove(order.getOrderNumber()) != null));
+                        }
+                    }
+                    break;
+                default:
+                    fileDao.compactOrders(date);
+            }
+        }
+        return own;
+    }
+
+    private Order newOrder(LocalDate date, String name, BigDecimal area) {
+        return new Order(date, name, "Texas", new BigDecimal("4.45"), "Tile", area,
+                new BigDecimal("3.50"), new BigDecimal("4.15"));
+    }
+}
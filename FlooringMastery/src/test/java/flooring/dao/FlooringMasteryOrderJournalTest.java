@@ -0,0 +1,100 @@
+package flooring.dao;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlooringMasteryOrderJournalTest {
+
+    private final String JOURNAL_FILE = "src/test/resources/testBackup/orderJournal.txt";
+
+    @AfterEach
+    void tearDown() {
+        new File(JOURNAL_FILE).delete();
+        new File(JOURNAL_FILE + ".tmp").delete();
+    }
+
+    @Test
+    void testRemovedRecordIsNotReplayedAfterCrash() throws Exception {
+        // stands for the day files, recovery skips records which are still there
+        Set<String> store = ConcurrentHashMap.newKeySet();
+        List<String> failing = Collections.synchronizedList(new ArrayList<>());
+        FlooringMasteryOrderJournal[] crashing = new FlooringMasteryOrderJournal[1];
+        crashing[0] = new FlooringMasteryOrderJournal(JOURNAL_FILE, (records, recovering) -> {
+            if (records.contains("2::second")) {
+                // crash before the second record is applied
+                failing.addAll(records);
+                throw new IOException("crash");
+            }
+            store.addAll(records);
+            if (records.contains("1::first")) {
+                // the second record is durable while the first one is applied
+                try {
+                    crashing[0].append("2::second");
+                } catch (FlooringMasteryPersistenceException e) {
+                    throw new IOException(e);
+                }
+            }
+        });
+        crashing[0].append("1::first");
+        // the second record is appended before the first one counts as applied
+        crashing[0].checkpoint();
+        assertThrows(FlooringMasteryPersistenceException.class, crashing[0]::checkpoint);
+        assertThrows(FlooringMasteryPersistenceException.class, crashing[0]::close);
+        assertEquals(List.of("2::second"), failing);
+        // the first order is removed after it was applied
+        store.remove("1::first");
+
+        List<String> replayed = new ArrayList<>();
+        FlooringMasteryOrderJournal recovered = new FlooringMasteryOrderJournal(JOURNAL_FILE, (records, recovering) -> {
+            for (String record : records) {
+                if (!recovering || !store.contains(record)) {
+                    replayed.add(record);
+                }
+            }
+        });
+        recovered.close();
+        assertEquals(List.of("2::second"), replayed);
+    }
+
+    @Test
+    void testAppliedRecordsAreCutOffUnderSteadyWrites() throws Exception {
+        char[] filler = new char[1000];
+        Arrays.fill(filler, 'x');
+        int count = (int) (2 * FlooringMasteryOrderJournal.COMPACT_BYTES / filler.length);
+        long[] largest = new long[1];
+        int[] applied = new int[1];
+        FlooringMasteryOrderJournal[] journal = new FlooringMasteryOrderJournal[1];
+        journal[0] = new FlooringMasteryOrderJournal(JOURNAL_FILE, (records, recovering) -> {
+            largest[0] = Math.max(largest[0], Files.size(Paths.get(JOURNAL_FILE)));
+            applied[0] += records.size();
+            // the next record is always durable before the previous one is applied
+            if (applied[0] < count) {
+                try {
+                    journal[0].append(applied[0] + "::" + new String(filler));
+                } catch (FlooringMasteryPersistenceException e) {
+                    throw new IOException(e);
+                }
+            }
+        });
+        journal[0].append("0::" + new String(filler));
+        do {
+            journal[0].checkpoint();
+        } while (applied[0] < count);
+        journal[0].close();
+        assertEquals(count, applied[0]);
+        assertTrue(largest[0] < FlooringMasteryOrderJournal.COMPACT_BYTES + 4L * filler.length);
+    }
+}
@@ -3,7 +3,10 @@ package flooring.dao;
 import flooring.model.Product;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Collection;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -79,4 +82,30 @@ class FlooringMasteryProductDaoFileImplTest {
         assertTrue(products.contains(product2));
         assertEquals(2, products.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testProductFileChangeIsReloaded() throws Exception {
+        File directory = new File("src/test/resources/testCatalogs");
+        directory.mkdirs();
+        File file = new File(directory, "productWatch.txt");
+        Files.write(file.toPath(), Arrays.asList("ProductType::CostPerSquareFoot::LaborCostPerSquareFoot", "Wood::5.15::4.75"));
+        FlooringMasteryProductDaoFileImpl testProductDao = new FlooringMasteryProductDaoFileImpl(file.getPath());
+        try {
+            testProductDao.afterPropertiesSet();
+            testProductDao.loadProducts();
+            assertEquals(new BigDecimal("5.15"), testProductDao.getProduct("wood").getCostPerSquareFoot());
+            long version = testProductDao.getCatalogVersion();
+            // readers keep getting the old snapshot until the new one is loaded completely
+            Files.write(file.toPath(), Arrays.asList("ProductType::CostPerSquareFoot::LaborCostPerSquareFoot", "Wood::6.00::4.75"));
+            assertNotNull(testProductDao.getProduct("wood"));
+            assertTrue(testProductDao.awaitCatalogVersion(version + 1, 10_000));
+            assertEquals(version + 1, testProductDao.getCatalogVersion());
+            assertEquals(new BigDecimal("6.00"), testProductDao.getProduct("wood").getCostPerSquareFoot());
+            assertTrue(testProductDao.getLastReloadNanos() > 0);
+        } finally {
+            testProductDao.destroy();
+            file.delete();
+            directory.delete();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package flooring.dao;
+
+import flooring.model.Order;
+import flooring.model.Product;
+import flooring.model.Tax;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class FlooringMasteryRecordCodecTest {
+
+    private FlooringMasteryRecordCodec codec;
+    private Order testOrder;
+
+    @BeforeEach
+    void setUp() {
+        codec = new FlooringMasteryRecordCodec();
+        testOrder = new Order(
+                LocalDate.parse("2012-12-12"), "testName", "testState",
+                new BigDecimal("10.00"), "testType", new BigDecimal("100.00"),
+                new BigDecimal("10.0"), new BigDecimal("5.0")
+        );
+        testOrder.setOrderNumber(1);
+    }
+
+    @Test
+    void testEncodeOrderWritesAllColumns() {
+        assertEquals("1::testName::testState::10.00::testType::100.00::10.0::5.0::1000.00::500.00::150.00::1650.00",
+                codec.encodeOrder(testOrder));
+    }
+
+    @Test
+    void testDecodeOrderKeepsScaleOfNumbers() {
+        Order order = codec.decodeOrder(codec.encodeOrder(testOrder));
+        order.setDate(testOrder.getDate());
+        assertEquals(testOrder, order);
+        assertEquals(new BigDecimal("10.00"), order.getTaxRate());
+        assertEquals(new BigDecimal("10.0"), order.getCostPerSquareFoot());
+        assertEquals(new BigDecimal("5.0"), order.getLaborCostPerSquareFoot());
+        assertEquals(testOrder.getTotal(), order.getTotal());
+    }
+
+    @Test
+    void testDecodeOrderMatchesSplitParsing() {
+        String[] records = {
+                "7::Doctor Who::TX::4.45::Wood::243.00::5.15::4.75::1251.45::1154.25::107.08::2512.78",
+                "123456::A, B::CA::25.00::Tile::100::3.5::4.15::350.00::415.00::191.25::956.25",
+                "2::x::WA::.5::Carpet::-1.25::+2.25::0::0::0::0::0",
+                "3::name::KY::6.00::Laminate::1234567890123456789.5::1.75::2.10::0::0::0::0",
+                "4::name::KY::6.00::Laminate::1E+2::1.75::2.10::0::0::0::0"
+        };
+        for (String record : records) {
+            String[] fields = record.split("::");
+            byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+            for (Order order : new Order[]{codec.decodeOrder(record), codec.decodeOrder(bytes, 0, bytes.length)}) {
+                assertEquals(Integer.parseInt(fields[0]), order.getOrderNumber());
+                assertEquals(fields[1], order.getCustomerName());
+                assertEquals(fields[2], order.getState());
+                assertEquals(new BigDecimal(fields[3]), order.getTaxRate());
+                assertEquals(fields[4], order.getProductType());
+                assertEquals(new BigDecimal(fields[5]), order.getArea());
+                assertEquals(new BigDecimal(fields[6]), order.getCostPerSquareFoot());
+                assertEquals(new BigDecimal(fields[7]), order.getLaborCostPerSquareFoot());
+            }
+        }
+    }
+
+    @Test
+    void testDecodeOrderFromBytesWithMultiByteCharacters() {
+        testOrder.setCustomerName("Zoë Müller 山田");
+        testOrder.setState("Québec");
+        byte[] bytes = ("xx" + codec.encodeOrder(testOrder) + "\n").getBytes(StandardCharsets.UTF_8);
+        Order order = codec.decodeOrder(bytes, 2, bytes.length - 1);
+        assertEquals("Zoë Müller 山田", order.getCustomerName());
+        assertEquals("Québec", order.getState());
+        assertEquals("testType", order.getProductType());
+        assertEquals(new BigDecimal("100.00"), order.getArea());
+    }
+
+    @Test
+    void testDecodeOrderFromBufferMatchesBytes() {
+        testOrder.setCustomerName("Zoë Müller 山田");
+        byte[] bytes = ("xx" + codec.encodeOrder(testOrder) + "\n").getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes);
+        buffer.position(bytes.length - 1);
+        Order order = codec.decodeOrder(buffer, 2, bytes.length - 1);
+        assertEquals(codec.encodeOrder(codec.decodeOrder(bytes, 2, bytes.length - 1)), codec.encodeOrder(order));
+        assertEquals("Zoë Müller 山田", order.getCustomerName());
+        assertEquals(bytes.length - 1, buffer.position());
+    }
+
+    @Test
+    void testLazyOrderDecodesFieldsOnAccess() {
+        testOrder.setCustomerName("Zoë, Müller");
+        byte[] bytes = ("xx" + codec.encodeOrder(testOrder) + "\n").getBytes(StandardCharsets.UTF_8);
+        Order order = codec.decodeLazyOrder(ByteBuffer.wrap(bytes), 2, bytes.length - 1);
+        order.setDate(testOrder.getDate());
+
+        assertEquals(1, order.getOrderNumber());
+        assertEquals(testOrder, order);
+        assertEquals(testOrder.getTotal(), order.getTotal());
+        assertEquals(codec.encodeOrder(testOrder), codec.encodeOrder(order));
+        assertEquals(testOrder, order.copy());
+        assertEquals(testOrder, new Order(order));
+    }
+
+    @Test
+    void testLazyOrderKeepsSetFields() {
+        byte[] bytes = codec.encodeOrder(testOrder).getBytes(StandardCharsets.UTF_8);
+        Order order = codec.decodeLazyOrder(ByteBuffer.wrap(bytes), 0, bytes.length);
+        Order copy = order.copy();
+        order.setCustomerName(null);
+        order.setArea(new BigDecimal("200.00"));
+
+        assertNull(order.getCustomerName());
+        assertEquals("testState", order.getState());
+        assertEquals(new BigDecimal("3300.00"), order.getTotal());
+        assertEquals("testName", copy.getCustomerName());
+        assertEquals(new BigDecimal("100.00"), copy.getArea());
+    }
+
+    @Test
+    void testLazyOrderThrowsForMalformedFieldOnAccess() {
+        byte[] bytes = "7::name::Texas::x::Wood::100::1::1".getBytes(StandardCharsets.UTF_8);
+        Order order = codec.decodeLazyOrder(ByteBuffer.wrap(bytes), 0, bytes.length);
+        assertEquals("name", order.getCustomerName());
+        assertThrows(NumberFormatException.class, order::getTaxRate);
+        byte[] malformedNumber = "x::name".getBytes(StandardCharsets.UTF_8);
+        assertThrows(NumberFormatException.class,
+                () -> codec.decodeLazyOrder(ByteBuffer.wrap(malformedNumber), 0, malformedNumber.length));
+    }
+
+    @Test
+    void testDecodeOrderSharesRepeatingValues() {
+        String record = codec.encodeOrder(testOrder);
+        byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+        Order first = codec.decodeOrder(record);
+        Order second = codec.decodeOrder(bytes, 0, bytes.length);
+        assertSame(first.getState(), second.getState());
+        assertSame(first.getProductType(), second.getProductType());
+    }
+
+    @Test
+    void testDecodeOrderRejectsMalformedRecord() {
+        assertThrows(NumberFormatException.class, () -> codec.decodeOrder("x1::name::state::1::type::1::1::1"));
+        assertThrows(NumberFormatException.class, () -> codec.decodeOrder("1::name::state::1..0::type::1::1::1"));
+        assertThrows(NumberFormatException.class, () -> codec.decodeOrder("1::name::state::::type::1::1::1"));
+    }
+
+    @Test
+    void testDecodeTaxAndProduct() {
+        Tax tax = codec.decodeTax("AL::Alabama::4.00");
+        assertEquals("Alabama", tax.getStateName());
+        assertEquals(new BigDecimal("4.00"), tax.getTaxRate());
+        Product product = codec.decodeProduct("Carpet::2.25::2.10");
+        assertEquals(new Product(new String[]{"Carpet", "2.25", "2.10"}), product);
+    }
+
+    @Test
+    void testUtf8LengthMatchesEncoding() {
+        String text = "a::é::山::😀::z";
+        assertEquals(text.getBytes(StandardCharsets.UTF_8).length,
+                FlooringMasteryRecordCodec.utf8Length(text, 0, text.length()));
+    }
+
+    @Test
+    void testDecodeAllocatesLessThanSplit() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        byte[] bytes = codec.encodeOrder(testOrder).getBytes(StandardCharsets.UTF_8);
+        String record = codec.encodeOrder(testOrder);
+        int rounds = 20_000;
+        long checksum = 0;
+        // warm up both paths
+        for (int i = 0; i < rounds; i++) {
+            checksum += codec.decodeOrder(bytes, 0, bytes.length).getOrderNumber() + splitDecode(record).getOrderNumber();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < rounds; i++) {
+            checksum += splitDecode(record).getOrderNumber();
+        }
+        long splitBytes = threads.getThreadAllocatedBytes(threadId) - before;
+        before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < rounds; i++) {
+            checksum += codec.decodeOrder(bytes, 0, bytes.length).getOrderNumber();
+        }
+        long codecBytes = threads.getThreadAllocatedBytes(threadId) - before;
+        assertEquals(4L * rounds, checksum);
+        assertTrue(codecBytes * 2 < splitBytes,
+                "codec allocated " + codecBytes + " bytes, split allocated " + splitBytes + " bytes");
+    }
+
+    /**
+     * Parses record the way DAOs did before the codec
+     * @param record order record
+     * @return Order object
+     */
+    private Order splitDecode(String record) {
+        String[] orderArray = record.split("::");
+        Order order = new Order();
+        order.setOrderNumber(Integer.parseInt(orderArray[0]));
+        order.setCustomerName(orderArray[1]);
+        order.setState(orderArray[2]);
+        order.setTaxRate(new BigDecimal(orderArray[3]));
+        order.setProductType(orderArray[4]);
+        order.setArea(new BigDecimal(orderArray[5]));
+        order.setCostPerSquareFoot(new BigDecimal(orderArray[6]));
+        order.setLaborCostPerSquareFoot(new BigDecimal(orderArray[7]));
+        return order;
+    }
+}
@@ -3,7 +3,10 @@ package flooring.dao;
 import flooring.model.Tax;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -54,4 +57,30 @@ class FlooringMasteryTaxDaoFileImplTest {
         Tax testTax = testTaxDao.getTax("notExisting");
         assertNull(testTax);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testTaxFileChangeIsReloaded() throws Exception {
+        File directory = new File("src/test/resources/testCatalogs");
+        directory.mkdirs();
+        File file = new File(directory, "taxWatch.txt");
+        Files.write(file.toPath(), Arrays.asList("StateAbbreviation::StateName::TaxRate", "TX::Texas::4.45"));
+        FlooringMasteryTaxDaoFileImpl testTaxDao = new FlooringMasteryTaxDaoFileImpl(file.getPath());
+        try {
+            testTaxDao.afterPropertiesSet();
+            testTaxDao.loadTaxes();
+            assertEquals(new BigDecimal("4.45"), testTaxDao.getTax("texas").getTaxRate());
+            long version = testTaxDao.getCatalogVersion();
+            // readers keep getting the old snapshot until the new one is loaded completely
+            Files.write(file.toPath(), Arrays.asList("StateAbbreviation::StateName::TaxRate", "TX::Texas::5.00"));
+            assertNotNull(testTaxDao.getTax("texas"));
+            assertTrue(testTaxDao.awaitCatalogVersion(version + 1, 10_000));
+            assertEquals(version + 1, testTaxDao.getCatalogVersion());
+            assertEquals(new BigDecimal("5.00"), testTaxDao.getTax("texas").getTaxRate());
+            assertTrue(testTaxDao.getLastReloadNanos() > 0);
+        } finally {
+            testTaxDao.destroy();
+            file.delete();
+            directory.delete();
+        }
+    }
+}
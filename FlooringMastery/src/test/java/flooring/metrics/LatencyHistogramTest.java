@@ -0,0 +1,96 @@
+package flooring.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testBucketsCoverAllValues() {
+        long[] values = {0, 1, 15, 16, 17, 31, 32, 33, 1000, 123_456_789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(LatencyHistogram.highestValueOf(bucket) >= value, "value " + value);
+            if (bucket > 0) {
+                assertTrue(LatencyHistogram.highestValueOf(bucket - 1) < value, "value " + value);
+            }
+        }
+    }
+
+    @Test
+    void testPercentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Long> values = new ArrayList<>();
+        Random random = new Random(5L);
+        for (int i = 0; i < 100_000; i++) {
+            long value = (long) Math.exp(random.nextDouble() * 20);
+            values.add(value);
+            histogram.record(value);
+        }
+        values.sort(null);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(values.size(), snapshot.getCount());
+        assertEquals(values.get(values.size() - 1).longValue(), snapshot.getMax());
+        for (double percentile : new double[]{50, 90, 99, 99.9, 100}) {
+            long exact = values.get((int) Math.ceil(values.size() * percentile / 100) - 1);
+            long estimate = snapshot.getValueAtPercentile(percentile);
+            assertTrue(estimate >= exact && estimate <= exact + exact / 16 + 1,
+                    "p" + percentile + ": " + estimate + " for " + exact);
+        }
+    }
+
+    @Test
+    void testEmptyHistogram() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getValueAtPercentile(99));
+        assertEquals(0, snapshot.getMean());
+    }
+
+    @Test
+    void testConcurrentRecordingLosesNoValues() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 1; i <= 100_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(800_000, snapshot.getCount());
+        assertEquals(8 * 100_000L * 100_001 / 2, snapshot.getSum());
+        assertEquals(100_000, snapshot.getMax());
+    }
+
+    @Test
+    void testCountersOfFinishedThreadsAreFolded() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int run = 0; run < 50; run++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 1; i <= 100; i++) {
+                    histogram.record(i);
+                }
+            });
+            thread.start();
+            thread.join();
+        }
+        histogram.record(1000);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1, histogram.recorderCount());
+        assertEquals(5001, snapshot.getCount());
+        assertEquals(50 * 5050L + 1000, snapshot.getSum());
+        assertEquals(1000, snapshot.getMax());
+        assertEquals(LatencyHistogram.highestValueOf(LatencyHistogram.bucketOf(100)), snapshot.getValueAtPercentile(99));
+    }
+}
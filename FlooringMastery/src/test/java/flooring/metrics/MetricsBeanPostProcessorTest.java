@@ -0,0 +1,100 @@
+package flooring.metrics;
+
+import flooring.dao.FlooringMasteryOrderDao;
+import flooring.dao.FlooringMasteryOrderDaoFileImpl;
+import flooring.dao.FlooringMasteryPersistenceException;
+import flooring.dao.FlooringMasteryProductDao;
+import flooring.dao.FlooringMasteryProductDaoFileImpl;
+import flooring.model.Order;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsBeanPostProcessorTest {
+
+    private final String PRODUCT_FILE = "src/test/resources/productTest.txt";
+    private final String ORDER_DIRECTORY = "src/test/resources/testMetrics";
+
+    private AnnotationConfigApplicationContext applicationContext;
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    @BeforeEach
+    void setUp() {
+        applicationContext = new AnnotationConfigApplicationContext();
+        applicationContext.register(MetricsBeanPostProcessor.class);
+        applicationContext.registerBean("productDao", FlooringMasteryProductDaoFileImpl.class,
+                () -> new FlooringMasteryProductDaoFileImpl(PRODUCT_FILE));
+        applicationContext.registerBean("missingProductDao", FlooringMasteryProductDaoFileImpl.class,
+                () -> new FlooringMasteryProductDaoFileImpl("src/test/resources/missing.txt"));
+        applicationContext.refresh();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        applicationContext.close();
+        FileUtils.deleteDirectory(new File(ORDER_DIRECTORY));
+    }
+
+    @Test
+    void testDaoCallsArePublishedInJmx() throws Exception {
+        ObjectName getAllProducts = new ObjectName("flooring:type=Operation,"
+                + "component=\"FlooringMasteryProductDaoFileImpl\",name=\"getAllProducts\"");
+        ObjectName loadProducts = new ObjectName("flooring:type=Operation,"
+                + "component=\"FlooringMasteryProductDaoFileImpl\",name=\"loadProducts\"");
+        FlooringMasteryProductDao productDao = applicationContext.getBean("productDao", FlooringMasteryProductDao.class);
+        productDao.loadProducts();
+        // operations are published on their first call
+        productDao.getAllProducts();
+        long calls = (Long) server.getAttribute(getAllProducts, "Count");
+        long errors = (Long) server.getAttribute(loadProducts, "ErrorCount");
+
+        assertEquals(2, productDao.getAllProducts().size());
+        assertEquals(calls + 1, server.getAttribute(getAllProducts, "Count"));
+        assertThrows(FlooringMasteryPersistenceException.class,
+                () -> applicationContext.getBean("missingProductDao", FlooringMasteryProductDao.class).loadProducts());
+        assertEquals(errors + 1, server.getAttribute(loadProducts, "ErrorCount"));
+        assertTrue((Double) server.getAttribute(loadProducts, "P99Micros") > 0);
+    }
+
+    @Test
+    void testProxiedDaoCanBeInjectedByClass() throws Exception {
+        FlooringMasteryProductDaoFileImpl productDao = applicationContext.getBean("productDao",
+                FlooringMasteryProductDaoFileImpl.class);
+        productDao.loadProducts();
+        // catalog getters are not timed and reach the target
+        assertTrue(productDao.getCatalogVersion() >= 1);
+        ObjectName catalog = new ObjectName("flooring:type=Catalog,name=\"productDao\"");
+        assertEquals(productDao.getCatalogVersion(), server.getAttribute(catalog, "CatalogVersion"));
+    }
+
+    @Test
+    void testOrderDaoCountsBytesAndParsedOrders() throws Exception {
+        FlooringMasteryOrderDao orderDao = new FlooringMasteryOrderDaoFileImpl(ORDER_DIRECTORY,
+                ORDER_DIRECTORY + "/backup.txt", ORDER_DIRECTORY + "/number.txt");
+        Order order = new Order(LocalDate.parse("2020-01-01"), "name", "state", new BigDecimal("5.00"),
+                "type", new BigDecimal("100.00"), new BigDecimal("1.00"), new BigDecimal("1.00"));
+        order.setOrderNumber(1);
+        long written = FlooringMasteryMetrics.getBytesWritten();
+        long read = FlooringMasteryMetrics.getBytesRead();
+        long parsed = FlooringMasteryMetrics.getOrdersParsed();
+
+        orderDao.uploadOrder(order);
+        assertTrue(FlooringMasteryMetrics.getBytesWritten() > written);
+        orderDao.getOrdersForDate(order.getDate());
+        long dayFileSize = new File(ORDER_DIRECTORY, "Order_01012020.txt").length();
+        assertTrue(FlooringMasteryMetrics.getBytesRead() - read >= dayFileSize);
+        assertTrue(FlooringMasteryMetrics.getOrdersParsed() - parsed >= 1);
+    }
+}
@@ -0,0 +1,84 @@
+package flooring.metrics;
+
+import flooring.dao.FlooringMasteryOrderDao;
+import flooring.dao.FlooringMasteryOrderDaoFileImpl;
+import flooring.model.Order;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderFileEventTest {
+
+    private final String ORDER_DIRECTORY = "src/test/resources/testEvents";
+    private final Path RECORDING = Paths.get(ORDER_DIRECTORY, "recording.jfr");
+
+    @AfterEach
+    void tearDown() throws IOException {
+        FileUtils.deleteDirectory(new File(ORDER_DIRECTORY));
+    }
+
+    @Test
+    void testDaoOperationsAreRecorded() throws Exception {
+        FlooringMasteryOrderDao orderDao = new FlooringMasteryOrderDaoFileImpl(ORDER_DIRECTORY,
+                ORDER_DIRECTORY + "/backup.txt", ORDER_DIRECTORY + "/number.txt");
+        LocalDate date = LocalDate.parse("2020-01-01");
+        try (Recording recording = new Recording()) {
+            for (String event : new String[]{"DayFileOpen", "DayFileRead", "DayFileParse", "DayFileWrite",
+                    "OrderExport"}) {
+                recording.enable("flooring." + event).withoutThreshold();
+            }
+            recording.start();
+            for (int i = 1; i <= 3; i++) {
+                Order order = new Order(date, "name", "state", new BigDecimal("5.00"), "type",
+                        new BigDecimal("100.00"), new BigDecimal("1.00"), new BigDecimal("1.00"));
+                order.setOrderNumber(i);
+                orderDao.uploadOrder(order);
+            }
+            orderDao.getOrdersForDate(date);
+            orderDao.exportOrders();
+            recording.stop();
+            recording.dump(RECORDING);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(RECORDING);
+
+        List<RecordedEvent> writes = ofType(events, "flooring.DayFileWrite");
+        assertEquals(3, writes.size());
+        assertEquals("uploadOrder", writes.get(0).getString("operation"));
+        assertEquals("2020-01-01", writes.get(0).getString("orderDate"));
+        assertTrue(writes.get(0).getLong("bytes") > 0);
+
+        RecordedEvent parse = ofType(events, "flooring.DayFileParse").get(0);
+        assertEquals("getOrdersForDate", parse.getString("operation"));
+        assertEquals(3, parse.getInt("records"));
+        long fileSize = new File(ORDER_DIRECTORY, "Order_01012020.txt").length();
+        assertEquals(fileSize, parse.getLong("bytes"));
+
+        List<String> reads = ofType(events, "flooring.DayFileRead").stream()
+                .map(event -> event.getString("operation")).collect(Collectors.toList());
+        assertTrue(reads.contains("getOrdersForDate"));
+        assertTrue(reads.contains("exportOrders"));
+
+        RecordedEvent export = ofType(events, "flooring.OrderExport").get(0);
+        assertEquals(3, export.getInt("records"));
+        assertNull(export.getString("orderDate"));
+    }
+
+    private List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,138 @@
+package flooring.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PricingEngineTest {
+
+    @Test
+    void testOrderPricingMatchesBigDecimalForRandomOrders() {
+        Random random = new Random(20200101L);
+        for (int i = 0; i < 200_000; i++) {
+            Order order = createOrder(randomDecimal(random, 4, 2), randomDecimal(random, 3, 3),
+                    randomDecimal(random, 3, 3), randomDecimal(random, 7, 4));
+            assertSamePrice(order);
+        }
+    }
+
+    @Test
+    void testOrderPricingMatchesBigDecimalForRoundingTies() {
+        String[] areas = {"0.5", "1.005", "100.125", "0.0001", "0.00005", "-1.005", "-0.5", "250", "1E+3"};
+        String[] costs = {"1", "0.1", "2.25", "0.005", "4.15", "-2.25", "0", "3.333333"};
+        String[] rates = {"0", "4.45", "6.25", "25.00", "0.5", "12.125", "100", "-5.5", "1E+1"};
+        for (String area : areas) {
+            for (String cost : costs) {
+                for (String labor : costs) {
+                    for (String rate : rates) {
+                        assertSamePrice(createOrder(new BigDecimal(rate), new BigDecimal(cost),
+                                new BigDecimal(labor), new BigDecimal(area)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testOrderPricingFallsBackForValuesOutOfLongRange() {
+        assertSamePrice(createOrder(new BigDecimal("4.45"), new BigDecimal("99999999999.99"),
+                new BigDecimal("1.00"), new BigDecimal("99999999999.99")));
+        assertSamePrice(createOrder(new BigDecimal("4.45"), new BigDecimal("1.0000000000000000001"),
+                new BigDecimal("1.00"), new BigDecimal("12.5")));
+        assertSamePrice(createOrder(new BigDecimal("4.45"), new BigDecimal("1.000000001"),
+                new BigDecimal("1.00"), new BigDecimal("12.0000000005")));
+    }
+
+    @Test
+    void testOrderPriceIsRecalculatedAfterChange() {
+        Order order = createOrder(new BigDecimal("10.00"), new BigDecimal("10.0"),
+                new BigDecimal("5.0"), new BigDecimal("100.00"));
+        assertEquals(new BigDecimal("1650.00"), order.getTotal());
+        order.setArea(new BigDecimal("200.00"));
+        assertEquals(new BigDecimal("3300.00"), order.getTotal());
+        order.setTaxRate(new BigDecimal("0"));
+        assertEquals(new BigDecimal("3000.00"), order.getTotal());
+        order.setCostPerSquareFoot(new BigDecimal("1"));
+        order.setLaborCostPerSquareFoot(new BigDecimal("1"));
+        assertEquals(new BigDecimal("400.00"), order.getTotal());
+        assertEquals(order.getTotal(), new Order(order).getTotal());
+    }
+
+    @Test
+    void testPriceAllMatchesBigDecimal() {
+        Random random = new Random(42L);
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            orders.add(createOrder(randomDecimal(random, 4, 2), randomDecimal(random, 3, 3),
+                    randomDecimal(random, 3, 3), randomDecimal(random, 7, 4)));
+        }
+        orders.add(createOrder(new BigDecimal("4.45"), new BigDecimal("1.0000000000000000001"),
+                new BigDecimal("1.00"), new BigDecimal("12.5")));
+        PricingEngine.Batch batch = PricingEngine.priceAll(orders);
+        assertEquals(orders.size(), batch.size());
+        BigDecimal sum = BigDecimal.ZERO;
+        for (int i = 0; i < orders.size(); i++) {
+            BigDecimal[] expected = priceWithBigDecimal(orders.get(i));
+            assertEquals(expected[0], BigDecimal.valueOf(batch.getMaterialCents(i), 2));
+            assertEquals(expected[1], BigDecimal.valueOf(batch.getLaborCents(i), 2));
+            assertEquals(expected[2], BigDecimal.valueOf(batch.getTaxCents(i), 2));
+            assertEquals(expected[3], BigDecimal.valueOf(batch.getTotalCents(i), 2));
+            sum = sum.add(expected[3]);
+        }
+        assertEquals(sum, BigDecimal.valueOf(batch.getSumOfTotalCents(), 2));
+    }
+
+    private void assertSamePrice(Order order) {
+        BigDecimal[] expected = priceWithBigDecimal(order);
+        String message = "taxRate " + order.getTaxRate() + ", cost " + order.getCostPerSquareFoot()
+                + ", labor " + order.getLaborCostPerSquareFoot() + ", area " + order.getArea();
+        // equals compares scale too
+        assertEquals(expected[0], order.getMaterialCost(), message);
+        assertEquals(expected[1], order.getLaborCost(), message);
+        assertEquals(expected[2], order.getTax(), message);
+        assertEquals(expected[3], order.getTotal(), message);
+    }
+
+    /**
+     * Prices order the way Order did before PricingEngine
+     * @param order Order object
+     * @return materialCost, laborCost, tax and total
+     */
+    private BigDecimal[] priceWithBigDecimal(Order order) {
+        BigDecimal materialCost = order.getCostPerSquareFoot().multiply(order.getArea())
+                .setScale(2, RoundingMode.HALF_UP);
+        BigDecimal laborCost = order.getLaborCostPerSquareFoot().multiply(order.getArea())
+                .setScale(2, RoundingMode.HALF_UP);
+        BigDecimal costWithoutTax = laborCost.add(materialCost);
+        BigDecimal tax = costWithoutTax.multiply(order.getTaxRate())
+                .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
+        return new BigDecimal[]{materialCost, laborCost, tax, costWithoutTax.add(tax)};
+    }
+
+    private Order createOrder(BigDecimal taxRate, BigDecimal cost, BigDecimal labor, BigDecimal area) {
+        return new Order(LocalDate.parse("2020-01-01"), "name", "state", taxRate, "type", area, cost, labor);
+    }
+
+    /**
+     * @param random Random to use
+     * @param maxIntegerDigits maximum number of digits before the point
+     * @param maxScale maximum number of digits after the point
+     * @return random non-negative BigDecimal, negative in one of fifty cases
+     */
+    private BigDecimal randomDecimal(Random random, int maxIntegerDigits, int maxScale) {
+        int scale = random.nextInt(maxScale + 1);
+        long bound = 1;
+        for (int i = 0; i < random.nextInt(maxIntegerDigits + 1) + scale; i++) {
+            bound *= 10;
+        }
+        long unscaled = (long) (random.nextDouble() * bound);
+        return BigDecimal.valueOf(random.nextInt(50) == 0 ? -unscaled : unscaled, scale);
+    }
+}
@@ -1,25 +1,41 @@
 package flooring.service;
 
+import flooring.dao.FlooringMasteryOrderDao;
 import flooring.dao.FlooringMasteryPersistenceException;
+import flooring.model.ImportReport;
 import flooring.model.Order;
+import flooring.model.OrderFilter;
 import flooring.model.Product;
 import flooring.model.Tax;
+import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class FlooringMasterServiceLayerImplTest {
 
     private FlooringMasteryServiceLayer testService;
+    private FlooringMasteryOrderDao testOrderDao;
 
     private DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM-dd-yyyy");
 
@@ -30,6 +46,7 @@ class FlooringMasterServiceLayerImplTest {
         applicationContext.scan(FlooringMasterServiceLayerImplTest.class.getPackageName());
         applicationContext.refresh();
         testService = applicationContext.getBean("testService", FlooringMasteryServiceLayer.class);
+        testOrderDao = applicationContext.getBean(FlooringMasteryOrderDao.class);
         try {
             testService.loadData();
         } catch (FlooringMasteryPersistenceException e) {
@@ -357,6 +374,8 @@ class FlooringMasterServiceLayerImplTest {
         orderMap.put(2, secondOrder);
         // delete first
         try {
+            testOrderDao.uploadOrder(firstOrder);
+            testOrderDao.uploadOrder(secondOrder);
             testService.deleteOrder(orderMap, 1, date);
         } catch (FlooringMasteryPersistenceException e) {
             fail("OrderDao was not stubbed");
@@ -409,4 +428,182 @@ class FlooringMasterServiceLayerImplTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    void testFindOrderByNumber() {
+        Product product = new Product(new String[]{"type", "5.55", "7.77"});
+        Tax tax = new Tax(new String[]{"s", "state", "5.50"});
+        LocalDate date = LocalDate.parse("12-12-2000", formatter);
+        Order order = testService.createOrder(date, "name", tax, product, new BigDecimal("1000.55"));
+        assertThrows(ItemNotFoundException.class, () -> testService.findOrder(10));
+        try {
+            testService.saveOrder(order);
+            assertEquals(order, testService.findOrder(order.getOrderNumber()));
+        } catch (FlooringMasteryPersistenceException | ItemNotFoundException e) {
+            fail("Saved order should be found by number");
+        }
+    }
+
+    @Test
+    void testConcurrentlySavedOrdersGetUniqueNumbers() throws InterruptedException {
+        Product product = new Product(new String[]{"type", "5.55", "7.77"});
+        Tax tax = new Tax(new String[]{"s", "state", "5.50"});
+        Set<Integer> numbers = Collections.synchronizedSet(new HashSet<>());
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            LocalDate date = LocalDate.parse("12-12-2000", formatter).plusDays(t);
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < 250; i++) {
+                    Order order = testService.createOrder(date, "name", tax, product, new BigDecimal("100"));
+                    try {
+                        testService.saveOrder(order);
+                    } catch (FlooringMasteryPersistenceException e) {
+                        fail("Saving order was not stubbed");
+                    }
+                    numbers.add(order.getOrderNumber());
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(2000, numbers.size());
+    }
+
+    @Test
+    void testGetOrdersBetween() throws FlooringMasteryPersistenceException {
+        Product product = new Product(new String[]{"type", "5.55", "7.77"});
+        Tax tax = new Tax(new String[]{"s", "state", "5.50"});
+        LocalDate date = LocalDate.parse("12-12-2000", formatter);
+        Order first = testService.createOrder(date, "name", tax, product, new BigDecimal("100"));
+        Order second = testService.createOrder(date.plusDays(7), "name", tax, product, new BigDecimal("100"));
+        Order outside = testService.createOrder(date.plusDays(8), "name", tax, product, new BigDecimal("100"));
+        testService.saveOrder(second);
+        testService.saveOrder(outside);
+        testService.saveOrder(first);
+        assertThrows(InvalidInputException.class, () -> testService.getOrdersBetween(date.plusDays(1), date));
+        try (Stream<Order> orders = testService.getOrdersBetween(date, date.plusDays(7))) {
+            assertEquals(List.of(first, second), orders.collect(Collectors.toList()));
+        } catch (InvalidInputException e) {
+            fail("Range is valid");
+        }
+    }
+
+    @Test
+    void testScanOrders() throws FlooringMasteryPersistenceException {
+        Product product = new Product(new String[]{"type", "5.55", "7.77"});
+        Tax tax = new Tax(new String[]{"s", "state", "5.50"});
+        LocalDate date = LocalDate.parse("12-12-2000", formatter);
+        Order small = testService.createOrder(date, "name", tax, product, new BigDecimal("100"));
+        Order large = testService.createOrder(date.plusDays(1), "name", tax, product, new BigDecimal("300"));
+        Order other = testService.createOrder(date.plusDays(1), "other", tax, product, new BigDecimal("300"));
+        testService.saveOrder(small);
+        testService.saveOrder(large);
+        testService.saveOrder(other);
+        OrderFilter filter = new OrderFilter("name", null, null, new BigDecimal("200"), null, null, null);
+        assertThrows(InvalidInputException.class, () -> testService.scanOrders(date.plusDays(1), date, filter));
+        try (Stream<Order> orders = testService.scanOrders(date, date.plusDays(1), filter)) {
+            assertEquals(List.of(large), orders.collect(Collectors.toList()));
+        } catch (InvalidInputException e) {
+            fail("Range is valid");
+        }
+    }
+
+    @Test
+    void testValidateArea() throws InvalidInputException {
+        assertEquals(new BigDecimal("100.00"), testService.validateArea("100"));
+        assertEquals(new BigDecimal("250.56"), testService.validateArea(" 250.555 "));
+        assertThrows(InvalidInputException.class, () -> testService.validateArea("99.99"));
+        assertThrows(InvalidInputException.class, () -> testService.validateArea("wide"));
+    }
+
+    @Test
+    void testModifyOrdersOfDateWithoutOrders() throws FlooringMasteryPersistenceException {
+        LocalDate date = LocalDate.parse("12-12-2000", formatter);
+        List<Map<Integer, Order>> seen = new ArrayList<>();
+        assertFalse(testService.modifyOrders(date, orderMap -> {
+            seen.add(new LinkedHashMap<>(orderMap));
+            return false;
+        }));
+        assertEquals(1, seen.size());
+        assertTrue(seen.get(0).isEmpty());
+    }
+
+    @Test
+    void testModifyOrdersOfDate() throws FlooringMasteryPersistenceException, ItemNotFoundException {
+        Product product = new Product(new String[]{"type", "5.55", "7.77"});
+        Tax tax = new Tax(new String[]{"s", "state", "5.50"});
+        LocalDate date = LocalDate.parse("12-12-2000", formatter);
+        Order saved = testService.createOrder(date, "saved", tax, product, new BigDecimal("100"));
+        Order removed = testService.createOrder(date, "removed", tax, product, new BigDecimal("100"));
+        testService.saveOrder(saved);
+        testService.saveOrder(removed);
+        Order added = testService.createOrder(date, "added", tax, product, new BigDecimal("100"));
+
+        // nothing is saved if the change returns false
+        assertFalse(testService.modifyOrders(date, orderMap -> {
+            orderMap.remove(saved.getOrderNumber());
+            return false;
+        }));
+        assertEquals(2, testService.getOrders(date).size());
+
+        assertTrue(testService.modifyOrders(date, orderMap -> {
+            assertEquals(List.of(saved.getOrderNumber(), removed.getOrderNumber()),
+                    new ArrayList<>(orderMap.keySet()));
+            try {
+                int number = testService.assignOrderNumber(added);
+                assertEquals(number, added.getOrderNumber());
+                assertTrue(number > removed.getOrderNumber());
+            } catch (FlooringMasteryPersistenceException e) {
+                fail(e.getMessage());
+            }
+            orderMap.put(added.getOrderNumber(), added);
+            orderMap.remove(removed.getOrderNumber());
+            return true;
+        }));
+        Set<Order> orders = new HashSet<>(testService.getOrders(date));
+        assertEquals(Set.of(saved, added), orders);
+    }
+
+    @Test
+    void testImportOrdersSavesValidRowsAndReportsRejectedOnes() throws Exception {
+        Path directory = Paths.get("src/test/resources/testImport");
+        Files.createDirectories(directory);
+        Path source = directory.resolve("orders.csv");
+        Path rejected = directory.resolve("rejected.csv");
+        try {
+            List<String> rows = new ArrayList<>();
+            rows.add("OrderDate,CustomerName,State,ProductType,Area");
+            for (int i = 0; i < 2500; i++) {
+                rows.add("12-1" + (i % 3) + "-2000,\"Name, " + i + "\",state,product,100");
+            }
+            rows.add("12-12-2000,name,unknown,product,100");
+            rows.add("");
+            rows.add("12-12-2000,name,state,product");
+            Files.write(source, rows);
+
+            ImportReport report = testService.importOrders(source, rejected);
+            assertEquals(2500, report.getImportedCount());
+            assertEquals(2, report.getRejectedCount());
+            int imported = 0;
+            Set<Integer> numbers = new HashSet<>();
+            for (int day = 10; day <= 12; day++) {
+                for (Order order : testService.getOrders(LocalDate.parse("12-" + day + "-2000", formatter))) {
+                    assertEquals(new BigDecimal("100.00"), order.getArea());
+                    numbers.add(order.getOrderNumber());
+                    imported++;
+                }
+            }
+            assertEquals(2500, imported);
+            assertEquals(2500, numbers.size());
+            List<String> rejections = Files.readAllLines(rejected);
+            assertEquals(3, rejections.size());
+            Set<String> errors = Set.of(rejections.get(1), rejections.get(2));
+            assertTrue(errors.contains("2502,Invalid state name,\"12-12-2000,name,unknown,product,100\""));
+            assertTrue(errors.contains("2504,\"Row should have 5 fields, found 4\",\"12-12-2000,name,state,product\""));
+        } finally {
+            FileUtils.deleteDirectory(directory.toFile());
+        }
+    }
+}
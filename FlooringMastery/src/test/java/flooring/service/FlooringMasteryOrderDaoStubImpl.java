@@ -2,18 +2,26 @@ package flooring.service;
 
 import flooring.dao.FlooringMasteryOrderDao;
 import flooring.dao.FlooringMasteryPersistenceException;
+import flooring.model.ExportReport;
 import flooring.model.Order;
+import flooring.model.OrderFilter;
+import flooring.model.RestoreReport;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 @Component
 public class FlooringMasteryOrderDaoStubImpl implements FlooringMasteryOrderDao {
 
     private Map<LocalDate, Map<Integer, Order>> ordersMap = new HashMap<>();
+    private int nextOrderNumber = 10;
     @Override
     public void uploadOrder(Order order) throws FlooringMasteryPersistenceException {
         Map<Integer, Order> orderForDate = ordersMap.get(order.getDate());
@@ -24,6 +32,13 @@ public class FlooringMasteryOrderDaoStubImpl implements FlooringMasteryOrderDao
         ordersMap.put(order.getDate(), orderForDate);
     }
 
+    @Override
+    public void uploadOrders(Collection<Order> orders, LocalDate date) throws FlooringMasteryPersistenceException {
+        for (Order order : orders) {
+            uploadOrder(order);
+        }
+    }
+
     @Override
     public Map<Integer, Order> getOrdersForDate(LocalDate date) throws FlooringMasteryPersistenceException {
         Map<Integer, Order> ordersForDate = ordersMap.get(date);
@@ -33,6 +48,32 @@ public class FlooringMasteryOrderDaoStubImpl implements FlooringMasteryOrderDao
         return ordersForDate;
     }
 
+    @Override
+    public Stream<Order> getOrdersBetween(LocalDate from, LocalDate to) throws FlooringMasteryPersistenceException {
+        return ordersMap.entrySet().stream()
+                .filter(entry -> !entry.getKey().isBefore(from) && !entry.getKey().isAfter(to))
+                .sorted(Map.Entry.comparingByKey())
+                .flatMap(entry -> entry.getValue().values().stream()
+                        .sorted(Comparator.comparingInt(Order::getOrderNumber)));
+    }
+
+    @Override
+    public Stream<Order> scanOrders(LocalDate from, LocalDate to, OrderFilter filter)
+            throws FlooringMasteryPersistenceException {
+        return getOrdersBetween(from, to).filter(filter);
+    }
+
+    @Override
+    public Order findOrder(int orderNumber) throws FlooringMasteryPersistenceException {
+        for (Map<Integer, Order> orderForDate : ordersMap.values()) {
+            Order order = orderForDate.get(orderNumber);
+            if (order != null) {
+                return order;
+            }
+        }
+        return null;
+    }
+
     @Override
     public void uploadModifiedOrders(Collection<Order> orders, LocalDate date) throws FlooringMasteryPersistenceException {
         Map<Integer, Order> orderForDate = new HashMap<>();
@@ -42,17 +83,58 @@ public class FlooringMasteryOrderDaoStubImpl implements FlooringMasteryOrderDao
     }
 
     @Override
-    public void exportOrders() throws FlooringMasteryPersistenceException {
+    public boolean modifyOrders(LocalDate date, Predicate<Map<Integer, Order>> change)
+            throws FlooringMasteryPersistenceException {
+        Map<Integer, Order> orderMap = new LinkedHashMap<>(ordersMap.getOrDefault(date, new HashMap<>()));
+        if (!change.test(orderMap)) {
+            return false;
+        }
+        uploadModifiedOrders(orderMap.values(), date);
+        return true;
+    }
+
+    @Override
+    public void updateOrder(Order order) throws FlooringMasteryPersistenceException {
+        uploadOrder(order);
+    }
+
+    @Override
+    public void removeOrder(LocalDate date, int orderNumber) throws FlooringMasteryPersistenceException {
+        Map<Integer, Order> orderForDate = ordersMap.get(date);
+        if (orderForDate == null || orderForDate.remove(orderNumber) == null) {
+            throw new FlooringMasteryPersistenceException("Cannot upload data");
+        }
+    }
+
+    @Override
+    public ExportReport exportOrders() throws FlooringMasteryPersistenceException {
         // do nothing
+        return new ExportReport(0, 0, 0, 0);
     }
 
     @Override
-    public int loadOrderNumber() {
-        return 10;
+    public ExportReport exportChangedOrders() throws FlooringMasteryPersistenceException {
+        // do nothing
+        return new ExportReport(0, 0, 0, 0);
     }
 
     @Override
-    public void uploadOrderNumber(int orderNumber) throws FlooringMasteryPersistenceException {
+    public RestoreReport restoreOrders() throws FlooringMasteryPersistenceException {
         // do nothing
+        return new RestoreReport(0, 0, 0, 0, 0);
+    }
+
+    @Override
+    public synchronized int leaseOrderNumbers(int count) throws FlooringMasteryPersistenceException {
+        int first = nextOrderNumber;
+        nextOrderNumber += count;
+        return first;
+    }
+
+    @Override
+    public synchronized void releaseOrderNumbers(int from, int to) throws FlooringMasteryPersistenceException {
+        if (nextOrderNumber == to) {
+            nextOrderNumber = from;
+        }
     }
 }
@@ -0,0 +1,60 @@
+package flooring.tools;
+
+import flooring.dao.FlooringMasteryOrderDao;
+import flooring.dao.FlooringMasteryOrderDaoBinaryImpl;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DayFileConverterTest {
+
+    private final String ORDER_DIRECTORY = "src/test/resources/testConverted/Orders";
+    private final String NUMBER_FILE = "src/test/resources/testConverted/OrderNumber.txt";
+    private final String INDEX_FILE = "src/test/resources/testConverted/OrderIndex.txt";
+    private final LocalDate FROM = LocalDate.parse("2019-12-25");
+
+    @AfterEach
+    void tearDown() throws IOException {
+        FileUtils.deleteDirectory(new File("src/test/resources/testConverted"));
+    }
+
+    @Test
+    void testConversionToBinaryAndBackKeepsDayFiles() throws Exception {
+        new OrderHistoryGenerator(ORDER_DIRECTORY, NUMBER_FILE, INDEX_FILE, "Data/Taxes.txt", "Data/Products.txt")
+                .generate(FROM, 10, 50, 3L);
+        Map<Path, byte[]> textFiles = new HashMap<>();
+        for (File file : new File(ORDER_DIRECTORY).listFiles()) {
+            textFiles.put(file.toPath(), Files.readAllBytes(file.toPath()));
+        }
+        DayFileConverter converter = new DayFileConverter(ORDER_DIRECTORY);
+
+        DayFileConverter.Result result = converter.convert(true, true);
+        assertEquals(textFiles.size(), result.getFileCount());
+        assertTrue(result.getTargetBytes() < result.getSourceBytes() / 2);
+        for (Path textFile : textFiles.keySet()) {
+            assertFalse(Files.exists(textFile));
+        }
+        FlooringMasteryOrderDao binaryDao = new FlooringMasteryOrderDaoBinaryImpl(ORDER_DIRECTORY,
+                ORDER_DIRECTORY + "/backup.txt", NUMBER_FILE);
+        assertEquals(result.getOrderCount(), binaryDao.getOrdersBetween(FROM, FROM.plusDays(9)).count());
+
+        result = converter.convert(false, true);
+        assertEquals(textFiles.size(), result.getFileCount());
+        for (Map.Entry<Path, byte[]> textFile : textFiles.entrySet()) {
+            assertArrayEquals(textFile.getValue(), Files.readAllBytes(textFile.getKey()));
+        }
+        assertEquals(textFiles.size(), new File(ORDER_DIRECTORY).list().length);
+        assertFalse(Files.exists(Paths.get(ORDER_DIRECTORY, "backup.txt")));
+    }
+}
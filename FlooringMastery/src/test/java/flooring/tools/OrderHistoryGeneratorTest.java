@@ -0,0 +1,132 @@
+package flooring.tools;
+
+import flooring.dao.FlooringMasteryOrderDao;
+import flooring.dao.FlooringMasteryOrderDaoFileImpl;
+import flooring.model.Order;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderHistoryGeneratorTest {
+
+    private final String ORDER_DIRECTORY = "src/test/resources/testGenerated/Orders";
+    private final String NUMBER_FILE = "src/test/resources/testGenerated/OrderNumber.txt";
+    private final String INDEX_FILE = "src/test/resources/testGenerated/OrderIndex.txt";
+    private final String TAX_FILE = "Data/Taxes.txt";
+    private final String PRODUCT_FILE = "Data/Products.txt";
+    private final LocalDate FROM = LocalDate.parse("2019-12-25");
+
+    private OrderHistoryGenerator generator;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        generator = new OrderHistoryGenerator(ORDER_DIRECTORY, NUMBER_FILE, INDEX_FILE, TAX_FILE, PRODUCT_FILE);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        FileUtils.deleteDirectory(new File("src/test/resources/testGenerated"));
+    }
+
+    @Test
+    void testGeneratedOrdersAreReadableAndNumberedWithoutGaps() throws Exception {
+        Files.createDirectories(Paths.get(INDEX_FILE).getParent());
+        Files.write(Paths.get(INDEX_FILE), "CLEAN\n".getBytes(StandardCharsets.US_ASCII));
+        long total = generator.generate(FROM, 30, 50, 7L);
+
+        FlooringMasteryOrderDao dao = new FlooringMasteryOrderDaoFileImpl(ORDER_DIRECTORY,
+                "src/test/resources/testGenerated/backup.txt", NUMBER_FILE);
+        List<Order> orders;
+        try (Stream<Order> stream = dao.getOrdersBetween(FROM, FROM.plusDays(29))) {
+            orders = stream.collect(Collectors.toList());
+        }
+        assertEquals(total, orders.size());
+        assertEquals(30, readDayFiles().size());
+        for (int i = 0; i < orders.size(); i++) {
+            assertEquals(i + 1, orders.get(i).getOrderNumber());
+        }
+        assertEquals(total + 1, dao.leaseOrderNumbers(1));
+        assertFalse(Files.exists(Paths.get(INDEX_FILE)));
+
+        // all states and products of the catalogs are used
+        Set<String> states = orders.stream().map(Order::getState).collect(Collectors.toSet());
+        Set<String> products = orders.stream().map(Order::getProductType).collect(Collectors.toSet());
+        assertEquals(catalogColumn(TAX_FILE, 1), states);
+        assertEquals(catalogColumn(PRODUCT_FILE, 0), products);
+        for (Order order : orders) {
+            assertTrue(order.getArea().compareTo(new BigDecimal("100")) >= 0);
+        }
+    }
+
+    @Test
+    void testGenerationIsDeterministic() throws Exception {
+        generator.generate(FROM, 20, 40, 42L);
+        Map<String, byte[]> first = readDayFiles();
+        generator.setOverwrite(true);
+        generator.setThreads(1);
+        generator.generate(FROM, 20, 40, 42L);
+        Map<String, byte[]> second = readDayFiles();
+
+        assertEquals(first.keySet(), second.keySet());
+        for (String name : first.keySet()) {
+            assertArrayEquals(first.get(name), second.get(name), name);
+        }
+        generator.generate(FROM, 20, 40, 43L);
+        assertNotEquals(new String(first.values().iterator().next(), StandardCharsets.UTF_8),
+                new String(readDayFiles().get(first.keySet().iterator().next()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testVolumeIsSkewedByDayOfWeek() throws Exception {
+        generator.generate(FROM, 70, 200, 1L);
+        FlooringMasteryOrderDao dao = new FlooringMasteryOrderDaoFileImpl(ORDER_DIRECTORY,
+                "src/test/resources/testGenerated/backup.txt", NUMBER_FILE);
+        Map<DayOfWeek, Integer> volumes = new HashMap<>();
+        for (int day = 0; day < 70; day++) {
+            LocalDate date = FROM.plusDays(day);
+            volumes.merge(date.getDayOfWeek(), dao.getOrdersForDate(date).size(), Integer::sum);
+        }
+        assertTrue(volumes.get(DayOfWeek.SATURDAY) > volumes.get(DayOfWeek.SUNDAY));
+    }
+
+    @Test
+    void testGenerationRefusesToMixWithExistingHistory() throws Exception {
+        generator.generate(FROM, 2, 5, 1L);
+        assertThrows(IOException.class, () -> generator.generate(FROM, 2, 5, 1L));
+    }
+
+    private Map<String, byte[]> readDayFiles() throws IOException {
+        Map<String, byte[]> files = new HashMap<>();
+        try (Stream<Path> paths = Files.list(Paths.get(ORDER_DIRECTORY))) {
+            for (Path path : paths.collect(Collectors.toList())) {
+                files.put(path.getFileName().toString(), Files.readAllBytes(path));
+            }
+        }
+        return files;
+    }
+
+    private Set<String> catalogColumn(String file, int column) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(file));
+        return lines.subList(1, lines.size()).stream()
+                .map(line -> line.split("::")[column]).collect(Collectors.toSet());
+    }
+}